@@ -0,0 +1,86 @@
+package org.example.gateway.benchmark;
+
+import org.example.gateway.auth.JwtClaims;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.web.server.ServerWebExchange;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 认证过滤器：令牌命中校验缓存、公开路径、缺少令牌被拒绝，以及不经缓存的完整RS256校验
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AuthenticationFilterBenchmark {
+
+    private FilterFixture fixture;
+
+    private MockServerHttpRequest authenticated;
+
+    private MockServerHttpRequest publicPath;
+
+    private MockServerHttpRequest anonymous;
+
+    private String token;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        fixture = new FilterFixture();
+        authenticated = fixture.authenticatedRequest();
+        publicPath = FilterFixture.publicRequest();
+        anonymous = FilterFixture.anonymousRequest();
+        token = authenticated.getHeaders().getFirst(HttpHeaders.AUTHORIZATION).substring(7);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        fixture.close();
+    }
+
+    @Benchmark
+    public ServerWebExchange cachedToken() {
+        ServerWebExchange exchange = FilterFixture.exchange(authenticated);
+        fixture.authenticationFilter.filter(exchange, FilterFixture.TERMINAL).block();
+        return exchange;
+    }
+
+    @Benchmark
+    public ServerWebExchange publicPath() {
+        ServerWebExchange exchange = FilterFixture.exchange(publicPath);
+        fixture.authenticationFilter.filter(exchange, FilterFixture.TERMINAL).block();
+        return exchange;
+    }
+
+    @Benchmark
+    public ServerWebExchange missingToken() {
+        ServerWebExchange exchange = FilterFixture.exchange(anonymous);
+        fixture.authenticationFilter.filter(exchange, FilterFixture.TERMINAL).block();
+        return exchange;
+    }
+
+    /**
+     * 缓存未命中时的代价，以微秒计
+     */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public JwtClaims uncachedVerify() {
+        return fixture.jwtVerifier.verifyUncached(token, System.currentTimeMillis());
+    }
+}
@@ -0,0 +1,86 @@
+package org.example.gateway.benchmark;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * 与保存的基线结果逐项比较
+ * 变差超过容差的指标记为回退；基线为0的指标只要当前值变差就记为回退，如原来没有错误现在出现错误。
+ * 只在一侧存在的指标单独列出，不算回退。
+ */
+public final class BaselineComparison {
+
+    private final List<Row> rows = new ArrayList<>();
+
+    private final List<String> added = new ArrayList<>();
+
+    private final List<String> removed = new ArrayList<>();
+
+    /**
+     * @param baseline       基线指标
+     * @param current        本次指标
+     * @param higherIsBetter 判断指标是否越大越好（如吞吐量），其余越小越好
+     * @param tolerance      允许的相对变差，如0.1表示10%
+     */
+    public BaselineComparison(Map<String, Double> baseline, Map<String, Double> current,
+                              Predicate<String> higherIsBetter, double tolerance) {
+        for (Map.Entry<String, Double> entry : current.entrySet()) {
+            String name = entry.getKey();
+            Double before = baseline.get(name);
+            if (before == null) {
+                added.add(name);
+                continue;
+            }
+            double after = entry.getValue();
+            boolean higher = higherIsBetter.test(name);
+            double change = before == 0 ? (after == 0 ? 0 : Double.POSITIVE_INFINITY * Math.signum(after))
+                    : (after - before) / Math.abs(before);
+            double worse = higher ? -change : change;
+            rows.add(new Row(name, before, after, change, worse > tolerance));
+        }
+        for (String name : baseline.keySet()) {
+            if (!current.containsKey(name)) {
+                removed.add(name);
+            }
+        }
+    }
+
+    public long regressions() {
+        return rows.stream().filter(Row::regressed).count();
+    }
+
+    public void print(PrintStream out) {
+        int width = rows.stream().mapToInt(row -> row.name().length()).max().orElse(10);
+        String format = "%-" + width + "s %14s %14s %9s  %s%n";
+        out.printf(Locale.ROOT, format, "指标", "基线", "本次", "变化", "");
+        for (Row row : rows) {
+            out.printf(Locale.ROOT, format, row.name(), number(row.baseline()), number(row.current()),
+                    percent(row.change()), row.regressed() ? "回退" : "");
+        }
+        if (!added.isEmpty()) {
+            out.println("基线中没有的指标: " + added);
+        }
+        if (!removed.isEmpty()) {
+            out.println("本次没有的指标: " + removed);
+        }
+        out.printf("共 %d 项，回退 %d 项%n", rows.size(), regressions());
+    }
+
+    private static String number(double value) {
+        return String.format(Locale.ROOT, Math.abs(value) >= 100 ? "%.0f" : "%.3f", value);
+    }
+
+    private static String percent(double change) {
+        if (Double.isInfinite(change)) {
+            return change > 0 ? "+inf" : "-inf";
+        }
+        return String.format(Locale.ROOT, "%+.1f%%", change * 100);
+    }
+
+    private record Row(String name, double baseline, double current, double change, boolean regressed) {
+    }
+}
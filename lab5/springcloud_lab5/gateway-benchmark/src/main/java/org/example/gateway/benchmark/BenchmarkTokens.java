@@ -0,0 +1,97 @@
+package org.example.gateway.benchmark;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.Signature;
+import java.security.interfaces.RSAPublicKey;
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * 基准使用的签名密钥与令牌
+ * 每次运行生成新的RSA密钥对，公钥写入临时JWKS文件供网关加载，私钥只在内存中用于签发令牌，
+ * 不依赖也不需要仓库中任何私钥。
+ */
+public final class BenchmarkTokens {
+
+    public static final String KEY_ID = "gateway-benchmark-rsa";
+
+    private static final Base64.Encoder BASE64 = Base64.getUrlEncoder().withoutPadding();
+
+    private final KeyPair keyPair;
+
+    private final Path jwksFile;
+
+    private BenchmarkTokens(KeyPair keyPair, Path jwksFile) {
+        this.keyPair = keyPair;
+        this.jwksFile = jwksFile;
+    }
+
+    /**
+     * 生成密钥对并写出JWKS文件，文件在JVM退出时删除
+     */
+    public static BenchmarkTokens generate() {
+        try {
+            KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+            generator.initialize(2048);
+            KeyPair keyPair = generator.generateKeyPair();
+            RSAPublicKey publicKey = (RSAPublicKey) keyPair.getPublic();
+            String jwks = "{\"keys\":[{\"kty\":\"RSA\",\"kid\":\"" + KEY_ID + "\",\"alg\":\"RS256\",\"use\":\"sig\","
+                    + "\"n\":\"" + unsigned(publicKey.getModulus()) + "\","
+                    + "\"e\":\"" + unsigned(publicKey.getPublicExponent()) + "\"}]}";
+            Path jwksFile = Files.createTempFile("gateway-benchmark-jwks", ".json");
+            jwksFile.toFile().deleteOnExit();
+            Files.writeString(jwksFile, jwks);
+            return new BenchmarkTokens(keyPair, jwksFile);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("生成基准密钥失败", e);
+        }
+    }
+
+    /**
+     * 网关 gateway.auth.jwks-location 使用的位置
+     */
+    public String jwksLocation() {
+        return jwksFile.toUri().toString();
+    }
+
+    /**
+     * 签发一个RS256令牌
+     *
+     * @param subject    主体
+     * @param ttlSeconds 距过期的秒数
+     */
+    public String sign(String subject, long ttlSeconds) {
+        long exp = System.currentTimeMillis() / 1000 + ttlSeconds;
+        String header = encode("{\"alg\":\"RS256\",\"kid\":\"" + KEY_ID + "\",\"typ\":\"JWT\"}");
+        String payload = encode("{\"sub\":\"" + subject + "\",\"exp\":" + exp + "}");
+        String signingInput = header + "." + payload;
+        try {
+            Signature signature = Signature.getInstance("SHA256withRSA");
+            signature.initSign(keyPair.getPrivate());
+            signature.update(signingInput.getBytes(StandardCharsets.US_ASCII));
+            return signingInput + "." + BASE64.encodeToString(signature.sign());
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("签发基准令牌失败", e);
+        }
+    }
+
+    private static String encode(String json) {
+        return BASE64.encodeToString(json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String unsigned(BigInteger value) {
+        byte[] bytes = value.toByteArray();
+        int offset = bytes[0] == 0 && bytes.length > 1 ? 1 : 0;
+        return BASE64.encodeToString(Arrays.copyOfRange(bytes, offset, bytes.length));
+    }
+}
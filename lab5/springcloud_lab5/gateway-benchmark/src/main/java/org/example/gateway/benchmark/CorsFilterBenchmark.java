@@ -0,0 +1,87 @@
+package org.example.gateway.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CorsConfig.corsFilter：不带 Origin 的同源请求、跨域的简单请求与预检请求
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CorsFilterBenchmark {
+
+    private static final WebFilterChain TERMINAL = exchange -> Mono.empty();
+
+    private static final String ORIGIN = "https://app.example.org";
+
+    private FilterFixture fixture;
+
+    private MockServerHttpRequest sameOrigin;
+
+    private MockServerHttpRequest crossOrigin;
+
+    private MockServerHttpRequest preflight;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        fixture = new FilterFixture();
+        sameOrigin = fixture.authenticatedRequest();
+        crossOrigin = MockServerHttpRequest.get(FilterFixture.PROTECTED_URI)
+                .header(HttpHeaders.ORIGIN, ORIGIN)
+                .header(HttpHeaders.AUTHORIZATION, sameOrigin.getHeaders().getFirst(HttpHeaders.AUTHORIZATION))
+                .build();
+        preflight = MockServerHttpRequest.options(FilterFixture.PROTECTED_URI)
+                .header(HttpHeaders.ORIGIN, ORIGIN)
+                .header(HttpHeaders.ACCESS_CONTROL_REQUEST_METHOD, HttpMethod.GET.name())
+                .header(HttpHeaders.ACCESS_CONTROL_REQUEST_HEADERS, "authorization, content-type")
+                .build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        fixture.close();
+    }
+
+    @Benchmark
+    public ServerWebExchange sameOrigin() {
+        return filter(sameOrigin);
+    }
+
+    @Benchmark
+    public ServerWebExchange crossOrigin() {
+        return filter(crossOrigin);
+    }
+
+    @Benchmark
+    public ServerWebExchange preflight() {
+        return filter(preflight);
+    }
+
+    private ServerWebExchange filter(MockServerHttpRequest request) {
+        ServerWebExchange exchange = FilterFixture.exchange(request);
+        fixture.corsFilter.filter(exchange, TERMINAL).block();
+        return exchange;
+    }
+}
@@ -0,0 +1,226 @@
+package org.example.gateway.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.gateway.accesslog.AccessLogPipeline;
+import org.example.gateway.accesslog.AccessLogProperties;
+import org.example.gateway.auth.AuthProperties;
+import org.example.gateway.auth.JwksKeyStore;
+import org.example.gateway.auth.JwtVerifier;
+import org.example.gateway.auth.PublicPathMatcher;
+import org.example.gateway.auth.VerifiedTokenCache;
+import org.example.gateway.config.CorsConfig;
+import org.example.gateway.filter.AccessLogFilter;
+import org.example.gateway.filter.AuthenticationFilter;
+import org.example.gateway.filter.HeavyHitterFilter;
+import org.example.gateway.filter.LoadSheddingFilter;
+import org.example.gateway.filter.RateLimiterFilter;
+import org.example.gateway.filter.RouteLatencyFilter;
+import org.example.gateway.heavyhitter.ClientAddressResolver;
+import org.example.gateway.heavyhitter.HeavyHitterProperties;
+import org.example.gateway.heavyhitter.HeavyHitterRegistry;
+import org.example.gateway.limiter.GcraRateLimiter;
+import org.example.gateway.limiter.RateLimiterProperties;
+import org.example.gateway.limiter.RequestCostEstimator;
+import org.example.gateway.limiter.RouteLimitRegistry;
+import org.example.gateway.metrics.GatewayLatencyRegistry;
+import org.example.gateway.metrics.LatencyProperties;
+import org.example.gateway.response.RejectionResponses;
+import org.example.gateway.shedding.EventLoopLagProbe;
+import org.example.gateway.shedding.LoadShedder;
+import org.example.gateway.shedding.LoadSheddingProperties;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.codec.ServerCodecConfigurer;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.http.server.reactive.MockServerHttpResponse;
+import org.springframework.web.cors.reactive.CorsWebFilter;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.adapter.DefaultServerWebExchange;
+import org.springframework.web.server.i18n.AcceptHeaderLocaleContextResolver;
+import org.springframework.web.server.i18n.LocaleContextResolver;
+import org.springframework.web.server.session.DefaultWebSessionManager;
+import org.springframework.web.server.session.WebSessionManager;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 微基准共用的网关组件
+ * 按网关中的依赖关系手工组装各全局过滤器，不启动Spring容器；配置与 application.yml 的默认值一致，
+ * 只把限流额度调大，使放行路径的基准不会被限流。访问日志写入临时目录。
+ */
+public final class FilterFixture implements AutoCloseable {
+
+    // 各基准请求的路由，/bench/public/** 为公开路径，优先级与 service-provider-1 路由相同
+    public static final Route ROUTE = Route.async()
+            .id("bench")
+            .uri(URI.create("http://localhost:8080"))
+            .predicate(exchange -> true)
+            .metadata(Map.of(PublicPathMatcher.METADATA_KEY, "/bench/public/**",
+                    LoadSheddingFilter.PRIORITY_METADATA, "high"))
+            .build();
+
+    // 网关收到的请求URI都是完整的，CORS判断同源时需要协议与主机
+    public static final String PROTECTED_URI = "http://localhost:9000/bench/api/users/42";
+
+    public static final String PUBLIC_URI = "http://localhost:9000/bench/public/status";
+
+    // 过滤器链的末端，代替路由转发
+    public static final GatewayFilterChain TERMINAL = exchange -> Mono.empty();
+
+    private static final ServerCodecConfigurer CODEC_CONFIGURER = ServerCodecConfigurer.create();
+
+    private static final WebSessionManager SESSION_MANAGER = new DefaultWebSessionManager();
+
+    private static final LocaleContextResolver LOCALE_RESOLVER = new AcceptHeaderLocaleContextResolver();
+
+    private static final InetSocketAddress CLIENT = new InetSocketAddress("10.0.0.8", 52814);
+
+    public final BenchmarkTokens tokens = BenchmarkTokens.generate();
+
+    public final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    public final RejectionResponses rejections = new RejectionResponses();
+
+    public final JwtVerifier jwtVerifier;
+
+    public final AccessLogFilter accessLogFilter;
+
+    public final RouteLatencyFilter routeLatencyFilter;
+
+    public final HeavyHitterFilter heavyHitterFilter;
+
+    public final AuthenticationFilter authenticationFilter;
+
+    public final LoadSheddingFilter loadSheddingFilter;
+
+    public final RateLimiterFilter rateLimiterFilter;
+
+    public final CorsWebFilter corsFilter = new CorsConfig().corsFilter();
+
+    // 每个请求都超出额度的限流过滤器，用于测量拒绝路径
+    public final RateLimiterFilter exhaustedRateLimiterFilter;
+
+    private final AccessLogPipeline accessLogPipeline;
+
+    private final HeavyHitterRegistry heavyHitters;
+
+    public FilterFixture() {
+        AuthProperties authProperties = new AuthProperties();
+        authProperties.setJwksLocation(tokens.jwksLocation());
+        VerifiedTokenCache tokenCache = new VerifiedTokenCache(authProperties);
+        ObjectMapper objectMapper = new ObjectMapper();
+        JwksKeyStore keyStore = new JwksKeyStore(authProperties, new DefaultResourceLoader(), objectMapper, tokenCache);
+        jwtVerifier = new JwtVerifier(keyStore, tokenCache, authProperties, objectMapper);
+        authenticationFilter = new AuthenticationFilter(jwtVerifier, new PublicPathMatcher(), rejections);
+
+        AccessLogProperties accessLogProperties = new AccessLogProperties();
+        try {
+            accessLogProperties.setDirectory(Files.createTempDirectory("gateway-benchmark-access").toString());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        accessLogPipeline = new AccessLogPipeline(accessLogProperties, meterRegistry);
+        accessLogPipeline.start();
+        accessLogFilter = new AccessLogFilter(accessLogPipeline);
+
+        LatencyProperties latencyProperties = new LatencyProperties();
+        routeLatencyFilter = new RouteLatencyFilter(latencyProperties,
+                new GatewayLatencyRegistry(latencyProperties, meterRegistry));
+
+        LoadSheddingProperties sheddingProperties = new LoadSheddingProperties();
+        // 不发布就绪事件，延迟探测不会启动，拒绝级别保持为0
+        LoadShedder shedder = new LoadShedder(sheddingProperties, new EventLoopLagProbe(sheddingProperties, null),
+                meterRegistry);
+        loadSheddingFilter = new LoadSheddingFilter(sheddingProperties, shedder, rejections);
+
+        HeavyHitterProperties heavyHitterProperties = new HeavyHitterProperties();
+        heavyHitters = new HeavyHitterRegistry(heavyHitterProperties, meterRegistry);
+        heavyHitterFilter = new HeavyHitterFilter(heavyHitters, new ClientAddressResolver(heavyHitterProperties));
+
+        rateLimiterFilter = rateLimiter(1_000_000_000, Duration.ofSeconds(60));
+        exhaustedRateLimiterFilter = rateLimiter(1, Duration.ofHours(1));
+    }
+
+    private RateLimiterFilter rateLimiter(int limit, Duration period) {
+        RateLimiterProperties properties = new RateLimiterProperties();
+        properties.setDefaultLimit(limit);
+        properties.setPeriod(period);
+        // 与 application.yml 的规则数量相当，另加一条匹配基准路径的规则
+        properties.setRules(List.of(
+                rule("/provider1/api/**", 50),
+                rule("/provider2/api/**", 80),
+                rule("/bench/api/**", limit)));
+        return new RateLimiterFilter(new GcraRateLimiter(properties), new RouteLimitRegistry(properties),
+                new RequestCostEstimator(properties), heavyHitters, rejections);
+    }
+
+    private static RateLimiterProperties.Rule rule(String pattern, int limit) {
+        RateLimiterProperties.Rule rule = new RateLimiterProperties.Rule();
+        rule.setPattern(pattern);
+        rule.setLimit(limit);
+        return rule;
+    }
+
+    /**
+     * 携带有效令牌访问受保护路径的请求
+     */
+    public MockServerHttpRequest authenticatedRequest() {
+        return MockServerHttpRequest.get(PROTECTED_URI)
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + tokens.sign("benchmark-user", 24 * 3600))
+                .header(HttpHeaders.ACCEPT, "application/json")
+                .remoteAddress(CLIENT)
+                .build();
+    }
+
+    public static MockServerHttpRequest publicRequest() {
+        return MockServerHttpRequest.get(PUBLIC_URI)
+                .header(HttpHeaders.ACCEPT, "application/json")
+                .remoteAddress(CLIENT)
+                .build();
+    }
+
+    public static MockServerHttpRequest anonymousRequest() {
+        return MockServerHttpRequest.get(PROTECTED_URI)
+                .header(HttpHeaders.ACCEPT, "application/json")
+                .remoteAddress(CLIENT)
+                .build();
+    }
+
+    /**
+     * 以已匹配路由的状态创建请求交换对象，请求对象不可变，可以在多次调用间复用
+     * MockServerWebExchange 每次都会创建编解码器配置，开销远大于被测过滤器，这里改为共用
+     */
+    public static ServerWebExchange exchange(MockServerHttpRequest request) {
+        ServerWebExchange exchange = new DefaultServerWebExchange(request, new MockServerHttpResponse(),
+                SESSION_MANAGER, CODEC_CONFIGURER, LOCALE_RESOLVER);
+        exchange.getAttributes().put(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR, ROUTE);
+        return exchange;
+    }
+
+    /**
+     * 网关中在路由转发之前执行的自定义全局过滤器，按执行顺序排列
+     */
+    public List<GlobalFilter> globalFilters() {
+        return List.of(accessLogFilter, routeLatencyFilter, heavyHitterFilter, authenticationFilter,
+                loadSheddingFilter, rateLimiterFilter);
+    }
+
+    @Override
+    public void close() {
+        accessLogPipeline.stop();
+    }
+}
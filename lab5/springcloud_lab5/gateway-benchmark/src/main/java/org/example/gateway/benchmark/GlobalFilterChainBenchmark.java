@@ -0,0 +1,106 @@
+package org.example.gateway.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 其余自定义全局过滤器的单独开销，以及路由转发前整条自定义过滤器链的开销
+ * {@link #exchangeOnly()} 只创建请求交换对象并走到链末端，是其他基准共同包含的部分。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class GlobalFilterChainBenchmark {
+
+    private FilterFixture fixture;
+
+    private MockServerHttpRequest request;
+
+    private List<GlobalFilter> filters;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        fixture = new FilterFixture();
+        request = fixture.authenticatedRequest();
+        filters = fixture.globalFilters();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        fixture.close();
+    }
+
+    @Benchmark
+    public ServerWebExchange exchangeOnly() {
+        ServerWebExchange exchange = FilterFixture.exchange(request);
+        FilterFixture.TERMINAL.filter(exchange).block();
+        return exchange;
+    }
+
+    @Benchmark
+    public ServerWebExchange accessLog() {
+        return filter(fixture.accessLogFilter);
+    }
+
+    @Benchmark
+    public ServerWebExchange routeLatency() {
+        return filter(fixture.routeLatencyFilter);
+    }
+
+    @Benchmark
+    public ServerWebExchange heavyHitter() {
+        return filter(fixture.heavyHitterFilter);
+    }
+
+    @Benchmark
+    public ServerWebExchange loadShedding() {
+        return filter(fixture.loadSheddingFilter);
+    }
+
+    @Benchmark
+    public ServerWebExchange fullChain() {
+        ServerWebExchange exchange = FilterFixture.exchange(request);
+        new Chain(filters, 0).filter(exchange).block();
+        return exchange;
+    }
+
+    private ServerWebExchange filter(GlobalFilter filter) {
+        ServerWebExchange exchange = FilterFixture.exchange(request);
+        filter.filter(exchange, FilterFixture.TERMINAL).block();
+        return exchange;
+    }
+
+    /**
+     * 与 Spring Cloud Gateway 的默认过滤器链相同，每一步创建指向下一个过滤器的链对象
+     */
+    private record Chain(List<GlobalFilter> filters, int index) implements GatewayFilterChain {
+
+        @Override
+        public Mono<Void> filter(ServerWebExchange exchange) {
+            return Mono.defer(() -> index < filters.size()
+                    ? filters.get(index).filter(exchange, new Chain(filters, index + 1))
+                    : FilterFixture.TERMINAL.filter(exchange));
+        }
+    }
+}
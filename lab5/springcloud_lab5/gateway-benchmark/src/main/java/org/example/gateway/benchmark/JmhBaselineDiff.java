@@ -0,0 +1,71 @@
+package org.example.gateway.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 比较两次微基准的JMH结果（-rf json 输出的文件）
+ * 每个基准比较主指标与每次操作的分配字节数（需要 -prof gc），吞吐量模式越大越好，其余模式越小越好。
+ * 用法：JmhBaselineDiff 基线.json 本次.json [容差，默认0.1]，有回退时以状态码1退出。
+ */
+public final class JmhBaselineDiff {
+
+    private static final String ALLOCATION = "gc.alloc.rate.norm";
+
+    private JmhBaselineDiff() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("用法: JmhBaselineDiff <基线.json> <本次.json> [容差]");
+            System.exit(2);
+        }
+        double tolerance = args.length > 2 ? Double.parseDouble(args[2]) : 0.1;
+        Set<String> higherIsBetter = new HashSet<>();
+        Map<String, Double> baseline = read(Path.of(args[0]), higherIsBetter);
+        Map<String, Double> current = read(Path.of(args[1]), higherIsBetter);
+        BaselineComparison comparison = new BaselineComparison(baseline, current, higherIsBetter::contains, tolerance);
+        comparison.print(System.out);
+        System.exit(comparison.regressions() > 0 ? 1 : 0);
+    }
+
+    private static Map<String, Double> read(Path file, Set<String> higherIsBetter) throws IOException {
+        Map<String, Double> metrics = new LinkedHashMap<>();
+        for (JsonNode result : new ObjectMapper().readTree(file.toFile())) {
+            String name = name(result);
+            JsonNode primary = result.path("primaryMetric");
+            String key = name + " (" + primary.path("scoreUnit").asText() + ")";
+            metrics.put(key, primary.path("score").asDouble());
+            if ("thrpt".equals(result.path("mode").asText())) {
+                higherIsBetter.add(key);
+            }
+            JsonNode allocation = result.path("secondaryMetrics").path(ALLOCATION);
+            if (!allocation.isMissingNode()) {
+                metrics.put(name + " (B/op)", allocation.path("score").asDouble());
+            }
+        }
+        return metrics;
+    }
+
+    /**
+     * 去掉包名的基准名，有参数时附加参数值
+     */
+    private static String name(JsonNode result) {
+        String benchmark = result.path("benchmark").asText();
+        String[] parts = benchmark.split("\\.");
+        StringBuilder name = new StringBuilder(parts.length >= 2
+                ? parts[parts.length - 2] + "." + parts[parts.length - 1] : benchmark);
+        JsonNode params = result.path("params");
+        if (params.isObject() && !params.isEmpty()) {
+            name.append(params);
+        }
+        return name.toString();
+    }
+}
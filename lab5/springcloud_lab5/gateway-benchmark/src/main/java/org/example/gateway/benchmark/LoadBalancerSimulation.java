@@ -0,0 +1,110 @@
+package org.example.gateway.benchmark;
+
+import org.example.gateway.loadbalancer.InstanceLoad;
+import org.example.gateway.loadbalancer.InstanceLoadRegistry;
+import org.example.gateway.loadbalancer.LoadBalancingProperties;
+import org.example.gateway.loadbalancer.PeakEwmaLoadBalancer;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+/**
+ * 轮询与峰值EWMA两次随机选择（P2C）负载均衡的离散事件模拟
+ * 若干实例各有固定数量的工作线程，请求按泊松过程到达，服务时间服从指数分布，其中一个实例慢若干倍；
+ * P2C 直接调用网关的 {@link PeakEwmaLoadBalancer#select}，在模拟时钟下按实际代码选择实例。
+ * 用法：LoadBalancerSimulation [负载率，默认 0.5,0.7,0.9]
+ */
+public final class LoadBalancerSimulation {
+
+    private static final int INSTANCES = 3;
+
+    private static final int WORKERS = 4;
+
+    private static final double MEAN_SERVICE_NANOS = 10e6;
+
+    // 各实例服务时间的倍数，最后一个实例变慢
+    private static final double[] SLOWDOWN = {1, 1, 3};
+
+    private static final int REQUESTS = 200_000;
+
+    private LoadBalancerSimulation() {
+    }
+
+    public static void main(String[] args) {
+        double[] utilizations = args.length > 0
+                ? Arrays.stream(args[0].split(",")).mapToDouble(Double::parseDouble).toArray()
+                : new double[]{0.5, 0.7, 0.9};
+        for (double utilization : utilizations) {
+            for (boolean p2c : new boolean[]{false, true}) {
+                long[] latencies = simulate(utilization, p2c);
+                Arrays.sort(latencies);
+                System.out.printf(Locale.ROOT, "负载率 %.1f %-11s p50 %6.1fms  p99 %6.1fms  p99.9 %6.1fms%n",
+                        utilization, p2c ? "peak-ewma" : "round-robin",
+                        latencies[(int) (REQUESTS * 0.5)] / 1e6,
+                        latencies[(int) (REQUESTS * 0.99)] / 1e6,
+                        latencies[(int) (REQUESTS * 0.999)] / 1e6);
+            }
+        }
+    }
+
+    /**
+     * @param utilization 负载率，到达速率使轮询时慢实例的利用率等于该值
+     * @return 各请求的响应时间，单位纳秒
+     */
+    private static long[] simulate(double utilization, boolean p2c) {
+        Random random = new Random(42);
+        InstanceLoadRegistry registry = new InstanceLoadRegistry(new LoadBalancingProperties());
+        PeakEwmaLoadBalancer balancer = new PeakEwmaLoadBalancer(null, "simulation", registry);
+        List<ServiceInstance> instances = new ArrayList<>();
+        for (int i = 0; i < INSTANCES; i++) {
+            instances.add(new DefaultServiceInstance("instance-" + i, "simulation", "10.0.0." + i, 8080, false));
+        }
+        InstanceLoad[] loads = instances.stream().map(registry::get).toArray(InstanceLoad[]::new);
+        double slowest = Arrays.stream(SLOWDOWN).max().orElse(1);
+        double arrivalsPerNano = utilization * INSTANCES * WORKERS / (MEAN_SERVICE_NANOS * slowest);
+
+        // 负载统计按 System.nanoTime() 衰减，模拟时钟从当前时刻开始
+        long now = System.nanoTime();
+        long[][] workerFreeAt = new long[INSTANCES][WORKERS];
+        for (long[] workers : workerFreeAt) {
+            Arrays.fill(workers, now);
+        }
+        // 进行中的请求按完成时刻排序：{完成时刻, 实例下标, 响应时间}
+        PriorityQueue<long[]> inFlight = new PriorityQueue<>((a, b) -> Long.compare(a[0], b[0]));
+        long[] latencies = new long[REQUESTS];
+        int nextRoundRobin = 0;
+        for (int request = 0; request < REQUESTS; request++) {
+            now += (long) (-Math.log(1 - random.nextDouble()) / arrivalsPerNano);
+            while (!inFlight.isEmpty() && inFlight.peek()[0] <= now) {
+                long[] done = inFlight.poll();
+                InstanceLoad load = loads[(int) done[1]];
+                load.observe(done[2], done[0]);
+                load.finish();
+            }
+            int index = p2c
+                    ? instances.indexOf(balancer.select(instances, now).getServer())
+                    : nextRoundRobin++ % INSTANCES;
+
+            long[] workers = workerFreeAt[index];
+            int worker = 0;
+            for (int i = 1; i < WORKERS; i++) {
+                if (workers[i] < workers[worker]) {
+                    worker = i;
+                }
+            }
+            long service = (long) (-Math.log(1 - random.nextDouble()) * MEAN_SERVICE_NANOS * SLOWDOWN[index]);
+            workers[worker] = Math.max(now, workers[worker]) + service;
+            long latency = workers[worker] - now;
+            latencies[request] = latency;
+            loads[index].start(now);
+            inFlight.add(new long[]{workers[worker], index, latency});
+        }
+        return latencies;
+    }
+}
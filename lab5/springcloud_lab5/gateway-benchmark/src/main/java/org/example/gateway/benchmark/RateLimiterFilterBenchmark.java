@@ -0,0 +1,67 @@
+package org.example.gateway.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.web.server.ServerWebExchange;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 限流过滤器：规则匹配加GCRA判断的放行路径，以及写出429响应的拒绝路径；
+ * 多线程版本的所有线程竞争同一个限流键，反映热点路由上CAS冲突的代价
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RateLimiterFilterBenchmark {
+
+    private FilterFixture fixture;
+
+    private MockServerHttpRequest request;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        fixture = new FilterFixture();
+        request = fixture.authenticatedRequest();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        fixture.close();
+    }
+
+    @Benchmark
+    public ServerWebExchange admitted() {
+        ServerWebExchange exchange = FilterFixture.exchange(request);
+        fixture.rateLimiterFilter.filter(exchange, FilterFixture.TERMINAL).block();
+        return exchange;
+    }
+
+    @Benchmark
+    @Threads(4)
+    public ServerWebExchange admittedContended() {
+        return admitted();
+    }
+
+    @Benchmark
+    public ServerWebExchange rejected() {
+        ServerWebExchange exchange = FilterFixture.exchange(request);
+        fixture.exhaustedRateLimiterFilter.filter(exchange, FilterFixture.TERMINAL).block();
+        return exchange;
+    }
+}
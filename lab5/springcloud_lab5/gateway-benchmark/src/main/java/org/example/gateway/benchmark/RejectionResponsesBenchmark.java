@@ -0,0 +1,43 @@
+package org.example.gateway.benchmark;
+
+import io.netty.buffer.PooledByteBufAllocator;
+import org.example.gateway.response.RejectionResponses;
+import org.example.gateway.response.RejectionTemplate;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.NettyDataBufferFactory;
+import org.springframework.http.HttpStatus;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 拒绝响应的编码：在网关实际使用的池化缓冲区上按模板写出响应体
+ * 配合 -prof gc 查看每次编码分配的字节数，正常情况下只有缓冲区包装对象。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RejectionResponsesBenchmark {
+
+    private final RejectionResponses rejections = new RejectionResponses();
+
+    private final RejectionTemplate template = rejections.template(HttpStatus.TOO_MANY_REQUESTS, "请求频率超限，请稍后再试");
+
+    private final NettyDataBufferFactory bufferFactory = new NettyDataBufferFactory(PooledByteBufAllocator.DEFAULT);
+
+    @Benchmark
+    public boolean encode() {
+        return DataBufferUtils.release(rejections.encode(bufferFactory, template, "43c9c140-1", System.currentTimeMillis()));
+    }
+}
@@ -0,0 +1,52 @@
+package org.example.gateway.benchmark.load;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 统计网关线程在一段时间内分配的堆内存
+ * 按线程读取 HotSpot 的分配计数，排除负载生成器与桩服务的 bench-* 线程以及调用线程本身；
+ * 统计期间结束的线程分配的内存不计入，网关的事件循环等常驻线程不受影响。
+ */
+final class GatewayAllocation {
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private static final String BENCHMARK_THREAD_PREFIX = "bench-";
+
+    private GatewayAllocation() {
+    }
+
+    /**
+     * 各网关线程当前的累计分配字节数
+     */
+    static Map<Long, Long> snapshot() {
+        long self = Thread.currentThread().threadId();
+        Map<Long, Long> allocated = new HashMap<>();
+        for (ThreadInfo info : THREADS.getThreadInfo(THREADS.getAllThreadIds())) {
+            if (info == null || info.getThreadId() == self
+                    || info.getThreadName().startsWith(BENCHMARK_THREAD_PREFIX)) {
+                continue;
+            }
+            long bytes = THREADS.getThreadAllocatedBytes(info.getThreadId());
+            if (bytes >= 0) {
+                allocated.put(info.getThreadId(), bytes);
+            }
+        }
+        return allocated;
+    }
+
+    /**
+     * 自 {@code start} 快照以来网关线程分配的字节数，期间新建的线程从0算起
+     */
+    static long since(Map<Long, Long> start) {
+        long total = 0;
+        for (Map.Entry<Long, Long> entry : snapshot().entrySet()) {
+            total += entry.getValue() - start.getOrDefault(entry.getKey(), 0L);
+        }
+        return total;
+    }
+}
@@ -0,0 +1,333 @@
+package org.example.gateway.benchmark.load;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.HdrHistogram.Histogram;
+import org.example.gateway.GatewayApplication;
+import org.example.gateway.benchmark.BaselineComparison;
+import org.example.gateway.benchmark.BenchmarkTokens;
+import org.example.gateway.metrics.GatewayLatencyRegistry;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.HttpHeaders;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * 网关宏基准
+ * 在进程内启动上游桩服务与 GatewayApplication（不连接注册中心、配置中心与消息总线），
+ * 按固定到达速率经网关转发请求，报告吞吐量、延迟分位数、网关线程的分配速率以及各全局过滤器的耗时，
+ * 结果写入JSON文件，可以与保存的基线比较。
+ *
+ * <p>场景：public 访问公开路径，不经过令牌校验，反映转发本身的开销；auth 携带有效令牌访问受保护路径。
+ * 两个场景都经过负载均衡与全部全局过滤器，路由只有 StripPrefix。
+ *
+ * <p>参数均为 --名称=值 形式，未列出的参数原样传给网关，如 --gateway.latency.filters-enabled=false：
+ * rate 目标速率（请求/秒，默认1000），duration 测量时长（默认30s），warmup 预热时长（默认10s），
+ * scenarios 场景（默认 public,auth），response-size 上游响应大小（默认1024字节），upstream-delay 上游延迟（默认0ms），
+ * connections 客户端连接数（默认200），max-in-flight 在途请求上限（默认2000），timeout 响应超时（默认5s），
+ * output 结果文件（默认 target/gateway-load.json），baseline 基线文件，tolerance 允许的相对变差（默认0.1），
+ * transport 网关传输实现（auto、epoll、nio，默认 auto），可用逗号分隔多个，依次启动网关测量并并列输出各项指标，
+ * 此时指标名以传输实现为前缀，如 epoll.public.throughput。
+ * 指定基线且有指标回退时以状态码1退出。
+ */
+public final class GatewayLoadBenchmark {
+
+    private static final String PUBLIC = "public";
+
+    private static final String AUTH = "auth";
+
+    private static final ObjectMapper JSON = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+
+    private GatewayLoadBenchmark() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        Options options = Options.parse(args);
+        BenchmarkTokens tokens = BenchmarkTokens.generate();
+        Map<String, Double> metrics = new LinkedHashMap<>();
+        Map<String, Object> scenarios = new LinkedHashMap<>();
+        boolean compareTransports = options.transports.size() > 1;
+        for (String transport : options.transports) {
+            String prefix = compareTransports ? transport + "." : "";
+            try (StubUpstream upstream = new StubUpstream(options.responseSize, options.upstreamDelay);
+                 ConfigurableApplicationContext gateway = startGateway(options, transport, upstream.port(), tokens);
+                 OpenLoopLoad load = new OpenLoopLoad(options.connections, options.maxInFlight, options.timeout)) {
+                int port = ((WebServerApplicationContext) gateway).getWebServer().getPort();
+                GatewayLatencyRegistry latency = gateway.getBean(GatewayLatencyRegistry.class);
+                for (String scenario : options.scenarios) {
+                    String uri = "http://127.0.0.1:" + port + path(scenario);
+                    Map<String, String> headers = AUTH.equals(scenario)
+                            ? Map.of(HttpHeaders.AUTHORIZATION, "Bearer " + tokens.sign("benchmark-user", 24 * 3600))
+                            : Map.of();
+                    System.out.printf("传输 %s 场景 %s：预热 %ds…%n", transport, scenario, options.warmup.toSeconds());
+                    load.run(uri, headers, options.rate, options.warmup);
+
+                    // 丢弃预热期间的过滤器耗时，测量结束后再取一次即为测量期间的分布
+                    latency.roll();
+                    Map<Long, Long> allocationStart = GatewayAllocation.snapshot();
+                    OpenLoopLoad.Run run = load.run(uri, headers, options.rate, options.duration);
+                    long allocated = GatewayAllocation.since(allocationStart);
+                    latency.roll();
+
+                    Map<String, Double> scenarioMetrics = metrics(run, allocated);
+                    scenarioMetrics.forEach((name, value) -> metrics.put(prefix + scenario + "." + name, value));
+                    Map<String, Object> filters = latency.snapshot();
+                    print(scenario, options, run, scenarioMetrics, filters);
+                    Map<String, Object> detail = new LinkedHashMap<>();
+                    detail.put("sent", run.sent());
+                    detail.put("unsent", run.unsent());
+                    detail.put("errors", run.errors());
+                    detail.put("statuses", run.statuses());
+                    detail.put("latency", filters);
+                    scenarios.put(prefix + scenario, detail);
+                }
+            }
+        }
+        if (compareTransports) {
+            printTransportComparison(options, metrics);
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("settings", options.describe());
+        result.put("metrics", metrics);
+        result.put("scenarios", scenarios);
+        Files.createDirectories(options.output.toAbsolutePath().getParent());
+        JSON.writeValue(options.output.toFile(), result);
+        System.out.println("结果已写入 " + options.output);
+
+        int exitCode = 0;
+        if (options.baseline != null) {
+            BaselineComparison comparison = new BaselineComparison(readMetrics(options.baseline), metrics,
+                    name -> name.endsWith(".throughput"), options.tolerance);
+            System.out.println("与基线 " + options.baseline + " 比较，容差 " + options.tolerance * 100 + "%：");
+            comparison.print(System.out);
+            exitCode = comparison.regressions() > 0 ? 1 : 0;
+        }
+        System.exit(exitCode);
+    }
+
+    private static ConfigurableApplicationContext startGateway(Options options, String transport, int upstreamPort,
+                                                               BenchmarkTokens tokens) throws IOException {
+        Map<String, String> properties = new LinkedHashMap<>();
+        properties.put("server.port", "0");
+        properties.put("spring.main.banner-mode", "off");
+        properties.put("logging.level.root", "WARN");
+        // 不依赖注册中心、配置中心与消息总线
+        properties.put("eureka.client.enabled", "false");
+        properties.put("spring.cloud.config.enabled", "false");
+        properties.put("spring.cloud.config.discovery.enabled", "false");
+        properties.put("spring.cloud.bus.enabled", "false");
+        properties.put("spring.rabbitmq.listener.simple.auto-startup", "false");
+        properties.put("spring.cloud.gateway.discovery.locator.enabled", "false");
+        properties.put("gateway.transport.mode", transport);
+        // 只保留基准路由，上游实例由静态服务发现提供
+        properties.put("spring.cloud.discovery.client.simple.instances.bench-upstream[0].uri",
+                "http://127.0.0.1:" + upstreamPort);
+        properties.put("spring.cloud.gateway.routes[0].id", "bench");
+        properties.put("spring.cloud.gateway.routes[0].uri", "lb://bench-upstream");
+        properties.put("spring.cloud.gateway.routes[0].predicates[0]", "Path=/bench/**");
+        properties.put("spring.cloud.gateway.routes[0].filters[0]", "StripPrefix=1");
+        properties.put("spring.cloud.gateway.routes[0].metadata.public-paths", "/bench/public/**");
+        properties.put("gateway.auth.jwks-location", tokens.jwksLocation());
+        // 限流额度足够大，测量的是限流判断的开销而不是被拒绝的请求
+        properties.put("gateway.rate-limiter.default-limit", "1000000000");
+        properties.put("gateway.rate-limiter.rules[0].pattern", "/bench/**");
+        properties.put("gateway.rate-limiter.rules[0].limit", "1000000000");
+        properties.put("gateway.access-log.directory",
+                Files.createTempDirectory("gateway-benchmark-access").toString());
+        // 耗时快照只由基准在测量开始与结束时生成
+        properties.put("gateway.latency.snapshot-interval", String.valueOf(Duration.ofDays(1).toMillis()));
+        properties.putAll(options.gatewayProperties);
+
+        String[] args = properties.entrySet().stream()
+                .map(entry -> "--" + entry.getKey() + "=" + entry.getValue())
+                .toArray(String[]::new);
+        return SpringApplication.run(GatewayApplication.class, args);
+    }
+
+    private static String path(String scenario) {
+        return switch (scenario) {
+            case PUBLIC -> "/bench/public/echo";
+            case AUTH -> "/bench/api/echo";
+            default -> throw new IllegalArgumentException("未知场景: " + scenario + "，可选 public、auth");
+        };
+    }
+
+    private static Map<String, Double> metrics(OpenLoopLoad.Run run, long allocatedBytes) {
+        double seconds = run.elapsed() / 1e9;
+        long responses = run.responses();
+        long scheduled = run.sent() + run.unsent();
+        long failed = run.unsent() + run.errors() + run.statuses().entrySet().stream()
+                .filter(entry -> entry.getKey() >= 500)
+                .mapToLong(Map.Entry::getValue)
+                .sum();
+        Histogram latency = run.latency();
+        Map<String, Double> metrics = new LinkedHashMap<>();
+        metrics.put("throughput", responses / seconds);
+        metrics.put("latency.p50.ms", millis(latency, 50));
+        metrics.put("latency.p90.ms", millis(latency, 90));
+        metrics.put("latency.p99.ms", millis(latency, 99));
+        metrics.put("latency.p999.ms", millis(latency, 99.9));
+        metrics.put("error.rate", scheduled > 0 ? (double) failed / scheduled : 0);
+        metrics.put("alloc.mb.per.second", allocatedBytes / seconds / (1024 * 1024));
+        metrics.put("alloc.kb.per.request", responses > 0 ? allocatedBytes / 1024.0 / responses : 0);
+        return metrics;
+    }
+
+    /**
+     * 各场景的指标按传输实现并列输出，每行一个指标
+     */
+    private static void printTransportComparison(Options options, Map<String, Double> metrics) {
+        System.out.println("传输实现对比：");
+        System.out.printf(Locale.ROOT, "  %-32s", "指标");
+        options.transports.forEach(transport -> System.out.printf(Locale.ROOT, "%14s", transport));
+        System.out.println();
+        String first = options.transports.get(0) + ".";
+        for (String name : metrics.keySet()) {
+            if (!name.startsWith(first)) {
+                continue;
+            }
+            String metric = name.substring(first.length());
+            System.out.printf(Locale.ROOT, "  %-32s", metric);
+            for (String transport : options.transports) {
+                Double value = metrics.get(transport + "." + metric);
+                System.out.printf(Locale.ROOT, "%14.2f", value != null ? value : Double.NaN);
+            }
+            System.out.println();
+        }
+    }
+
+    private static double millis(Histogram histogram, double percentile) {
+        return histogram.getTotalCount() > 0 ? histogram.getValueAtPercentile(percentile) / 1e6 : 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void print(String scenario, Options options, OpenLoopLoad.Run run, Map<String, Double> metrics,
+                              Map<String, Object> latency) {
+        System.out.printf(Locale.ROOT, "场景 %s：目标 %.0f 请求/秒，发出 %d，未发出 %d，无响应 %d，状态码 %s%n",
+                scenario, options.rate, run.sent(), run.unsent(), run.errors(), run.statuses());
+        System.out.printf(Locale.ROOT, "  吞吐量 %.1f 请求/秒，延迟 p50 %.2fms p90 %.2fms p99 %.2fms p99.9 %.2fms max %.2fms%n",
+                metrics.get("throughput"), metrics.get("latency.p50.ms"), metrics.get("latency.p90.ms"),
+                metrics.get("latency.p99.ms"), metrics.get("latency.p999.ms"), run.latency().getMaxValue() / 1e6);
+        System.out.printf(Locale.ROOT, "  网关分配 %.1f MB/秒，%.1f KB/请求%n",
+                metrics.get("alloc.mb.per.second"), metrics.get("alloc.kb.per.request"));
+        Map<String, Map<String, Object>> filters = (Map<String, Map<String, Object>>) latency.get("filters");
+        if (filters != null && !filters.isEmpty()) {
+            System.out.println("  全局过滤器耗时（微秒，p50/p99）：");
+            filters.forEach((filter, phases) -> System.out.printf(Locale.ROOT, "    %-40s pre %s  post %s%n",
+                    filter, phase(phases.get(GatewayLatencyRegistry.PRE)), phase(phases.get(GatewayLatencyRegistry.POST))));
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static String phase(Object described) {
+        Map<String, Object> values = (Map<String, Object>) described;
+        if (values == null || !values.containsKey("p50")) {
+            return "-";
+        }
+        return values.get("p50") + "/" + values.get("p99");
+    }
+
+    private static Map<String, Double> readMetrics(Path baseline) throws IOException {
+        Map<String, Double> metrics = new LinkedHashMap<>();
+        JsonNode node = JSON.readTree(baseline.toFile()).path("metrics");
+        node.fields().forEachRemaining(entry -> metrics.put(entry.getKey(), entry.getValue().asDouble()));
+        return metrics;
+    }
+
+    /**
+     * 命令行参数
+     */
+    private static final class Options {
+
+        double rate = 1000;
+
+        Duration duration = Duration.ofSeconds(30);
+
+        Duration warmup = Duration.ofSeconds(10);
+
+        List<String> scenarios = List.of(PUBLIC, AUTH);
+
+        int responseSize = 1024;
+
+        Duration upstreamDelay = Duration.ZERO;
+
+        int connections = 200;
+
+        int maxInFlight = 2000;
+
+        Duration timeout = Duration.ofSeconds(5);
+
+        Path output = Path.of("target", "gateway-load.json");
+
+        Path baseline;
+
+        double tolerance = 0.1;
+
+        List<String> transports = List.of("auto");
+
+        final Map<String, String> gatewayProperties = new LinkedHashMap<>();
+
+        static Options parse(String[] args) {
+            Options options = new Options();
+            for (String arg : args) {
+                if (!arg.startsWith("--") || !arg.contains("=")) {
+                    throw new IllegalArgumentException("参数应为 --名称=值 形式: " + arg);
+                }
+                String name = arg.substring(2, arg.indexOf('='));
+                String value = arg.substring(arg.indexOf('=') + 1);
+                switch (name) {
+                    case "rate" -> options.rate = Double.parseDouble(value);
+                    case "duration" -> options.duration = DurationStyle.detectAndParse(value);
+                    case "warmup" -> options.warmup = DurationStyle.detectAndParse(value);
+                    case "scenarios" -> options.scenarios = List.of(value.split("\\s*,\\s*"));
+                    case "response-size" -> options.responseSize = Integer.parseInt(value);
+                    case "upstream-delay" -> options.upstreamDelay = DurationStyle.detectAndParse(value);
+                    case "connections" -> options.connections = Integer.parseInt(value);
+                    case "max-in-flight" -> options.maxInFlight = Integer.parseInt(value);
+                    case "timeout" -> options.timeout = DurationStyle.detectAndParse(value);
+                    case "output" -> options.output = Path.of(value);
+                    case "baseline" -> options.baseline = Path.of(value);
+                    case "tolerance" -> options.tolerance = Double.parseDouble(value);
+                    case "transport" -> options.transports = List.of(value.toLowerCase(Locale.ROOT).split("\\s*,\\s*"));
+                    default -> options.gatewayProperties.put(name, value);
+                }
+            }
+            options.scenarios.forEach(GatewayLoadBenchmark::path);
+            for (String transport : options.transports) {
+                if (!List.of("auto", "epoll", "nio").contains(transport)) {
+                    throw new IllegalArgumentException("未知传输实现: " + transport + "，可选 auto、epoll、nio");
+                }
+            }
+            return options;
+        }
+
+        Map<String, Object> describe() {
+            Map<String, Object> settings = new LinkedHashMap<>();
+            settings.put("rate", rate);
+            settings.put("duration", duration.toString());
+            settings.put("warmup", warmup.toString());
+            settings.put("scenarios", scenarios);
+            settings.put("responseSize", responseSize);
+            settings.put("upstreamDelay", upstreamDelay.toString());
+            settings.put("connections", connections);
+            settings.put("maxInFlight", maxInFlight);
+            settings.put("transports", transports);
+            settings.put("gatewayProperties", gatewayProperties);
+            settings.put("availableProcessors", Runtime.getRuntime().availableProcessors());
+            settings.put("javaVersion", System.getProperty("java.version"));
+            return settings;
+        }
+    }
+}
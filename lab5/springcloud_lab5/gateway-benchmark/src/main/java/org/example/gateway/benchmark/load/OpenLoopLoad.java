@@ -0,0 +1,121 @@
+package org.example.gateway.benchmark.load;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+import reactor.netty.resources.LoopResources;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 固定到达速率（开环）的负载生成器
+ * 按预定时刻发出请求，不等待前一个请求完成；延迟从预定时刻而不是实际发出时刻算起，
+ * 生成器或网关落后时排队的时间同样计入延迟，避免闭环压测的协调遗漏（coordinated omission）。
+ * 在途请求达到上限时不再发出，计为未发送，说明网关已经跟不上目标速率。
+ * 客户端使用独立的事件循环线程（bench-client-*），与网关线程分开。
+ */
+final class OpenLoopLoad implements AutoCloseable {
+
+    private static final long DRAIN_TIMEOUT_NANOS = Duration.ofSeconds(10).toNanos();
+
+    private final LoopResources loops = LoopResources.create("bench-client", 2, true);
+
+    private final ConnectionProvider connections;
+
+    private final HttpClient client;
+
+    private final int maxInFlight;
+
+    OpenLoopLoad(int maxConnections, int maxInFlight, Duration responseTimeout) {
+        this.maxInFlight = maxInFlight;
+        this.connections = ConnectionProvider.builder("bench-client")
+                .maxConnections(maxConnections)
+                .pendingAcquireMaxCount(maxInFlight)
+                .build();
+        this.client = HttpClient.create(connections)
+                .runOn(loops)
+                .responseTimeout(responseTimeout);
+    }
+
+    /**
+     * 以固定速率发出GET请求，返回本轮的统计
+     */
+    Run run(String uri, Map<String, String> headers, double rate, Duration duration) {
+        HttpClient requestClient = client.headers(h -> headers.forEach(h::set));
+        Recorder latency = new Recorder(3);
+        Map<Integer, LongAdder> statuses = new ConcurrentHashMap<>();
+        LongAdder errors = new LongAdder();
+        AtomicInteger inFlight = new AtomicInteger();
+        long unsent = 0;
+        long sent = 0;
+
+        double intervalNanos = 1e9 / rate;
+        long start = System.nanoTime();
+        long end = start + duration.toNanos();
+        for (long i = 0; ; i++) {
+            long intended = start + (long) (i * intervalNanos);
+            if (intended >= end) {
+                break;
+            }
+            long wait = intended - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            if (inFlight.get() >= maxInFlight) {
+                unsent++;
+                continue;
+            }
+            inFlight.incrementAndGet();
+            sent++;
+            requestClient.get()
+                    .uri(uri)
+                    .responseSingle((response, body) -> body.then().thenReturn(response.status().code()))
+                    .doFinally(signal -> inFlight.decrementAndGet())
+                    .subscribe(status -> {
+                        latency.recordValue(System.nanoTime() - intended);
+                        statuses.computeIfAbsent(status, s -> new LongAdder()).increment();
+                    }, error -> errors.increment());
+        }
+        long elapsed = System.nanoTime() - start;
+        // 等待在途请求结束，超时的请求计为错误
+        long drainDeadline = System.nanoTime() + DRAIN_TIMEOUT_NANOS;
+        while (inFlight.get() > 0 && System.nanoTime() < drainDeadline) {
+            LockSupport.parkNanos(1_000_000);
+        }
+        long abandoned = inFlight.get();
+
+        Map<Integer, Long> statusCounts = new TreeMap<>();
+        statuses.forEach((status, count) -> statusCounts.put(status, count.sum()));
+        return new Run(sent, unsent, errors.sum() + abandoned, statusCounts, latency.getIntervalHistogram(), elapsed);
+    }
+
+    @Override
+    public void close() {
+        connections.disposeLater().block();
+        loops.disposeLater().block();
+    }
+
+    /**
+     * 一轮负载的结果
+     *
+     * @param sent     发出的请求数
+     * @param unsent   因在途请求达到上限而未发出的请求数
+     * @param errors   连接失败、超时等没有得到响应的请求数
+     * @param statuses 按状态码统计的响应数
+     * @param latency  从预定时刻到读完响应的耗时，单位纳秒
+     * @param elapsed  发出请求的时长，单位纳秒
+     */
+    record Run(long sent, long unsent, long errors, Map<Integer, Long> statuses, Histogram latency, long elapsed) {
+
+        long responses() {
+            return latency.getTotalCount();
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package org.example.gateway.benchmark.load;
+
+import io.netty.buffer.Unpooled;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.resources.LoopResources;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+
+/**
+ * 宏基准的上游桩服务
+ * 任意GET请求都在固定延迟后返回固定大小的JSON，使用独立的事件循环线程（bench-stub-*），
+ * 统计网关分配量时可以把这些线程排除在外。
+ */
+final class StubUpstream implements AutoCloseable {
+
+    private final LoopResources loops = LoopResources.create("bench-stub", 2, true);
+
+    // 延迟响应使用的定时线程，不占用网关共用的 parallel 调度器
+    private final Scheduler timer = Schedulers.newSingle("bench-stub-timer", true);
+
+    private final DisposableServer server;
+
+    StubUpstream(int responseSize, Duration delay) {
+        byte[] body = body(responseSize);
+        server = HttpServer.create()
+                .host("127.0.0.1")
+                .port(0)
+                .runOn(loops)
+                .handle((request, response) -> {
+                    Mono<Void> send = response
+                            .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                            .header(HttpHeaders.CONTENT_LENGTH, String.valueOf(body.length))
+                            .send(Mono.fromSupplier(() -> Unpooled.wrappedBuffer(body)))
+                            .then();
+                    // 先读完请求体再响应
+                    Mono<Void> drained = request.receive().then();
+                    return delay.isZero()
+                            ? drained.then(send)
+                            : drained.then(Mono.delay(delay, timer)).then(send);
+                })
+                .bindNow();
+    }
+
+    int port() {
+        return server.port();
+    }
+
+    /**
+     * 形如 {"data":"xxx…"} 的响应体，总长度为 size 字节
+     */
+    private static byte[] body(int size) {
+        String prefix = "{\"data\":\"";
+        String suffix = "\"}";
+        char[] filler = new char[Math.max(0, size - prefix.length() - suffix.length())];
+        Arrays.fill(filler, 'x');
+        return (prefix + new String(filler) + suffix).getBytes(StandardCharsets.US_ASCII);
+    }
+
+    @Override
+    public void close() {
+        server.disposeNow();
+        loops.disposeLater().block();
+        timer.dispose();
+    }
+}
@@ -0,0 +1,270 @@
+package org.example.gateway.accesslog;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.Inet4Address;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 异步访问日志管道
+ * 事件循环线程把请求信息写入预分配的环形缓冲区后立即返回，缓冲区满时丢弃记录而不是阻塞；
+ * 独立的写线程批量取出记录，格式化后写入内存映射的滚动文件。
+ * 采样与查询参数脱敏在写入缓冲区时完成，令牌等敏感信息不会进入日志。
+ */
+@Component
+@Slf4j
+public class AccessLogPipeline implements SmartLifecycle {
+
+    // 写线程在缓冲区为空时的休眠时间
+    private static final long IDLE_PARK_NANOS = 1_000_000;
+
+    private static final byte SPACE = ' ';
+
+    private static final byte[] REDACTED = "***".getBytes(StandardCharsets.US_ASCII);
+
+    private final AccessLogProperties properties;
+
+    private final AccessLogRingBuffer ring;
+
+    private final String[] redactParams;
+
+    private final LongAdder dropped = new LongAdder();
+
+    private final LongAdder written = new LongAdder();
+
+    private volatile boolean running;
+
+    private Thread writer;
+
+    public AccessLogPipeline(AccessLogProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.ring = new AccessLogRingBuffer(properties.getBufferSize(), properties.getRecordSize());
+        this.redactParams = properties.getRedactQueryParams().toArray(new String[0]);
+        FunctionCounter.builder("gateway.accesslog.dropped", dropped, LongAdder::sum)
+                .description("缓冲区满而丢弃的访问日志数")
+                .register(meterRegistry);
+        FunctionCounter.builder("gateway.accesslog.written", written, LongAdder::sum)
+                .description("已写入文件的访问日志数")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 记录一次请求，在事件循环线程上调用，不阻塞、不分配对象
+     */
+    public void record(long timestamp, long durationNanos, int status, InetSocketAddress client,
+                       String method, String rawPath, String rawQuery, String routeId) {
+        if (!running || !sampled(status)) {
+            return;
+        }
+        long position = ring.claim();
+        if (position < 0) {
+            dropped.increment();
+            return;
+        }
+        int index = ring.index(position);
+        byte[] payload = ring.payload;
+        int start = ring.offset(position);
+        int end = start + ring.recordSize();
+        int offset = start;
+        offset = writeClient(payload, offset, end, client);
+        offset = put(payload, offset, end, SPACE);
+        offset = writeAscii(payload, offset, end, method);
+        offset = put(payload, offset, end, SPACE);
+        offset = writeAscii(payload, offset, end, rawPath);
+        if (rawQuery != null && !rawQuery.isEmpty()) {
+            offset = put(payload, offset, end, (byte) '?');
+            offset = writeQuery(payload, offset, end, rawQuery);
+        }
+        offset = put(payload, offset, end, SPACE);
+        offset = writeAscii(payload, offset, end, routeId != null ? routeId : "-");
+
+        ring.timestamps[index] = timestamp;
+        ring.durations[index] = durationNanos;
+        ring.statuses[index] = status;
+        ring.lengths[index] = offset - start;
+        ring.publish(position);
+    }
+
+    public long droppedCount() {
+        return dropped.sum();
+    }
+
+    private boolean sampled(int status) {
+        if (status >= 400 && properties.isAlwaysLogErrors()) {
+            return true;
+        }
+        double rate = properties.getSampleRate();
+        return rate >= 1.0 || ThreadLocalRandom.current().nextDouble() < rate;
+    }
+
+    private static int writeClient(byte[] payload, int offset, int end, InetSocketAddress client) {
+        if (client == null || client.getAddress() == null) {
+            return put(payload, offset, end, (byte) '-');
+        }
+        if (client.getAddress() instanceof Inet4Address address) {
+            // IPv4地址的hashCode即为地址本身，避免 getAddress() 复制数组
+            int ip = address.hashCode();
+            for (int shift = 24; shift >= 0; shift -= 8) {
+                offset = writeNumber(payload, offset, end, (ip >>> shift) & 0xFF);
+                if (shift > 0) {
+                    offset = put(payload, offset, end, (byte) '.');
+                }
+            }
+            return offset;
+        }
+        return writeAscii(payload, offset, end, client.getAddress().getHostAddress());
+    }
+
+    /**
+     * 写入查询串，对需要脱敏的参数只保留参数名
+     */
+    private int writeQuery(byte[] payload, int offset, int end, String query) {
+        int length = query.length();
+        int start = 0;
+        while (start < length) {
+            int next = query.indexOf('&', start);
+            if (next < 0) {
+                next = length;
+            }
+            int equals = query.indexOf('=', start);
+            if (equals > 0 && equals < next && isRedacted(query, start, equals)) {
+                offset = writeAscii(payload, offset, end, query, start, equals + 1);
+                for (byte b : REDACTED) {
+                    offset = put(payload, offset, end, b);
+                }
+            } else {
+                offset = writeAscii(payload, offset, end, query, start, next);
+            }
+            if (next < length) {
+                offset = put(payload, offset, end, (byte) '&');
+            }
+            start = next + 1;
+        }
+        return offset;
+    }
+
+    private boolean isRedacted(String query, int start, int end) {
+        for (String param : redactParams) {
+            if (param.length() == end - start && query.regionMatches(true, start, param, 0, param.length())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int writeAscii(byte[] payload, int offset, int end, String value) {
+        return writeAscii(payload, offset, end, value, 0, value.length());
+    }
+
+    private static int writeAscii(byte[] payload, int offset, int end, String value, int from, int to) {
+        for (int i = from; i < to && offset < end; i++) {
+            char c = value.charAt(i);
+            // 原始路径与查询串已经过URL编码，其余非ASCII字符与控制字符替换为'?'
+            payload[offset++] = c >= 0x20 && c < 0x7F ? (byte) c : (byte) '?';
+        }
+        return offset;
+    }
+
+    private static int writeNumber(byte[] payload, int offset, int end, int value) {
+        if (value >= 100) {
+            offset = put(payload, offset, end, (byte) ('0' + value / 100));
+        }
+        if (value >= 10) {
+            offset = put(payload, offset, end, (byte) ('0' + value / 10 % 10));
+        }
+        return put(payload, offset, end, (byte) ('0' + value % 10));
+    }
+
+    private static int put(byte[] payload, int offset, int end, byte value) {
+        if (offset < end) {
+            payload[offset++] = value;
+        }
+        return offset;
+    }
+
+    @Override
+    public void start() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        running = true;
+        writer = new Thread(this::drain, "access-log-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (writer != null) {
+            LockSupport.unpark(writer);
+            try {
+                writer.join(5000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * 写线程主循环：取出记录、格式化为一行文本并追加到映射文件
+     */
+    private void drain() {
+        byte[] line = new byte[properties.getRecordSize() + 64];
+        StringBuilder prefix = new StringBuilder(64);
+        try (MappedRollingFile file = new MappedRollingFile(Path.of(properties.getDirectory()),
+                properties.getSegmentSize().toBytes(), properties.getMaxSegments())) {
+            while (true) {
+                long position = ring.poll();
+                if (position < 0) {
+                    if (!running) {
+                        break;
+                    }
+                    LockSupport.parkNanos(IDLE_PARK_NANOS);
+                    continue;
+                }
+                int index = ring.index(position);
+                prefix.setLength(0);
+                DateTimeFormatter.ISO_INSTANT.formatTo(Instant.ofEpochMilli(ring.timestamps[index]), prefix);
+                prefix.append(' ').append(ring.statuses[index])
+                        .append(' ').append(ring.durations[index] / 1000).append("us ");
+                int length = 0;
+                for (int i = 0; i < prefix.length(); i++) {
+                    line[length++] = (byte) prefix.charAt(i);
+                }
+                System.arraycopy(ring.payload, ring.offset(position), line, length, ring.lengths[index]);
+                length += ring.lengths[index];
+                line[length++] = '\n';
+                ring.release(position);
+
+                try {
+                    file.append(line, length);
+                    written.increment();
+                } catch (IOException e) {
+                    dropped.increment();
+                    log.error("写入访问日志失败", e);
+                }
+            }
+        } catch (IOException e) {
+            log.error("访问日志文件不可用，停止记录访问日志", e);
+            running = false;
+        }
+    }
+}
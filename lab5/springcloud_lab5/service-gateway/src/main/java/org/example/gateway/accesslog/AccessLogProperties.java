@@ -0,0 +1,43 @@
+package org.example.gateway.accesslog;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 访问日志配置
+ */
+@Data
+@ConfigurationProperties(prefix = "gateway.access-log")
+public class AccessLogProperties {
+
+    // 是否记录访问日志
+    private boolean enabled = true;
+
+    // 日志目录
+    private String directory = "logs/access";
+
+    // 单个日志文件大小，写满后滚动到新文件
+    private DataSize segmentSize = DataSize.ofMegabytes(64);
+
+    // 最多保留的日志文件数
+    private int maxSegments = 10;
+
+    // 环形缓冲区的记录数，取2的幂
+    private int bufferSize = 8192;
+
+    // 单条记录的最大字节数，超出部分截断
+    private int recordSize = 512;
+
+    // 采样率，1.0 表示全部记录
+    private double sampleRate = 1.0;
+
+    // 状态码 >= 400 的请求是否不受采样影响，总是记录
+    private boolean alwaysLogErrors = true;
+
+    // 需要脱敏的查询参数，参数值记录为 ***
+    private List<String> redactQueryParams = new ArrayList<>(List.of("token", "access_token", "password"));
+}
@@ -0,0 +1,113 @@
+package org.example.gateway.accesslog;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 定长记录的无锁环形缓冲区，多生产者单消费者
+ * 所有记录的存储在创建时一次性分配，生产者只向已分配的数组写入数据，不产生新对象。
+ * 每个槽位带一个序号：序号等于写入位置表示空闲，等于写入位置+1表示已发布，缓冲区满时写入直接失败。
+ */
+final class AccessLogRingBuffer {
+
+    private final int capacity;
+
+    private final int mask;
+
+    private final int recordSize;
+
+    private final AtomicLongArray sequences;
+
+    private final AtomicLong tail = new AtomicLong();
+
+    // 仅由消费者线程读写
+    private long head;
+
+    final long[] timestamps;
+
+    final long[] durations;
+
+    final int[] statuses;
+
+    final int[] lengths;
+
+    // 所有槽位的记录内容，槽位i占用 [i * recordSize, (i + 1) * recordSize)
+    final byte[] payload;
+
+    AccessLogRingBuffer(int capacity, int recordSize) {
+        if (Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("环形缓冲区大小必须是2的幂: " + capacity);
+        }
+        this.capacity = capacity;
+        this.mask = capacity - 1;
+        this.recordSize = recordSize;
+        this.sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, i);
+        }
+        this.timestamps = new long[capacity];
+        this.durations = new long[capacity];
+        this.statuses = new int[capacity];
+        this.lengths = new int[capacity];
+        this.payload = new byte[capacity * recordSize];
+    }
+
+    /**
+     * 申请一个写入位置
+     *
+     * @return 写入位置，缓冲区已满时返回 -1
+     */
+    long claim() {
+        long position = tail.get();
+        while (true) {
+            long difference = sequences.get(index(position)) - position;
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    return position;
+                }
+                position = tail.get();
+            } else if (difference < 0) {
+                return -1;
+            } else {
+                position = tail.get();
+            }
+        }
+    }
+
+    /**
+     * 发布已写完的记录，消费者随后可见
+     */
+    void publish(long position) {
+        sequences.lazySet(index(position), position + 1);
+    }
+
+    /**
+     * 取下一条已发布的记录，仅消费者线程调用
+     *
+     * @return 记录位置，没有可读记录时返回 -1
+     */
+    long poll() {
+        long position = head;
+        return sequences.get(index(position)) == position + 1 ? position : -1;
+    }
+
+    /**
+     * 释放已读完的记录所在槽位，仅消费者线程调用
+     */
+    void release(long position) {
+        sequences.lazySet(index(position), position + capacity);
+        head = position + 1;
+    }
+
+    int index(long position) {
+        return (int) (position & mask);
+    }
+
+    int offset(long position) {
+        return index(position) * recordSize;
+    }
+
+    int recordSize() {
+        return recordSize;
+    }
+}
@@ -0,0 +1,89 @@
+package org.example.gateway.accesslog;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 基于内存映射的滚动日志文件
+ * 每个文件按固定大小映射，写入只是内存拷贝；写满后截断到实际长度并滚动到下一个文件，
+ * 文件名为 access-序号.log，只保留最近的若干个文件。只在写线程中使用，非线程安全。
+ */
+final class MappedRollingFile implements Closeable {
+
+    private static final String PREFIX = "access-";
+
+    private static final String SUFFIX = ".log";
+
+    private final Path directory;
+
+    private final long segmentSize;
+
+    private final int maxSegments;
+
+    private long sequence;
+
+    private FileChannel channel;
+
+    private MappedByteBuffer buffer;
+
+    MappedRollingFile(Path directory, long segmentSize, int maxSegments) throws IOException {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.maxSegments = maxSegments;
+        Files.createDirectories(directory);
+        this.sequence = lastSequence();
+    }
+
+    void append(byte[] bytes, int length) throws IOException {
+        if (buffer == null || buffer.remaining() < length) {
+            roll();
+        }
+        buffer.put(bytes, 0, length);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (channel != null) {
+            buffer.force();
+            channel.truncate(buffer.position());
+            channel.close();
+            channel = null;
+            buffer = null;
+        }
+    }
+
+    private void roll() throws IOException {
+        close();
+        sequence++;
+        channel = FileChannel.open(segment(sequence),
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        Files.deleteIfExists(segment(sequence - maxSegments));
+    }
+
+    private Path segment(long number) {
+        return directory.resolve(PREFIX + number + SUFFIX);
+    }
+
+    private long lastSequence() throws IOException {
+        long last = 0;
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, PREFIX + "*" + SUFFIX)) {
+            for (Path path : stream) {
+                String name = path.getFileName().toString();
+                try {
+                    last = Math.max(last, Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length())));
+                } catch (NumberFormatException ignored) {
+                    // 不是本类生成的文件
+                }
+            }
+        }
+        return last;
+    }
+}
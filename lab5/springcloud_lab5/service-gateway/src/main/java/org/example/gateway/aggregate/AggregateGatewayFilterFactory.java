@@ -0,0 +1,485 @@
+package org.example.gateway.aggregate;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.Data;
+import org.example.gateway.response.RejectionResponses;
+import org.example.gateway.response.RejectionTemplate;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.reactive.ReactiveLoadBalancer;
+import org.springframework.cloud.client.loadbalancer.reactive.ReactorLoadBalancerExchangeFilterFunction;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.OrderedGatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.HasRouteId;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferLimitException;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.reactive.function.BodyExtractors;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.util.UriComponentsBuilder;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.regex.Pattern;
+
+/**
+ * 聚合路由过滤器：一个请求并行调用多个后端接口，把各自的JSON响应合并为一个JSON对象返回
+ * <pre>
+ * - id: bff-user-profile
+ *   uri: no://op
+ *   predicates:
+ *     - Path=/bff/users/{id}
+ *   filters:
+ *     - name: Aggregate
+ *       args:
+ *         timeout: 2s                      # 分支默认超时
+ *         branches:
+ *           user:
+ *             uri: lb://service-provider-1/api/users/{id}   # 可使用路径谓词中的变量
+ *             required: true               # 必需分支失败时整个请求失败
+ *           hello:
+ *             uri: lb://service-provider-1/api/hello
+ *             timeout: 500ms
+ * </pre>
+ * 响应为 {"user":...,"hello":...}，分支的响应体只做一遍流式校验（恰好一个完整的JSON值），不构建对象，校验通过后原样拼接；
+ * 可选分支失败（超时、非2xx、缺少 Content-Type 或不是JSON、响应体不是合法JSON、超出大小上限）时该字段为 null，
+ * 失败原因放在 "_errors" 中；
+ * 必需分支失败时返回502（超时为504）并取消其余分支。
+ * 路径变量的值按严格编码展开（"/" 编码为 %2F），值为 "." 或 ".." 的请求返回400，客户端无法借路径变量访问分支以外的接口。
+ * 分支请求为GET，带上客户端请求中 forward-headers 指定的请求头；lb:// 地址按聚合路由的负载均衡策略选择实例，
+ * 与转发共用同一个 HttpClient（连接池与事件循环线程）。过滤器直接写出响应，不再执行后续过滤器。
+ */
+@Component
+public class AggregateGatewayFilterFactory extends AbstractGatewayFilterFactory<AggregateGatewayFilterFactory.Config> {
+
+    // 在 ResponseCache、Compression 与 RequestCoalescing 之后执行，聚合结果可以被缓存与压缩
+    public static final int ORDER = 0;
+
+    private static final String ERRORS_FIELD = "_errors";
+
+    private static final Pattern BRANCH_NAME = Pattern.compile("[A-Za-z0-9_-]+");
+
+    private static final String LB_SCHEME = "lb://";
+
+    private static final byte[] ERRORS_PREFIX = ("\"" + ERRORS_FIELD + "\":{").getBytes(StandardCharsets.US_ASCII);
+
+    private static final byte[] NULL = "null".getBytes(StandardCharsets.US_ASCII);
+
+    private static final MediaType JSON_UTF8 = new MediaType(MediaType.APPLICATION_JSON, StandardCharsets.UTF_8);
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private final WebClient directClient;
+
+    private final WebClient loadBalancedClient;
+
+    private final RejectionResponses rejections;
+
+    private final MeterRegistry meterRegistry;
+
+    public AggregateGatewayFilterFactory(WebClient.Builder webClientBuilder, HttpClient httpClient,
+                                         ReactiveLoadBalancer.Factory<ServiceInstance> loadBalancerFactory,
+                                         RejectionResponses rejections, MeterRegistry meterRegistry) {
+        super(Config.class);
+        WebClient.Builder builder = webClientBuilder.clientConnector(new ReactorClientHttpConnector(httpClient));
+        this.directClient = builder.clone().build();
+        this.loadBalancedClient = builder.clone()
+                .filter(new ReactorLoadBalancerExchangeFilterFunction(loadBalancerFactory, List.of()))
+                .build();
+        this.rejections = rejections;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        RouteAggregate aggregate = new RouteAggregate(config);
+        return new OrderedGatewayFilter(aggregate::filter, ORDER);
+    }
+
+    @Override
+    public String name() {
+        return "Aggregate";
+    }
+
+    /**
+     * 单条聚合路由的分支与指标
+     */
+    private final class RouteAggregate {
+
+        private final Branch[] branches;
+
+        private final List<String> forwardHeaders;
+
+        private final RejectionTemplate invalidVariable;
+
+        private RouteAggregate(Config config) {
+            String routeId = config.getRouteId() != null ? config.getRouteId() : "";
+            if (config.getBranches().isEmpty()) {
+                throw new IllegalArgumentException("聚合路由 " + routeId + " 没有配置分支");
+            }
+            List<Branch> branches = new ArrayList<>();
+            config.getBranches().forEach((name, branch) ->
+                    branches.add(new Branch(branches.size(), routeId, name, branch, config)));
+            this.branches = branches.toArray(new Branch[0]);
+            this.forwardHeaders = List.copyOf(config.getForwardHeaders());
+            this.invalidVariable = rejections.template(HttpStatus.BAD_REQUEST, "请求路径中的变量不合法");
+        }
+
+        private Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+            Map<String, String> variables = ServerWebExchangeUtils.getUriTemplateVariables(exchange);
+            if (!safeVariables(variables)) {
+                return rejections.write(exchange, invalidVariable);
+            }
+            HttpHeaders requestHeaders = exchange.getRequest().getHeaders();
+            HttpHeaders forwarded = new HttpHeaders();
+            for (String name : forwardHeaders) {
+                List<String> values = requestHeaders.get(name);
+                if (values != null) {
+                    forwarded.addAll(name, values);
+                }
+            }
+            Route route = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+
+            Mono<Result[]> results = Flux.range(0, branches.length)
+                    .flatMap(i -> branches[i].call(variables, forwarded, route), branches.length)
+                    .collect(() -> new Result[branches.length], (array, result) -> array[result.index] = result);
+            // 请求不转发到上游，先读完请求体，否则同一 keep-alive 连接上的下一个请求可能得不到处理
+            Mono<Void> discardBody = exchange.getRequest().getBody().doOnNext(DataBufferUtils::release).then();
+            return discardBody.then(results)
+                    .flatMap(array -> write(exchange.getResponse(), array))
+                    .onErrorResume(RequiredBranchFailedException.class,
+                            e -> rejections.write(exchange, e.template));
+        }
+
+        private Mono<Void> write(ServerHttpResponse response, Result[] results) {
+            int length = 2;
+            int errors = 0;
+            for (Result result : results) {
+                Branch branch = branches[result.index];
+                length += branch.fieldPrefix.length + (result.body != null ? result.body.length : NULL.length) + 1;
+                if (result.error != null) {
+                    length += branch.fieldPrefix.length + result.error.length + 1;
+                    errors++;
+                }
+            }
+            if (errors > 0) {
+                length += ERRORS_PREFIX.length + 1;
+            }
+            DataBuffer buffer = response.bufferFactory().allocateBuffer(length);
+            buffer.write((byte) '{');
+            for (int i = 0; i < results.length; i++) {
+                Result result = results[i];
+                if (i > 0) {
+                    buffer.write((byte) ',');
+                }
+                buffer.write(branches[result.index].fieldPrefix);
+                buffer.write(result.body != null ? result.body : NULL);
+            }
+            if (errors > 0) {
+                buffer.write((byte) ',');
+                buffer.write(ERRORS_PREFIX);
+                boolean first = true;
+                for (Result result : results) {
+                    if (result.error == null) {
+                        continue;
+                    }
+                    if (!first) {
+                        buffer.write((byte) ',');
+                    }
+                    first = false;
+                    buffer.write(branches[result.index].fieldPrefix);
+                    buffer.write(result.error);
+                }
+                buffer.write((byte) '}');
+            }
+            buffer.write((byte) '}');
+            response.setStatusCode(HttpStatus.OK);
+            response.getHeaders().setContentType(JSON_UTF8);
+            response.getHeaders().setContentLength(buffer.readableByteCount());
+            return response.writeWith(Mono.just(buffer));
+        }
+    }
+
+    /**
+     * 展开分支地址模板，路径变量已由路径谓词解码，展开时按URI组件严格编码，"/"、"?"、"#" 不会改变地址结构
+     */
+    static URI expand(String template, Map<String, String> variables) {
+        return UriComponentsBuilder.fromUriString(template).encode().buildAndExpand(variables).toUri();
+    }
+
+    /**
+     * 值为 "." 或 ".." 的变量即使编码后仍是点路径段，会被上游归一化为上级路径
+     */
+    static boolean safeVariables(Map<String, String> variables) {
+        for (String value : variables.values()) {
+            if (".".equals(value) || "..".equals(value)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 一个分支：请求地址模板、超时与各结果的耗时指标
+     */
+    private final class Branch {
+
+        private final int index;
+
+        private final String name;
+
+        // 地址模板，lb:// 已替换为 http://
+        private final String uri;
+
+        private final boolean loadBalanced;
+
+        private final Duration timeout;
+
+        private final boolean required;
+
+        private final int maxBytes;
+
+        // 响应与 "_errors" 中该分支的字段名前缀 "name":
+        private final byte[] fieldPrefix;
+
+        private final RejectionTemplate failedTemplate;
+
+        private final RejectionTemplate timeoutTemplate;
+
+        private final Timer succeeded;
+
+        private final Timer failed;
+
+        private final Timer timedOut;
+
+        private Branch(int index, String routeId, String name, BranchConfig config, Config routeConfig) {
+            if (!BRANCH_NAME.matcher(name).matches() || ERRORS_FIELD.equals(name)) {
+                throw new IllegalArgumentException("聚合路由 " + routeId + " 的分支名不合法: " + name);
+            }
+            if (config.getUri() == null) {
+                throw new IllegalArgumentException("聚合路由 " + routeId + " 的分支 " + name + " 没有配置 uri");
+            }
+            this.index = index;
+            this.name = name;
+            this.loadBalanced = config.getUri().startsWith(LB_SCHEME);
+            this.uri = loadBalanced ? "http://" + config.getUri().substring(LB_SCHEME.length()) : config.getUri();
+            this.timeout = config.getTimeout() != null ? config.getTimeout() : routeConfig.getTimeout();
+            this.required = config.isRequired();
+            this.maxBytes = (int) Math.min(routeConfig.getMaxBranchSize().toBytes(), Integer.MAX_VALUE);
+            this.fieldPrefix = ("\"" + name + "\":").getBytes(StandardCharsets.US_ASCII);
+            this.failedTemplate = rejections.template(HttpStatus.BAD_GATEWAY, "聚合请求的必需分支 " + name + " 失败");
+            this.timeoutTemplate = rejections.template(HttpStatus.GATEWAY_TIMEOUT, "聚合请求的必需分支 " + name + " 超时");
+            this.succeeded = timer(routeId, "success");
+            this.failed = timer(routeId, "error");
+            this.timedOut = timer(routeId, "timeout");
+        }
+
+        private Timer timer(String routeId, String outcome) {
+            return Timer.builder("gateway.aggregate.branches")
+                    .description("聚合路由各分支的请求耗时")
+                    .tag("route", routeId)
+                    .tag("branch", name)
+                    .tag("outcome", outcome)
+                    .register(meterRegistry);
+        }
+
+        private Mono<Result> call(Map<String, String> variables, HttpHeaders forwarded, Route route) {
+            long start = System.nanoTime();
+            return Mono.defer(() -> {
+                        WebClient.RequestHeadersSpec<?> request = (loadBalanced ? loadBalancedClient : directClient)
+                                .get()
+                                .uri(expand(uri, variables))
+                                .headers(headers -> headers.addAll(forwarded))
+                                .accept(MediaType.APPLICATION_JSON);
+                        if (route != null) {
+                            // 负载均衡器按聚合路由的元数据选择策略
+                            request = request.attribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR, route);
+                        }
+                        return request.exchangeToMono(this::readBody);
+                    })
+                    .timeout(timeout)
+                    .map(body -> {
+                        succeeded.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                        return new Result(index, body, null);
+                    })
+                    .onErrorResume(e -> {
+                        boolean timeout = e instanceof TimeoutException;
+                        (timeout ? timedOut : failed).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                        if (required) {
+                            return Mono.error(new RequiredBranchFailedException(
+                                    timeout ? timeoutTemplate : failedTemplate));
+                        }
+                        return Mono.just(new Result(index, null, errorJson(e)));
+                    });
+        }
+
+        private Mono<byte[]> readBody(ClientResponse response) {
+            if (!response.statusCode().is2xxSuccessful()) {
+                return response.releaseBody()
+                        .then(Mono.error(new BranchFailedException(response.statusCode().value(),
+                                "上游返回状态码 " + response.statusCode().value())));
+            }
+            if (response.statusCode().value() == HttpStatus.NO_CONTENT.value()) {
+                return response.releaseBody().thenReturn(NULL);
+            }
+            MediaType contentType = response.headers().contentType().orElse(null);
+            if (contentType == null || !isJson(contentType)) {
+                return response.releaseBody()
+                        .then(Mono.error(new BranchFailedException(HttpStatus.BAD_GATEWAY.value(), "响应不是JSON")));
+            }
+            return DataBufferUtils.join(response.body(BodyExtractors.toDataBuffers()), maxBytes)
+                    .map(buffer -> {
+                        byte[] bytes = new byte[buffer.readableByteCount()];
+                        buffer.read(bytes);
+                        DataBufferUtils.release(buffer);
+                        return bytes;
+                    })
+                    .filter(bytes -> bytes.length > 0)
+                    .defaultIfEmpty(NULL)
+                    .handle((bytes, sink) -> {
+                        if (isWellFormed(bytes)) {
+                            sink.next(bytes);
+                        } else {
+                            sink.error(new BranchFailedException(HttpStatus.BAD_GATEWAY.value(), "响应体不是合法的JSON"));
+                        }
+                    });
+        }
+    }
+
+    private static boolean isJson(MediaType contentType) {
+        return MediaType.APPLICATION_JSON.isCompatibleWith(contentType)
+                || contentType.getSubtype().endsWith("+json");
+    }
+
+    /**
+     * 响应体恰好是一个完整的JSON值：拼接进聚合结果前校验，避免一个分支的响应破坏整个响应的结构
+     */
+    private static boolean isWellFormed(byte[] body) {
+        try (JsonParser parser = JSON_FACTORY.createParser(body)) {
+            if (parser.nextToken() == null) {
+                return false;
+            }
+            parser.skipChildren();
+            return parser.nextToken() == null;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * 可选分支失败的原因，编码为 {"status":..,"message":".."}
+     */
+    private static byte[] errorJson(Throwable e) {
+        int status;
+        String message;
+        if (e instanceof TimeoutException) {
+            status = HttpStatus.GATEWAY_TIMEOUT.value();
+            message = "超时";
+        } else if (e instanceof BranchFailedException failure) {
+            status = failure.status;
+            message = failure.getMessage();
+        } else if (e instanceof DataBufferLimitException) {
+            status = HttpStatus.BAD_GATEWAY.value();
+            message = "响应体超出上限";
+        } else {
+            status = HttpStatus.BAD_GATEWAY.value();
+            message = "请求失败";
+        }
+        return ("{\"status\":" + status + ",\"message\":\"" + message + "\"}").getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 一个分支的结果，body 与 error 至多一个为 null
+     */
+    private record Result(int index, byte[] body, byte[] error) {
+    }
+
+    /**
+     * 分支上游返回了不能使用的响应
+     */
+    private static final class BranchFailedException extends RuntimeException {
+
+        private final int status;
+
+        private BranchFailedException(int status, String message) {
+            super(message, null, false, false);
+            this.status = status;
+        }
+    }
+
+    /**
+     * 必需分支失败，整个聚合请求以对应的拒绝响应结束
+     */
+    private static final class RequiredBranchFailedException extends RuntimeException {
+
+        private final RejectionTemplate template;
+
+        private RequiredBranchFailedException(RejectionTemplate template) {
+            super(template.getMessage(), null, false, false);
+            this.template = template;
+        }
+    }
+
+    /**
+     * 过滤器参数
+     */
+    @Data
+    public static class Config implements HasRouteId {
+
+        // 分支名到分支参数，分支名即响应中的字段名
+        private Map<String, BranchConfig> branches = new LinkedHashMap<>();
+
+        // 分支默认超时
+        private Duration timeout = Duration.ofSeconds(3);
+
+        // 单个分支响应体的字节数上限
+        private DataSize maxBranchSize = DataSize.ofMegabytes(1);
+
+        // 转发给各分支的请求头
+        private List<String> forwardHeaders = List.of(HttpHeaders.AUTHORIZATION, HttpHeaders.ACCEPT_LANGUAGE);
+
+        private String routeId;
+    }
+
+    /**
+     * 单个分支的参数
+     */
+    @Data
+    public static class BranchConfig {
+
+        // 请求地址，lb:// 开头时经负载均衡选择实例，可使用路径谓词中的 {变量}
+        private String uri;
+
+        // 超时，不配置时使用路由的 timeout
+        private Duration timeout;
+
+        // 必需分支失败时整个聚合请求失败
+        private boolean required = false;
+    }
+}
@@ -0,0 +1,29 @@
+package org.example.gateway.auth;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * 网关认证配置
+ */
+@Data
+@ConfigurationProperties(prefix = "gateway.auth")
+public class AuthProperties {
+
+    // JWKS公钥文件位置，支持 classpath:、file: 和 http(s): 前缀，一般指向配置中心提供的文件
+    private String jwksLocation = "classpath:jwks.json";
+
+    // 期望的签发者，为空时不校验
+    private String issuer;
+
+    // 期望的受众，为空时不校验
+    private String audience;
+
+    // 校验过期时间时允许的时钟偏差
+    private Duration clockSkew = Duration.ofSeconds(30);
+
+    // 已验证令牌缓存的最大条目数
+    private int cacheMaxEntries = 10000;
+}
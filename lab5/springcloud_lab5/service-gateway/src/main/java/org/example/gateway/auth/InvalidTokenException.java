@@ -0,0 +1,16 @@
+package org.example.gateway.auth;
+
+/**
+ * 令牌校验失败
+ * 无效令牌在攻击流量中很常见，不带原因的异常不填充堆栈，降低拒绝路径的开销
+ */
+public class InvalidTokenException extends RuntimeException {
+
+    public InvalidTokenException(String message) {
+        super(message, null, false, false);
+    }
+
+    public InvalidTokenException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,129 @@
+package org.example.gateway.auth;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cloud.context.scope.refresh.RefreshScopeRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.security.AlgorithmParameters;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.PublicKey;
+import java.security.spec.ECGenParameterSpec;
+import java.security.spec.ECParameterSpec;
+import java.security.spec.ECPoint;
+import java.security.spec.ECPublicKeySpec;
+import java.security.spec.RSAPublicKeySpec;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 本地JWKS公钥库
+ * 启动时以及配置刷新后从 {@code gateway.auth.jwks-location} 加载公钥，按 kid 索引。
+ * 加载失败时保留上一份公钥；公钥变化时清空已验证令牌缓存，保证轮换或吊销的密钥立即失效。
+ */
+@Component
+@Slf4j
+public class JwksKeyStore {
+
+    private final AuthProperties properties;
+
+    private final ResourceLoader resourceLoader;
+
+    private final ObjectMapper objectMapper;
+
+    private final VerifiedTokenCache tokenCache;
+
+    private volatile Map<String, JwkKey> keys = Map.of();
+
+    public JwksKeyStore(AuthProperties properties, ResourceLoader resourceLoader, ObjectMapper objectMapper,
+                        VerifiedTokenCache tokenCache) {
+        this.properties = properties;
+        this.resourceLoader = resourceLoader;
+        this.objectMapper = objectMapper;
+        this.tokenCache = tokenCache;
+        reload();
+    }
+
+    public JwkKey get(String kid) {
+        return keys.get(kid);
+    }
+
+    @EventListener(RefreshScopeRefreshedEvent.class)
+    public void reload() {
+        String location = properties.getJwksLocation();
+        try {
+            Resource resource = resourceLoader.getResource(location);
+            Map<String, JwkKey> loaded;
+            try (InputStream in = resource.getInputStream()) {
+                loaded = parse(objectMapper.readTree(in));
+            }
+            if (!loaded.equals(keys)) {
+                keys = loaded;
+                tokenCache.clear();
+            }
+            log.info("已从 {} 加载 {} 个JWKS公钥", location, loaded.size());
+        } catch (IOException | GeneralSecurityException | RuntimeException e) {
+            log.error("加载JWKS公钥失败，继续使用已有的 {} 个公钥: {}", keys.size(), location, e);
+        }
+    }
+
+    private Map<String, JwkKey> parse(JsonNode jwks) throws GeneralSecurityException {
+        Map<String, JwkKey> result = new HashMap<>();
+        for (JsonNode jwk : jwks.path("keys")) {
+            String kid = jwk.path("kid").asText(null);
+            if (kid == null) {
+                log.warn("忽略缺少kid的JWKS公钥");
+                continue;
+            }
+            String alg = jwk.path("alg").asText(null);
+            String kty = jwk.path("kty").asText();
+            PublicKey key;
+            if ("RSA".equals(kty)) {
+                key = KeyFactory.getInstance("RSA").generatePublic(
+                        new RSAPublicKeySpec(unsigned(jwk, "n"), unsigned(jwk, "e")));
+            } else if ("EC".equals(kty)) {
+                AlgorithmParameters parameters = AlgorithmParameters.getInstance("EC");
+                parameters.init(new ECGenParameterSpec(curveName(jwk.path("crv").asText())));
+                ECPoint point = new ECPoint(unsigned(jwk, "x"), unsigned(jwk, "y"));
+                key = KeyFactory.getInstance("EC").generatePublic(
+                        new ECPublicKeySpec(point, parameters.getParameterSpec(ECParameterSpec.class)));
+            } else {
+                log.warn("忽略不支持的JWKS公钥类型 {}，kid: {}", kty, kid);
+                continue;
+            }
+            result.put(kid, new JwkKey(key, alg));
+        }
+        return Map.copyOf(result);
+    }
+
+    private static BigInteger unsigned(JsonNode jwk, String field) {
+        return new BigInteger(1, Base64.getUrlDecoder().decode(jwk.path(field).asText()));
+    }
+
+    private static String curveName(String crv) {
+        return switch (crv) {
+            case "P-256" -> "secp256r1";
+            case "P-384" -> "secp384r1";
+            case "P-521" -> "secp521r1";
+            default -> throw new IllegalArgumentException("不支持的椭圆曲线: " + crv);
+        };
+    }
+
+    /**
+     * 单个公钥及其限定的签名算法
+     *
+     * @param key 公钥
+     * @param alg JWKS中声明的算法，为空时不限定
+     */
+    public record JwkKey(PublicKey key, String alg) {
+    }
+}
@@ -0,0 +1,10 @@
+package org.example.gateway.auth;
+
+/**
+ * 已验证令牌中网关关心的声明
+ *
+ * @param subject         令牌主体，一般为用户或客户端ID
+ * @param expiresAtMillis 过期时间，单位毫秒
+ */
+public record JwtClaims(String subject, long expiresAtMillis) {
+}
@@ -0,0 +1,143 @@
+package org.example.gateway.auth;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.Signature;
+import java.util.Base64;
+
+/**
+ * JWT校验器
+ * 使用本地JWKS公钥校验签名（RS256/384/512、ES256/384/512）、过期时间、生效时间、签发者和受众。
+ * 验签通过的令牌摘要进入 {@link VerifiedTokenCache}，令牌过期前再次出现时不再验签。
+ */
+@Component
+public class JwtVerifier {
+
+    private final JwksKeyStore keyStore;
+
+    private final VerifiedTokenCache cache;
+
+    private final AuthProperties properties;
+
+    private final ObjectMapper objectMapper;
+
+    public JwtVerifier(JwksKeyStore keyStore, VerifiedTokenCache cache, AuthProperties properties,
+                       ObjectMapper objectMapper) {
+        this.keyStore = keyStore;
+        this.cache = cache;
+        this.properties = properties;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * 校验令牌，优先使用缓存的校验结果
+     *
+     * @throws InvalidTokenException 令牌无效
+     */
+    public JwtClaims verify(String token) {
+        long now = System.currentTimeMillis();
+        VerifiedTokenCache.TokenDigest digest = VerifiedTokenCache.digest(token);
+        JwtClaims claims = cache.get(digest, now);
+        if (claims == null) {
+            claims = verifyUncached(token, now);
+            cache.put(digest, claims, now);
+        }
+        return claims;
+    }
+
+    /**
+     * 完整校验令牌，不读写缓存
+     *
+     * @throws InvalidTokenException 令牌无效
+     */
+    public JwtClaims verifyUncached(String token, long nowMillis) {
+        int first = token.indexOf('.');
+        int second = token.indexOf('.', first + 1);
+        if (first <= 0 || second <= first + 1 || second == token.length() - 1 || token.indexOf('.', second + 1) >= 0) {
+            throw new InvalidTokenException("令牌格式错误");
+        }
+
+        JsonNode header = decodeJson(token, 0, first);
+        String alg = header.path("alg").asText();
+        String jcaAlgorithm = jcaAlgorithm(alg);
+        if (jcaAlgorithm == null) {
+            throw new InvalidTokenException("不支持的签名算法");
+        }
+        JwksKeyStore.JwkKey key = keyStore.get(header.path("kid").asText(null));
+        if (key == null) {
+            throw new InvalidTokenException("未知的签名密钥");
+        }
+        if (key.alg() != null && !key.alg().equals(alg)) {
+            throw new InvalidTokenException("签名算法与密钥不匹配");
+        }
+
+        try {
+            Signature signature = Signature.getInstance(jcaAlgorithm);
+            signature.initVerify(key.key());
+            signature.update(token.getBytes(StandardCharsets.US_ASCII), 0, second);
+            if (!signature.verify(Base64.getUrlDecoder().decode(token.substring(second + 1)))) {
+                throw new InvalidTokenException("签名校验失败");
+            }
+        } catch (GeneralSecurityException | IllegalArgumentException e) {
+            throw new InvalidTokenException("签名校验失败", e);
+        }
+
+        JsonNode payload = decodeJson(token, first + 1, second);
+        long skew = properties.getClockSkew().toMillis();
+        if (!payload.path("exp").canConvertToLong()) {
+            throw new InvalidTokenException("令牌缺少过期时间");
+        }
+        long expiresAt = payload.path("exp").asLong() * 1000;
+        if (expiresAt + skew <= nowMillis) {
+            throw new InvalidTokenException("令牌已过期");
+        }
+        if (payload.has("nbf") && payload.path("nbf").asLong() * 1000 - skew > nowMillis) {
+            throw new InvalidTokenException("令牌尚未生效");
+        }
+        if (properties.getIssuer() != null && !properties.getIssuer().equals(payload.path("iss").asText(null))) {
+            throw new InvalidTokenException("令牌签发者不匹配");
+        }
+        if (properties.getAudience() != null && !hasAudience(payload.path("aud"), properties.getAudience())) {
+            throw new InvalidTokenException("令牌受众不匹配");
+        }
+        return new JwtClaims(payload.path("sub").asText(null), expiresAt);
+    }
+
+    private JsonNode decodeJson(String token, int start, int end) {
+        try {
+            return objectMapper.readTree(Base64.getUrlDecoder().decode(token.substring(start, end)));
+        } catch (IOException | IllegalArgumentException e) {
+            throw new InvalidTokenException("令牌格式错误", e);
+        }
+    }
+
+    private static boolean hasAudience(JsonNode aud, String expected) {
+        if (aud.isArray()) {
+            for (JsonNode item : aud) {
+                if (expected.equals(item.asText())) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        return expected.equals(aud.asText(null));
+    }
+
+    private static String jcaAlgorithm(String alg) {
+        return switch (alg) {
+            case "RS256" -> "SHA256withRSA";
+            case "RS384" -> "SHA384withRSA";
+            case "RS512" -> "SHA512withRSA";
+            // JWS中的ECDSA签名是 r||s 定长格式
+            case "ES256" -> "SHA256withECDSAinP1363Format";
+            case "ES384" -> "SHA384withECDSAinP1363Format";
+            case "ES512" -> "SHA512withECDSAinP1363Format";
+            default -> null;
+        };
+    }
+}
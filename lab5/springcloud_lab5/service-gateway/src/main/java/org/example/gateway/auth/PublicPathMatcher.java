@@ -0,0 +1,71 @@
+package org.example.gateway.auth;
+
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.http.server.PathContainer;
+import org.springframework.stereotype.Component;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 公开路径匹配
+ * 公开路径在路由元数据 {@code public-paths} 中声明，多个模式用逗号分隔或写成列表，
+ * 模式针对网关收到的原始路径（去除前缀之前）。每条路由的模式只在元数据变化时重新解析。
+ */
+@Component
+public class PublicPathMatcher {
+
+    // 路由元数据中声明公开路径的键
+    public static final String METADATA_KEY = "public-paths";
+
+    private final Map<String, CompiledPaths> compiled = new ConcurrentHashMap<>();
+
+    public boolean isPublic(Route route, PathContainer path) {
+        if (route == null) {
+            return false;
+        }
+        Object source = route.getMetadata().get(METADATA_KEY);
+        if (source == null) {
+            return false;
+        }
+        CompiledPaths paths = compiled.get(route.getId());
+        if (paths == null || paths.source() != source) {
+            paths = new CompiledPaths(source, parse(source));
+            compiled.put(route.getId(), paths);
+        }
+        for (PathPattern pattern : paths.patterns()) {
+            if (pattern.matches(path)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static List<PathPattern> parse(Object source) {
+        List<String> values = new ArrayList<>();
+        if (source instanceof Map<?, ?> map) {
+            map.values().forEach(value -> values.add(String.valueOf(value)));
+        } else if (source instanceof Collection<?> collection) {
+            collection.forEach(value -> values.add(String.valueOf(value)));
+        } else {
+            values.add(source.toString());
+        }
+        List<PathPattern> patterns = new ArrayList<>();
+        for (String value : values) {
+            for (String pattern : value.split(",")) {
+                if (!pattern.isBlank()) {
+                    patterns.add(PathPatternParser.defaultInstance.parse(pattern.trim()));
+                }
+            }
+        }
+        return List.copyOf(patterns);
+    }
+
+    private record CompiledPaths(Object source, List<PathPattern> patterns) {
+    }
+}
@@ -0,0 +1,112 @@
+package org.example.gateway.auth;
+
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 已验证令牌缓存
+ * 以令牌的SHA-256摘要为键，避免重复做RSA/ECDSA验签，也不在内存中保留令牌原文。
+ * 条目在令牌过期后失效；缓存满时先清理过期条目，仍然满则在抽样条目中淘汰最早过期的一个。
+ */
+@Component
+public class VerifiedTokenCache {
+
+    // 缓存满时每次抽样比较的条目数
+    private static final int EVICTION_SAMPLES = 16;
+
+    private static final ThreadLocal<MessageDigest> SHA256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    });
+
+    private final AuthProperties properties;
+
+    private final Map<TokenDigest, JwtClaims> entries = new ConcurrentHashMap<>();
+
+    public VerifiedTokenCache(AuthProperties properties) {
+        this.properties = properties;
+    }
+
+    /**
+     * 计算令牌摘要
+     */
+    public static TokenDigest digest(String token) {
+        byte[] hash = SHA256.get().digest(token.getBytes(StandardCharsets.US_ASCII));
+        ByteBuffer buffer = ByteBuffer.wrap(hash);
+        return new TokenDigest(buffer.getLong(), buffer.getLong(), buffer.getLong(), buffer.getLong());
+    }
+
+    /**
+     * 查找未过期的已验证令牌
+     */
+    public JwtClaims get(TokenDigest digest, long nowMillis) {
+        JwtClaims claims = entries.get(digest);
+        if (claims == null) {
+            return null;
+        }
+        if (claims.expiresAtMillis() + properties.getClockSkew().toMillis() <= nowMillis) {
+            entries.remove(digest, claims);
+            return null;
+        }
+        return claims;
+    }
+
+    public void put(TokenDigest digest, JwtClaims claims, long nowMillis) {
+        if (entries.size() >= properties.getCacheMaxEntries()) {
+            evictExpired(nowMillis);
+            if (entries.size() >= properties.getCacheMaxEntries()) {
+                evictSoonestExpiring();
+            }
+        }
+        entries.put(digest, claims);
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    @Scheduled(fixedDelayString = "${gateway.auth.cache-sweep-interval:60000}")
+    public void sweep() {
+        evictExpired(System.currentTimeMillis());
+    }
+
+    private void evictExpired(long nowMillis) {
+        long deadline = nowMillis - properties.getClockSkew().toMillis();
+        entries.values().removeIf(claims -> claims.expiresAtMillis() <= deadline);
+    }
+
+    private void evictSoonestExpiring() {
+        Map.Entry<TokenDigest, JwtClaims> victim = null;
+        Iterator<Map.Entry<TokenDigest, JwtClaims>> iterator = entries.entrySet().iterator();
+        for (int i = 0; i < EVICTION_SAMPLES && iterator.hasNext(); i++) {
+            Map.Entry<TokenDigest, JwtClaims> entry = iterator.next();
+            if (victim == null || entry.getValue().expiresAtMillis() < victim.getValue().expiresAtMillis()) {
+                victim = entry;
+            }
+        }
+        if (victim != null) {
+            entries.remove(victim.getKey(), victim.getValue());
+        }
+    }
+
+    /**
+     * 令牌的SHA-256摘要
+     */
+    public record TokenDigest(long h0, long h1, long h2, long h3) {
+    }
+}
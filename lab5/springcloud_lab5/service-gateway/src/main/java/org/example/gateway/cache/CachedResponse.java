@@ -0,0 +1,155 @@
+package org.example.gateway.cache;
+
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import reactor.core.publisher.Mono;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 缓冲下来的完整响应，构建后不可变
+ * 响应体保存为只读的 {@link ByteBuffer}（堆内或堆外），写出时直接包装为 {@link DataBuffer}，不再拷贝
+ */
+public final class CachedResponse {
+
+    // 每个条目除响应体与响应头外的估算开销
+    private static final int ENTRY_OVERHEAD = 256;
+
+    private static final List<String> NON_STORABLE_HEADERS = List.of(
+            HttpHeaders.CONNECTION, "Keep-Alive", HttpHeaders.TRANSFER_ENCODING, HttpHeaders.TE,
+            HttpHeaders.TRAILER, HttpHeaders.UPGRADE, HttpHeaders.PROXY_AUTHENTICATE, HttpHeaders.SET_COOKIE);
+
+    private final HttpStatusCode status;
+
+    private final HttpHeaders headers;
+
+    private final ByteBuffer body;
+
+    private final String etag;
+
+    private final List<String> vary;
+
+    private final boolean varyMarker;
+
+    // Vary 标记的代次，并入各变体的缓存键；标记被删除后重建时取新的代次，旧变体不再可达
+    private final long generation;
+
+    private final long storedAtNanos;
+
+    private final long expiresAtNanos;
+
+    private final int size;
+
+    CachedResponse(HttpStatusCode status, HttpHeaders headers, ByteBuffer body, String etag, List<String> vary,
+                   long storedAtNanos, long expiresAtNanos) {
+        this(status, headers, body, etag, vary, false, 0, storedAtNanos, expiresAtNanos);
+    }
+
+    private CachedResponse(HttpStatusCode status, HttpHeaders headers, ByteBuffer body, String etag, List<String> vary,
+                           boolean varyMarker, long generation, long storedAtNanos, long expiresAtNanos) {
+        this.status = status;
+        this.headers = HttpHeaders.readOnlyHttpHeaders(headers);
+        this.body = body.asReadOnlyBuffer();
+        this.etag = etag;
+        this.vary = vary;
+        this.varyMarker = varyMarker;
+        this.generation = generation;
+        this.storedAtNanos = storedAtNanos;
+        this.expiresAtNanos = expiresAtNanos;
+        this.size = body.capacity() + estimateHeaders(headers) + ENTRY_OVERHEAD;
+    }
+
+    /**
+     * 复制需要随缓存响应一起保存的响应头，去掉逐跳头与 Set-Cookie，并按响应体设置 Content-Length
+     */
+    static HttpHeaders storableHeaders(HttpHeaders source, int bodyLength) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.putAll(source);
+        NON_STORABLE_HEADERS.forEach(headers::remove);
+        headers.setContentLength(bodyLength);
+        return headers;
+    }
+
+    /**
+     * 只记录 Vary 头的占位条目，真正的响应按 Vary 指定的请求头取值另行存放
+     */
+    static CachedResponse varyMarker(List<String> vary, long generation, long storedAtNanos, long expiresAtNanos) {
+        return new CachedResponse(HttpStatusCode.valueOf(200), new HttpHeaders(), ByteBuffer.allocate(0), null, vary,
+                true, generation, storedAtNanos, expiresAtNanos);
+    }
+
+    /**
+     * 经上游确认未变化后，以新的过期时间返回同一响应，响应体共享
+     */
+    CachedResponse revalidated(long nowNanos, long expiresAtNanos) {
+        return new CachedResponse(status, headers, body, etag, vary, varyMarker, generation, nowNanos, expiresAtNanos);
+    }
+
+    public HttpStatusCode getStatus() {
+        return status;
+    }
+
+    public HttpHeaders getHeaders() {
+        return headers;
+    }
+
+    public String getEtag() {
+        return etag;
+    }
+
+    public List<String> getVary() {
+        return vary;
+    }
+
+    public boolean isVaryMarker() {
+        return varyMarker;
+    }
+
+    public long getGeneration() {
+        return generation;
+    }
+
+    public long getStoredAtNanos() {
+        return storedAtNanos;
+    }
+
+    public boolean isExpired(long nowNanos) {
+        return nowNanos - expiresAtNanos >= 0;
+    }
+
+    public long ageSeconds(long nowNanos) {
+        return (nowNanos - storedAtNanos) / 1_000_000_000L;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int bodyLength() {
+        return body.capacity();
+    }
+
+    /**
+     * 把缓存的状态码、响应头和响应体写到响应中
+     */
+    public Mono<Void> writeTo(ServerHttpResponse response) {
+        response.setStatusCode(status);
+        response.getHeaders().putAll(headers);
+        return response.writeWith(Mono.just(response.bufferFactory().wrap(body.duplicate())));
+    }
+
+    private static int estimateHeaders(HttpHeaders headers) {
+        int size = 0;
+        for (Map.Entry<String, List<String>> entry : headers.headerSet()) {
+            size += entry.getKey().length();
+            for (String value : entry.getValue()) {
+                size += value.length();
+            }
+        }
+        return size * 2;
+    }
+}
@@ -0,0 +1,152 @@
+package org.example.gateway.cache;
+
+import org.reactivestreams.Publisher;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.function.Predicate;
+
+/**
+ * 在响应写给客户端的同时复制一份响应体
+ * 响应以流的方式透传，不等待完整响应体；响应不满足捕获条件、超出大小上限、以流式写出或出错时放弃捕获。
+ * 监听器的两个回调只会触发其中一个，且只触发一次。
+ */
+public class CapturingResponseDecorator extends ServerHttpResponseDecorator {
+
+    private final long maxBytes;
+
+    private final boolean offHeap;
+
+    private final Predicate<ServerHttpResponse> capturable;
+
+    private final Listener listener;
+
+    private volatile boolean finished;
+
+    private byte[] body;
+
+    private int length;
+
+    /**
+     * @param maxBytes    响应体的最大捕获字节数
+     * @param offHeap     捕获的响应体是否存放在堆外内存
+     * @param capturable  写出响应体前根据状态码与响应头判断是否捕获
+     * @param listener    捕获结果的接收者
+     */
+    public CapturingResponseDecorator(ServerHttpResponse delegate, long maxBytes, boolean offHeap,
+                                      Predicate<ServerHttpResponse> capturable, Listener listener) {
+        super(delegate);
+        this.maxBytes = maxBytes;
+        this.offHeap = offHeap;
+        this.capturable = capturable;
+        this.listener = listener;
+    }
+
+    @Override
+    public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+        if (finished || !capturable.test(getDelegate())) {
+            abandon();
+            return super.writeWith(body);
+        }
+        long contentLength = getHeaders().getContentLength();
+        if (contentLength > maxBytes) {
+            abandon();
+            return super.writeWith(body);
+        }
+        this.body = new byte[contentLength >= 0 ? (int) contentLength : 1024];
+        Flux<? extends DataBuffer> captured = Flux.from(body)
+                .doOnNext(this::append)
+                .doOnComplete(this::complete)
+                .doOnError(e -> abandon())
+                .doOnCancel(this::abandon);
+        return super.writeWith(captured);
+    }
+
+    @Override
+    public Mono<Void> writeAndFlushWith(Publisher<? extends Publisher<? extends DataBuffer>> body) {
+        // 流式响应不缓冲
+        abandon();
+        return super.writeAndFlushWith(body);
+    }
+
+    @Override
+    public Mono<Void> setComplete() {
+        if (!finished && capturable.test(getDelegate())) {
+            this.body = new byte[0];
+            complete();
+        } else {
+            abandon();
+        }
+        return super.setComplete();
+    }
+
+    /**
+     * 放弃捕获，调用方可以在请求结束时调用，保证监听器一定收到结果
+     */
+    public void abandon() {
+        if (!finished) {
+            finished = true;
+            body = null;
+            listener.abandoned();
+        }
+    }
+
+    private void append(DataBuffer buffer) {
+        if (finished) {
+            return;
+        }
+        int readable = buffer.readableByteCount();
+        if (length + readable > maxBytes) {
+            abandon();
+            return;
+        }
+        if (length + readable > body.length) {
+            body = Arrays.copyOf(body, (int) Math.min(maxBytes, Math.max(body.length * 2L, length + readable)));
+        }
+        buffer.toByteBuffer(buffer.readPosition(), ByteBuffer.wrap(body), length, readable);
+        length += readable;
+    }
+
+    private void complete() {
+        if (finished) {
+            return;
+        }
+        finished = true;
+        ByteBuffer content;
+        if (offHeap) {
+            content = ByteBuffer.allocateDirect(length).put(body, 0, length).flip();
+        } else {
+            content = ByteBuffer.wrap(length == body.length ? body : Arrays.copyOf(body, length));
+        }
+        body = null;
+        ServerHttpResponse response = getDelegate();
+        listener.captured(response.getStatusCode(), response.getHeaders(), content);
+    }
+
+    /**
+     * 捕获结果的接收者
+     */
+    public interface Listener {
+
+        /**
+         * 完整捕获了响应
+         *
+         * @param status  状态码
+         * @param headers 响应头，仍是响应本身的响应头，需要保存时应复制
+         * @param body    响应体
+         */
+        void captured(HttpStatusCode status, HttpHeaders headers, ByteBuffer body);
+
+        /**
+         * 放弃捕获
+         */
+        void abandoned();
+    }
+}
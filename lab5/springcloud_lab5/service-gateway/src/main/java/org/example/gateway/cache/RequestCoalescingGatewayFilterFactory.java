@@ -0,0 +1,258 @@
+package org.example.gateway.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.Data;
+import org.example.gateway.auth.JwtClaims;
+import org.example.gateway.compression.CompressionGatewayFilterFactory;
+import org.example.gateway.filter.AuthenticationFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.OrderedGatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.cloud.gateway.support.HasRouteId;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 路由级请求合并（single-flight）过滤器
+ * <pre>
+ * filters:
+ *   - name: RequestCoalescing
+ *     args:
+ *       max-waiters: 100   # 每个进行中的请求最多合并的等待者，超出的请求单独转发
+ *       shared: false      # 为 false 时只合并同一认证主体的请求
+ * </pre>
+ * 同一时刻相同的GET请求只有第一个（领头请求）转发到上游，其余请求等待领头请求的响应，
+ * 响应缓冲后分发给所有等待者。领头请求的响应无法共享（带 Set-Cookie、Vary: *、流式、超出大小上限或出错）时，
+ * 等待者各自转发；上游 Vary 指定的请求头与领头请求取值不同的等待者也各自转发。
+ * 合并键包含 Origin，共享的响应去掉跨域响应头，等待者保留 CorsWebFilter 按自己的请求生成的跨域响应头。与 ResponseCache 同时使用时位于缓存之后，只合并缓存未命中的请求。
+ */
+@Component
+public class RequestCoalescingGatewayFilterFactory
+        extends AbstractGatewayFilterFactory<RequestCoalescingGatewayFilterFactory.Config> {
+
+    // 在 ResponseCache 与 Compression 之后、NettyWriteResponseFilter(-1) 之前执行，等待者各自按 Accept-Encoding 压缩
+    public static final int ORDER = CompressionGatewayFilterFactory.ORDER + 1;
+
+    // 合并请求时参与比较的请求头，这些请求头不同的请求可能得到不同的响应
+    private static final List<String> KEY_HEADERS = List.of(
+            HttpHeaders.ACCEPT, HttpHeaders.ACCEPT_ENCODING, HttpHeaders.ACCEPT_LANGUAGE, HttpHeaders.ORIGIN);
+
+    private final ResponseCacheProperties properties;
+
+    private final MeterRegistry meterRegistry;
+
+    private final Map<String, Flight> flights = new ConcurrentHashMap<>();
+
+    public RequestCoalescingGatewayFilterFactory(ResponseCacheProperties properties, MeterRegistry meterRegistry) {
+        super(Config.class);
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        RouteCoalescing coalescing = new RouteCoalescing(config);
+        return new OrderedGatewayFilter(coalescing::filter, ORDER);
+    }
+
+    @Override
+    public List<String> shortcutFieldOrder() {
+        return List.of("maxWaiters", "shared");
+    }
+
+    @Override
+    public String name() {
+        return "RequestCoalescing";
+    }
+
+    /**
+     * 单条路由的合并逻辑，持有该路由的配置与指标
+     */
+    private final class RouteCoalescing {
+
+        private final String routeId;
+
+        private final int maxWaiters;
+
+        private final boolean shared;
+
+        private final Counter leaders;
+
+        private final Counter collapsed;
+
+        private final Counter overflow;
+
+        private final Counter fallbacks;
+
+        private RouteCoalescing(Config config) {
+            this.routeId = config.getRouteId() != null ? config.getRouteId() : "";
+            this.maxWaiters = config.getMaxWaiters();
+            this.shared = config.isShared();
+            this.leaders = counter("leader");
+            this.collapsed = counter("collapsed");
+            this.overflow = counter("overflow");
+            this.fallbacks = counter("fallback");
+        }
+
+        private Counter counter(String result) {
+            return Counter.builder("gateway.coalescing.requests")
+                    .description("请求合并的请求数，collapsed 为共享了领头请求响应的请求")
+                    .tag("route", routeId)
+                    .tag("result", result)
+                    .register(meterRegistry);
+        }
+
+        private Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+            ServerHttpRequest request = exchange.getRequest();
+            if (request.getMethod() != HttpMethod.GET) {
+                return chain.filter(exchange);
+            }
+            String key = key(exchange);
+            Flight flight = new Flight(request.getHeaders());
+            Flight existing = flights.putIfAbsent(key, flight);
+            if (existing != null) {
+                return join(exchange, chain, existing);
+            }
+            leaders.increment();
+
+            CapturingResponseDecorator capture = new CapturingResponseDecorator(exchange.getResponse(),
+                    properties.getMaxEntrySize().toBytes(), false,
+                    response -> !response.getHeaders().containsKey(HttpHeaders.SET_COOKIE)
+                            && !response.getHeaders().getVary().contains("*"),
+                    new CapturingResponseDecorator.Listener() {
+                        @Override
+                        public void captured(HttpStatusCode status, HttpHeaders headers, ByteBuffer body) {
+                            long now = System.nanoTime();
+                            flight.complete(key, new CachedResponse(status, sharedHeaders(headers, body.remaining()),
+                                    body, null, headers.getVary(), now, now));
+                        }
+
+                        @Override
+                        public void abandoned() {
+                            flight.complete(key, null);
+                        }
+                    });
+            return chain.filter(exchange.mutate().response(capture).build())
+                    .doFinally(signal -> capture.abandon());
+        }
+
+        private Mono<Void> join(ServerWebExchange exchange, GatewayFilterChain chain, Flight flight) {
+            if (flight.waiters.incrementAndGet() > maxWaiters) {
+                overflow.increment();
+                return chain.filter(exchange);
+            }
+            return flight.result.asMono().flatMap(result -> {
+                if (result.isEmpty() || !flight.matches(result.get().getVary(), exchange.getRequest().getHeaders())) {
+                    fallbacks.increment();
+                    return chain.filter(exchange);
+                }
+                collapsed.increment();
+                ServerHttpResponse response = exchange.getResponse();
+                return ResponseCacheGatewayFilterFactory.discardBody(exchange.getRequest())
+                        .then(Mono.defer(() -> result.get().writeTo(response)));
+            });
+        }
+
+        private String key(ServerWebExchange exchange) {
+            ServerHttpRequest request = exchange.getRequest();
+            StringBuilder key = new StringBuilder(128).append(routeId).append('\n');
+            if (!shared) {
+                JwtClaims claims = exchange.getAttribute(AuthenticationFilter.AUTH_CLAIMS_ATTR);
+                if (claims != null) {
+                    key.append(claims.subject());
+                }
+            }
+            key.append('\n').append(request.getURI().getRawPath());
+            String query = request.getURI().getRawQuery();
+            if (query != null) {
+                key.append('?').append(query);
+            }
+            for (String name : KEY_HEADERS) {
+                List<String> values = request.getHeaders().get(name);
+                if (values != null) {
+                    key.append('\n').append(name).append('=').append(String.join(",", values));
+                }
+            }
+            return key.toString();
+        }
+    }
+
+    /**
+     * 复制可以分发给等待者的响应头：跨域响应头是 CorsWebFilter 按领头请求的 Origin 生成的，
+     * 去掉后等待者保留按自己的 Origin 生成的跨域响应头
+     */
+    private static HttpHeaders sharedHeaders(HttpHeaders source, int bodyLength) {
+        HttpHeaders headers = CachedResponse.storableHeaders(source, bodyLength);
+        headers.keySet().removeIf(name -> name.regionMatches(true, 0, "Access-Control-", 0, 15));
+        return headers;
+    }
+
+    /**
+     * 一次进行中的上游请求
+     */
+    private final class Flight {
+
+        private final Sinks.One<Optional<CachedResponse>> result = Sinks.one();
+
+        private final AtomicInteger waiters = new AtomicInteger();
+
+        // 领头请求的请求头，用于按上游 Vary 判断等待者能否共享响应
+        private final HttpHeaders leaderHeaders;
+
+        private Flight(HttpHeaders leaderHeaders) {
+            this.leaderHeaders = leaderHeaders;
+        }
+
+        /**
+         * 等待者在上游 Vary 指定的请求头上与领头请求取值相同
+         */
+        private boolean matches(List<String> vary, HttpHeaders headers) {
+            for (String name : vary) {
+                if (!Objects.equals(leaderHeaders.get(name.trim()), headers.get(name.trim()))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * 领头请求结束：先移出表，之后到达的相同请求发起新的上游请求，再通知已有的等待者
+         */
+        private void complete(String key, CachedResponse response) {
+            flights.remove(key, this);
+            result.tryEmitValue(Optional.ofNullable(response));
+        }
+    }
+
+    /**
+     * 过滤器参数
+     */
+    @Data
+    public static class Config implements HasRouteId {
+
+        // 每个进行中的请求最多合并的等待者数
+        private int maxWaiters = 100;
+
+        // 是否合并不同认证主体的请求
+        private boolean shared = false;
+
+        private String routeId;
+    }
+}
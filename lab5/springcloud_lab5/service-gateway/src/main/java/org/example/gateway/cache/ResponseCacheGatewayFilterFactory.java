@@ -0,0 +1,456 @@
+package org.example.gateway.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.Data;
+import org.example.gateway.auth.JwtClaims;
+import org.example.gateway.compression.AcceptEncoding;
+import org.example.gateway.filter.AuthenticationFilter;
+import org.reactivestreams.Publisher;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.OrderedGatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.cloud.gateway.support.HasRouteId;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32C;
+
+/**
+ * 路由级响应缓存过滤器，只缓存GET请求的200响应
+ * <pre>
+ * filters:
+ *   - name: ResponseCache
+ *     args:
+ *       ttl: 30s        # 缓存时间，上游 Cache-Control 的 max-age 更短时以上游为准
+ *       shared: false   # 为 false 时按认证主体区分缓存，不同用户互不可见
+ * </pre>
+ * 缓存键包含路由、认证主体、路径与查询串，以及上游 Vary 指定的请求头取值，Accept-Encoding 按可接受的编码集合归一化。
+ * 客户端带 If-None-Match 且与缓存的ETag一致时直接返回304；缓存过期后若上游提供了ETag，
+ * 向上游发送条件请求，上游返回304时续期并返回缓存的响应体。同一路径上的 POST/PUT/PATCH/DELETE 请求使缓存失效：
+ * 带 Vary 的响应（CorsWebFilter 总会加上 Vary: Origin）按变体分别存放，变体的键包含 Vary 标记的代次，
+ * 修改类请求删除标记后，下一个GET重建标记时取新的代次，该路径的所有旧变体都不再命中，随LRU淘汰。
+ */
+@Component
+public class ResponseCacheGatewayFilterFactory extends AbstractGatewayFilterFactory<ResponseCacheGatewayFilterFactory.Config> {
+
+    // 在认证与限流之后、NettyWriteResponseFilter(-1) 之前执行
+    public static final int ORDER = -10;
+
+    static final String CACHE_STATUS_HEADER = "X-Cache";
+
+    // 请求开始时没有 Vary 标记
+    private static final long NO_GENERATION = -1;
+
+    private final ResponseCacheStore store;
+
+    private final ResponseCacheProperties properties;
+
+    private final MeterRegistry meterRegistry;
+
+    // Vary 标记的代次，每次新建标记时递增
+    private final AtomicLong generations = new AtomicLong();
+
+    public ResponseCacheGatewayFilterFactory(ResponseCacheStore store, ResponseCacheProperties properties,
+                                             MeterRegistry meterRegistry) {
+        super(Config.class);
+        this.store = store;
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        RouteCache cache = new RouteCache(config);
+        return new OrderedGatewayFilter(cache::filter, ORDER);
+    }
+
+    @Override
+    public List<String> shortcutFieldOrder() {
+        return List.of("ttl", "shared");
+    }
+
+    @Override
+    public String name() {
+        return "ResponseCache";
+    }
+
+    /**
+     * 单条路由的缓存过滤逻辑，持有该路由的配置与指标
+     */
+    private final class RouteCache {
+
+        private final String routeId;
+
+        private final long ttlNanos;
+
+        private final boolean shared;
+
+        private final Counter hits;
+
+        private final Counter misses;
+
+        private final Counter revalidations;
+
+        private final Counter bypasses;
+
+        private RouteCache(Config config) {
+            this.routeId = config.getRouteId() != null ? config.getRouteId() : "";
+            this.ttlNanos = config.getTtl().toNanos();
+            this.shared = config.isShared();
+            this.hits = counter("hit");
+            this.misses = counter("miss");
+            this.revalidations = counter("revalidated");
+            this.bypasses = counter("bypass");
+        }
+
+        private Counter counter(String result) {
+            return Counter.builder("gateway.cache.requests")
+                    .description("响应缓存的请求数")
+                    .tag("route", routeId)
+                    .tag("result", result)
+                    .register(meterRegistry);
+        }
+
+        private Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+            ServerHttpRequest request = exchange.getRequest();
+            if (request.getMethod() != HttpMethod.GET) {
+                if (unsafe(request.getMethod())) {
+                    // 修改类请求使同一路径的缓存失效
+                    String key = baseKey(exchange);
+                    return chain.filter(exchange).doFinally(signal -> store.remove(key));
+                }
+                return chain.filter(exchange);
+            }
+            String requestCacheControl = request.getHeaders().getCacheControl();
+            if (contains(requestCacheControl, "no-store")) {
+                bypasses.increment();
+                return chain.filter(exchange);
+            }
+
+            long now = System.nanoTime();
+            String baseKey = baseKey(exchange);
+            String key = baseKey;
+            long generation = NO_GENERATION;
+            CachedResponse cached = store.get(baseKey);
+            if (cached != null && cached.isVaryMarker()) {
+                generation = cached.getGeneration();
+                key = variantKey(baseKey, generation, cached.getVary(), request.getHeaders());
+                cached = store.get(key);
+            }
+            if (contains(requestCacheControl, "no-cache")) {
+                cached = null;
+            }
+            if (cached != null && !cached.isExpired(now)) {
+                hits.increment();
+                CachedResponse hit = cached;
+                return discardBody(request).then(Mono.defer(() ->
+                        serve(request, exchange.getResponse(), hit, now, "HIT")));
+            }
+
+            ServerHttpResponse response = exchange.getResponse();
+            CapturingResponseDecorator capture = new CapturingResponseDecorator(response, store.maxEntryBytes(),
+                    properties.isOffHeap(), this::cacheable, new StoreListener(baseKey, request.getHeaders(), generation));
+            capture.getHeaders().set(CACHE_STATUS_HEADER, "MISS");
+
+            ServerWebExchange mutated;
+            if (cached != null && cached.getEtag() != null) {
+                // 过期但有上游ETag，发送条件请求重新验证
+                CachedResponse stale = cached;
+                String staleKey = key;
+                ServerHttpRequest conditional = request.mutate()
+                        .headers(headers -> headers.setIfNoneMatch(stale.getEtag()))
+                        .build();
+                ServerHttpResponse revalidating = new RevalidatingResponseDecorator(capture, response, request,
+                        stale, staleKey);
+                mutated = exchange.mutate().request(conditional).response(revalidating).build();
+            } else {
+                misses.increment();
+                mutated = exchange.mutate().response(capture).build();
+            }
+            return chain.filter(mutated).doFinally(signal -> capture.abandon());
+        }
+
+        private String baseKey(ServerWebExchange exchange) {
+            return requestKey(routeId, shared, exchange);
+        }
+
+        private boolean cacheable(ServerHttpResponse response) {
+            if (!HttpStatus.OK.equals(response.getStatusCode())) {
+                return false;
+            }
+            HttpHeaders headers = response.getHeaders();
+            String cacheControl = headers.getCacheControl();
+            // 带 Warning 的是降级时返回的过期响应，不能当作新鲜响应缓存
+            return !headers.containsKey(HttpHeaders.SET_COOKIE)
+                    && !headers.containsKey(HttpHeaders.WARNING)
+                    && !contains(cacheControl, "no-store")
+                    && !contains(cacheControl, "no-cache")
+                    && !contains(cacheControl, "private")
+                    && !headers.getVary().contains("*");
+        }
+
+        private long ttlNanos(HttpHeaders headers) {
+            long ttl = ttlNanos;
+            String cacheControl = headers.getCacheControl();
+            long maxAge = directiveSeconds(cacheControl, "s-maxage");
+            if (maxAge < 0) {
+                maxAge = directiveSeconds(cacheControl, "max-age");
+            }
+            if (maxAge >= 0) {
+                ttl = Math.min(ttl, Duration.ofSeconds(maxAge).toNanos());
+            }
+            return ttl;
+        }
+
+        /**
+         * 把捕获的响应放入缓存
+         */
+        private final class StoreListener implements CapturingResponseDecorator.Listener {
+
+            private final String baseKey;
+
+            private final HttpHeaders requestHeaders;
+
+            // 请求开始时 Vary 标记的代次
+            private final long generation;
+
+            private StoreListener(String baseKey, HttpHeaders requestHeaders, long generation) {
+                this.baseKey = baseKey;
+                this.requestHeaders = requestHeaders;
+                this.generation = generation;
+            }
+
+            @Override
+            public void captured(HttpStatusCode status, HttpHeaders headers, ByteBuffer body) {
+                long ttl = ttlNanos(headers);
+                if (ttl <= 0) {
+                    return;
+                }
+                long now = System.nanoTime();
+                HttpHeaders stored = CachedResponse.storableHeaders(headers, body.remaining());
+                stored.remove(CACHE_STATUS_HEADER);
+                String upstreamEtag = headers.getETag();
+                if (upstreamEtag == null) {
+                    stored.setETag(weakEtag(body));
+                }
+
+                List<String> vary = varyNames(headers);
+                String key = baseKey;
+                if (!vary.isEmpty()) {
+                    CachedResponse marker = store.get(baseKey);
+                    long current = marker != null && marker.isVaryMarker() ? marker.getGeneration() : NO_GENERATION;
+                    if (generation != NO_GENERATION && current != generation) {
+                        // 请求期间标记已被修改类请求删除，本次响应可能是修改前的内容
+                        return;
+                    }
+                    if (current == NO_GENERATION) {
+                        current = generations.incrementAndGet();
+                    }
+                    store.put(baseKey, CachedResponse.varyMarker(vary, current, now, now + ttl));
+                    key = variantKey(baseKey, current, vary, requestHeaders);
+                }
+                store.put(key, new CachedResponse(status, stored, body, upstreamEtag, vary, now, now + ttl));
+            }
+
+            @Override
+            public void abandoned() {
+            }
+        }
+
+        /**
+         * 条件请求的响应：上游返回304时续期缓存并返回缓存的响应体，否则按普通未命中处理
+         */
+        private final class RevalidatingResponseDecorator extends ServerHttpResponseDecorator {
+
+            private final CapturingResponseDecorator capture;
+
+            private final ServerHttpResponse original;
+
+            private final ServerHttpRequest request;
+
+            private final CachedResponse stale;
+
+            private final String key;
+
+            private RevalidatingResponseDecorator(CapturingResponseDecorator capture, ServerHttpResponse original,
+                                                  ServerHttpRequest request, CachedResponse stale, String key) {
+                super(capture);
+                this.capture = capture;
+                this.original = original;
+                this.request = request;
+                this.stale = stale;
+                this.key = key;
+            }
+
+            @Override
+            public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+                if (!notModified()) {
+                    misses.increment();
+                    return super.writeWith(body);
+                }
+                return Flux.from(body).doOnNext(DataBufferUtils::release).then(Mono.defer(this::serveRevalidated));
+            }
+
+            @Override
+            public Mono<Void> setComplete() {
+                if (!notModified()) {
+                    misses.increment();
+                    return super.setComplete();
+                }
+                return serveRevalidated();
+            }
+
+            private boolean notModified() {
+                return HttpStatus.NOT_MODIFIED.equals(original.getStatusCode());
+            }
+
+            private Mono<Void> serveRevalidated() {
+                revalidations.increment();
+                capture.abandon();
+                long now = System.nanoTime();
+                CachedResponse refreshed = stale.revalidated(now, now + ttlNanos(original.getHeaders()));
+                store.put(key, refreshed);
+                original.getHeaders().clear();
+                return serve(request, original, refreshed, now, "REVALIDATED");
+            }
+        }
+    }
+
+    /**
+     * 返回缓存的响应，客户端的 If-None-Match 与ETag一致时返回304
+     */
+    private static Mono<Void> serve(ServerHttpRequest request, ServerHttpResponse response, CachedResponse cached,
+                                    long now, String cacheStatus) {
+        HttpHeaders headers = response.getHeaders();
+        headers.set(CACHE_STATUS_HEADER, cacheStatus);
+        headers.set(HttpHeaders.AGE, Long.toString(cached.ageSeconds(now)));
+        String etag = cached.getHeaders().getETag();
+        if (etag != null && request.getHeaders().getIfNoneMatch().contains(etag)) {
+            response.setStatusCode(HttpStatus.NOT_MODIFIED);
+            headers.setETag(etag);
+            return response.setComplete();
+        }
+        return cached.writeTo(response);
+    }
+
+    /**
+     * 不转发到上游、直接由网关返回响应时先读完并丢弃请求体
+     * 请求体还未读完响应就已完成时，同一 keep-alive 连接上的下一个请求可能一直得不到处理
+     */
+    static Mono<Void> discardBody(ServerHttpRequest request) {
+        return request.getBody().doOnNext(DataBufferUtils::release).then();
+    }
+
+    /**
+     * 缓存键：路由、认证主体（不共享时）、路径与查询串
+     */
+    static String requestKey(String routeId, boolean shared, ServerWebExchange exchange) {
+        StringBuilder key = new StringBuilder(128).append(routeId).append('\n');
+        if (!shared) {
+            JwtClaims claims = exchange.getAttribute(AuthenticationFilter.AUTH_CLAIMS_ATTR);
+            if (claims != null) {
+                key.append(claims.subject());
+            }
+        }
+        key.append('\n').append(exchange.getRequest().getURI().getRawPath());
+        String query = exchange.getRequest().getURI().getRawQuery();
+        if (query != null) {
+            key.append('?').append(query);
+        }
+        return key.toString();
+    }
+
+    private static boolean unsafe(HttpMethod method) {
+        return method == HttpMethod.POST || method == HttpMethod.PUT
+                || method == HttpMethod.PATCH || method == HttpMethod.DELETE;
+    }
+
+    private static List<String> varyNames(HttpHeaders headers) {
+        List<String> vary = headers.getVary();
+        if (vary.isEmpty()) {
+            return List.of();
+        }
+        List<String> names = new ArrayList<>(vary.size());
+        for (String name : vary) {
+            names.add(name.trim().toLowerCase(Locale.ROOT));
+        }
+        names.sort(null);
+        return List.copyOf(names);
+    }
+
+    private static String variantKey(String baseKey, long generation, List<String> vary, HttpHeaders requestHeaders) {
+        StringBuilder key = new StringBuilder(baseKey).append('\n').append(generation);
+        for (String name : vary) {
+            key.append('\n').append(name).append('=');
+            List<String> values = requestHeaders.get(name);
+            if (HttpHeaders.ACCEPT_ENCODING.equalsIgnoreCase(name)) {
+                // 按可接受的编码集合区分，避免同样接受 gzip 的客户端因请求头写法不同各存一份
+                key.append(AcceptEncoding.normalize(values));
+            } else if (values != null) {
+                key.append(String.join(",", values));
+            }
+        }
+        return key.toString();
+    }
+
+    private static String weakEtag(ByteBuffer body) {
+        CRC32C crc = new CRC32C();
+        crc.update(body.duplicate());
+        return "W/\"" + Integer.toHexString(body.remaining()) + "-" + Long.toHexString(crc.getValue()) + "\"";
+    }
+
+    private static boolean contains(String cacheControl, String directive) {
+        return cacheControl != null && cacheControl.toLowerCase(Locale.ROOT).contains(directive);
+    }
+
+    private static long directiveSeconds(String cacheControl, String directive) {
+        if (cacheControl == null) {
+            return -1;
+        }
+        for (String part : cacheControl.split(",")) {
+            String trimmed = part.trim().toLowerCase(Locale.ROOT);
+            if (trimmed.startsWith(directive + "=")) {
+                try {
+                    return Long.parseLong(trimmed.substring(directive.length() + 1).replace("\"", ""));
+                } catch (NumberFormatException e) {
+                    return -1;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 过滤器参数
+     */
+    @Data
+    public static class Config implements HasRouteId {
+
+        // 缓存时间
+        private Duration ttl = Duration.ofSeconds(60);
+
+        // 是否在不同认证主体之间共享缓存
+        private boolean shared = false;
+
+        private String routeId;
+    }
+}
@@ -0,0 +1,25 @@
+package org.example.gateway.cache;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * 网关响应缓存配置，各路由的缓存时间在路由的 ResponseCache 过滤器参数中配置
+ */
+@Data
+@ConfigurationProperties(prefix = "gateway.cache")
+public class ResponseCacheProperties {
+
+    // 所有缓存响应占用的总字节数上限
+    private DataSize maxSize = DataSize.ofMegabytes(64);
+
+    // 单个响应体的字节数上限，超出的响应不缓存
+    private DataSize maxEntrySize = DataSize.ofMegabytes(1);
+
+    // 响应体是否存放在堆外内存
+    private boolean offHeap = false;
+
+    // 分段数，每段独立加锁并按LRU淘汰，取2的幂
+    private int segments = 16;
+}
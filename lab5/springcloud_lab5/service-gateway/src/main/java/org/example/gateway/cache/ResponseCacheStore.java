@@ -0,0 +1,143 @@
+package org.example.gateway.cache;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 按字节数限制容量的分段LRU响应缓存
+ * 键按哈希分布到各段，每段独立加锁、独立按访问顺序淘汰，总容量平均分配给各段；
+ * 过期条目不会主动删除，保留下来用于ETag重新验证，随LRU淘汰。
+ */
+@Component
+public class ResponseCacheStore {
+
+    private final Segment[] segments;
+
+    private final int mask;
+
+    private final long maxEntryBytes;
+
+    public ResponseCacheStore(ResponseCacheProperties properties, MeterRegistry meterRegistry) {
+        int count = properties.getSegments();
+        if (Integer.bitCount(count) != 1) {
+            throw new IllegalArgumentException("gateway.cache.segments 必须是2的幂: " + count);
+        }
+        this.segments = new Segment[count];
+        long segmentBytes = properties.getMaxSize().toBytes() / count;
+        for (int i = 0; i < count; i++) {
+            segments[i] = new Segment(segmentBytes);
+        }
+        this.mask = count - 1;
+        // 单个条目不能超过一个段的容量，否则会把整段清空
+        this.maxEntryBytes = Math.min(properties.getMaxEntrySize().toBytes(), segmentBytes);
+        Gauge.builder("gateway.cache.size", this, ResponseCacheStore::bytes)
+                .description("缓存响应占用的字节数")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("gateway.cache.entries", this, ResponseCacheStore::entries)
+                .description("缓存的响应数")
+                .register(meterRegistry);
+    }
+
+    public CachedResponse get(String key) {
+        return segment(key).get(key);
+    }
+
+    public void put(String key, CachedResponse response) {
+        if (response.size() <= maxEntryBytes) {
+            segment(key).put(key, response);
+        }
+    }
+
+    public void remove(String key) {
+        segment(key).remove(key);
+    }
+
+    public long maxEntryBytes() {
+        return maxEntryBytes;
+    }
+
+    public long bytes() {
+        long bytes = 0;
+        for (Segment segment : segments) {
+            bytes += segment.bytes;
+        }
+        return bytes;
+    }
+
+    public int entries() {
+        int entries = 0;
+        for (Segment segment : segments) {
+            entries += segment.entries.size();
+        }
+        return entries;
+    }
+
+    private Segment segment(String key) {
+        int hash = key.hashCode();
+        return segments[(hash ^ (hash >>> 16)) & mask];
+    }
+
+    private static final class Segment extends ReentrantLock {
+
+        private final LinkedHashMap<String, CachedResponse> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+        private final long maxBytes;
+
+        private volatile long bytes;
+
+        private Segment(long maxBytes) {
+            this.maxBytes = maxBytes;
+        }
+
+        private CachedResponse get(String key) {
+            lock();
+            try {
+                return entries.get(key);
+            } finally {
+                unlock();
+            }
+        }
+
+        private void put(String key, CachedResponse response) {
+            lock();
+            try {
+                long size = bytes + response.size();
+                CachedResponse previous = entries.put(key, response);
+                if (previous != null) {
+                    size -= previous.size();
+                }
+                Iterator<Map.Entry<String, CachedResponse>> eldest = entries.entrySet().iterator();
+                while (size > maxBytes && eldest.hasNext()) {
+                    Map.Entry<String, CachedResponse> entry = eldest.next();
+                    if (entry.getValue() == response) {
+                        continue;
+                    }
+                    size -= entry.getValue().size();
+                    eldest.remove();
+                }
+                bytes = size;
+            } finally {
+                unlock();
+            }
+        }
+
+        private void remove(String key) {
+            lock();
+            try {
+                CachedResponse previous = entries.remove(key);
+                if (previous != null) {
+                    bytes -= previous.size();
+                }
+            } finally {
+                unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package org.example.gateway.cache;
+
+import lombok.Data;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.OrderedGatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.HasRouteId;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.util.UriComponentsBuilder;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * 保存GET请求最近一次成功的响应，断路器降级时由 FallbackController 代替503返回
+ * <pre>
+ * filters:
+ *   - name: StaleIfError
+ *     args:
+ *       max-stale: 10m   # 保存后最长可以返回多久
+ *       shared: false    # 为 false 时按认证主体区分，不同用户互不可见
+ * </pre>
+ * 需要与 CircuitBreaker 过滤器一起使用，排在其外层：降级响应同样经过本过滤器，带 Warning 头的响应不会被保存。
+ * 缓存键与 ResponseCache 相同；只保存未经上游压缩、Vary 只涉及 Accept-Encoding 与跨域请求头的200响应，
+ * 同时记录实际转发的上游地址，lb:// 路由记为服务名，供后台重新验证时经负载均衡重新选择实例。
+ * 已保存的响应在 gateway.stale.refresh-interval 内不再被替换，这段时间内的请求不捕获响应体。
+ */
+@Component
+public class StaleIfErrorGatewayFilterFactory extends AbstractGatewayFilterFactory<StaleIfErrorGatewayFilterFactory.Config> {
+
+    // 在 RequestCoalescing 之后执行，合并的请求只由领头请求保存一次；位于所有按位置排序的路由过滤器（含 CircuitBreaker）外层
+    public static final int ORDER = RequestCoalescingGatewayFilterFactory.ORDER + 1;
+
+    private static final String LB_SCHEME = "lb";
+
+    private final StaleResponses staleResponses;
+
+    public StaleIfErrorGatewayFilterFactory(StaleResponses staleResponses) {
+        super(Config.class);
+        this.staleResponses = staleResponses;
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        RouteStale stale = new RouteStale(config);
+        return new OrderedGatewayFilter(stale::filter, ORDER);
+    }
+
+    @Override
+    public List<String> shortcutFieldOrder() {
+        return List.of("maxStale", "shared");
+    }
+
+    @Override
+    public String name() {
+        return "StaleIfError";
+    }
+
+    /**
+     * 单条路由的保存逻辑与配置
+     */
+    private final class RouteStale {
+
+        private final String routeId;
+
+        private final long maxStaleNanos;
+
+        private final boolean shared;
+
+        private final List<String> forwardHeaders;
+
+        private RouteStale(Config config) {
+            this.routeId = config.getRouteId() != null ? config.getRouteId() : "";
+            this.maxStaleNanos = config.getMaxStale().toNanos();
+            this.shared = config.isShared();
+            this.forwardHeaders = List.copyOf(config.getForwardHeaders());
+        }
+
+        private Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+            if (exchange.getRequest().getMethod() != HttpMethod.GET) {
+                return chain.filter(exchange);
+            }
+            String key = ResponseCacheGatewayFilterFactory.requestKey(routeId, shared, exchange);
+            exchange.getAttributes().put(StaleResponses.KEY_ATTR, key);
+            if (staleResponses.isRecent(key)) {
+                return chain.filter(exchange);
+            }
+            CapturingResponseDecorator capture = new CapturingResponseDecorator(exchange.getResponse(),
+                    staleResponses.maxEntryBytes(), staleResponses.isOffHeap(),
+                    response -> StaleResponses.storable(response.getStatusCode(), response.getHeaders(), shared),
+                    new StoreListener(exchange, key));
+            return chain.filter(exchange.mutate().response(capture).build()).doFinally(signal -> capture.abandon());
+        }
+
+        /**
+         * 把捕获的响应连同上游地址保存下来
+         */
+        private final class StoreListener implements CapturingResponseDecorator.Listener {
+
+            private final ServerWebExchange exchange;
+
+            private final String key;
+
+            private StoreListener(ServerWebExchange exchange, String key) {
+                this.exchange = exchange;
+                this.key = key;
+            }
+
+            @Override
+            public void captured(HttpStatusCode status, HttpHeaders headers, ByteBuffer body) {
+                URI upstream = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_REQUEST_URL_ATTR);
+                Route route = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+                if (upstream == null || upstream.getHost() == null) {
+                    return;
+                }
+                boolean loadBalanced = route != null && LB_SCHEME.equals(route.getUri().getScheme());
+                if (loadBalanced) {
+                    // 记录服务名而不是本次选中的实例
+                    upstream = UriComponentsBuilder.fromUri(upstream).host(route.getUri().getHost()).port(-1)
+                            .build(true).toUri();
+                }
+                HttpHeaders probeHeaders = new HttpHeaders();
+                HttpHeaders requestHeaders = exchange.getRequest().getHeaders();
+                for (String name : forwardHeaders) {
+                    List<String> values = requestHeaders.get(name);
+                    if (values != null) {
+                        probeHeaders.addAll(name, values);
+                    }
+                }
+                long now = System.nanoTime();
+                HttpHeaders stored = StaleResponses.storableHeaders(headers, body.remaining());
+                CachedResponse response = new CachedResponse(status, stored, body, headers.getETag(), List.of(),
+                        now, now + maxStaleNanos);
+                staleResponses.put(new StaleResponse(key, response, upstream, loadBalanced, route, probeHeaders,
+                        shared, maxStaleNanos));
+            }
+
+            @Override
+            public void abandoned() {
+            }
+        }
+    }
+
+    /**
+     * 过滤器参数
+     */
+    @Data
+    public static class Config implements HasRouteId {
+
+        // 保存后最长可以在降级时返回多久
+        private Duration maxStale = Duration.ofMinutes(10);
+
+        // 是否在不同认证主体之间共享
+        private boolean shared = false;
+
+        // 后台重新验证时带上的客户端请求头
+        private List<String> forwardHeaders = List.of(HttpHeaders.AUTHORIZATION, HttpHeaders.ACCEPT_LANGUAGE);
+
+        private String routeId;
+    }
+}
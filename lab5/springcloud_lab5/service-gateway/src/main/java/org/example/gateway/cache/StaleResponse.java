@@ -0,0 +1,123 @@
+package org.example.gateway.cache;
+
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.http.HttpHeaders;
+
+import java.net.URI;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 一条路由最近一次成功的响应，熔断降级时代替503返回
+ * 同时记录重新验证所需的上游地址与请求头；除下次允许重新验证的时刻外不可变。
+ */
+public final class StaleResponse {
+
+    // 每个条目除响应外的估算开销
+    private static final int ENTRY_OVERHEAD = 128;
+
+    private final String key;
+
+    private final CachedResponse response;
+
+    private final URI upstreamUri;
+
+    private final boolean loadBalanced;
+
+    private final Route route;
+
+    private final HttpHeaders probeHeaders;
+
+    private final boolean shared;
+
+    private final long maxStaleNanos;
+
+    private final AtomicLong nextRevalidationAt;
+
+    private final int size;
+
+    StaleResponse(String key, CachedResponse response, URI upstreamUri, boolean loadBalanced, Route route,
+                  HttpHeaders probeHeaders, boolean shared, long maxStaleNanos) {
+        this(key, response, upstreamUri, loadBalanced, route, probeHeaders, shared, maxStaleNanos,
+                response.getStoredAtNanos());
+    }
+
+    private StaleResponse(String key, CachedResponse response, URI upstreamUri, boolean loadBalanced, Route route,
+                          HttpHeaders probeHeaders, boolean shared, long maxStaleNanos, long nextRevalidationAt) {
+        this.key = key;
+        this.response = response;
+        this.upstreamUri = upstreamUri;
+        this.loadBalanced = loadBalanced;
+        this.route = route;
+        this.probeHeaders = HttpHeaders.readOnlyHttpHeaders(probeHeaders);
+        this.shared = shared;
+        this.maxStaleNanos = maxStaleNanos;
+        this.nextRevalidationAt = new AtomicLong(nextRevalidationAt);
+        this.size = response.size() + key.length() * 2 + upstreamUri.toString().length() * 2
+                + estimateHeaders(probeHeaders) + ENTRY_OVERHEAD;
+    }
+
+    /**
+     * 用重新验证得到的响应替换，上游与请求信息以及下次允许重新验证的时刻不变
+     */
+    StaleResponse withResponse(CachedResponse response) {
+        return new StaleResponse(key, response, upstreamUri, loadBalanced, route, probeHeaders, shared, maxStaleNanos,
+                nextRevalidationAt.get());
+    }
+
+    /**
+     * 距上次重新验证已超过间隔时占用本次机会，同一条目同时只有一个调用方能成功
+     */
+    boolean tryStartRevalidation(long nowNanos, long intervalNanos) {
+        long next = nextRevalidationAt.get();
+        return nowNanos - next >= 0 && nextRevalidationAt.compareAndSet(next, nowNanos + intervalNanos);
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public CachedResponse getResponse() {
+        return response;
+    }
+
+    public URI getUpstreamUri() {
+        return upstreamUri;
+    }
+
+    public boolean isLoadBalanced() {
+        return loadBalanced;
+    }
+
+    public Route getRoute() {
+        return route;
+    }
+
+    public HttpHeaders getProbeHeaders() {
+        return probeHeaders;
+    }
+
+    public boolean isShared() {
+        return shared;
+    }
+
+    public long getMaxStaleNanos() {
+        return maxStaleNanos;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private static int estimateHeaders(HttpHeaders headers) {
+        int size = 0;
+        for (Map.Entry<String, List<String>> entry : headers.headerSet()) {
+            size += entry.getKey().length();
+            for (String value : entry.getValue()) {
+                size += value.length();
+            }
+        }
+        return size * 2;
+    }
+}
@@ -0,0 +1,39 @@
+package org.example.gateway.cache;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+/**
+ * 熔断降级时返回过期响应的配置，各路由允许的最长过期时间在路由的 StaleIfError 过滤器参数中配置
+ */
+@Data
+@ConfigurationProperties(prefix = "gateway.stale")
+public class StaleResponseProperties {
+
+    // 保存的最近成功响应占用的总字节数上限
+    private DataSize maxSize = DataSize.ofMegabytes(32);
+
+    // 单个响应体的字节数上限，超出的响应不保存
+    private DataSize maxEntrySize = DataSize.ofMegabytes(1);
+
+    // 分段数，每段独立加锁并按LRU淘汰，取2的幂
+    private int segments = 16;
+
+    // 响应体是否存放在堆外内存
+    private boolean offHeap = false;
+
+    // 已保存的响应在该时间内不再被新的成功响应替换，避免每个成功的GET都复制一次响应体
+    private Duration refreshInterval = Duration.ofSeconds(10);
+
+    // 同一条过期响应两次后台重新验证的最小间隔
+    private Duration revalidateInterval = Duration.ofSeconds(5);
+
+    // 后台重新验证请求的超时时间
+    private Duration revalidateTimeout = Duration.ofSeconds(2);
+
+    // 同时进行的后台重新验证请求数上限，上游故障期间避免大量探测请求
+    private int maxConcurrentRevalidations = 4;
+}
@@ -0,0 +1,392 @@
+package org.example.gateway.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.reactive.ReactiveLoadBalancer;
+import org.springframework.cloud.client.loadbalancer.reactive.ReactorLoadBalancerExchangeFilterFunction;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.BodyExtractors;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 熔断降级时使用的过期响应存储
+ * StaleIfError 过滤器保存各路由GET请求最近一次成功的响应，按字节数限制容量、分段LRU淘汰；
+ * 断路器打开或调用失败转到 /fallback 时，{@link #find} 找到同一路由、同一请求键且未超过最长过期时间的响应，
+ * 由 {@link #serve} 带上 Warning 与 Age 响应头返回，同时在后台向上游发送一次重新验证请求（有ETag时为条件请求），
+ * 成功后替换为新响应。重新验证请求按条目限制频率、全局限制并发数，不经过断路器。
+ */
+@Component
+@Slf4j
+public class StaleResponses {
+
+    // StaleIfError 过滤器把本次请求的缓存键放在该属性中，降级处理时据此查找
+    public static final String KEY_ATTR = StaleResponses.class.getName() + ".key";
+
+    // RFC 7234 的 110 警告码，表示返回的是过期响应
+    private static final String STALE_WARNING = "110 - \"Response is Stale\"";
+
+    // 保存时不考虑的 Vary 请求头：响应体未压缩，跨域相关的头由网关按当次请求生成
+    private static final Set<String> IGNORED_VARY = Set.of("accept-encoding", "origin",
+            "access-control-request-method", "access-control-request-headers");
+
+    private final StaleResponseProperties properties;
+
+    private final Segment[] segments;
+
+    private final int mask;
+
+    private final long maxEntryBytes;
+
+    private final long revalidateIntervalNanos;
+
+    private final long refreshIntervalNanos;
+
+    // 路由ID到该路由的降级计数器：[返回了过期响应, 没有可用的过期响应]
+    private final Map<String, Counter[]> fallbacks = new ConcurrentHashMap<>();
+
+    private final AtomicInteger revalidating = new AtomicInteger();
+
+    private final WebClient directClient;
+
+    private final WebClient loadBalancedClient;
+
+    private final MeterRegistry meterRegistry;
+
+    private final Counter refreshed;
+
+    private final Counter notModified;
+
+    private final Counter failed;
+
+    public StaleResponses(StaleResponseProperties properties, WebClient.Builder webClientBuilder, HttpClient httpClient,
+                          ReactiveLoadBalancer.Factory<ServiceInstance> loadBalancerFactory,
+                          MeterRegistry meterRegistry) {
+        int count = properties.getSegments();
+        if (Integer.bitCount(count) != 1) {
+            throw new IllegalArgumentException("gateway.stale.segments 必须是2的幂: " + count);
+        }
+        this.properties = properties;
+        this.segments = new Segment[count];
+        long segmentBytes = properties.getMaxSize().toBytes() / count;
+        for (int i = 0; i < count; i++) {
+            segments[i] = new Segment(segmentBytes);
+        }
+        this.mask = count - 1;
+        this.maxEntryBytes = Math.min(properties.getMaxEntrySize().toBytes(), segmentBytes);
+        this.revalidateIntervalNanos = properties.getRevalidateInterval().toNanos();
+        this.refreshIntervalNanos = properties.getRefreshInterval().toNanos();
+        WebClient.Builder builder = webClientBuilder.clientConnector(new ReactorClientHttpConnector(httpClient));
+        this.directClient = builder.clone().build();
+        this.loadBalancedClient = builder.clone()
+                .filter(new ReactorLoadBalancerExchangeFilterFunction(loadBalancerFactory, List.of()))
+                .build();
+        this.meterRegistry = meterRegistry;
+        this.refreshed = revalidationCounter("refreshed");
+        this.notModified = revalidationCounter("not-modified");
+        this.failed = revalidationCounter("failed");
+        Gauge.builder("gateway.stale.size", this, StaleResponses::bytes)
+                .description("保存的过期响应占用的字节数")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("gateway.stale.entries", this, StaleResponses::entries)
+                .description("保存的过期响应数")
+                .register(meterRegistry);
+    }
+
+    private Counter revalidationCounter(String result) {
+        return Counter.builder("gateway.stale.revalidations")
+                .description("过期响应的后台重新验证次数")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    /**
+     * 可以保存并在降级时返回给其他请求的响应：200、没有 Set-Cookie 与 Warning，
+     * 响应体未经上游压缩，Vary 只涉及 Accept-Encoding 与跨域请求头，不共享时允许 private
+     */
+    static boolean storable(HttpStatusCode status, HttpHeaders headers, boolean shared) {
+        if (!HttpStatus.OK.equals(status) || headers.containsKey(HttpHeaders.SET_COOKIE)
+                || headers.containsKey(HttpHeaders.WARNING)) {
+            return false;
+        }
+        String cacheControl = headers.getCacheControl();
+        if (cacheControl != null) {
+            String directives = cacheControl.toLowerCase(Locale.ROOT);
+            if (directives.contains("no-store") || (shared && directives.contains("private"))) {
+                return false;
+            }
+        }
+        String encoding = headers.getFirst(HttpHeaders.CONTENT_ENCODING);
+        if (encoding != null && !encoding.equalsIgnoreCase("identity")) {
+            return false;
+        }
+        for (String vary : headers.getVary()) {
+            if (!IGNORED_VARY.contains(vary.trim().toLowerCase(Locale.ROOT))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 复制需要保存的响应头，去掉网关为本次请求生成的跨域与缓存状态头，返回时由当次请求重新生成
+     */
+    static HttpHeaders storableHeaders(HttpHeaders source, int bodyLength) {
+        HttpHeaders headers = CachedResponse.storableHeaders(source, bodyLength);
+        headers.keySet().removeIf(name -> name.regionMatches(true, 0, "Access-Control-", 0, 15));
+        headers.remove(HttpHeaders.VARY);
+        headers.remove(HttpHeaders.AGE);
+        headers.remove(ResponseCacheGatewayFilterFactory.CACHE_STATUS_HEADER);
+        return headers;
+    }
+
+    long maxEntryBytes() {
+        return maxEntryBytes;
+    }
+
+    boolean isOffHeap() {
+        return properties.isOffHeap();
+    }
+
+    void put(StaleResponse response) {
+        if (response.getResponse().bodyLength() <= maxEntryBytes) {
+            segment(response.getKey()).put(response.getKey(), response);
+        }
+    }
+
+    /**
+     * 该键已有保存时间未超过 refresh-interval 的响应，本次成功的响应不必再保存
+     */
+    boolean isRecent(String key) {
+        StaleResponse stale = segment(key).get(key);
+        long now = System.nanoTime();
+        return stale != null && !stale.getResponse().isExpired(now)
+                && now - stale.getResponse().getStoredAtNanos() < refreshIntervalNanos;
+    }
+
+    /**
+     * 查找本次请求可以返回的过期响应，没有或已超过最长过期时间时返回 null
+     */
+    public StaleResponse find(ServerWebExchange exchange) {
+        String key = exchange.getAttribute(KEY_ATTR);
+        if (key == null) {
+            return null;
+        }
+        Segment segment = segment(key);
+        StaleResponse stale = segment.get(key);
+        if (stale != null && stale.getResponse().isExpired(System.nanoTime())) {
+            segment.remove(key, stale);
+            stale = null;
+        }
+        Counter[] counters = fallbacks.computeIfAbsent(routeId(exchange), this::fallbackCounters);
+        counters[stale != null ? 0 : 1].increment();
+        return stale;
+    }
+
+    private Counter[] fallbackCounters(String routeId) {
+        Counter[] counters = new Counter[2];
+        String[] results = {"served", "missing"};
+        for (int i = 0; i < results.length; i++) {
+            counters[i] = Counter.builder("gateway.stale.fallbacks")
+                    .description("熔断降级的GET请求数，按是否返回了过期响应区分")
+                    .tag("route", routeId)
+                    .tag("result", results[i])
+                    .register(meterRegistry);
+        }
+        return counters;
+    }
+
+    /**
+     * 返回过期响应，并视情况在后台重新验证
+     */
+    public Mono<Void> serve(ServerWebExchange exchange, StaleResponse stale) {
+        revalidate(stale);
+        CachedResponse cached = stale.getResponse();
+        long now = System.nanoTime();
+        return ResponseCacheGatewayFilterFactory.discardBody(exchange.getRequest()).then(Mono.defer(() -> {
+            ServerHttpResponse response = exchange.getResponse();
+            HttpHeaders headers = response.getHeaders();
+            headers.set(ResponseCacheGatewayFilterFactory.CACHE_STATUS_HEADER, "STALE");
+            headers.set(HttpHeaders.WARNING, STALE_WARNING);
+            headers.set(HttpHeaders.AGE, Long.toString(cached.ageSeconds(now)));
+            return cached.writeTo(response);
+        }));
+    }
+
+    public long bytes() {
+        long bytes = 0;
+        for (Segment segment : segments) {
+            bytes += segment.bytes;
+        }
+        return bytes;
+    }
+
+    public int entries() {
+        int entries = 0;
+        for (Segment segment : segments) {
+            entries += segment.entries.size();
+        }
+        return entries;
+    }
+
+    private void revalidate(StaleResponse stale) {
+        if (!stale.tryStartRevalidation(System.nanoTime(), revalidateIntervalNanos)) {
+            return;
+        }
+        if (revalidating.incrementAndGet() > properties.getMaxConcurrentRevalidations()) {
+            revalidating.decrementAndGet();
+            return;
+        }
+        WebClient.RequestHeadersSpec<?> request = (stale.isLoadBalanced() ? loadBalancedClient : directClient)
+                .get()
+                .uri(stale.getUpstreamUri())
+                .headers(headers -> {
+                    headers.addAll(stale.getProbeHeaders());
+                    String etag = stale.getResponse().getHeaders().getETag();
+                    if (etag != null) {
+                        headers.setIfNoneMatch(etag);
+                    }
+                });
+        if (stale.getRoute() != null) {
+            // 负载均衡器按路由的元数据选择策略
+            request = request.attribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR, stale.getRoute());
+        }
+        request.exchangeToMono(response -> revalidated(stale, response))
+                .timeout(properties.getRevalidateTimeout())
+                .doFinally(signal -> revalidating.decrementAndGet())
+                .subscribe(result -> {
+                }, e -> {
+                    failed.increment();
+                    log.debug("重新验证 {} 失败: {}", stale.getUpstreamUri(), e.toString());
+                });
+    }
+
+    private Mono<Void> revalidated(StaleResponse stale, ClientResponse response) {
+        long now = System.nanoTime();
+        if (response.statusCode().isSameCodeAs(HttpStatus.NOT_MODIFIED)) {
+            notModified.increment();
+            put(stale.withResponse(stale.getResponse().revalidated(now, now + stale.getMaxStaleNanos())));
+            return response.releaseBody();
+        }
+        HttpHeaders headers = response.headers().asHttpHeaders();
+        if (!storable(response.statusCode(), headers, stale.isShared())) {
+            failed.increment();
+            return response.releaseBody();
+        }
+        return DataBufferUtils.join(response.body(BodyExtractors.toDataBuffers()), (int) maxEntryBytes)
+                .map(buffer -> {
+                    ByteBuffer body = copy(buffer);
+                    DataBufferUtils.release(buffer);
+                    return body;
+                })
+                .defaultIfEmpty(ByteBuffer.allocate(0))
+                .doOnNext(body -> {
+                    HttpHeaders stored = storableHeaders(headers, body.remaining());
+                    CachedResponse fresh = new CachedResponse(response.statusCode(), stored, body, headers.getETag(),
+                            List.of(), now, now + stale.getMaxStaleNanos());
+                    put(stale.withResponse(fresh));
+                    refreshed.increment();
+                })
+                .then();
+    }
+
+    private ByteBuffer copy(DataBuffer buffer) {
+        int length = buffer.readableByteCount();
+        ByteBuffer body = isOffHeap() ? ByteBuffer.allocateDirect(length) : ByteBuffer.allocate(length);
+        buffer.toByteBuffer(buffer.readPosition(), body, 0, length);
+        return body;
+    }
+
+    private static String routeId(ServerWebExchange exchange) {
+        Route route = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+        return route != null ? route.getId() : "";
+    }
+
+    private Segment segment(String key) {
+        int hash = key.hashCode();
+        return segments[(hash ^ (hash >>> 16)) & mask];
+    }
+
+    private static final class Segment extends ReentrantLock {
+
+        private final LinkedHashMap<String, StaleResponse> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+        private final long maxBytes;
+
+        private volatile long bytes;
+
+        private Segment(long maxBytes) {
+            this.maxBytes = maxBytes;
+        }
+
+        private StaleResponse get(String key) {
+            lock();
+            try {
+                return entries.get(key);
+            } finally {
+                unlock();
+            }
+        }
+
+        private void put(String key, StaleResponse response) {
+            lock();
+            try {
+                long size = bytes + response.size();
+                StaleResponse previous = entries.put(key, response);
+                if (previous != null) {
+                    size -= previous.size();
+                }
+                Iterator<Map.Entry<String, StaleResponse>> eldest = entries.entrySet().iterator();
+                while (size > maxBytes && eldest.hasNext()) {
+                    Map.Entry<String, StaleResponse> entry = eldest.next();
+                    if (entry.getValue() == response) {
+                        continue;
+                    }
+                    size -= entry.getValue().size();
+                    eldest.remove();
+                }
+                bytes = size;
+            } finally {
+                unlock();
+            }
+        }
+
+        private void remove(String key, StaleResponse expected) {
+            lock();
+            try {
+                if (entries.remove(key, expected)) {
+                    bytes -= expected.size();
+                }
+            } finally {
+                unlock();
+            }
+        }
+    }
+}
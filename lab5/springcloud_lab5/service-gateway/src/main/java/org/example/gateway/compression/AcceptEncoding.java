@@ -0,0 +1,107 @@
+package org.example.gateway.compression;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.TreeSet;
+
+/**
+ * Accept-Encoding 请求头的解析与协商
+ */
+public final class AcceptEncoding {
+
+    public static final String IDENTITY = "identity";
+
+    private AcceptEncoding() {
+    }
+
+    /**
+     * 从网关支持的编码中选出客户端接受且权重最高的一个
+     *
+     * @param values    Accept-Encoding 请求头的取值，可以为 null
+     * @param supported 网关支持的编码，按网关的偏好顺序排列，权重相同时取靠前的
+     * @return 选中的编码；客户端不接受任何支持的编码或更偏好不压缩时返回 null
+     */
+    public static String negotiate(List<String> values, List<String> supported) {
+        if (values == null || values.isEmpty()) {
+            return null;
+        }
+        String best = null;
+        double bestQ = 0;
+        for (String coding : supported) {
+            double q = quality(values, coding);
+            if (q > bestQ) {
+                best = coding;
+                bestQ = q;
+            }
+        }
+        if (best == null) {
+            return null;
+        }
+        double identity = explicitQuality(values, IDENTITY);
+        return identity > bestQ ? null : best;
+    }
+
+    /**
+     * 把 Accept-Encoding 归一化为客户端可接受的编码集合，用于缓存键
+     * 取值顺序、空白与权重不同但可接受的编码相同的请求得到相同结果，任一可接受编码的缓存响应对它们都适用。
+     */
+    public static String normalize(List<String> values) {
+        if (values == null || values.isEmpty()) {
+            return "";
+        }
+        TreeSet<String> codings = new TreeSet<>();
+        for (String value : values) {
+            for (String part : value.split(",")) {
+                String coding = coding(part);
+                if (!coding.isEmpty() && quality(part) > 0) {
+                    codings.add(coding);
+                }
+            }
+        }
+        return String.join(",", codings);
+    }
+
+    /**
+     * 客户端对某个编码的权重，未列出时按 * 的权重，都未列出时为0
+     */
+    private static double quality(List<String> values, String coding) {
+        double q = explicitQuality(values, coding);
+        return q >= 0 ? q : Math.max(explicitQuality(values, "*"), 0);
+    }
+
+    private static double explicitQuality(List<String> values, String coding) {
+        for (String value : values) {
+            for (String part : value.split(",")) {
+                if (coding(part).equals(coding)) {
+                    return quality(part);
+                }
+            }
+        }
+        return -1;
+    }
+
+    private static String coding(String part) {
+        int semicolon = part.indexOf(';');
+        String coding = semicolon >= 0 ? part.substring(0, semicolon) : part;
+        return coding.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static double quality(String part) {
+        int semicolon = part.indexOf(';');
+        if (semicolon < 0) {
+            return 1;
+        }
+        for (String param : part.substring(semicolon + 1).split(";")) {
+            String trimmed = param.trim();
+            if (trimmed.length() > 2 && (trimmed.charAt(0) == 'q' || trimmed.charAt(0) == 'Q')
+                    && trimmed.charAt(1) == '=') {
+                try {
+                    return Double.parseDouble(trimmed.substring(2).trim());
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 1;
+    }
+}
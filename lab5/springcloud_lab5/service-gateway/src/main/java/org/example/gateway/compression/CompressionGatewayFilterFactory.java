@@ -0,0 +1,299 @@
+package org.example.gateway.compression;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.Data;
+import org.example.gateway.cache.ResponseCacheGatewayFilterFactory;
+import org.reactivestreams.Publisher;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.OrderedGatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.cloud.gateway.support.HasRouteId;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SynchronousSink;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 路由级响应压缩过滤器，按 Accept-Encoding 协商 gzip 或 deflate
+ * <pre>
+ * filters:
+ *   - name: Compression
+ *     args:
+ *       min-size: 1KB                       # 已知长度小于该值的响应不压缩
+ *       mime-types: application/json, text/*  # 只压缩这些类型的响应
+ *       encodings: gzip, deflate            # 支持的编码，客户端权重相同时取靠前的
+ * </pre>
+ * 响应体逐块压缩，大响应在 gateway-compression 线程池上压缩，同时进行的压缩数超出上限时直接透传不压缩。
+ * 上游已编码、带 Cache-Control: no-transform、非200或流式写出的响应不压缩。
+ * 与 ResponseCache 同时使用时位于缓存之后，缓存保存压缩后的响应，
+ * 压缩响应带 Vary: Accept-Encoding，缓存按归一化的 Accept-Encoding 分别保存各编码的版本。
+ */
+@Component
+public class CompressionGatewayFilterFactory
+        extends AbstractGatewayFilterFactory<CompressionGatewayFilterFactory.Config> implements DisposableBean {
+
+    // 在 ResponseCache 之后执行，缓存捕获的是压缩后的响应体
+    public static final int ORDER = ResponseCacheGatewayFilterFactory.ORDER + 1;
+
+    // 压缩线程从响应体预取的块数
+    private static final int PREFETCH = 4;
+
+    private final CompressionProperties properties;
+
+    private final MeterRegistry meterRegistry;
+
+    private final Scheduler scheduler;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    public CompressionGatewayFilterFactory(CompressionProperties properties, MeterRegistry meterRegistry) {
+        super(Config.class);
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        int threads = properties.getThreads() != null
+                ? properties.getThreads() : Runtime.getRuntime().availableProcessors();
+        this.scheduler = Schedulers.newParallel("gateway-compression", threads, true);
+        Gauge.builder("gateway.compression.in.flight", inFlight, AtomicInteger::get)
+                .description("进行中的响应压缩数")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        RouteCompression compression = new RouteCompression(config);
+        return new OrderedGatewayFilter(compression::filter, ORDER);
+    }
+
+    @Override
+    public List<String> shortcutFieldOrder() {
+        return List.of("minSize", "mimeTypes");
+    }
+
+    @Override
+    public String name() {
+        return "Compression";
+    }
+
+    @Override
+    public void destroy() {
+        scheduler.dispose();
+    }
+
+    /**
+     * 单条路由的压缩逻辑，持有该路由的配置与指标
+     */
+    private final class RouteCompression {
+
+        private final String routeId;
+
+        private final long minSize;
+
+        private final List<MediaType> mimeTypes;
+
+        private final List<String> encodings;
+
+        private final Counter compressed;
+
+        private final Counter saturated;
+
+        private final Counter bytesIn;
+
+        private final Counter bytesOut;
+
+        private RouteCompression(Config config) {
+            this.routeId = config.getRouteId() != null ? config.getRouteId() : "";
+            this.minSize = config.getMinSize().toBytes();
+            this.mimeTypes = config.getMimeTypes().stream().map(MediaType::parseMediaType).toList();
+            this.encodings = config.getEncodings().stream()
+                    .map(encoding -> encoding.trim().toLowerCase(Locale.ROOT))
+                    .peek(RouteCompression::checkEncoding)
+                    .toList();
+            this.compressed = counter("compressed");
+            this.saturated = counter("saturated");
+            this.bytesIn = bytes("original");
+            this.bytesOut = bytes("compressed");
+        }
+
+        private static void checkEncoding(String encoding) {
+            if (!StreamingEncoder.GZIP.equals(encoding) && !StreamingEncoder.DEFLATE.equals(encoding)) {
+                throw new IllegalArgumentException("不支持的压缩编码: " + encoding);
+            }
+        }
+
+        private Counter counter(String result) {
+            return Counter.builder("gateway.compression.responses")
+                    .description("响应压缩的响应数，saturated 为压缩数达到上限而未压缩的响应")
+                    .tag("route", routeId)
+                    .tag("result", result)
+                    .register(meterRegistry);
+        }
+
+        private Counter bytes(String stage) {
+            return Counter.builder("gateway.compression.bytes")
+                    .description("压缩前后的响应体字节数")
+                    .baseUnit("bytes")
+                    .tag("route", routeId)
+                    .tag("stage", stage)
+                    .register(meterRegistry);
+        }
+
+        private Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+            ServerHttpRequest request = exchange.getRequest();
+            if (request.getMethod() == HttpMethod.HEAD) {
+                return chain.filter(exchange);
+            }
+            String coding = AcceptEncoding.negotiate(request.getHeaders().get(HttpHeaders.ACCEPT_ENCODING), encodings);
+            CompressingResponseDecorator response = new CompressingResponseDecorator(exchange.getResponse(), coding);
+            return chain.filter(exchange.mutate().response(response).build());
+        }
+
+        /**
+         * 响应头可以被改写时判断是否压缩，压缩时替换响应体
+         */
+        private final class CompressingResponseDecorator extends ServerHttpResponseDecorator {
+
+            private final String coding;
+
+            private CompressingResponseDecorator(ServerHttpResponse delegate, String coding) {
+                super(delegate);
+                this.coding = coding;
+            }
+
+            @Override
+            public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+                HttpHeaders headers = getHeaders();
+                if (!compressible(headers)) {
+                    return super.writeWith(body);
+                }
+                // 不论本次是否压缩，响应都随 Accept-Encoding 变化
+                if (headers.getVary().stream().noneMatch(HttpHeaders.ACCEPT_ENCODING::equalsIgnoreCase)) {
+                    headers.add(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+                }
+                long contentLength = headers.getContentLength();
+                if (coding == null || (contentLength >= 0 && contentLength < minSize)) {
+                    return super.writeWith(body);
+                }
+                if (inFlight.incrementAndGet() > properties.getMaxInFlight()) {
+                    inFlight.decrementAndGet();
+                    saturated.increment();
+                    return super.writeWith(body);
+                }
+                compressed.increment();
+                // 压缩后的长度事先未知，不声明分块传输时 Reactor Netty 写完响应体后会关闭连接
+                headers.remove(HttpHeaders.CONTENT_LENGTH);
+                headers.set(HttpHeaders.TRANSFER_ENCODING, "chunked");
+                headers.set(HttpHeaders.CONTENT_ENCODING, coding);
+                String etag = headers.getETag();
+                if (etag != null && !etag.startsWith("W/")) {
+                    // 压缩后的字节与上游强ETag所指的表示不同
+                    headers.setETag("W/" + etag);
+                }
+                boolean inline = contentLength >= 0 && contentLength < properties.getInlineThreshold().toBytes();
+                return super.writeWith(compress(body, inline)).doFinally(signal -> inFlight.decrementAndGet());
+            }
+
+            @Override
+            public Mono<Void> writeAndFlushWith(Publisher<? extends Publisher<? extends DataBuffer>> body) {
+                // 流式响应逐段刷新，不压缩
+                return super.writeAndFlushWith(body);
+            }
+
+            private boolean compressible(HttpHeaders headers) {
+                if (!HttpStatus.OK.equals(getStatusCode())) {
+                    return false;
+                }
+                String contentEncoding = headers.getFirst(HttpHeaders.CONTENT_ENCODING);
+                if (contentEncoding != null && !AcceptEncoding.IDENTITY.equalsIgnoreCase(contentEncoding)) {
+                    return false;
+                }
+                String cacheControl = headers.getCacheControl();
+                if (cacheControl != null && cacheControl.toLowerCase(Locale.ROOT).contains("no-transform")) {
+                    return false;
+                }
+                MediaType contentType;
+                try {
+                    contentType = headers.getContentType();
+                } catch (IllegalArgumentException e) {
+                    return false;
+                }
+                if (contentType == null) {
+                    return false;
+                }
+                for (MediaType mimeType : mimeTypes) {
+                    if (mimeType.includes(contentType)) {
+                        return true;
+                    }
+                }
+                return false;
+            }
+
+            private Flux<DataBuffer> compress(Publisher<? extends DataBuffer> body, boolean inline) {
+                DataBufferFactory factory = bufferFactory();
+                return Flux.using(
+                        () -> new StreamingEncoder(coding, properties.getLevel()),
+                        encoder -> {
+                            Flux<? extends DataBuffer> source = inline
+                                    ? Flux.from(body) : Flux.from(body).publishOn(scheduler, PREFETCH);
+                            return source
+                                    .<DataBuffer>handle((buffer, sink) -> emit(encoder.encode(buffer, factory), sink))
+                                    .concatWith(Mono.fromCallable(() -> encoder.finish(factory)))
+                                    .doOnComplete(() -> {
+                                        bytesIn.increment(encoder.bytesIn());
+                                        bytesOut.increment(encoder.bytesOut());
+                                    });
+                        },
+                        StreamingEncoder::end)
+                        .doOnDiscard(DataBuffer.class, DataBufferUtils::release);
+            }
+
+            private void emit(DataBuffer buffer, SynchronousSink<DataBuffer> sink) {
+                if (buffer.readableByteCount() > 0) {
+                    sink.next(buffer);
+                } else {
+                    DataBufferUtils.release(buffer);
+                }
+            }
+        }
+    }
+
+    /**
+     * 过滤器参数
+     */
+    @Data
+    public static class Config implements HasRouteId {
+
+        // 已知长度小于该值的响应不压缩，长度未知的响应总是压缩
+        private DataSize minSize = DataSize.ofKilobytes(1);
+
+        // 压缩的响应类型，支持 text/* 与 application/*+json 这样的通配
+        private List<String> mimeTypes = List.of(MediaType.APPLICATION_JSON_VALUE, "application/*+json",
+                MediaType.APPLICATION_XML_VALUE, "application/*+xml", "application/javascript", "text/*");
+
+        // 支持的编码，客户端权重相同时取靠前的
+        private List<String> encodings = List.of(StreamingEncoder.GZIP, StreamingEncoder.DEFLATE);
+
+        private String routeId;
+    }
+}
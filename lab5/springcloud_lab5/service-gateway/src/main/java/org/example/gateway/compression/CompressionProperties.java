@@ -0,0 +1,26 @@
+package org.example.gateway.compression;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * 网关响应压缩配置，各路由的最小压缩大小与MIME类型在路由的 Compression 过滤器参数中配置
+ * 压缩在独立的有界线程池上执行，不占用事件循环线程。
+ */
+@Data
+@ConfigurationProperties(prefix = "gateway.compression")
+public class CompressionProperties {
+
+    // 压缩级别，1 最快，9 压缩率最高
+    private int level = 6;
+
+    // 压缩线程数，不配置时为CPU核数
+    private Integer threads;
+
+    // 同时进行的压缩数上限，超出时响应不压缩直接透传
+    private int maxInFlight = 256;
+
+    // 已知长度小于该值的响应直接在事件循环线程上压缩，省去线程切换
+    private DataSize inlineThreshold = DataSize.ofKilobytes(8);
+}
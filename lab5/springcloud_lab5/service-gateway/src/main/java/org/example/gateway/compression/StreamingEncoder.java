@@ -0,0 +1,133 @@
+package org.example.gateway.compression;
+
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+
+import java.nio.ByteBuffer;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * 按块压缩响应体，输出 gzip 或 deflate（zlib 格式）编码
+ * 每个响应一个实例，逐块调用 {@link #encode}，最后调用 {@link #finish} 输出剩余数据与尾部。
+ * Deflater 持有堆外内存，响应结束时必须调用 {@link #end}；取消可能与压缩线程上的 encode 并发，
+ * 各方法加锁，结束后的调用直接释放输入。
+ */
+final class StreamingEncoder {
+
+    static final String GZIP = "gzip";
+
+    static final String DEFLATE = "deflate";
+
+    private static final byte[] GZIP_HEADER = {0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff};
+
+    private static final int CHUNK = 8192;
+
+    private final Deflater deflater;
+
+    // gzip 需要对原始数据计算 CRC32，deflate 为 null
+    private final CRC32 crc;
+
+    private final byte[] chunk = new byte[CHUNK];
+
+    private boolean headerWritten;
+
+    private boolean ended;
+
+    private long bytesIn;
+
+    private long bytesOut;
+
+    StreamingEncoder(String coding, int level) {
+        boolean gzip = GZIP.equals(coding);
+        this.deflater = new Deflater(level, gzip);
+        this.crc = gzip ? new CRC32() : null;
+        this.headerWritten = !gzip;
+    }
+
+    /**
+     * 压缩一块数据并释放输入，压缩器尚未输出时返回空缓冲区
+     */
+    synchronized DataBuffer encode(DataBuffer input, DataBufferFactory factory) {
+        try {
+            DataBuffer output = factory.allocateBuffer(Math.min(input.readableByteCount() + 32, CHUNK));
+            if (ended) {
+                return output;
+            }
+            writeHeader(output);
+            try (DataBuffer.ByteBufferIterator iterator = input.readableByteBuffers()) {
+                while (iterator.hasNext()) {
+                    ByteBuffer buffer = iterator.next();
+                    bytesIn += buffer.remaining();
+                    if (crc != null) {
+                        crc.update(buffer.duplicate());
+                    }
+                    deflater.setInput(buffer);
+                    while (!deflater.needsInput()) {
+                        drain(output);
+                    }
+                }
+            }
+            return output;
+        } finally {
+            DataBufferUtils.release(input);
+        }
+    }
+
+    /**
+     * 输出压缩器中剩余的数据，gzip 另加 CRC32 与原始长度
+     */
+    synchronized DataBuffer finish(DataBufferFactory factory) {
+        DataBuffer output = factory.allocateBuffer(CHUNK);
+        if (ended) {
+            return output;
+        }
+        writeHeader(output);
+        deflater.finish();
+        while (!deflater.finished()) {
+            drain(output);
+        }
+        if (crc != null) {
+            writeIntLe(output, (int) crc.getValue());
+            writeIntLe(output, (int) bytesIn);
+            bytesOut += 8;
+        }
+        return output;
+    }
+
+    synchronized void end() {
+        if (!ended) {
+            ended = true;
+            deflater.end();
+        }
+    }
+
+    long bytesIn() {
+        return bytesIn;
+    }
+
+    long bytesOut() {
+        return bytesOut;
+    }
+
+    private void writeHeader(DataBuffer output) {
+        if (!headerWritten) {
+            headerWritten = true;
+            output.write(GZIP_HEADER);
+            bytesOut += GZIP_HEADER.length;
+        }
+    }
+
+    private void drain(DataBuffer output) {
+        int n = deflater.deflate(chunk);
+        if (n > 0) {
+            output.write(chunk, 0, n);
+            bytesOut += n;
+        }
+    }
+
+    private static void writeIntLe(DataBuffer output, int value) {
+        output.write(new byte[]{(byte) value, (byte) (value >>> 8), (byte) (value >>> 16), (byte) (value >>> 24)});
+    }
+}
@@ -0,0 +1,54 @@
+package org.example.gateway.concurrency;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * 自适应并发限制配置
+ */
+@Data
+@ConfigurationProperties(prefix = "gateway.concurrency")
+public class AdaptiveConcurrencyProperties {
+
+    // 是否启用自适应并发限制
+    private boolean enabled = true;
+
+    // 限制算法：gradient 按长短期RTT之比调整，vegas 按估算的排队长度调整
+    private Algorithm algorithm = Algorithm.GRADIENT;
+
+    // 是否同时按上游实例限制并发
+    private boolean perInstance = true;
+
+    // 初始并发上限
+    private int initialLimit = 20;
+
+    // 并发上限的下界
+    private int minLimit = 4;
+
+    // 并发上限的上界
+    private int maxLimit = 500;
+
+    // gradient：允许的RTT膨胀倍数，平均RTT不超过最小RTT的该倍数时不降低上限
+    private double rttTolerance = 1.5;
+
+    // gradient：新上限的平滑系数
+    private double smoothing = 0.2;
+
+    // 无负载RTT的统计窗口，取最近两个窗口内的最小RTT
+    private Duration minRttWindow = Duration.ofSeconds(30);
+
+    // 超出并发上限时最多排队的请求数，为0时直接返回503
+    private int queueSize = 0;
+
+    // 排队的最长等待时间
+    private Duration queueTimeout = Duration.ofMillis(50);
+
+    // 实例限制器空闲多久后淘汰
+    private Duration idleTimeout = Duration.ofMinutes(10);
+
+    public enum Algorithm {
+        GRADIENT, VEGAS
+    }
+}
@@ -0,0 +1,295 @@
+package org.example.gateway.concurrency;
+
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 单个路由或上游实例的自适应并发限制器
+ * 进行中的请求数不超过当前上限；每个请求结束后用测得的RTT调整上限：
+ * RTT上升说明上游开始排队，上限随之降低；超时与5xx视为丢弃，上限按比例下降。
+ * 获取许可与释放都是无锁的CAS操作，上限的调整在同一时刻只由一个线程执行，其余线程跳过本次样本。
+ */
+public class ConcurrencyLimiter {
+
+    // 发生丢弃时上限的下降比例
+    private static final double BACKOFF_RATIO = 0.9;
+
+    // gradient：采样窗口的最少样本数
+    private static final int MIN_WINDOW_SAMPLES = 10;
+
+    private final AdaptiveConcurrencyProperties properties;
+
+    private final AdaptiveConcurrencyProperties.Algorithm algorithm;
+
+    private final AtomicInteger inflight = new AtomicInteger();
+
+    private final AtomicInteger queued = new AtomicInteger();
+
+    private final Queue<Waiter> waiters = new ConcurrentLinkedQueue<>();
+
+    private final AtomicBoolean updating = new AtomicBoolean();
+
+    private final LongAdder rejected = new LongAdder();
+
+    private final LongAdder dropped = new LongAdder();
+
+    private volatile double limit;
+
+    // 以下字段只在持有 updating 时读写
+    // 最小RTT取当前与上一个时间窗口内的最小值，窗口滚动后上游变快或变慢都能重新探测
+    private long minRttNanos = Long.MAX_VALUE;
+
+    private long currentWindowMinRtt = Long.MAX_VALUE;
+
+    private long previousWindowMinRtt = Long.MAX_VALUE;
+
+    private long minRttWindowStart;
+
+    private long windowRttSum;
+
+    private int windowMaxInflight;
+
+    private int windowSamples;
+
+    private volatile long lastRttNanos;
+
+    private volatile long lastAccess;
+
+    ConcurrencyLimiter(AdaptiveConcurrencyProperties properties) {
+        this.properties = properties;
+        this.algorithm = properties.getAlgorithm();
+        this.limit = properties.getInitialLimit();
+        this.lastAccess = System.nanoTime();
+        this.minRttWindowStart = lastAccess;
+    }
+
+    /**
+     * 尝试获取一个许可，不等待
+     */
+    public boolean tryAcquire() {
+        lastAccess = System.nanoTime();
+        int max = (int) limit;
+        while (true) {
+            int current = inflight.get();
+            if (current >= max) {
+                return false;
+            }
+            if (inflight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * 排队等待许可，队列已满或等待超时时返回 false
+     */
+    public Mono<Boolean> acquireQueued(Duration timeout) {
+        if (queued.incrementAndGet() > properties.getQueueSize()) {
+            queued.decrementAndGet();
+            return Mono.just(false);
+        }
+        Waiter waiter = new Waiter();
+        waiters.offer(waiter);
+        // 入队前可能恰好有许可释放，入队后再尝试一次，避免错过
+        if (tryAcquire()) {
+            if (!waiter.grant()) {
+                // 已被释放线程转交了许可，退回多拿的一个
+                releaseUnsampled();
+            }
+        }
+        return waiter.result.timeout(timeout, Mono.fromSupplier(() -> !expire(waiter)))
+                .doOnCancel(() -> {
+                    if (!expire(waiter)) {
+                        // 客户端已断开但许可已经转交，归还许可
+                        releaseUnsampled();
+                    }
+                })
+                .doFinally(signal -> queued.decrementAndGet());
+    }
+
+    /**
+     * 请求结束，释放许可并以本次RTT调整上限
+     *
+     * @param rttNanos 请求耗时
+     * @param drop     请求超时、出错或上游返回5xx
+     */
+    public void release(long rttNanos, boolean drop) {
+        if (drop) {
+            dropped.increment();
+        }
+        sample(rttNanos, drop);
+        releaseUnsampled();
+    }
+
+    /**
+     * 释放许可但不计入样本，用于未真正转发的请求
+     */
+    public void releaseUnsampled() {
+        Waiter waiter;
+        while ((waiter = waiters.poll()) != null) {
+            // 直接把许可转交给排队的请求，进行中的请求数不变
+            if (waiter.grant()) {
+                return;
+            }
+        }
+        inflight.decrementAndGet();
+    }
+
+    private boolean expire(Waiter waiter) {
+        if (waiter.expire()) {
+            waiters.remove(waiter);
+            return true;
+        }
+        return false;
+    }
+
+    public void reject() {
+        rejected.increment();
+    }
+
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    public int getInflight() {
+        return inflight.get();
+    }
+
+    long getLastAccess() {
+        return lastAccess;
+    }
+
+    private void sample(long rttNanos, boolean drop) {
+        lastRttNanos = rttNanos;
+        if (!updating.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            long now = System.nanoTime();
+            if (now - minRttWindowStart > properties.getMinRttWindow().toNanos()) {
+                minRttWindowStart = now;
+                previousWindowMinRtt = currentWindowMinRtt;
+                currentWindowMinRtt = rttNanos;
+            }
+            currentWindowMinRtt = Math.min(currentWindowMinRtt, rttNanos);
+            minRttNanos = Math.min(currentWindowMinRtt, previousWindowMinRtt);
+            double current = limit;
+            double next;
+            if (drop) {
+                next = current * BACKOFF_RATIO;
+            } else if (algorithm == AdaptiveConcurrencyProperties.Algorithm.VEGAS) {
+                next = vegas(current, rttNanos);
+            } else {
+                next = gradient(current, rttNanos);
+            }
+            limit = Math.max(properties.getMinLimit(), Math.min(properties.getMaxLimit(), next));
+        } finally {
+            updating.set(false);
+        }
+    }
+
+    /**
+     * 梯度算法：每个窗口（至少为当前上限个样本）计算一次平均RTT，
+     * 梯度 = 容忍倍数 × 最小RTT / 平均RTT，限制在 [0.5, 1]，新上限 = 上限 × 梯度 + sqrt(上限)，再做指数平滑；
+     * 只有在窗口内的并发峰值接近上限时才允许上调
+     */
+    private double gradient(double current, long rttNanos) {
+        windowRttSum += rttNanos;
+        windowMaxInflight = Math.max(windowMaxInflight, inflight.get());
+        if (++windowSamples < Math.max(MIN_WINDOW_SAMPLES, (int) current)) {
+            return current;
+        }
+        double averageRtt = (double) windowRttSum / windowSamples;
+        int maxInflight = windowMaxInflight;
+        windowRttSum = 0;
+        windowMaxInflight = 0;
+        windowSamples = 0;
+        double gradient = Math.max(0.5, Math.min(1.0, properties.getRttTolerance() * minRttNanos / averageRtt));
+        double next = current * gradient + Math.sqrt(current);
+        if (next > current && maxInflight < current / 2) {
+            // 流量本身不足，上游表现良好不能说明可以承受更高并发
+            return current;
+        }
+        return current * (1 - properties.getSmoothing()) + next * properties.getSmoothing();
+    }
+
+    /**
+     * Vegas算法：估算排队长度 = 上限 × (1 - 最小RTT / 当前RTT)，
+     * 少于 alpha 时上调，多于 beta 时下调，alpha、beta 随上限对数增长
+     */
+    private double vegas(double current, long rttNanos) {
+        double log = Math.max(1.0, Math.log10(current));
+        double queue = Math.ceil(current * (1 - (double) minRttNanos / rttNanos));
+        if (queue <= 3 * log) {
+            return inflight.get() < current / 2 ? current : current + log;
+        }
+        if (queue >= 6 * log) {
+            return current - log;
+        }
+        return current;
+    }
+
+    /**
+     * 当前状态，用于监控端点
+     */
+    Map<String, Object> snapshot() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("limit", getLimit());
+        result.put("inflight", inflight.get());
+        result.put("queued", Math.max(0, queued.get()));
+        result.put("lastRttMillis", lastRttNanos / 1_000_000.0);
+        result.put("rejected", rejected.sum());
+        result.put("dropped", dropped.sum());
+        return result;
+    }
+
+    /**
+     * 排队中的请求，许可的转交与超时通过状态CAS决出唯一结果
+     */
+    private static final class Waiter {
+
+        private static final int WAITING = 0;
+
+        private static final int GRANTED = 1;
+
+        private static final int EXPIRED = 2;
+
+        private final AtomicInteger state = new AtomicInteger(WAITING);
+
+        private final AtomicReference<Runnable> signal = new AtomicReference<>();
+
+        private final Mono<Boolean> result = Mono.create(sink -> {
+            signal.set(() -> sink.success(true));
+            if (state.get() == GRANTED) {
+                sink.success(true);
+            }
+        });
+
+        private boolean grant() {
+            if (!state.compareAndSet(WAITING, GRANTED)) {
+                return false;
+            }
+            Runnable callback = signal.get();
+            if (callback != null) {
+                callback.run();
+            }
+            return true;
+        }
+
+        /**
+         * 标记为超时，返回 false 表示许可已经转交，调用方应继续转发请求
+         */
+        private boolean expire() {
+            return state.compareAndSet(WAITING, EXPIRED);
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package org.example.gateway.concurrency;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 按路由和上游实例持有并发限制器
+ */
+@Component
+@Slf4j
+public class ConcurrencyLimiterRegistry {
+
+    private final AdaptiveConcurrencyProperties properties;
+
+    private final Map<String, ConcurrencyLimiter> routes = new ConcurrentHashMap<>();
+
+    private final Map<String, ConcurrencyLimiter> instances = new ConcurrentHashMap<>();
+
+    public ConcurrencyLimiterRegistry(AdaptiveConcurrencyProperties properties) {
+        this.properties = properties;
+    }
+
+    public ConcurrencyLimiter route(String routeId) {
+        return get(routes, routeId);
+    }
+
+    /**
+     * @param instance 上游实例地址，host:port
+     */
+    public ConcurrencyLimiter instance(String instance) {
+        return get(instances, instance);
+    }
+
+    private ConcurrencyLimiter get(Map<String, ConcurrencyLimiter> limiters, String key) {
+        ConcurrencyLimiter limiter = limiters.get(key);
+        if (limiter == null) {
+            limiter = limiters.computeIfAbsent(key, k -> new ConcurrencyLimiter(properties));
+        }
+        return limiter;
+    }
+
+    /**
+     * 定期淘汰空闲且没有进行中请求的实例限制器，实例下线后不再占用内存
+     */
+    @Scheduled(fixedDelayString = "${gateway.concurrency.eviction-interval:60000}")
+    public void evictIdle() {
+        long deadline = System.nanoTime() - properties.getIdleTimeout().toNanos();
+        instances.entrySet().removeIf(entry ->
+                entry.getValue().getLastAccess() - deadline < 0 && entry.getValue().getInflight() == 0);
+    }
+
+    Map<String, Object> snapshot() {
+        Map<String, Object> result = new TreeMap<>();
+        result.put("routes", snapshot(routes));
+        result.put("instances", snapshot(instances));
+        return result;
+    }
+
+    private static Map<String, Object> snapshot(Map<String, ConcurrencyLimiter> limiters) {
+        Map<String, Object> result = new TreeMap<>();
+        limiters.forEach((key, limiter) -> result.put(key, limiter.snapshot()));
+        return result;
+    }
+}
@@ -0,0 +1,26 @@
+package org.example.gateway.concurrency;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * 并发限制监控端点，访问 /actuator/gatewayconcurrency 查看各路由与上游实例的并发上限和进行中的请求数
+ */
+@Component
+@Endpoint(id = "gatewayconcurrency")
+public class GatewayConcurrencyEndpoint {
+
+    private final ConcurrencyLimiterRegistry registry;
+
+    public GatewayConcurrencyEndpoint(ConcurrencyLimiterRegistry registry) {
+        this.registry = registry;
+    }
+
+    @ReadOperation
+    public Map<String, Object> limits() {
+        return registry.snapshot();
+    }
+}
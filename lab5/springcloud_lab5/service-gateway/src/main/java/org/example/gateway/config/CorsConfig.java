@@ -17,8 +17,8 @@ public class CorsConfig {
     @Bean
     public CorsWebFilter corsFilter() {
         CorsConfiguration config = new CorsConfiguration();
-        // 允许所有来源跨域访问
-        config.addAllowedOrigin("*");
+        // 允许所有来源跨域访问，携带凭证时不能使用 allowedOrigins 的 "*"，否则所有跨域请求都返回403
+        config.addAllowedOriginPattern("*");
         // 允许所有请求头
         config.addAllowedHeader("*");
         // 允许所有HTTP方法
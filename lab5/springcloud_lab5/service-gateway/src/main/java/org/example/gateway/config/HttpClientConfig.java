@@ -0,0 +1,36 @@
+package org.example.gateway.config;
+
+import org.example.gateway.upstream.UpstreamConnectionPools;
+import org.springframework.boot.autoconfigure.web.ServerProperties;
+import org.springframework.cloud.gateway.config.HttpClientCustomizer;
+import org.springframework.cloud.gateway.config.HttpClientFactory;
+import org.springframework.cloud.gateway.config.HttpClientProperties;
+import org.springframework.cloud.gateway.config.HttpClientSslConfigurer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.util.List;
+
+/**
+ * 网关转发使用的 HttpClient 配置
+ * 替换网关默认的 HttpClientFactory，其余配置（超时、SSL、代理等）保持不变，
+ * 连接池改为按上游服务划分，见 {@link UpstreamConnectionPools}
+ */
+@Configuration
+public class HttpClientConfig {
+
+    @Bean
+    public HttpClientFactory upstreamHttpClientFactory(HttpClientProperties properties,
+                                                       ServerProperties serverProperties,
+                                                       HttpClientSslConfigurer sslConfigurer,
+                                                       List<HttpClientCustomizer> customizers,
+                                                       UpstreamConnectionPools pools) {
+        return new HttpClientFactory(properties, serverProperties, sslConfigurer, customizers) {
+            @Override
+            protected ConnectionProvider buildConnectionProvider(HttpClientProperties properties) {
+                return pools.routing(super.buildConnectionProvider(properties));
+            }
+        };
+    }
+}
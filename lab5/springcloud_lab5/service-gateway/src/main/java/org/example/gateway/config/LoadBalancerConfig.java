@@ -0,0 +1,19 @@
+package org.example.gateway.config;
+
+import org.example.gateway.loadbalancer.PeakEwmaLoadBalancerConfiguration;
+import org.example.gateway.outlier.OutlierLoadBalancerConfiguration;
+import org.springframework.cloud.loadbalancer.annotation.LoadBalancerClients;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 负载均衡配置
+ * 所有服务的实例列表都经过异常实例过滤，见 {@link OutlierLoadBalancerConfiguration}；
+ * 实例选择策略按路由元数据决定，见 {@link PeakEwmaLoadBalancerConfiguration}
+ */
+@Configuration
+@LoadBalancerClients(defaultConfiguration = {
+        OutlierLoadBalancerConfiguration.class,
+        PeakEwmaLoadBalancerConfiguration.class
+})
+public class LoadBalancerConfig {
+}
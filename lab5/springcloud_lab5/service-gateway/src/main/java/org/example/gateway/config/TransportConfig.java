@@ -0,0 +1,60 @@
+package org.example.gateway.config;
+
+import io.netty.channel.epoll.Epoll;
+import lombok.extern.slf4j.Slf4j;
+import org.example.gateway.transport.TransportLoopResources;
+import org.example.gateway.transport.TransportProperties;
+import org.springframework.cloud.gateway.config.HttpClientCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.ReactorResourceFactory;
+import reactor.netty.resources.LoopResources;
+
+/**
+ * 网络传输配置
+ * 按 gateway.transport 创建事件循环线程组并选择原生epoll或NIO传输。
+ * Web 服务器与 WebClient 通过 ReactorResourceFactory、转发用的 HttpClient 通过 HttpClientCustomizer 共用这组线程
+ */
+@Configuration
+@Slf4j
+public class TransportConfig {
+
+    @Bean(destroyMethod = "dispose")
+    public TransportLoopResources gatewayLoopResources(TransportProperties properties) {
+        boolean useNative = switch (properties.getMode()) {
+            case NIO -> false;
+            case AUTO -> Epoll.isAvailable();
+            case EPOLL -> {
+                if (!Epoll.isAvailable()) {
+                    throw new IllegalStateException("gateway.transport.mode=epoll，但原生epoll不可用",
+                            Epoll.unavailabilityCause());
+                }
+                yield true;
+            }
+        };
+        int workers = properties.getWorkerThreads() != null
+                ? properties.getWorkerThreads() : LoopResources.DEFAULT_IO_WORKER_COUNT;
+        LoopResources loops = properties.getSelectorThreads() != null
+                ? LoopResources.create("gateway", properties.getSelectorThreads(), workers, true)
+                : LoopResources.create("gateway", workers, true);
+        log.info("网关传输: {}，事件循环线程 {} 个，接收连接线程 {}", useNative ? "epoll" : "nio", workers,
+                properties.getSelectorThreads() != null ? properties.getSelectorThreads() + " 个" : "由事件循环线程兼任");
+        return new TransportLoopResources(loops, useNative);
+    }
+
+    /**
+     * 替换 Spring Boot 默认使用全局资源的 ReactorResourceFactory，Web 服务器在启动时按它的线程组运行
+     */
+    @Bean
+    public ReactorResourceFactory reactorResourceFactory(TransportLoopResources gatewayLoopResources) {
+        ReactorResourceFactory factory = new ReactorResourceFactory();
+        factory.setUseGlobalResources(false);
+        factory.setLoopResources(gatewayLoopResources);
+        return factory;
+    }
+
+    @Bean
+    public HttpClientCustomizer gatewayTransportClientCustomizer(TransportLoopResources gatewayLoopResources) {
+        return client -> client.runOn(gatewayLoopResources, gatewayLoopResources.isNative());
+    }
+}
@@ -0,0 +1,51 @@
+package org.example.gateway.filter;
+
+import org.example.gateway.accesslog.AccessLogPipeline;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+/**
+ * 访问日志过滤器
+ * 位于过滤器链最前端，请求结束时把访问信息交给异步访问日志管道，事件循环线程上不做任何IO
+ */
+@Component
+public class AccessLogFilter implements GlobalFilter, Ordered {
+
+    private final AccessLogPipeline pipeline;
+
+    public AccessLogFilter(AccessLogPipeline pipeline) {
+        this.pipeline = pipeline;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        long timestamp = System.currentTimeMillis();
+        long start = System.nanoTime();
+        return chain.filter(exchange).doFinally(signal -> {
+            ServerHttpRequest request = exchange.getRequest();
+            HttpStatusCode status = exchange.getResponse().getStatusCode();
+            Route route = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+            pipeline.record(timestamp, System.nanoTime() - start,
+                    status != null ? status.value() : 0,
+                    request.getRemoteAddress(),
+                    request.getMethod().name(),
+                    request.getURI().getRawPath(),
+                    request.getURI().getRawQuery(),
+                    route != null ? route.getId() : null);
+        });
+    }
+
+    @Override
+    public int getOrder() {
+        // 在认证与限流之前执行，被拒绝的请求同样记录
+        return Ordered.HIGHEST_PRECEDENCE;
+    }
+}
@@ -0,0 +1,111 @@
+package org.example.gateway.filter;
+
+import org.example.gateway.concurrency.AdaptiveConcurrencyProperties;
+import org.example.gateway.concurrency.ConcurrencyLimiter;
+import org.example.gateway.concurrency.ConcurrencyLimiterRegistry;
+import org.example.gateway.response.RejectionResponses;
+import org.example.gateway.response.RejectionTemplate;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.filter.ReactiveLoadBalancerClientFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import java.net.URI;
+
+/**
+ * 自适应并发限制过滤器
+ * 在负载均衡选定实例之后执行，同时按路由和上游实例限制进行中的请求数，上限由 {@link ConcurrencyLimiter} 按RTT动态调整。
+ * 超出上限的请求直接返回503，配置了排队时先短暂排队。
+ */
+@Component
+public class AdaptiveConcurrencyFilter implements GlobalFilter, Ordered {
+
+    // 紧随负载均衡过滤器之后，此时请求地址已解析为具体实例
+    public static final int ORDER = ReactiveLoadBalancerClientFilter.LOAD_BALANCER_CLIENT_FILTER_ORDER + 1;
+
+    private final AdaptiveConcurrencyProperties properties;
+
+    private final ConcurrencyLimiterRegistry registry;
+
+    private final RejectionResponses rejections;
+
+    private final RejectionTemplate overloaded;
+
+    public AdaptiveConcurrencyFilter(AdaptiveConcurrencyProperties properties, ConcurrencyLimiterRegistry registry,
+                                     RejectionResponses rejections) {
+        this.properties = properties;
+        this.registry = registry;
+        this.rejections = rejections;
+        this.overloaded = rejections.template(HttpStatus.SERVICE_UNAVAILABLE, "服务繁忙，请稍后再试");
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        Route route = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+        if (!properties.isEnabled() || route == null) {
+            return chain.filter(exchange);
+        }
+        ConcurrencyLimiter routeLimiter = registry.route(route.getId());
+        ConcurrencyLimiter instanceLimiter = null;
+        if (properties.isPerInstance()) {
+            URI url = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_REQUEST_URL_ATTR);
+            if (url != null && url.getHost() != null) {
+                instanceLimiter = registry.instance(url.getHost() + ":" + url.getPort());
+            }
+        }
+
+        if (routeLimiter.tryAcquire()) {
+            return acquireInstance(exchange, chain, routeLimiter, instanceLimiter);
+        }
+        if (properties.getQueueSize() <= 0) {
+            return reject(exchange, routeLimiter);
+        }
+        ConcurrencyLimiter instance = instanceLimiter;
+        return routeLimiter.acquireQueued(properties.getQueueTimeout()).flatMap(granted -> granted
+                ? acquireInstance(exchange, chain, routeLimiter, instance)
+                : reject(exchange, routeLimiter));
+    }
+
+    private Mono<Void> acquireInstance(ServerWebExchange exchange, GatewayFilterChain chain,
+                                       ConcurrencyLimiter routeLimiter, ConcurrencyLimiter instanceLimiter) {
+        if (instanceLimiter != null && !instanceLimiter.tryAcquire()) {
+            routeLimiter.releaseUnsampled();
+            return reject(exchange, instanceLimiter);
+        }
+        long start = System.nanoTime();
+        return chain.filter(exchange).doFinally(signal -> {
+            long rtt = System.nanoTime() - start;
+            boolean drop = isDrop(signal, exchange.getResponse().getStatusCode());
+            // 先释放实例许可：路由许可可能直接转交给排队的请求，它随即需要获取实例许可
+            if (instanceLimiter != null) {
+                instanceLimiter.release(rtt, drop);
+            }
+            routeLimiter.release(rtt, drop);
+        });
+    }
+
+    private Mono<Void> reject(ServerWebExchange exchange, ConcurrencyLimiter limiter) {
+        limiter.reject();
+        return rejections.write(exchange, overloaded);
+    }
+
+    /**
+     * 出错、被取消（超时）或上游返回5xx视为丢弃
+     */
+    private static boolean isDrop(SignalType signal, HttpStatusCode status) {
+        return signal != SignalType.ON_COMPLETE || (status != null && status.is5xxServerError());
+    }
+
+    @Override
+    public int getOrder() {
+        return ORDER;
+    }
+}
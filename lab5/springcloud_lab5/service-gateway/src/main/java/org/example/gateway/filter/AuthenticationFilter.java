@@ -1,61 +1,94 @@
 package org.example.gateway.filter;
 
+import org.example.gateway.auth.InvalidTokenException;
+import org.example.gateway.auth.JwtClaims;
+import org.example.gateway.auth.JwtVerifier;
+import org.example.gateway.auth.PublicPathMatcher;
+import org.example.gateway.response.RejectionResponses;
+import org.example.gateway.response.RejectionTemplate;
 import org.springframework.cloud.gateway.filter.GatewayFilterChain;
 import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
 import org.springframework.core.Ordered;
-import org.springframework.core.io.buffer.DataBuffer;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.server.reactive.ServerHttpRequest;
-import org.springframework.http.server.reactive.ServerHttpResponse;
 import org.springframework.stereotype.Component;
 import org.springframework.web.server.ServerWebExchange;
 import lombok.extern.slf4j.Slf4j;
 import reactor.core.publisher.Mono;
 
-import java.nio.charset.StandardCharsets;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
 
 /**
  * 全局权限认证过滤器
+ * 校验Bearer令牌的签名与有效期，公开路径由路由元数据 public-paths 声明
  */
 @Component
 @Slf4j
 public class AuthenticationFilter implements GlobalFilter, Ordered {
 
+    // 认证通过后保存令牌声明的请求属性，供后续过滤器使用
+    public static final String AUTH_CLAIMS_ATTR = AuthenticationFilter.class.getName() + ".claims";
+
+    private final JwtVerifier jwtVerifier;
+
+    private final PublicPathMatcher publicPathMatcher;
+
+    private final RejectionResponses rejections;
+
+    private final RejectionTemplate missingToken;
+
+    private final RejectionTemplate malformedToken;
+
+    // 令牌校验失败的原因是有限的常量，按原因缓存对应的响应模板
+    private final Map<String, RejectionTemplate> invalidTokenTemplates = new ConcurrentHashMap<>();
+
+    public AuthenticationFilter(JwtVerifier jwtVerifier, PublicPathMatcher publicPathMatcher,
+                                RejectionResponses rejections) {
+        this.jwtVerifier = jwtVerifier;
+        this.publicPathMatcher = publicPathMatcher;
+        this.rejections = rejections;
+        this.missingToken = rejections.template(HttpStatus.UNAUTHORIZED, "未授权：缺少令牌");
+        this.malformedToken = rejections.template(HttpStatus.UNAUTHORIZED, "未授权：令牌格式错误");
+    }
+
     @Override
     public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
         ServerHttpRequest request = exchange.getRequest();
-        String path = request.getURI().getPath();
-        
-        log.info("请求路径: {}", path);
         
-        // 对于某些公开的API，不需要token验证
-        if (path.contains("/public/") || path.contains("/open/")) {
+        // 路由元数据中声明的公开路径不需要token验证
+        Route route = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+        if (publicPathMatcher.isPublic(route, request.getPath().pathWithinApplication())) {
             return chain.filter(exchange);
         }
         
         // 获取token
         String token = request.getHeaders().getFirst("Authorization");
         
-        // 这里简单判断token是否存在，实际应用中应该进行更复杂的token验证
         if (token == null || token.isEmpty()) {
-            return unauthorized(exchange, "未授权：缺少令牌");
+            return unauthorized(exchange, missingToken);
         }
         
-        // 假设token必须以"Bearer "开头
+        // token必须以"Bearer "开头
         if (!token.startsWith("Bearer ")) {
-            return unauthorized(exchange, "未授权：令牌格式错误");
+            return unauthorized(exchange, malformedToken);
         }
         
-        // 在实际应用中，这里应该验证token的合法性，例如JWT验证等
-        // 这里仅做演示，使用一个简单的模拟验证
+        // 校验JWT签名与有效期，已验证过的令牌直接命中缓存
         String actualToken = token.substring(7); // 去除"Bearer "前缀
-        if ("invalid-token".equals(actualToken)) {
-            return unauthorized(exchange, "未授权：无效的令牌");
+        JwtClaims claims;
+        try {
+            claims = jwtVerifier.verify(actualToken);
+        } catch (InvalidTokenException e) {
+            return unauthorized(exchange, invalidToken(e.getMessage()));
         }
+        exchange.getAttributes().put(AUTH_CLAIMS_ATTR, claims);
         
-        log.info("认证成功，令牌: {}", token);
+        // 访问日志由 AccessLogFilter 异步记录，这里不输出令牌
+        log.debug("认证成功，主体: {}", claims.subject());
         return chain.filter(exchange);
     }
 
@@ -65,20 +98,17 @@ public class AuthenticationFilter implements GlobalFilter, Ordered {
         return -100;
     }
     
-    private Mono<Void> unauthorized(ServerWebExchange exchange, String message) {
-        ServerHttpResponse response = exchange.getResponse();
-        response.setStatusCode(HttpStatus.UNAUTHORIZED);
-        response.getHeaders().add("Content-Type", "application/json;charset=UTF-8");
-        
-        Map<String, Object> resultMap = new HashMap<>();
-        resultMap.put("code", HttpStatus.UNAUTHORIZED.value());
-        resultMap.put("message", message);
-        resultMap.put("timestamp", System.currentTimeMillis());
-        
-        String resultJson = resultMap.toString();
-        DataBuffer buffer = response.bufferFactory().wrap(resultJson.getBytes(StandardCharsets.UTF_8));
-        
-        log.warn("认证失败: {}", message);
-        return response.writeWith(Mono.just(buffer));
+    private RejectionTemplate invalidToken(String reason) {
+        RejectionTemplate template = invalidTokenTemplates.get(reason);
+        if (template == null) {
+            template = rejections.template(HttpStatus.UNAUTHORIZED, "未授权：" + reason);
+            invalidTokenTemplates.putIfAbsent(reason, template);
+        }
+        return template;
+    }
+
+    private Mono<Void> unauthorized(ServerWebExchange exchange, RejectionTemplate template) {
+        log.debug("认证失败: {}", template.getMessage());
+        return rejections.write(exchange, template);
     }
-} 
\ No newline at end of file
+}
@@ -1,15 +1,16 @@
 package org.example.gateway.filter;
 
 import lombok.extern.slf4j.Slf4j;
+import org.example.gateway.cache.StaleResponse;
+import org.example.gateway.cache.StaleResponses;
+import org.example.gateway.response.RejectionResponses;
+import org.example.gateway.response.RejectionTemplate;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.http.HttpStatus;
-import org.springframework.http.ResponseEntity;
+import org.springframework.web.server.ServerWebExchange;
 import reactor.core.publisher.Mono;
 
-import java.util.HashMap;
-import java.util.Map;
-
 /**
  * 熔断降级处理控制器
  */
@@ -17,18 +18,30 @@ import java.util.Map;
 @Slf4j
 public class FallbackController {
 
+    private final RejectionResponses rejections;
+
+    private final RejectionTemplate serviceUnavailable;
+
+    private final StaleResponses staleResponses;
+
+    public FallbackController(RejectionResponses rejections, StaleResponses staleResponses) {
+        this.rejections = rejections;
+        this.staleResponses = staleResponses;
+        this.serviceUnavailable = rejections.template(HttpStatus.SERVICE_UNAVAILABLE, "服务暂时不可用，请稍后再试");
+    }
+
     /**
      * 全局熔断降级处理
-     * 当服务不可用时，返回友好提示
+     * 路由配置了 StaleIfError 且保存有同一请求最近一次成功的响应时返回该响应，否则返回友好提示
      */
     @RequestMapping("/fallback")
-    public Mono<ResponseEntity<Map<String, Object>>> fallback() {
+    public Mono<Void> fallback(ServerWebExchange exchange) {
+        StaleResponse stale = staleResponses.find(exchange);
+        if (stale != null) {
+            log.warn("触发熔断降级，返回过期响应");
+            return staleResponses.serve(exchange, stale);
+        }
         log.error("触发熔断降级");
-        Map<String, Object> result = new HashMap<>();
-        result.put("code", HttpStatus.SERVICE_UNAVAILABLE.value());
-        result.put("message", "服务暂时不可用，请稍后再试");
-        result.put("timestamp", System.currentTimeMillis());
-        
-        return Mono.just(new ResponseEntity<>(result, HttpStatus.SERVICE_UNAVAILABLE));
+        return rejections.write(exchange, serviceUnavailable);
     }
-} 
\ No newline at end of file
+}
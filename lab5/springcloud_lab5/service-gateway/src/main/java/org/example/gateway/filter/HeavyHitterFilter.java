@@ -0,0 +1,61 @@
+package org.example.gateway.filter;
+
+import org.example.gateway.auth.JwtClaims;
+import org.example.gateway.heavyhitter.ClientAddressResolver;
+import org.example.gateway.heavyhitter.Dimension;
+import org.example.gateway.heavyhitter.HeavyHitterRegistry;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.core.Ordered;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+/**
+ * 高频访问者统计过滤器
+ * 在认证之前执行，认证失败、被过载保护或限流拒绝的请求同样计入客户端IP与路径的统计；
+ * 令牌主体在请求结束时按认证结果计入，未认证的请求不计入。
+ * 客户端IP由 {@link ClientAddressResolver} 解析，只采信受信任代理写入的 X-Forwarded-For。
+ */
+@Component
+public class HeavyHitterFilter implements GlobalFilter, Ordered {
+
+    // 客户端IP，供限流过滤器判断是否为高频访问者
+    public static final String CLIENT_ATTR = HeavyHitterFilter.class.getName() + ".client";
+
+    private final HeavyHitterRegistry registry;
+
+    private final ClientAddressResolver clients;
+
+    public HeavyHitterFilter(HeavyHitterRegistry registry, ClientAddressResolver clients) {
+        this.registry = registry;
+        this.clients = clients;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        if (!registry.isEnabled()) {
+            return chain.filter(exchange);
+        }
+        ServerHttpRequest request = exchange.getRequest();
+        String client = clients.resolve(request);
+        if (client != null) {
+            exchange.getAttributes().put(CLIENT_ATTR, client);
+            registry.record(Dimension.CLIENT, client);
+        }
+        registry.record(Dimension.PATH, request.getURI().getRawPath());
+        return chain.filter(exchange).doFinally(signal -> {
+            JwtClaims claims = exchange.getAttribute(AuthenticationFilter.AUTH_CLAIMS_ATTR);
+            if (claims != null) {
+                registry.record(Dimension.PRINCIPAL, claims.subject());
+            }
+        });
+    }
+
+    @Override
+    public int getOrder() {
+        // 在认证过滤器之前执行
+        return -101;
+    }
+}
@@ -0,0 +1,99 @@
+package org.example.gateway.filter;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.gateway.response.RejectionResponses;
+import org.example.gateway.response.RejectionTemplate;
+import org.example.gateway.shedding.LoadShedder;
+import org.example.gateway.shedding.LoadSheddingProperties;
+import org.example.gateway.shedding.Priority;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.core.Ordered;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+/**
+ * 按优先级的过载保护过滤器
+ * 在认证之后、限流之前执行，按路由元数据 priority、认证结果与客户端声明的优先级对请求分级，
+ * 由 {@link LoadShedder} 根据当前拒绝级别决定是否放行，被拒绝的请求直接返回预编码的503。
+ */
+@Component
+@Slf4j
+public class LoadSheddingFilter implements GlobalFilter, Ordered {
+
+    // 路由元数据中声明优先级的键
+    public static final String PRIORITY_METADATA = "priority";
+
+    // 请求的优先级，供后续过滤器与访问日志使用
+    public static final String PRIORITY_ATTR = LoadSheddingFilter.class.getName() + ".priority";
+
+    // 建议客户端重试前等待的秒数
+    private static final String RETRY_AFTER_SECONDS = "1";
+
+    private final LoadSheddingProperties properties;
+
+    private final LoadShedder shedder;
+
+    private final RejectionResponses rejections;
+
+    private final RejectionTemplate overloaded;
+
+    public LoadSheddingFilter(LoadSheddingProperties properties, LoadShedder shedder, RejectionResponses rejections) {
+        this.properties = properties;
+        this.shedder = shedder;
+        this.rejections = rejections;
+        this.overloaded = rejections.template(HttpStatus.SERVICE_UNAVAILABLE, "网关繁忙，请稍后再试");
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        if (!properties.isEnabled()) {
+            return chain.filter(exchange);
+        }
+        Priority priority = classify(exchange);
+        exchange.getAttributes().put(PRIORITY_ATTR, priority);
+        if (shedder.tryAdmit(priority)) {
+            return chain.filter(exchange);
+        }
+        log.debug("过载保护拒绝 {} 优先级的请求 {}", priority, exchange.getRequest().getPath());
+        exchange.getResponse().getHeaders().set(HttpHeaders.RETRY_AFTER, RETRY_AFTER_SECONDS);
+        // 请求不转发到上游，先读完请求体，否则同一 keep-alive 连接上的下一个请求可能得不到处理
+        return exchange.getRequest().getBody().doOnNext(DataBufferUtils::release).then()
+                .then(Mono.defer(() -> rejections.write(exchange, overloaded)));
+    }
+
+    /**
+     * 路由声明的优先级为基础，未认证的请求不高于 anonymous-priority（CRITICAL 路由除外），
+     * 客户端声明的优先级只在更低时生效
+     */
+    private Priority classify(ServerWebExchange exchange) {
+        Route route = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+        Priority priority = route != null ? Priority.parse(route.getMetadata().get(PRIORITY_METADATA)) : null;
+        if (priority == null) {
+            priority = properties.getDefaultPriority();
+        }
+        if (priority != Priority.CRITICAL && exchange.getAttribute(AuthenticationFilter.AUTH_CLAIMS_ATTR) == null) {
+            priority = priority.atMost(properties.getAnonymousPriority());
+        }
+        String declared = exchange.getRequest().getHeaders().getFirst(properties.getPriorityHeader());
+        if (declared != null) {
+            Priority requested = Priority.parse(declared);
+            if (requested != null) {
+                priority = priority.atMost(requested);
+            }
+        }
+        return priority;
+    }
+
+    @Override
+    public int getOrder() {
+        // 在认证过滤器之后、限流过滤器之前执行，被拒绝的请求不消耗限流配额
+        return -95;
+    }
+}
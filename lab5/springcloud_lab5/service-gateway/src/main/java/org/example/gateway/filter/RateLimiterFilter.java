@@ -1,84 +1,132 @@
 package org.example.gateway.filter;
 
 import lombok.extern.slf4j.Slf4j;
+import org.example.gateway.auth.JwtClaims;
+import org.example.gateway.heavyhitter.Dimension;
+import org.example.gateway.heavyhitter.HeavyHitterProperties;
+import org.example.gateway.heavyhitter.HeavyHitterRegistry;
+import org.example.gateway.limiter.GcraRateLimiter;
+import org.example.gateway.limiter.LimitRule;
+import org.example.gateway.limiter.RequestCostEstimator;
+import org.example.gateway.limiter.RouteLimitRegistry;
+import org.example.gateway.response.RejectionResponses;
+import org.example.gateway.response.RejectionTemplate;
 import org.springframework.cloud.gateway.filter.GatewayFilterChain;
 import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
 import org.springframework.core.Ordered;
-import org.springframework.core.io.buffer.DataBuffer;
 import org.springframework.http.HttpStatus;
-import org.springframework.http.server.reactive.ServerHttpResponse;
 import org.springframework.stereotype.Component;
 import org.springframework.web.server.ServerWebExchange;
 import reactor.core.publisher.Mono;
 
-import java.nio.charset.StandardCharsets;
-import java.time.Duration;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicInteger;
-
 /**
- * 简易限流过滤器
- * 实际生产环境建议使用Redis或其他分布式方案实现限流
+ * 限流过滤器
+ * 按路由模板（匹配的路径模式或路由ID）限流，而不是按原始请求路径，避免路径参数导致键无限增长。
+ * 额度按请求成本扣除（见 {@link RequestCostEstimator}），放行后实际转发到上游的请求结束时，
+ * 按 {@link UpstreamStatsFilter} 记录的转发耗时与上游响应大小更新估算；缓存命中、合并等未实际转发的请求不参与估算。
+ * 开启高频访问者自动限流后，当前的高频客户端IP或令牌主体另受按键单独的阈值限制（见 {@link HeavyHitterRegistry}）。
  */
 @Component
 @Slf4j
 public class RateLimiterFilter implements GlobalFilter, Ordered {
 
-    // 存储路径的访问次数，实际应用应使用Redis等分布式存储
-    private final Map<String, AtomicInteger> pathCountMap = new ConcurrentHashMap<>();
-    
-    // 存储路径的最后刷新时间
-    private final Map<String, Long> pathLastRefreshMap = new ConcurrentHashMap<>();
-    
-    // 窗口时间 - 60秒
-    private final long TIME_WINDOW = 60 * 1000;
-    
-    // 默认限流阈值 - 100次/分钟
-    private final int DEFAULT_LIMIT = 100;
-    
-    // 特定路径限流配置
-    private final Map<String, Integer> pathLimitMap = new HashMap<>() {{
-        put("/provider1/api", 50);   // 每分钟50次
-        put("/provider2/api", 80);   // 每分钟80次
-    }};
+    // 未匹配任何路由时使用的限流键
+    private static final String DEFAULT_KEY = "default";
+
+    // 高频访问者限流键的前缀，与路由模板的限流键区分
+    private static final String HEAVY_HITTER_KEY_PREFIX = "heavy-hitter:";
+
+    private final GcraRateLimiter rateLimiter;
+
+    private final RouteLimitRegistry routeLimits;
+
+    private final RequestCostEstimator costs;
+
+    private final HeavyHitterRegistry heavyHitters;
+
+    private final RejectionResponses rejections;
+
+    private final RejectionTemplate limitExceeded;
+
+    public RateLimiterFilter(GcraRateLimiter rateLimiter, RouteLimitRegistry routeLimits, RequestCostEstimator costs,
+                             HeavyHitterRegistry heavyHitters, RejectionResponses rejections) {
+        this.rateLimiter = rateLimiter;
+        this.routeLimits = routeLimits;
+        this.costs = costs;
+        this.heavyHitters = heavyHitters;
+        this.rejections = rejections;
+        this.limitExceeded = rejections.template(HttpStatus.TOO_MANY_REQUESTS, "请求频率超限，请稍后再试");
+    }
 
     @Override
     public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
         String path = exchange.getRequest().getURI().getPath();
         
-        // 获取当前路径的限流阈值
-        int limit = DEFAULT_LIMIT;
-        for (Map.Entry<String, Integer> entry : pathLimitMap.entrySet()) {
-            if (path.startsWith(entry.getKey())) {
-                limit = entry.getValue();
-                break;
-            }
+        if (!acquireHeavyHitter(exchange)) {
+            return rejections.write(exchange, limitExceeded);
         }
         
-        // 初始化计数器
-        if (!pathCountMap.containsKey(path)) {
-            pathCountMap.put(path, new AtomicInteger(0));
-            pathLastRefreshMap.put(path, System.currentTimeMillis());
-        }
+        // 按最长匹配查找限流规则，匹配的路径模式即为限流键
+        LimitRule rule = routeLimits.current().match(path);
+        String key = rule.getKey();
+        Route route = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
         
-        // 检查是否需要重置计数器
-        long now = System.currentTimeMillis();
-        long lastRefresh = pathLastRefreshMap.getOrDefault(path, 0L);
-        if (now - lastRefresh > TIME_WINDOW) {
-            pathCountMap.get(path).set(0);
-            pathLastRefreshMap.put(path, now);
+        // 未匹配任何规则时按路由ID限流
+        if (rule.isDefault()) {
+            key = route != null ? route.getId() : DEFAULT_KEY;
         }
         
-        // 递增计数并判断是否超过限流阈值
-        int count = pathCountMap.get(path).incrementAndGet();
-        if (count > limit) {
-            log.warn("请求路径 {} 已达到限流阈值 {}/分钟，当前值: {}", path, limit, count);
-            return limitExceeded(exchange);
+        double cost = costs.cost(rule, route, costs.find(route, rule));
+        if (!rateLimiter.tryAcquire(key, rule.getLimit(), rule.getPeriodNanos(), cost)) {
+            log.debug("请求路径 {} 已达到限流阈值 {}，限流键: {}，请求成本: {}", path, rule.getLimit(), key, cost);
+            return rejections.write(exchange, limitExceeded);
         }
         
-        return chain.filter(exchange);
+        if (route == null || !costs.isLearning()) {
+            return chain.filter(exchange);
+        }
+        return chain.filter(exchange).doFinally(signal -> {
+            UpstreamStatsFilter.UpstreamHop hop = exchange.getAttribute(UpstreamStatsFilter.UPSTREAM_HOP_ATTR);
+            if (hop != null) {
+                costs.record(route, rule, hop.latencyNanos(), hop.contentLength());
+            }
+        });
+    }
+
+    /**
+     * 当前的高频访问者先按单独的阈值限流，其他请求直接放行
+     */
+    private boolean acquireHeavyHitter(ServerWebExchange exchange) {
+        HeavyHitterProperties.Throttle throttle = heavyHitters.throttle();
+        if (!throttle.isEnabled() || !heavyHitters.isEnabled()) {
+            return true;
+        }
+        for (Dimension dimension : throttle.getDimensions()) {
+            String key = heavyHitterKey(exchange, dimension);
+            if (!heavyHitters.isOffender(dimension, key)) {
+                continue;
+            }
+            if (!rateLimiter.tryAcquire(HEAVY_HITTER_KEY_PREFIX + dimension.id() + ":" + key,
+                    throttle.getLimit(), throttle.getPeriod().toNanos())) {
+                log.debug("高频访问者 {}={} 已达到限流阈值 {}", dimension.id(), key, throttle.getLimit());
+                heavyHitters.onThrottled(dimension);
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String heavyHitterKey(ServerWebExchange exchange, Dimension dimension) {
+        return switch (dimension) {
+            case CLIENT -> exchange.getAttribute(HeavyHitterFilter.CLIENT_ATTR);
+            case PRINCIPAL -> {
+                JwtClaims claims = exchange.getAttribute(AuthenticationFilter.AUTH_CLAIMS_ATTR);
+                yield claims != null ? claims.subject() : null;
+            }
+            case PATH -> exchange.getRequest().getURI().getRawPath();
+        };
     }
 
     @Override
@@ -86,20 +134,4 @@ public class RateLimiterFilter implements GlobalFilter, Ordered {
         // 在认证过滤器之后执行
         return -90;
     }
-    
-    private Mono<Void> limitExceeded(ServerWebExchange exchange) {
-        ServerHttpResponse response = exchange.getResponse();
-        response.setStatusCode(HttpStatus.TOO_MANY_REQUESTS);
-        response.getHeaders().add("Content-Type", "application/json;charset=UTF-8");
-        
-        Map<String, Object> resultMap = new HashMap<>();
-        resultMap.put("code", HttpStatus.TOO_MANY_REQUESTS.value());
-        resultMap.put("message", "请求频率超限，请稍后再试");
-        resultMap.put("timestamp", System.currentTimeMillis());
-        
-        String resultJson = resultMap.toString();
-        DataBuffer buffer = response.bufferFactory().wrap(resultJson.getBytes(StandardCharsets.UTF_8));
-        
-        return response.writeWith(Mono.just(buffer));
-    }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,49 @@
+package org.example.gateway.filter;
+
+import org.example.gateway.metrics.GatewayLatencyRegistry;
+import org.example.gateway.metrics.LatencyProperties;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.core.Ordered;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+/**
+ * 路由耗时统计过滤器
+ * 紧接访问日志过滤器执行，按路由记录请求经过网关的总耗时（含写出响应体），被取消的请求不记录
+ */
+@Component
+public class RouteLatencyFilter implements GlobalFilter, Ordered {
+
+    private final LatencyProperties properties;
+
+    private final GatewayLatencyRegistry registry;
+
+    public RouteLatencyFilter(LatencyProperties properties, GatewayLatencyRegistry registry) {
+        this.properties = properties;
+        this.registry = registry;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        Route route = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+        if (route == null || !properties.isRoutesEnabled()) {
+            return chain.filter(exchange);
+        }
+        long start = System.nanoTime();
+        return chain.filter(exchange).doFinally(signal -> {
+            if (signal != SignalType.CANCEL) {
+                registry.recordRoute(route.getId(), System.nanoTime() - start);
+            }
+        });
+    }
+
+    @Override
+    public int getOrder() {
+        return Ordered.HIGHEST_PRECEDENCE + 1;
+    }
+}
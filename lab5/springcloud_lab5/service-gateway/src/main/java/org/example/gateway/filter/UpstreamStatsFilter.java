@@ -0,0 +1,106 @@
+package org.example.gateway.filter;
+
+import org.example.gateway.loadbalancer.InstanceLoad;
+import org.example.gateway.loadbalancer.InstanceLoadRegistry;
+import org.example.gateway.outlier.InstanceHealth;
+import org.example.gateway.outlier.OutlierDetector;
+import org.example.gateway.resilience.HedgingGatewayFilterFactory;
+import org.example.gateway.shedding.LoadShedder;
+import org.example.gateway.upstream.UpstreamPoolExhaustedException;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.core.Ordered;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+/**
+ * 上游实例转发结果统计过滤器
+ * 紧挨 NettyRoutingFilter 执行，按实际转发到的实例记录进行中请求数、收到响应头的耗时、响应状态与转发错误：
+ * 前两项交给 {@link InstanceLoadRegistry} 供负载均衡选择实例，后两项交给 {@link OutlierDetector} 判断是否摘除该实例，
+ * 耗时同时交给 {@link LoadShedder} 判断网关整体是否过载。
+ * 位于对冲过滤器之后，对冲请求也按其实例单独统计；被取消的转发（对冲落败、客户端断开）不计入延迟与错误，
+ * 网关本地连接池已满导致的失败也不计入错误。
+ * 本次转发的耗时与上游响应的 Content-Length 记录在 {@link #UPSTREAM_HOP_ATTR}，供限流过滤器估算请求成本，
+ * 重试或对冲时取最后一次成功的转发；未经负载均衡的路由同样记录。
+ */
+@Component
+public class UpstreamStatsFilter implements GlobalFilter, Ordered {
+
+    public static final int ORDER = HedgingGatewayFilterFactory.ORDER + 1;
+
+    // 本次请求转发到上游的结果，见 {@link UpstreamHop}
+    public static final String UPSTREAM_HOP_ATTR = UpstreamStatsFilter.class.getName() + ".hop";
+
+    private final OutlierDetector detector;
+
+    private final InstanceLoadRegistry loads;
+
+    private final LoadShedder shedder;
+
+    public UpstreamStatsFilter(OutlierDetector detector, InstanceLoadRegistry loads, LoadShedder shedder) {
+        this.detector = detector;
+        this.loads = loads;
+        this.shedder = shedder;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        Route route = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+        Response<ServiceInstance> selected = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_LOADBALANCER_RESPONSE_ATTR);
+        if (route == null) {
+            return chain.filter(exchange);
+        }
+        if (selected == null || !selected.hasServer()) {
+            long start = System.nanoTime();
+            return chain.filter(exchange).doOnSuccess(ignored -> recordHop(exchange, System.nanoTime() - start));
+        }
+        String serviceId = route.getUri().getHost();
+        InstanceHealth health = detector.isEnabled() ? detector.health(serviceId, selected.getServer()) : null;
+        InstanceLoad load = loads.get(selected.getServer());
+        long start = System.nanoTime();
+        load.start(start);
+        return chain.filter(exchange)
+                .doOnSuccess(ignored -> {
+                    long now = System.nanoTime();
+                    load.observe(now - start, now);
+                    recordHop(exchange, now - start);
+                    shedder.recordUpstreamLatency(route, now - start);
+                    if (health != null) {
+                        detector.onResponse(serviceId, health, exchange.getResponse().getStatusCode(), now - start);
+                    }
+                })
+                .doOnError(error -> {
+                    if (health != null && !(error instanceof UpstreamPoolExhaustedException)) {
+                        detector.onError(serviceId, health, error);
+                    }
+                })
+                .doFinally(signal -> load.finish());
+    }
+
+    /**
+     * 此时响应体尚未写出，响应头仍是上游的响应头，Content-Length 未被压缩过滤器移除
+     */
+    private static void recordHop(ServerWebExchange exchange, long latencyNanos) {
+        exchange.getAttributes().put(UPSTREAM_HOP_ATTR,
+                new UpstreamHop(latencyNanos, exchange.getResponse().getHeaders().getContentLength()));
+    }
+
+    /**
+     * 一次转发到上游的结果
+     *
+     * @param latencyNanos  从转发到收到上游响应头的耗时
+     * @param contentLength 上游响应的 Content-Length，未知时为-1
+     */
+    public record UpstreamHop(long latencyNanos, long contentLength) {
+    }
+
+    @Override
+    public int getOrder() {
+        return ORDER;
+    }
+}
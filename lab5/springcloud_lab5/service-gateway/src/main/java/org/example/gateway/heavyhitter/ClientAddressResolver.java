@@ -0,0 +1,172 @@
+package org.example.gateway.heavyhitter;
+
+import io.netty.util.NetUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.stereotype.Component;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 解析请求的客户端IP
+ * 连接来自 gateway.heavy-hitters.trusted-proxies 中的代理时，从右向左读取 X-Forwarded-For，
+ * 跳过同样受信任的代理，第一个不受信任的地址即为客户端IP；客户端自己伪造的、位于左侧的地址不会被采用。
+ * 未配置受信任代理时一律使用连接的对端地址：网关部署在负载均衡器之后时所有请求都会计为同一个客户端，
+ * 收到带 X-Forwarded-For 的请求时会记录一次警告。
+ * IP地址只按字面量解析，不会触发DNS查询。
+ */
+@Component
+@Slf4j
+public class ClientAddressResolver {
+
+    private static final String X_FORWARDED_FOR = "X-Forwarded-For";
+
+    // 最多检查的 X-Forwarded-For 地址数，避免超长请求头占用事件循环线程
+    private static final int MAX_HOPS = 16;
+
+    private final HeavyHitterProperties properties;
+
+    private final AtomicBoolean warned = new AtomicBoolean();
+
+    // 配置刷新后按新的列表重新解析
+    private volatile Trusted trusted;
+
+    public ClientAddressResolver(HeavyHitterProperties properties) {
+        this.properties = properties;
+        // 启动时校验配置，配置有误时启动失败
+        this.trusted = compile(properties.getTrustedProxies());
+    }
+
+    /**
+     * @return 客户端IP，没有连接地址时返回null
+     */
+    public String resolve(ServerHttpRequest request) {
+        InetSocketAddress remote = request.getRemoteAddress();
+        if (remote == null) {
+            return null;
+        }
+        String client = remote.getHostString();
+        List<Cidr> proxies = trusted().proxies;
+        if (proxies.isEmpty()) {
+            if (request.getHeaders().containsKey(X_FORWARDED_FOR) && warned.compareAndSet(false, true)) {
+                log.warn("收到带 {} 的请求，但未配置 gateway.heavy-hitters.trusted-proxies，客户端IP按连接地址统计",
+                        X_FORWARDED_FOR);
+            }
+            return client;
+        }
+        InetAddress address = remote.getAddress();
+        if (address == null || !isTrusted(proxies, address.getAddress())) {
+            return client;
+        }
+        List<String> values = request.getHeaders().get(X_FORWARDED_FOR);
+        if (values == null) {
+            return client;
+        }
+        int hops = 0;
+        for (int i = values.size() - 1; i >= 0; i--) {
+            String value = values.get(i);
+            int end = value.length();
+            while (end > 0) {
+                int start = value.lastIndexOf(',', end - 1) + 1;
+                String hop = value.substring(start, end).trim();
+                byte[] bytes = NetUtil.createByteArrayFromIpAddressString(hop);
+                // 无法解析的地址不是受信任代理写入的，停在最近一个有效的地址
+                if (bytes == null) {
+                    return client;
+                }
+                client = hop;
+                if (!isTrusted(proxies, bytes) || ++hops >= MAX_HOPS) {
+                    return client;
+                }
+                end = start - 1;
+            }
+        }
+        // 所有地址都是受信任的代理时取最左侧的地址
+        return client;
+    }
+
+    private Trusted trusted() {
+        Trusted current = trusted;
+        List<String> configured = properties.getTrustedProxies();
+        if (current.source == configured) {
+            return current;
+        }
+        try {
+            current = compile(configured);
+        } catch (IllegalArgumentException e) {
+            log.warn("刷新后的受信任代理配置无效，继续使用原配置: {}", e.getMessage());
+            current = new Trusted(configured, current.proxies);
+        }
+        trusted = current;
+        return current;
+    }
+
+    private static Trusted compile(List<String> configured) {
+        List<Cidr> proxies = new ArrayList<>(configured.size());
+        for (String entry : configured) {
+            proxies.add(Cidr.parse(entry));
+        }
+        return new Trusted(configured, List.copyOf(proxies));
+    }
+
+    private static boolean isTrusted(List<Cidr> proxies, byte[] address) {
+        for (Cidr proxy : proxies) {
+            if (proxy.contains(address)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private record Trusted(List<String> source, List<Cidr> proxies) {
+    }
+
+    /**
+     * 受信任代理的地址段，如 10.0.0.0/8、::1
+     */
+    private record Cidr(byte[] network, int prefix) {
+
+        static Cidr parse(String entry) {
+            String text = entry.trim();
+            int slash = text.indexOf('/');
+            byte[] network = NetUtil.createByteArrayFromIpAddressString(slash < 0 ? text : text.substring(0, slash));
+            if (network == null) {
+                throw new IllegalArgumentException("受信任代理不是合法的IP地址或地址段: " + entry);
+            }
+            int prefix = network.length * 8;
+            if (slash >= 0) {
+                try {
+                    prefix = Integer.parseInt(text.substring(slash + 1));
+                } catch (NumberFormatException e) {
+                    prefix = -1;
+                }
+                if (prefix < 0 || prefix > network.length * 8) {
+                    throw new IllegalArgumentException("受信任代理的前缀长度无效: " + entry);
+                }
+            }
+            return new Cidr(network, prefix);
+        }
+
+        boolean contains(byte[] address) {
+            if (address.length != network.length) {
+                return false;
+            }
+            int bytes = prefix / 8;
+            for (int i = 0; i < bytes; i++) {
+                if (address[i] != network[i]) {
+                    return false;
+                }
+            }
+            int bits = prefix % 8;
+            if (bits == 0) {
+                return true;
+            }
+            int mask = 0xff << (8 - bits);
+            return (address[bytes] & mask) == (network[bytes] & mask);
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package org.example.gateway.heavyhitter;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 并发的 Count-Min 草图：固定内存估算任意多个键的出现次数，只会高估不会低估
+ * 每行用不同的哈希选取一个计数器，估算值取各行计数的最小值；计数器通过原子自增更新，不加锁。
+ * 键先按每个进程随机的种子计算64位哈希，各行再用不同种子混合，客户端无法事先构造在所有行同时冲突的键。
+ */
+final class CountMinSketch {
+
+    // 各行哈希的种子间隔（黄金分割数）
+    private static final long SEED = 0x9e3779b97f4a7c15L;
+
+    private static final long C1 = 0x87c37b91114253d5L;
+
+    private static final long C2 = 0x4cf5ad432745937fL;
+
+    // 键哈希的随机种子
+    private final long seed = ThreadLocalRandom.current().nextLong();
+
+    private final int depth;
+
+    private final int mask;
+
+    private final AtomicLongArray counters;
+
+    CountMinSketch(int depth, int width) {
+        if (Integer.bitCount(width) != 1) {
+            throw new IllegalArgumentException("Count-Min 草图宽度必须是2的幂: " + width);
+        }
+        this.depth = depth;
+        this.mask = width - 1;
+        this.counters = new AtomicLongArray(depth * width);
+    }
+
+    /**
+     * 计数加一
+     *
+     * @return 加一后的估算次数
+     */
+    long increment(String key) {
+        long hash = hash(key);
+        long min = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            int index = (int) mix(hash + (row + 1) * SEED) & mask;
+            min = Math.min(min, counters.incrementAndGet(row * (mask + 1) + index));
+        }
+        return min;
+    }
+
+    /**
+     * 所有计数减半，与并发的自增互不覆盖
+     */
+    void halve() {
+        for (int i = 0, length = counters.length(); i < length; i++) {
+            long value;
+            do {
+                value = counters.get(i);
+            } while (value != 0 && !counters.compareAndSet(i, value, value >> 1));
+        }
+    }
+
+    /**
+     * 占用的计数器字节数
+     */
+    long bytes() {
+        return (long) counters.length() * Long.BYTES;
+    }
+
+    // 按 MurmurHash3 的方式逐个混入字符，不分配字节数组
+    private long hash(String key) {
+        long hash = seed ^ key.length();
+        for (int i = 0, length = key.length(); i < length; i++) {
+            hash ^= Long.rotateLeft(key.charAt(i) * C1, 31) * C2;
+            hash = Long.rotateLeft(hash, 27) * 5 + 0x52dce729;
+        }
+        return mix(hash);
+    }
+
+    // MurmurHash3 的64位最终混合步骤；每行用不同种子各自混合，只有64位哈希完全相同的键才会在所有行同时冲突
+    private static long mix(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -0,0 +1,27 @@
+package org.example.gateway.heavyhitter;
+
+import java.util.Locale;
+
+/**
+ * 高频访问者的统计维度
+ */
+public enum Dimension {
+
+    // 客户端IP
+    CLIENT,
+
+    // 令牌主体，未认证的请求不统计
+    PRINCIPAL,
+
+    // 请求路径
+    PATH;
+
+    private final String id = name().toLowerCase(Locale.ROOT);
+
+    /**
+     * 用于端点输出与指标标签的小写名称
+     */
+    public String id() {
+        return id;
+    }
+}
@@ -0,0 +1,26 @@
+package org.example.gateway.heavyhitter;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * 高频访问者监控端点，访问 /actuator/gatewayheavyhitters 查看各维度访问量最大的客户端IP、令牌主体与路径
+ */
+@Component
+@Endpoint(id = "gatewayheavyhitters")
+public class GatewayHeavyHitterEndpoint {
+
+    private final HeavyHitterRegistry registry;
+
+    public GatewayHeavyHitterEndpoint(HeavyHitterRegistry registry) {
+        this.registry = registry;
+    }
+
+    @ReadOperation
+    public Map<String, Object> heavyHitters() {
+        return registry.snapshot();
+    }
+}
@@ -0,0 +1,60 @@
+package org.example.gateway.heavyhitter;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 高频访问者统计配置
+ * 按客户端IP、令牌主体与请求路径分别统计访问量最大的前K个键，计数每个衰减周期
+ * （gateway.heavy-hitters.decay-interval，毫秒）减半，反映的是最近一段时间的流量。
+ */
+@Data
+@ConfigurationProperties(prefix = "gateway.heavy-hitters")
+public class HeavyHitterProperties {
+
+    private boolean enabled = true;
+
+    // 每个维度保留的高频键数量
+    private int topK = 20;
+
+    // Count-Min 草图的行数，行数越多误差概率越小
+    private int depth = 4;
+
+    // Count-Min 草图每行的计数器数，取2的幂，越大高估越少
+    private int width = 2048;
+
+    // 受信任的反向代理地址或地址段，如 10.0.0.0/8；连接来自这些地址时按 X-Forwarded-For 确定客户端IP，
+    // 为空时客户端IP取连接的对端地址
+    private List<String> trustedProxies = new ArrayList<>();
+
+    // 自动限制高频访问者
+    private Throttle throttle = new Throttle();
+
+    /**
+     * 对当前高频访问者的自动限流，由 RateLimiterFilter 执行
+     */
+    @Data
+    public static class Throttle {
+
+        private boolean enabled = false;
+
+        // 参与自动限流的维度，路径维度已由限流规则覆盖，默认不参与
+        private List<Dimension> dimensions = new ArrayList<>(List.of(Dimension.CLIENT, Dimension.PRINCIPAL));
+
+        // 衰减后的计数占该维度总量的比例达到该值才视为高频访问者
+        private double minShare = 0.2;
+
+        // 衰减后的计数达到该值才视为高频访问者，避免流量很小时误判
+        private long minCount = 200;
+
+        // 高频访问者每个周期允许的请求数
+        private int limit = 20;
+
+        // 周期
+        private Duration period = Duration.ofSeconds(1);
+    }
+}
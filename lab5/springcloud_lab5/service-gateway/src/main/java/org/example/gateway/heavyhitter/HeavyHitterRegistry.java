@@ -0,0 +1,161 @@
+package org.example.gateway.heavyhitter;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 网关的高频访问者统计
+ * 每个维度一个 {@link TopKTracker}，请求线程只做原子自增；衰减周期结束时按自动限流配置
+ * 重新计算各维度当前的高频访问者，以不可变集合原子替换，请求线程判断是否限流时只查集合。
+ */
+@Component
+@Slf4j
+public class HeavyHitterRegistry {
+
+    private static final Dimension[] DIMENSIONS = Dimension.values();
+
+    private final HeavyHitterProperties properties;
+
+    private final Map<Dimension, TopKTracker> trackers = new EnumMap<>(Dimension.class);
+
+    private final Map<Dimension, Counter> throttled = new EnumMap<>(Dimension.class);
+
+    // 各维度当前被自动限流的键
+    private volatile Map<Dimension, Set<String>> offenders = Map.of();
+
+    private volatile long lastDecayAt = System.nanoTime();
+
+    // 最近一个衰减周期的长度，用于把衰减后的计数换算为每秒请求数
+    private volatile long decayPeriodNanos;
+
+    public HeavyHitterRegistry(HeavyHitterProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        for (Dimension dimension : DIMENSIONS) {
+            trackers.put(dimension, new TopKTracker(properties.getDepth(), properties.getWidth(), properties.getTopK()));
+            throttled.put(dimension, Counter.builder("gateway.heavyhitters.throttled")
+                    .description("被自动限流拒绝的高频访问者请求数")
+                    .tag("dimension", dimension.id())
+                    .register(meterRegistry));
+        }
+        Gauge.builder("gateway.heavyhitters.offenders", this, registry -> registry.offenderCount())
+                .description("当前被自动限流的高频访问者数量")
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    public void record(Dimension dimension, String key) {
+        if (key != null) {
+            trackers.get(dimension).record(key);
+        }
+    }
+
+    /**
+     * 键是否为当前被自动限流的高频访问者
+     */
+    public boolean isOffender(Dimension dimension, String key) {
+        Set<String> keys = offenders.get(dimension);
+        return keys != null && key != null && keys.contains(key);
+    }
+
+    public void onThrottled(Dimension dimension) {
+        throttled.get(dimension).increment();
+    }
+
+    public HeavyHitterProperties.Throttle throttle() {
+        return properties.getThrottle();
+    }
+
+    /**
+     * 衰减所有计数，并重新计算高频访问者
+     */
+    @Scheduled(fixedDelayString = "${gateway.heavy-hitters.decay-interval:10000}")
+    public void decay() {
+        long now = System.nanoTime();
+        decayPeriodNanos = now - lastDecayAt;
+        lastDecayAt = now;
+        for (TopKTracker tracker : trackers.values()) {
+            tracker.decay();
+        }
+        HeavyHitterProperties.Throttle throttle = properties.getThrottle();
+        if (!properties.isEnabled() || !throttle.isEnabled()) {
+            offenders = Map.of();
+            return;
+        }
+        Map<Dimension, Set<String>> next = new EnumMap<>(Dimension.class);
+        for (Dimension dimension : throttle.getDimensions()) {
+            TopKTracker tracker = trackers.get(dimension);
+            long threshold = Math.max(throttle.getMinCount(), (long) Math.ceil(tracker.total() * throttle.getMinShare()));
+            List<String> keys = new ArrayList<>();
+            for (TopKTracker.Candidate candidate : tracker.top()) {
+                if (candidate.count >= threshold) {
+                    keys.add(candidate.key);
+                }
+            }
+            if (!keys.isEmpty()) {
+                next.put(dimension, Set.copyOf(keys));
+            }
+        }
+        if (!next.equals(offenders)) {
+            log.info("高频访问者自动限流名单更新: {}", next);
+        }
+        offenders = Map.copyOf(next);
+    }
+
+    /**
+     * 各维度计数最大的键、占比与估算速率
+     */
+    public Map<String, Object> snapshot() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("enabled", properties.isEnabled());
+        result.put("throttling", properties.getThrottle().isEnabled());
+        // 计数每个周期减半，稳定速率 r 下计数趋近 2 × r × 周期
+        double period = decayPeriodNanos > 0 ? decayPeriodNanos / 1e9 : 0;
+        long bytes = 0;
+        for (Dimension dimension : DIMENSIONS) {
+            TopKTracker tracker = trackers.get(dimension);
+            bytes += tracker.sketchBytes();
+            long total = tracker.total();
+            List<Map<String, Object>> top = new ArrayList<>();
+            for (TopKTracker.Candidate candidate : tracker.top()) {
+                long count = candidate.count;
+                Map<String, Object> entry = new LinkedHashMap<>();
+                entry.put("key", candidate.key);
+                entry.put("count", count);
+                entry.put("share", total > 0 ? Math.round(count * 1000.0 / total) / 1000.0 : 0);
+                if (period > 0) {
+                    entry.put("ratePerSecond", Math.round(count / (2 * period) * 10) / 10.0);
+                }
+                entry.put("throttled", isOffender(dimension, candidate.key));
+                top.add(entry);
+            }
+            Map<String, Object> summary = new LinkedHashMap<>();
+            summary.put("total", total);
+            summary.put("top", top);
+            result.put(dimension.id(), summary);
+        }
+        result.put("sketchBytes", bytes);
+        return result;
+    }
+
+    private int offenderCount() {
+        int count = 0;
+        for (Set<String> keys : offenders.values()) {
+            count += keys.size();
+        }
+        return count;
+    }
+}
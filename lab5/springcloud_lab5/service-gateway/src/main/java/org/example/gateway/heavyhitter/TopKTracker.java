@@ -0,0 +1,140 @@
+package org.example.gateway.heavyhitter;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 单个维度的高频键统计：Count-Min 草图估算每个键的次数，另外保留一份容量固定的候选集记录当前次数最大的键
+ * 已在候选集中的键只更新其计数；新键的估算次数超过候选集中的最小值时才尝试替换最小的候选，
+ * 替换用 tryLock 完成，锁被占用时直接放弃本次替换，请求线程从不等待。
+ * 衰减时草图、候选计数与总量同时减半。
+ */
+final class TopKTracker {
+
+    private static final Comparator<Candidate> BY_COUNT_DESC =
+            Comparator.comparingLong((Candidate candidate) -> candidate.count).reversed();
+
+    private final CountMinSketch sketch;
+
+    private final int topK;
+
+    // 候选集容量，大于 topK 以减少排名边缘的键反复进出
+    private final int capacity;
+
+    private final Map<String, Candidate> candidates = new ConcurrentHashMap<>();
+
+    private final ReentrantLock admission = new ReentrantLock();
+
+    // 候选集已满时其中的最小计数，估算次数不超过该值的新键不尝试进入候选集
+    private volatile long floor;
+
+    // 上次衰减以来的请求数
+    private final LongAdder recent = new LongAdder();
+
+    // 截至上次衰减、已减半的请求总量
+    private final AtomicLong decayed = new AtomicLong();
+
+    TopKTracker(int depth, int width, int topK) {
+        this.sketch = new CountMinSketch(depth, width);
+        this.topK = topK;
+        this.capacity = topK * 2;
+    }
+
+    void record(String key) {
+        recent.increment();
+        long estimate = sketch.increment(key);
+        Candidate candidate = candidates.get(key);
+        if (candidate != null) {
+            candidate.count = estimate;
+            return;
+        }
+        if (estimate <= floor || !admission.tryLock()) {
+            return;
+        }
+        try {
+            if (candidates.size() < capacity) {
+                candidates.putIfAbsent(key, new Candidate(key, estimate));
+            } else {
+                Candidate min = min();
+                if (min != null && estimate > min.count) {
+                    candidates.remove(min.key);
+                    candidates.put(key, new Candidate(key, estimate));
+                }
+            }
+            updateFloor();
+        } finally {
+            admission.unlock();
+        }
+    }
+
+    /**
+     * 所有计数减半，计数降为0的候选移出候选集
+     */
+    void decay() {
+        sketch.halve();
+        decayed.set((decayed.get() + recent.sumThenReset()) / 2);
+        admission.lock();
+        try {
+            candidates.values().removeIf(candidate -> (candidate.count >>= 1) == 0);
+            updateFloor();
+        } finally {
+            admission.unlock();
+        }
+    }
+
+    /**
+     * 衰减后的请求总量
+     */
+    long total() {
+        return decayed.get() + recent.sum();
+    }
+
+    /**
+     * 计数最大的前K个键，按计数从大到小排列
+     */
+    List<Candidate> top() {
+        List<Candidate> sorted = new ArrayList<>(candidates.values());
+        sorted.sort(BY_COUNT_DESC);
+        return sorted.size() > topK ? List.copyOf(sorted.subList(0, topK)) : sorted;
+    }
+
+    long sketchBytes() {
+        return sketch.bytes();
+    }
+
+    private Candidate min() {
+        Candidate min = null;
+        for (Candidate candidate : candidates.values()) {
+            if (min == null || candidate.count < min.count) {
+                min = candidate;
+            }
+        }
+        return min;
+    }
+
+    private void updateFloor() {
+        Candidate min = candidates.size() < capacity ? null : min();
+        floor = min != null ? min.count : 0;
+    }
+
+    /**
+     * 候选键与其估算计数
+     */
+    static final class Candidate {
+
+        final String key;
+
+        volatile long count;
+
+        Candidate(String key, long count) {
+            this.key = key;
+            this.count = count;
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package org.example.gateway.limiter;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.cloud.client.serviceregistry.Registration;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 集群限流协调器
+ * 通过Eureka发现其他网关实例，周期性拉取各实例每个限流键的累计请求数，
+ * 按各实例最近的请求量占比分配全局配额。请求路径上只读取本地份额，不产生网络调用。
+ * 同步过程不阻塞调度线程：拉取完成后在弹性线程上重新分配份额，上一轮未结束时跳过本轮。
+ */
+@Component
+@ConditionalOnProperty(prefix = "gateway.rate-limiter.cluster", name = "enabled", havingValue = "true")
+@Slf4j
+public class ClusterQuotaCoordinator {
+
+    // 用量交换接口路径
+    static final String USAGE_PATH = "/internal/ratelimit/usage";
+
+    // 本节点在用量表中的标识
+    private static final String LOCAL = "local";
+
+    private static final ParameterizedTypeReference<Map<String, Long>> USAGE_TYPE = new ParameterizedTypeReference<>() {
+    };
+
+    private final GcraRateLimiter rateLimiter;
+
+    private final RateLimiterProperties properties;
+
+    private final DiscoveryClient discoveryClient;
+
+    private final ObjectProvider<Registration> registration;
+
+    private final WebClient webClient;
+
+    @Value("${spring.application.name}")
+    private String serviceId;
+
+    // 上一轮同步时各节点的累计请求数：节点 -> (限流键 -> 累计数)
+    private final Map<String, Map<String, Long>> lastCounts = new HashMap<>();
+
+    // 平滑后的各节点每轮请求数：节点 -> (限流键 -> 请求数)
+    private final Map<String, Map<String, Double>> rates = new HashMap<>();
+
+    // 是否有一轮同步正在进行，同一时刻只有一轮同步读写上面两张表
+    private final AtomicBoolean syncing = new AtomicBoolean();
+
+    public ClusterQuotaCoordinator(GcraRateLimiter rateLimiter, RateLimiterProperties properties,
+                                   DiscoveryClient discoveryClient, ObjectProvider<Registration> registration,
+                                   WebClient.Builder webClientBuilder) {
+        this.rateLimiter = rateLimiter;
+        this.properties = properties;
+        this.discoveryClient = discoveryClient;
+        this.registration = registration;
+        this.webClient = webClientBuilder.build();
+    }
+
+    /**
+     * 同步集群用量并重新分配份额；拉取在后台进行，调度线程立即返回
+     */
+    @Scheduled(fixedDelayString = "${gateway.rate-limiter.cluster.sync-interval:1000}")
+    public void synchronize() {
+        List<ServiceInstance> peers = peers();
+        if (!syncing.compareAndSet(false, true)) {
+            log.debug("上一轮限流用量同步尚未结束，跳过本轮");
+            return;
+        }
+        Map<String, Map<String, Long>> counts = new ConcurrentHashMap<>();
+        counts.put(LOCAL, rateLimiter.usageSnapshot());
+        Set<String> members = new HashSet<>();
+        members.add(LOCAL);
+        peers.forEach(peer -> members.add(peer.getInstanceId()));
+        Flux.fromIterable(peers)
+                .flatMap(peer -> fetchUsage(peer).doOnNext(usage -> counts.put(peer.getInstanceId(), usage)))
+                .then()
+                .publishOn(Schedulers.boundedElastic())
+                .then(Mono.fromRunnable(() -> rebalance(counts, members)))
+                .doFinally(signal -> syncing.set(false))
+                .subscribe(null, error -> log.warn("限流用量同步失败", error));
+    }
+
+    /**
+     * 请求方是否为当前注册的其他网关实例，用量交换接口只对它们开放
+     */
+    boolean isPeer(InetSocketAddress remote) {
+        InetAddress address = remote != null ? remote.getAddress() : null;
+        if (address == null) {
+            return false;
+        }
+        String ip = address.getHostAddress();
+        for (ServiceInstance peer : peers()) {
+            if (ip.equals(peer.getHost())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private List<ServiceInstance> peers() {
+        Registration self = registration.getIfAvailable();
+        String selfId = self != null ? self.getInstanceId() : null;
+        List<ServiceInstance> peers = new ArrayList<>();
+        for (ServiceInstance instance : discoveryClient.getInstances(serviceId)) {
+            if (!instance.getInstanceId().equals(selfId)) {
+                peers.add(instance);
+            }
+        }
+        return peers;
+    }
+
+    private Mono<Map<String, Long>> fetchUsage(ServiceInstance peer) {
+        return webClient.get()
+                .uri(peer.getUri().resolve(USAGE_PATH))
+                .retrieve()
+                .bodyToMono(USAGE_TYPE)
+                .timeout(properties.getCluster().getSyncTimeout())
+                .onErrorResume(e -> {
+                    // 拉取失败时沿用该节点上一轮的速率
+                    log.debug("拉取网关实例 {} 的限流用量失败: {}", peer.getInstanceId(), e.toString());
+                    return Mono.empty();
+                });
+    }
+
+    /**
+     * 根据本轮各节点的累计请求数更新速率，并计算本节点份额
+     *
+     * @param counts  本轮拉取到的累计请求数，拉取失败的节点不在其中
+     * @param members 当前集群成员，包括本节点
+     */
+    void rebalance(Map<String, Map<String, Long>> counts, Set<String> members) {
+        double alpha = properties.getCluster().getSmoothing();
+        lastCounts.keySet().retainAll(members);
+        rates.keySet().retainAll(members);
+
+        counts.forEach((node, usage) -> {
+            Map<String, Long> previous = lastCounts.getOrDefault(node, Map.of());
+            Map<String, Double> oldRates = rates.getOrDefault(node, Map.of());
+            Map<String, Double> newRates = new HashMap<>();
+            usage.forEach((key, count) -> {
+                // 首次出现的键没有基准，本轮增量按0处理；计数回退说明键被淘汰后重建
+                long delta = Math.max(0, count - previous.getOrDefault(key, count));
+                newRates.put(key, alpha * delta + (1 - alpha) * oldRates.getOrDefault(key, 0.0));
+            });
+            lastCounts.put(node, usage);
+            rates.put(node, newRates);
+        });
+
+        // 每个键的份额 = (本节点速率 + 1) / (集群总速率 + 节点数)，所有节点份额之和为1
+        int clusterSize = members.size();
+        Map<String, Double> local = rates.getOrDefault(LOCAL, Map.of());
+        Map<String, Double> shares = new HashMap<>();
+        local.forEach((key, localRate) -> {
+            double total = 0;
+            for (Map<String, Double> nodeRates : rates.values()) {
+                total += nodeRates.getOrDefault(key, 0.0);
+            }
+            shares.put(key, (localRate + 1) / (total + clusterSize));
+        });
+        rateLimiter.applyShares(shares, 1.0 / clusterSize);
+    }
+}
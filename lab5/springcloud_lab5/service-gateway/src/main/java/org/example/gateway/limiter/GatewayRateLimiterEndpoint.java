@@ -0,0 +1,36 @@
+package org.example.gateway.limiter;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * 限流器监控端点，访问 /actuator/gatewayratelimiter 查看键表容量、内存占用与各接口的估算请求成本
+ */
+@Component
+@Endpoint(id = "gatewayratelimiter")
+public class GatewayRateLimiterEndpoint {
+
+    private final GcraRateLimiter rateLimiter;
+
+    private final RouteLimitRegistry routeLimits;
+
+    private final RequestCostEstimator costs;
+
+    public GatewayRateLimiterEndpoint(GcraRateLimiter rateLimiter, RouteLimitRegistry routeLimits,
+                                      RequestCostEstimator costs) {
+        this.rateLimiter = rateLimiter;
+        this.routeLimits = routeLimits;
+        this.costs = costs;
+    }
+
+    @ReadOperation
+    public Map<String, Object> footprint() {
+        Map<String, Object> result = rateLimiter.footprint();
+        result.put("rules", routeLimits.current().size());
+        result.put("costs", costs.snapshot());
+        return result;
+    }
+}
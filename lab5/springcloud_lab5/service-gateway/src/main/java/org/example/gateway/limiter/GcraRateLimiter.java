@@ -0,0 +1,241 @@
+package org.example.gateway.limiter;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * 基于GCRA（通用信元速率算法）的限流引擎
+ * 每个键只保存一个"理论到达时间"，等价于平滑的滑动窗口，不存在固定窗口边界处的突发放行问题。
+ * 计数通过CAS无锁更新，已存在键的判定路径不分配对象；键表有容量上限并按空闲时间淘汰。
+ * 集群模式下每个键按本节点份额缩放速率，份额由 {@link ClusterQuotaCoordinator} 周期性调整；
+ * 本节点每周期分得的配额可以不足1个请求（如阈值小于实例数时），此时按相应更长的间隔放行，各节点合计不超过阈值。
+ */
+@Component
+@Slf4j
+public class GcraRateLimiter {
+
+    // 单个键的估算内存占用：Map节点 + 桶对象 + 计数器 + 字符串对象头
+    private static final long ENTRY_OVERHEAD_BYTES = 32 + 48 + 48 + 40;
+
+    // 份额极小时请求间隔的上限（周期数），避免间隔溢出或长时间完全拒绝
+    private static final long MAX_INTERVAL_PERIODS = 64;
+
+    private final RateLimiterProperties properties;
+
+    // 纳秒时钟，测试中可替换
+    private final LongSupplier ticker;
+
+    private final Map<String, Bucket> buckets = new ConcurrentHashMap<>();
+
+    private final AtomicInteger size = new AtomicInteger();
+
+    // 键表已满时新键使用的溢出桶，按阈值与周期区分，溢出的键仍按各自规则的阈值限流
+    private final Map<OverflowKey, Bucket> overflows = new ConcurrentHashMap<>();
+
+    private final LongAdder evictions = new LongAdder();
+
+    private final LongAdder overflowHits = new LongAdder();
+
+    // 新键的默认份额，单机时为1，集群时为 1/实例数
+    private volatile double defaultShare = 1.0;
+
+    @Autowired
+    public GcraRateLimiter(RateLimiterProperties properties) {
+        this(properties, System::nanoTime);
+    }
+
+    GcraRateLimiter(RateLimiterProperties properties, LongSupplier ticker) {
+        this.properties = properties;
+        this.ticker = ticker;
+    }
+
+    /**
+     * 尝试为指定键获取一个许可
+     *
+     * @param key         限流键（路由模板）
+     * @param limit       每个周期允许的请求数
+     * @param periodNanos 周期长度，单位纳秒
+     * @return 是否放行
+     */
+    public boolean tryAcquire(String key, int limit, long periodNanos) {
+        return tryAcquire(key, limit, periodNanos, 1.0);
+    }
+
+    /**
+     * 尝试为指定键扣除指定成本的额度
+     * 成本为N的请求占用N个请求的时间间隔，额度将满时高成本请求先被拒绝，低成本请求仍可通过；
+     * 成本超过整个周期额度的请求只在额度完全空闲时放行，不会永远被拒绝。
+     *
+     * @param key         限流键（路由模板）
+     * @param limit       每个周期的额度
+     * @param periodNanos 周期长度，单位纳秒
+     * @param cost        本次请求的成本
+     * @return 是否放行
+     */
+    public boolean tryAcquire(String key, int limit, long periodNanos, double cost) {
+        if (limit <= 0) {
+            return false;
+        }
+        long now = ticker.getAsLong();
+        Bucket bucket = buckets.get(key);
+        if (bucket == null) {
+            bucket = createBucket(key, limit, periodNanos, now);
+        }
+        bucket.lastAccess = now;
+        // 用量按成本累计，集群模式下按成本分配份额
+        bucket.attempts.add(Math.max(1, Math.round(cost)));
+
+        // 每个请求占用的时间间隔；允许的突发量等于一个周期内本节点分得的配额，配额不足1个时为单个请求
+        double quota = limit * bucket.share;
+        long interval = quota * MAX_INTERVAL_PERIODS >= 1
+                ? (long) (periodNanos / quota) : periodNanos * MAX_INTERVAL_PERIODS;
+        long tolerance = Math.max(periodNanos, interval);
+        long charge = (long) Math.min(interval * cost, tolerance);
+        while (true) {
+            long tat = bucket.tat;
+            long newTat = Math.max(tat, now) + charge;
+            if (newTat - now > tolerance) {
+                return false;
+            }
+            if (Bucket.TAT.compareAndSet(bucket, tat, newTat)) {
+                return true;
+            }
+        }
+    }
+
+    private Bucket createBucket(String key, int limit, long periodNanos, long now) {
+        if (size.get() >= properties.getMaxKeys()) {
+            return overflow(limit, periodNanos, now);
+        }
+        Bucket created = new Bucket(now);
+        created.share = defaultShare;
+        Bucket existing = buckets.putIfAbsent(key, created);
+        if (existing != null) {
+            return existing;
+        }
+        if (size.incrementAndGet() > properties.getMaxKeys()) {
+            // 并发创建导致超出容量，回退到溢出桶
+            buckets.remove(key, created);
+            size.decrementAndGet();
+            return overflow(limit, periodNanos, now);
+        }
+        return created;
+    }
+
+    /**
+     * 阈值与周期相同的溢出键共用一个桶；不同的阈值与周期只有规则数量那么多，溢出桶的数量有上限
+     */
+    private Bucket overflow(int limit, long periodNanos, long now) {
+        overflowHits.increment();
+        return overflows.computeIfAbsent(new OverflowKey(limit, periodNanos), k -> {
+            Bucket bucket = new Bucket(now);
+            bucket.share = defaultShare;
+            return bucket;
+        });
+    }
+
+    /**
+     * 定期淘汰空闲的限流键
+     */
+    @Scheduled(fixedDelayString = "${gateway.rate-limiter.eviction-interval:30000}")
+    public void evictIdle() {
+        long deadline = ticker.getAsLong() - properties.getIdleTimeout().toNanos();
+        int removed = 0;
+        Iterator<Map.Entry<String, Bucket>> iterator = buckets.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, Bucket> entry = iterator.next();
+            if (entry.getValue().lastAccess - deadline < 0) {
+                iterator.remove();
+                size.decrementAndGet();
+                removed++;
+            }
+        }
+        // 规则调整后不再使用的溢出桶
+        overflows.values().removeIf(bucket -> bucket.lastAccess - deadline < 0);
+        if (removed > 0) {
+            evictions.add(removed);
+            log.debug("淘汰空闲限流键 {} 个，剩余 {} 个", removed, size.get());
+        }
+    }
+
+    /**
+     * 各限流键的累计用量（按成本计，含被拒绝的请求），用于集群间交换用量
+     */
+    public Map<String, Long> usageSnapshot() {
+        Map<String, Long> result = new LinkedHashMap<>();
+        buckets.forEach((key, bucket) -> result.put(key, bucket.attempts.sum()));
+        return result;
+    }
+
+    /**
+     * 更新各限流键在全局配额中的份额
+     *
+     * @param shares       限流键 -> 本节点份额
+     * @param defaultShare 未出现在 shares 中的键使用的份额
+     */
+    public void applyShares(Map<String, Double> shares, double defaultShare) {
+        this.defaultShare = defaultShare;
+        buckets.forEach((key, bucket) -> bucket.share = shares.getOrDefault(key, defaultShare));
+        overflows.values().forEach(bucket -> bucket.share = defaultShare);
+    }
+
+    /**
+     * 限流键表的内存占用情况
+     */
+    public Map<String, Object> footprint() {
+        long bytes = 0;
+        for (String key : buckets.keySet()) {
+            bytes += ENTRY_OVERHEAD_BYTES + key.length();
+        }
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("keys", size.get());
+        result.put("maxKeys", properties.getMaxKeys());
+        result.put("estimatedBytes", bytes);
+        result.put("evictions", evictions.sum());
+        result.put("overflowHits", overflowHits.sum());
+        result.put("overflowBuckets", overflows.size());
+        return result;
+    }
+
+    /**
+     * 溢出桶的键
+     */
+    private record OverflowKey(int limit, long periodNanos) {
+    }
+
+    /**
+     * 单个限流键的状态
+     */
+    static final class Bucket {
+
+        static final AtomicLongFieldUpdater<Bucket> TAT = AtomicLongFieldUpdater.newUpdater(Bucket.class, "tat");
+
+        // 理论到达时间
+        volatile long tat;
+
+        // 最近访问时间，用于空闲淘汰
+        volatile long lastAccess;
+
+        // 本节点在全局配额中的份额
+        volatile double share = 1.0;
+
+        // 累计用量，按成本计
+        final LongAdder attempts = new LongAdder();
+
+        Bucket(long now) {
+            this.tat = now;
+            this.lastAccess = now;
+        }
+    }
+}
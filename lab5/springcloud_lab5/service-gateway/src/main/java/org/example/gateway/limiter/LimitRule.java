@@ -0,0 +1,43 @@
+package org.example.gateway.limiter;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+
+/**
+ * 编译后的单条限流规则，不可变
+ */
+@Getter
+public final class LimitRule {
+
+    // 限流键，即规则的路径模式；默认规则为null，由调用方按路由ID限流
+    private final String key;
+
+    // 每个周期允许的请求数
+    private final int limit;
+
+    // 周期长度，单位纳秒
+    private final long periodNanos;
+
+    // 每个请求消耗的额度，0表示未配置，由调用方按路由元数据或实测成本决定
+    private final double cost;
+
+    // 匹配时的具体程度：模式段数（不含末尾的 **）× 2，完全匹配再加1；多条规则同时匹配时取最大者
+    @Getter(AccessLevel.NONE)
+    final int specificity;
+
+    LimitRule(String key, int limit, long periodNanos, double cost, int specificity) {
+        this.key = key;
+        this.limit = limit;
+        this.periodNanos = periodNanos;
+        this.cost = cost;
+        this.specificity = specificity;
+    }
+
+    public boolean isDefault() {
+        return key == null;
+    }
+
+    public boolean hasCost() {
+        return cost > 0;
+    }
+}
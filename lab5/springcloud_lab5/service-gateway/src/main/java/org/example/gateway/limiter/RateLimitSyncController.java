@@ -0,0 +1,36 @@
+package org.example.gateway.limiter;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.Map;
+
+/**
+ * 集群限流用量交换接口，供其他网关实例拉取本节点各限流键的累计请求数
+ * 只接受来自注册中心中其他网关实例IP的请求（需要 eureka.instance.prefer-ip-address: true），其余返回403。
+ */
+@RestController
+@ConditionalOnProperty(prefix = "gateway.rate-limiter.cluster", name = "enabled", havingValue = "true")
+public class RateLimitSyncController {
+
+    private final GcraRateLimiter rateLimiter;
+
+    private final ClusterQuotaCoordinator coordinator;
+
+    public RateLimitSyncController(GcraRateLimiter rateLimiter, ClusterQuotaCoordinator coordinator) {
+        this.rateLimiter = rateLimiter;
+        this.coordinator = coordinator;
+    }
+
+    @GetMapping(ClusterQuotaCoordinator.USAGE_PATH)
+    public Map<String, Long> usage(ServerHttpRequest request) {
+        if (!coordinator.isPeer(request.getRemoteAddress())) {
+            throw new ResponseStatusException(HttpStatus.FORBIDDEN);
+        }
+        return rateLimiter.usageSnapshot();
+    }
+}
@@ -0,0 +1,104 @@
+package org.example.gateway.limiter;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 网关限流配置
+ */
+@Data
+@ConfigurationProperties(prefix = "gateway.rate-limiter")
+public class RateLimiterProperties {
+
+    // 默认限流阈值 - 每个窗口周期允许的请求数
+    private int defaultLimit = 100;
+
+    // 窗口周期
+    private Duration period = Duration.ofSeconds(60);
+
+    // 特定路径的限流规则，编译为 {@link RouteLimitIndex} 后按最长匹配生效
+    private List<Rule> rules = new ArrayList<>();
+
+    // 限流键表的最大容量，超出后新键共用溢出桶
+    private int maxKeys = 10000;
+
+    // 键空闲超过该时长后被淘汰
+    private Duration idleTimeout = Duration.ofMinutes(10);
+
+    // 集群限流配置
+    private Cluster cluster = new Cluster();
+
+    // 请求成本配置
+    private Cost cost = new Cost();
+
+    /**
+     * 单条限流规则
+     */
+    @Data
+    public static class Rule {
+
+        // 路径模式，如 /provider1/api/**、/provider1/api/users/{id}
+        private String pattern;
+
+        // 每个周期允许的请求数
+        private int limit;
+
+        // 周期，未配置时使用全局周期
+        private Duration period;
+
+        // 每个请求消耗的额度，未配置时取路由元数据 rate-limit-cost 或按实测成本估算
+        private Double cost;
+    }
+
+    /**
+     * 集群限流配置：多个网关实例共享同一份全局配额
+     */
+    @Data
+    public static class Cluster {
+
+        // 是否开启集群限流
+        private boolean enabled = false;
+
+        // 拉取其他网关实例用量的超时时间
+        private Duration syncTimeout = Duration.ofMillis(500);
+
+        // 用量平滑系数，越大越偏向最近一次同步的用量
+        private double smoothing = 0.5;
+    }
+
+    /**
+     * 请求成本配置：额度按成本扣除，成本未显式配置时按上游实测耗时与响应大小估算
+     */
+    @Data
+    public static class Cost {
+
+        // 是否按实测耗时与响应大小估算成本，关闭后未配置成本的请求均按1计
+        private boolean learning = true;
+
+        // 成本为1的基准耗时，耗时为其N倍的请求成本约为N
+        private Duration baselineLatency = Duration.ofMillis(200);
+
+        // 成本为1的基准响应大小，只统计上游响应带 Content-Length 的请求
+        private DataSize baselineSize = DataSize.ofKilobytes(64);
+
+        // 成本下限
+        private double minCost = 1.0;
+
+        // 成本上限
+        private double maxCost = 20.0;
+
+        // 平滑系数，越大越偏向最近一个更新间隔（gateway.rate-limiter.cost.update-interval，毫秒）内的平均值
+        private double smoothing = 0.2;
+
+        // 接口的样本数达到该值后才使用其估算成本，之前按最低成本计
+        private int minSamples = 5;
+
+        // 单独估算成本的接口（路由与限流规则的组合）数上限，超出后新接口使用所属路由的估算成本
+        private int maxEndpoints = 1000;
+    }
+}
@@ -0,0 +1,289 @@
+package org.example.gateway.limiter;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 请求成本估算
+ * 限流额度按请求成本扣除，成本的来源依次为：匹配的限流规则上配置的 cost、路由元数据 rate-limit-cost、
+ * 按接口实测的上游耗时与响应大小估算的成本。估算成本 = 平均耗时 / 基准耗时 + 平均响应大小 / 基准大小，
+ * 限制在 [min-cost, max-cost] 之间；如 /users 列表耗时3秒时成本约为15，/hello 为1。
+ * 接口按路由ID与匹配的限流规则路径模式区分，未匹配规则的请求只计入路由整体，键的数量受配置约束；
+ * 只有被放行并实际转发到上游的请求才会创建估算状态。样本不足的接口按最低成本计，
+ * 接口数达到上限后新接口使用所属路由整体的估算成本。
+ * 请求路径上只向分段累加器累加样本，每隔 update-interval 把各接口累加的平均值并入移动平均。
+ */
+@Component
+@Slf4j
+public class RequestCostEstimator {
+
+    // 路由元数据中声明请求成本的键
+    public static final String COST_METADATA = "rate-limit-cost";
+
+    private final RateLimiterProperties properties;
+
+    private final Map<String, RouteCosts> routes = new ConcurrentHashMap<>();
+
+    private final AtomicInteger endpointCount = new AtomicInteger();
+
+    // 接口数达到上限时未单独估算的请求数
+    private final LongAdder untracked = new LongAdder();
+
+    public RequestCostEstimator(RateLimiterProperties properties) {
+        this.properties = properties;
+    }
+
+    public boolean isLearning() {
+        return properties.getCost().isLearning();
+    }
+
+    /**
+     * 查找请求所属接口已有的估算状态，不创建新状态
+     *
+     * @return 未开启估算、没有匹配路由或该接口尚无样本时返回null；接口数已满时返回所属路由的整体状态
+     */
+    public Estimate find(Route route, LimitRule rule) {
+        if (route == null || !isLearning()) {
+            return null;
+        }
+        RouteCosts costs = routes.get(route.getId());
+        if (costs == null) {
+            return null;
+        }
+        if (rule.isDefault()) {
+            return costs.total;
+        }
+        Estimate estimate = costs.endpoints.get(rule.getKey());
+        if (estimate == null && endpointCount.get() >= properties.getCost().getMaxEndpoints()) {
+            return costs.total;
+        }
+        return estimate;
+    }
+
+    /**
+     * 本次请求的成本
+     *
+     * @param rule     匹配的限流规则
+     * @param route    匹配的路由，可能为null
+     * @param endpoint {@link #find} 返回的估算状态，可能为null
+     */
+    public double cost(LimitRule rule, Route route, Estimate endpoint) {
+        if (rule.hasCost()) {
+            return rule.getCost();
+        }
+        if (route != null) {
+            double configured = parse(route.getMetadata().get(COST_METADATA));
+            if (configured > 0) {
+                return configured;
+            }
+        }
+        RateLimiterProperties.Cost config = properties.getCost();
+        if (endpoint == null) {
+            return config.getMinCost();
+        }
+        // 样本不足的新接口按最低成本计，不继承同一路由上其他高成本接口的估算
+        return endpoint.samples >= config.getMinSamples() ? endpoint.cost : config.getMinCost();
+    }
+
+    /**
+     * 记录一次放行后转发到上游的请求，接口的估算状态不存在时创建
+     *
+     * @param latencyNanos 转发到上游到收到响应头的耗时
+     * @param bytes        上游响应体字节数，未知时为负数，不计入平均响应大小
+     */
+    public void record(Route route, LimitRule rule, long latencyNanos, long bytes) {
+        if (route == null || !isLearning()) {
+            return;
+        }
+        RouteCosts costs = routes.get(route.getId());
+        if (costs == null) {
+            costs = routes.computeIfAbsent(route.getId(), id -> new RouteCosts());
+        }
+        costs.total.add(latencyNanos, bytes);
+        if (!rule.isDefault()) {
+            Estimate endpoint = endpoint(costs, rule.getKey());
+            if (endpoint != null) {
+                endpoint.add(latencyNanos, bytes);
+            }
+        }
+    }
+
+    private Estimate endpoint(RouteCosts costs, String key) {
+        Estimate estimate = costs.endpoints.get(key);
+        if (estimate != null) {
+            return estimate;
+        }
+        if (endpointCount.get() >= properties.getCost().getMaxEndpoints()) {
+            untracked.increment();
+            return null;
+        }
+        Estimate created = new Estimate();
+        Estimate existing = costs.endpoints.putIfAbsent(key, created);
+        if (existing != null) {
+            return existing;
+        }
+        endpointCount.incrementAndGet();
+        return created;
+    }
+
+    /**
+     * 定期把各接口累加的样本并入移动平均并重新计算成本
+     */
+    @Scheduled(fixedDelayString = "${gateway.rate-limiter.cost.update-interval:1000}")
+    public void update() {
+        RateLimiterProperties.Cost config = properties.getCost();
+        for (RouteCosts costs : routes.values()) {
+            costs.total.update(config);
+            for (Estimate estimate : costs.endpoints.values()) {
+                estimate.update(config);
+            }
+        }
+    }
+
+    /**
+     * 定期淘汰空闲的接口与路由
+     */
+    @Scheduled(fixedDelayString = "${gateway.rate-limiter.eviction-interval:30000}")
+    public void evictIdle() {
+        long deadline = System.nanoTime() - properties.getIdleTimeout().toNanos();
+        int removed = 0;
+        Iterator<Map.Entry<String, RouteCosts>> routeIterator = routes.entrySet().iterator();
+        while (routeIterator.hasNext()) {
+            RouteCosts costs = routeIterator.next().getValue();
+            Iterator<Estimate> iterator = costs.endpoints.values().iterator();
+            while (iterator.hasNext()) {
+                if (iterator.next().lastAccess - deadline < 0) {
+                    iterator.remove();
+                    endpointCount.decrementAndGet();
+                    removed++;
+                }
+            }
+            if (costs.endpoints.isEmpty() && costs.total.lastAccess - deadline < 0) {
+                routeIterator.remove();
+            }
+        }
+        if (removed > 0) {
+            log.debug("淘汰空闲的请求成本估算 {} 个，剩余 {} 个", removed, endpointCount.get());
+        }
+    }
+
+    /**
+     * 各路由与接口的估算成本
+     */
+    public Map<String, Object> snapshot() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("learning", isLearning());
+        result.put("endpoints", endpointCount.get());
+        result.put("maxEndpoints", properties.getCost().getMaxEndpoints());
+        result.put("untracked", untracked.sum());
+        Map<String, Object> routeCosts = new LinkedHashMap<>();
+        routes.forEach((routeId, costs) -> {
+            Map<String, Object> route = costs.total.describe();
+            Map<String, Object> endpoints = new LinkedHashMap<>();
+            costs.endpoints.forEach((template, estimate) -> endpoints.put(template, estimate.describe()));
+            route.put("endpoints", endpoints);
+            routeCosts.put(routeId, route);
+        });
+        result.put("routes", routeCosts);
+        return result;
+    }
+
+    private static double parse(Object value) {
+        if (value instanceof Number number) {
+            return number.doubleValue();
+        }
+        if (value instanceof String text && !text.isBlank()) {
+            try {
+                return Double.parseDouble(text.trim());
+            } catch (NumberFormatException e) {
+                return 0;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * 单条路由的整体估算与各接口的估算
+     */
+    private static final class RouteCosts {
+
+        private final Estimate total = new Estimate();
+
+        private final Map<String, Estimate> endpoints = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * 单个接口（或路由整体）的成本估算
+     * 请求结束时只向 LongAdder 累加，不加锁；耗时与响应大小的指数加权移动平均只由定时任务单线程更新。
+     */
+    public static final class Estimate {
+
+        private final LongAdder latencySum = new LongAdder();
+
+        private final LongAdder latencyCount = new LongAdder();
+
+        private final LongAdder bytesSum = new LongAdder();
+
+        private final LongAdder bytesCount = new LongAdder();
+
+        private volatile double latencyNanos;
+
+        private volatile double bytes;
+
+        private volatile long samples;
+
+        private volatile double cost = 1.0;
+
+        private volatile long lastAccess = System.nanoTime();
+
+        private void add(long latency, long size) {
+            latencySum.add(latency);
+            latencyCount.increment();
+            if (size >= 0) {
+                bytesSum.add(size);
+                bytesCount.increment();
+            }
+            lastAccess = System.nanoTime();
+        }
+
+        private void update(RateLimiterProperties.Cost config) {
+            long count = latencyCount.sumThenReset();
+            if (count == 0) {
+                return;
+            }
+            double latency = (double) latencySum.sumThenReset() / count;
+            long sized = bytesCount.sumThenReset();
+            double size = sized > 0 ? (double) bytesSum.sumThenReset() / sized : bytes;
+            if (samples == 0) {
+                latencyNanos = latency;
+                bytes = size;
+            } else {
+                double alpha = config.getSmoothing();
+                latencyNanos += alpha * (latency - latencyNanos);
+                bytes += alpha * (size - bytes);
+            }
+            double estimated = latencyNanos / Math.max(1, config.getBaselineLatency().toNanos())
+                    + bytes / Math.max(1, config.getBaselineSize().toBytes());
+            cost = Math.min(config.getMaxCost(), Math.max(config.getMinCost(), estimated));
+            samples += count;
+        }
+
+        private Map<String, Object> describe() {
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("cost", Math.round(cost * 100) / 100.0);
+            result.put("latencyMs", Math.round(latencyNanos / 1_000_000.0));
+            result.put("bytes", Math.round(bytes));
+            result.put("samples", samples);
+            return result;
+        }
+    }
+}
@@ -0,0 +1,237 @@
+package org.example.gateway.limiter;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 编译后的限流规则索引：按路径段组织的前缀树，构建后不可变
+ * 支持的模式：字面量段、单段通配符 {@code *} 或 {@code {var}}、末尾的多段通配符 {@code **}。
+ * 匹配时逐段下降，字面量分支走不通时回溯到同层的通配符分支，返回匹配段数最多的规则，
+ * 段数相同时完全匹配优先于 **、字面量优先于通配符；匹配过程不分配对象。
+ * 每个节点只有一个父节点、对应唯一的路径段，匹配时至多访问一次，最坏耗时与前缀树的节点数（即规则的总段数）成正比，
+ * 不会随路径深度指数增长；子树中最具体的规则都不比已找到的规则更具体时整棵子树跳过，
+ * 通常只访问与路径段数相当的节点。
+ */
+public final class RouteLimitIndex {
+
+    private final Node root;
+
+    private final LimitRule defaultRule;
+
+    private final int size;
+
+    private RouteLimitIndex(Node root, LimitRule defaultRule, int size) {
+        this.root = root;
+        this.defaultRule = defaultRule;
+        this.size = size;
+    }
+
+    /**
+     * 编译限流规则
+     *
+     * @param rules         规则列表，模式不能重复（{@code *} 与 {@code {var}} 视为相同），{@code **} 只能是最后一段
+     * @param defaultLimit  未匹配任何规则时的阈值
+     * @param defaultPeriod 规则未指定周期时使用的周期
+     * @throws IllegalArgumentException 模式重复或 {@code **} 不在末尾
+     */
+    public static RouteLimitIndex compile(List<RateLimiterProperties.Rule> rules, int defaultLimit, Duration defaultPeriod) {
+        Builder root = new Builder();
+        for (RateLimiterProperties.Rule rule : rules) {
+            Duration period = rule.getPeriod() != null ? rule.getPeriod() : defaultPeriod;
+            Builder node = root;
+            boolean prefix = false;
+            int depth = 0;
+            for (String segment : rule.getPattern().split("/")) {
+                if (segment.isEmpty()) {
+                    continue;
+                }
+                if (prefix) {
+                    throw new IllegalArgumentException("限流规则 " + rule.getPattern() + " 中的 ** 只能是最后一段");
+                }
+                if (segment.equals("**")) {
+                    prefix = true;
+                    continue;
+                }
+                if (segment.equals("*") || (segment.startsWith("{") && segment.endsWith("}"))) {
+                    if (node.wildcard == null) {
+                        node.wildcard = new Builder();
+                    }
+                    node = node.wildcard;
+                } else {
+                    node = node.children.computeIfAbsent(segment, s -> new Builder());
+                }
+                depth++;
+            }
+            LimitRule compiled = new LimitRule(rule.getPattern(), rule.getLimit(), period.toNanos(),
+                    rule.getCost() != null ? rule.getCost() : 0, depth * 2 + (prefix ? 0 : 1));
+            LimitRule existing = prefix ? node.prefix : node.exact;
+            if (existing != null) {
+                throw new IllegalArgumentException("限流规则 " + rule.getPattern() + " 与 " + existing.getKey() + " 重复");
+            }
+            if (prefix) {
+                node.prefix = compiled;
+            } else {
+                node.exact = compiled;
+            }
+        }
+        return new RouteLimitIndex(root.build(), new LimitRule(null, defaultLimit, defaultPeriod.toNanos(), 0, -1),
+                rules.size());
+    }
+
+    /**
+     * 查找与路径匹配的最具体规则，未匹配时返回默认规则
+     */
+    public LimitRule match(String path) {
+        LimitRule best = walk(root, path, 0, null);
+        return best != null ? best : defaultRule;
+    }
+
+    /**
+     * 从指定节点开始匹配路径的剩余部分，先走字面量分支再走通配符分支，返回目前找到的最具体的规则
+     *
+     * @param best 目前找到的最具体的规则，可能为null
+     */
+    private static LimitRule walk(Node node, String path, int start, LimitRule best) {
+        if (best != null && node.maxSpecificity <= best.specificity) {
+            return best;
+        }
+        best = moreSpecific(best, node.prefix);
+        int length = path.length();
+        while (start < length && path.charAt(start) == '/') {
+            start++;
+        }
+        if (start >= length) {
+            return moreSpecific(best, node.exact);
+        }
+        int end = path.indexOf('/', start);
+        if (end < 0) {
+            end = length;
+        }
+        Node literal = node.child(path, start, end);
+        if (literal != null) {
+            best = walk(literal, path, end, best);
+        }
+        if (node.wildcard != null) {
+            best = walk(node.wildcard, path, end, best);
+        }
+        return best;
+    }
+
+    // 具体程度相同时保留先找到的规则，即字面量分支上的规则
+    private static LimitRule moreSpecific(LimitRule current, LimitRule candidate) {
+        if (candidate == null) {
+            return current;
+        }
+        return current == null || candidate.specificity > current.specificity ? candidate : current;
+    }
+
+    public LimitRule getDefaultRule() {
+        return defaultRule;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 前缀树节点，子节点保存在开放寻址表中，按路径片段的区间直接计算哈希，无需截取子串
+     */
+    private static final class Node {
+
+        private final String[] segments;
+
+        private final Node[] children;
+
+        private final int mask;
+
+        private final Node wildcard;
+
+        private final LimitRule exact;
+
+        private final LimitRule prefix;
+
+        // 本节点及其子树中规则的最大具体程度，用于剪枝
+        private final int maxSpecificity;
+
+        private Node(String[] segments, Node[] children, Node wildcard, LimitRule exact, LimitRule prefix) {
+            this.segments = segments;
+            this.children = children;
+            this.mask = segments.length - 1;
+            this.wildcard = wildcard;
+            this.exact = exact;
+            this.prefix = prefix;
+            int max = Integer.MIN_VALUE;
+            for (Node child : children) {
+                if (child != null) {
+                    max = Math.max(max, child.maxSpecificity);
+                }
+            }
+            if (wildcard != null) {
+                max = Math.max(max, wildcard.maxSpecificity);
+            }
+            if (exact != null) {
+                max = Math.max(max, exact.specificity);
+            }
+            if (prefix != null) {
+                max = Math.max(max, prefix.specificity);
+            }
+            this.maxSpecificity = max;
+        }
+
+        private Node child(String path, int start, int end) {
+            if (segments.length == 0) {
+                return null;
+            }
+            int hash = 0;
+            for (int i = start; i < end; i++) {
+                hash = 31 * hash + path.charAt(i);
+            }
+            int length = end - start;
+            for (int slot = spread(hash) & mask; ; slot = (slot + 1) & mask) {
+                String segment = segments[slot];
+                if (segment == null) {
+                    return null;
+                }
+                if (segment.length() == length && path.regionMatches(start, segment, 0, length)) {
+                    return children[slot];
+                }
+            }
+        }
+
+        private static int spread(int hash) {
+            return hash ^ (hash >>> 16);
+        }
+    }
+
+    /**
+     * 构建期使用的可变节点
+     */
+    private static final class Builder {
+
+        private final Map<String, Builder> children = new HashMap<>();
+
+        private Builder wildcard;
+
+        private LimitRule exact;
+
+        private LimitRule prefix;
+
+        private Node build() {
+            // 装载因子不超过0.5，保证探测序列足够短且总能遇到空槽
+            int capacity = children.isEmpty() ? 0 : Integer.highestOneBit(children.size() * 2 - 1) << 1;
+            String[] segments = new String[capacity];
+            Node[] nodes = new Node[capacity];
+            children.forEach((segment, child) -> {
+                int slot = Node.spread(segment.hashCode()) & (capacity - 1);
+                while (segments[slot] != null) {
+                    slot = (slot + 1) & (capacity - 1);
+                }
+                segments[slot] = segment;
+                nodes[slot] = child.build();
+            });
+            return new Node(segments, nodes, wildcard != null ? wildcard.build() : null, exact, prefix);
+        }
+    }
+}
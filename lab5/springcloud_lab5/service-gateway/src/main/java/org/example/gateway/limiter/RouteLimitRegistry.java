@@ -0,0 +1,80 @@
+package org.example.gateway.limiter;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cloud.context.scope.refresh.RefreshScopeRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 限流规则索引的持有者
+ * 规则来自配置中心，配置刷新（/actuator/busrefresh）后重新编译，并以原子替换的方式发布新索引，
+ * 请求线程始终读取到一份完整的索引。刷新后规则没有变化时沿用原索引，不重新编译。
+ */
+@Component
+@Slf4j
+public class RouteLimitRegistry {
+
+    private final RateLimiterProperties properties;
+
+    private volatile RouteLimitIndex index;
+
+    // 编译当前索引时的规则，用于判断刷新后规则是否变化
+    private Source compiledFrom;
+
+    public RouteLimitRegistry(RateLimiterProperties properties) {
+        this.properties = properties;
+        this.compiledFrom = Source.of(properties);
+        this.index = compile(compiledFrom);
+    }
+
+    public RouteLimitIndex current() {
+        return index;
+    }
+
+    /**
+     * 配置属性重新绑定后触发，重新编译限流规则
+     */
+    @EventListener(RefreshScopeRefreshedEvent.class)
+    public synchronized void onRefresh() {
+        Source source = Source.of(properties);
+        if (source.equals(compiledFrom)) {
+            log.debug("限流规则未变化，沿用原索引");
+            return;
+        }
+        try {
+            index = compile(source);
+            compiledFrom = source;
+            log.info("限流规则已刷新，共 {} 条", index.size());
+        } catch (RuntimeException e) {
+            // 新规则有误时保留旧索引
+            log.error("限流规则编译失败，继续使用旧规则", e);
+        }
+    }
+
+    private static RouteLimitIndex compile(Source source) {
+        return RouteLimitIndex.compile(source.rules(), source.defaultLimit(), source.period());
+    }
+
+    /**
+     * 参与编译的配置，规则逐条复制，不受之后属性重新绑定的影响
+     */
+    private record Source(List<RateLimiterProperties.Rule> rules, int defaultLimit, Duration period) {
+
+        static Source of(RateLimiterProperties properties) {
+            List<RateLimiterProperties.Rule> rules = new ArrayList<>();
+            for (RateLimiterProperties.Rule rule : properties.getRules()) {
+                RateLimiterProperties.Rule copy = new RateLimiterProperties.Rule();
+                copy.setPattern(rule.getPattern());
+                copy.setLimit(rule.getLimit());
+                copy.setPeriod(rule.getPeriod());
+                copy.setCost(rule.getCost());
+                rules.add(copy);
+            }
+            return new Source(List.copyOf(rules), properties.getDefaultLimit(), properties.getPeriod());
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package org.example.gateway.loadbalancer;
+
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.DefaultResponse;
+import org.springframework.cloud.client.loadbalancer.Response;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 单个上游实例的负载：峰值EWMA延迟与进行中的请求数
+ * 延迟样本高于当前值时立即取样本值（峰值），低于时按距上次更新的时间指数衰减，慢下来的实例马上变"贵"，
+ * 恢复后逐渐变"便宜"。负载代价为 EWMA × (进行中请求数 + 1)，读取时EWMA也随时间衰减，
+ * 因变慢而不再被选中的实例过一段时间后会重新得到请求，用新的样本确认是否已经恢复。
+ * 全部状态用原子变量维护，不加锁；并发更新EWMA时用CAS重试，时间戳可能落后于最新样本，对结果影响可以忽略。
+ */
+public final class InstanceLoad {
+
+    // 尚无延迟样本但已有请求在途的实例的代价，使新实例在首个响应返回前不会被集中选中
+    private static final double PENALTY = 1e12;
+
+    private final long decayNanos;
+
+    private final AtomicLong ewmaBits = new AtomicLong(Double.doubleToRawLongBits(0));
+
+    private final AtomicInteger inflight = new AtomicInteger();
+
+    private volatile long stamp;
+
+    private volatile long lastUsed;
+
+    // 选中时返回的响应对象，实例对象不变时复用，选择路径上不分配对象
+    private volatile Response<ServiceInstance> response;
+
+    InstanceLoad(long decayNanos, long now) {
+        this.decayNanos = decayNanos;
+        this.stamp = now;
+        this.lastUsed = now;
+    }
+
+    /**
+     * 当前代价，越小越应被选中
+     */
+    public double cost(long now) {
+        int pending = inflight.get();
+        double ewma = Double.longBitsToDouble(ewmaBits.get());
+        if (ewma == 0 && pending > 0) {
+            return PENALTY + pending;
+        }
+        return ewma * decay(now) * (pending + 1);
+    }
+
+    /**
+     * 请求开始转发到该实例
+     */
+    public void start(long now) {
+        inflight.incrementAndGet();
+        lastUsed = now;
+    }
+
+    /**
+     * 请求结束（成功、失败或取消）
+     */
+    public void finish() {
+        inflight.decrementAndGet();
+    }
+
+    /**
+     * 记录一个延迟样本
+     */
+    public void observe(long rttNanos, long now) {
+        while (true) {
+            long bits = ewmaBits.get();
+            double ewma = Double.longBitsToDouble(bits);
+            double next;
+            if (rttNanos > ewma) {
+                next = rttNanos;
+            } else {
+                double weight = decay(now);
+                next = ewma * weight + rttNanos * (1 - weight);
+            }
+            if (ewmaBits.compareAndSet(bits, Double.doubleToRawLongBits(next))) {
+                stamp = now;
+                return;
+            }
+        }
+    }
+
+    private double decay(long now) {
+        return Math.exp(-Math.max(0, now - stamp) / (double) decayNanos);
+    }
+
+    Response<ServiceInstance> response(ServiceInstance instance) {
+        Response<ServiceInstance> cached = response;
+        if (cached == null || cached.getServer() != instance) {
+            cached = new DefaultResponse(instance);
+            response = cached;
+        }
+        return cached;
+    }
+
+    public double getEwmaMillis() {
+        return Double.longBitsToDouble(ewmaBits.get()) / 1_000_000;
+    }
+
+    public int getInflight() {
+        return inflight.get();
+    }
+
+    long getLastUsed() {
+        return lastUsed;
+    }
+}
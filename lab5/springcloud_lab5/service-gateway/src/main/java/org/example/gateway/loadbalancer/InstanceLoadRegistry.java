@@ -0,0 +1,45 @@
+package org.example.gateway.loadbalancer;
+
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 按实例持有负载统计，由转发路径更新、负载均衡器读取
+ * 以实例ID为键，注册中心返回的实例ID在实例生命周期内不变，查找不需要拼接字符串；
+ * 没有实例ID的实例（如静态配置的实例）退回到 host:port。
+ */
+@Component
+public class InstanceLoadRegistry {
+
+    private final LoadBalancingProperties properties;
+
+    private final Map<String, InstanceLoad> loads = new ConcurrentHashMap<>();
+
+    public InstanceLoadRegistry(LoadBalancingProperties properties) {
+        this.properties = properties;
+    }
+
+    public InstanceLoad get(ServiceInstance instance) {
+        String key = instance.getInstanceId() != null
+                ? instance.getInstanceId()
+                : instance.getHost() + ":" + instance.getPort();
+        InstanceLoad load = loads.get(key);
+        if (load == null) {
+            load = loads.computeIfAbsent(key, k -> new InstanceLoad(properties.getDecayTime().toNanos(), System.nanoTime()));
+        }
+        return load;
+    }
+
+    /**
+     * 定期淘汰长时间未使用且没有进行中请求的实例统计
+     */
+    @Scheduled(fixedDelayString = "${gateway.load-balancer.eviction-interval:60000}")
+    public void evictIdle() {
+        long deadline = System.nanoTime() - properties.getIdleTimeout().toNanos();
+        loads.values().removeIf(load -> load.getLastUsed() - deadline < 0 && load.getInflight() == 0);
+    }
+}
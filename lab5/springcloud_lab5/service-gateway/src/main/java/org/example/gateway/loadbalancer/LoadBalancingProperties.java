@@ -0,0 +1,21 @@
+package org.example.gateway.loadbalancer;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * 网关负载均衡配置
+ * 路由通过元数据 {@code load-balancer: peak-ewma} 选用按延迟与负载选择实例的均衡器，未配置时使用轮询。
+ */
+@Data
+@ConfigurationProperties(prefix = "gateway.load-balancer")
+public class LoadBalancingProperties {
+
+    // 延迟EWMA的衰减时间常数，越小对延迟变化越敏感
+    private Duration decayTime = Duration.ofSeconds(10);
+
+    // 实例在此时间内没有请求时清除其负载统计
+    private Duration idleTimeout = Duration.ofMinutes(10);
+}
@@ -0,0 +1,73 @@
+package org.example.gateway.loadbalancer;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.EmptyResponse;
+import org.springframework.cloud.client.loadbalancer.Request;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.loadbalancer.core.NoopServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.core.ReactorServiceInstanceLoadBalancer;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 两次随机选择（power of two choices）负载均衡器
+ * 从实例列表中随机取两个不同的实例，选择 {@link InstanceLoad#cost(long)} 较小的一个。
+ * 选择耗时与实例数无关，只读取两个实例的原子计数，不加锁也不分配对象；
+ * 比每次选全局最优更不容易让所有网关节点同时涌向同一个"最空闲"的实例。
+ */
+@Slf4j
+public class PeakEwmaLoadBalancer implements ReactorServiceInstanceLoadBalancer {
+
+    private static final Response<ServiceInstance> EMPTY = new EmptyResponse();
+
+    private final ObjectProvider<ServiceInstanceListSupplier> suppliers;
+
+    private final String serviceId;
+
+    private final InstanceLoadRegistry loads;
+
+    public PeakEwmaLoadBalancer(ObjectProvider<ServiceInstanceListSupplier> suppliers, String serviceId,
+                                InstanceLoadRegistry loads) {
+        this.suppliers = suppliers;
+        this.serviceId = serviceId;
+        this.loads = loads;
+    }
+
+    @Override
+    @SuppressWarnings("rawtypes")
+    public Mono<Response<ServiceInstance>> choose(Request request) {
+        ServiceInstanceListSupplier supplier = suppliers.getIfAvailable(NoopServiceInstanceListSupplier::new);
+        return supplier.get(request).next().map(instances -> select(instances, System.nanoTime()));
+    }
+
+    /**
+     * 从给定实例中选择一个，{@code now} 为 {@link System#nanoTime()} 时间
+     */
+    public Response<ServiceInstance> select(List<ServiceInstance> instances, long now) {
+        int size = instances.size();
+        if (size == 0) {
+            log.warn("服务 {} 没有可用实例", serviceId);
+            return EMPTY;
+        }
+        if (size == 1) {
+            ServiceInstance only = instances.get(0);
+            return loads.get(only).response(only);
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int first = random.nextInt(size);
+        int second = random.nextInt(size - 1);
+        if (second >= first) {
+            second++;
+        }
+        ServiceInstance a = instances.get(first);
+        ServiceInstance b = instances.get(second);
+        InstanceLoad loadA = loads.get(a);
+        InstanceLoad loadB = loads.get(b);
+        return loadA.cost(now) <= loadB.cost(now) ? loadA.response(a) : loadB.response(b);
+    }
+}
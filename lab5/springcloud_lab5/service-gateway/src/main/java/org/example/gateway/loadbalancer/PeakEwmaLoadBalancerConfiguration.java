@@ -0,0 +1,30 @@
+package org.example.gateway.loadbalancer;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.loadbalancer.core.ReactorLoadBalancer;
+import org.springframework.cloud.loadbalancer.core.RoundRobinLoadBalancer;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.support.LoadBalancerClientFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.core.env.Environment;
+
+/**
+ * 各服务负载均衡子容器的默认配置，由 {@link org.example.gateway.config.LoadBalancerConfig} 注册
+ * 替换默认的轮询均衡器为 {@link RouteAwareLoadBalancer}，未声明策略的路由仍然轮询。
+ * 不加 @Configuration，避免被主容器扫描后在主容器中创建这些Bean。
+ */
+public class PeakEwmaLoadBalancerConfiguration {
+
+    @Bean
+    public ReactorLoadBalancer<ServiceInstance> routeAwareLoadBalancer(Environment environment,
+                                                                       LoadBalancerClientFactory factory,
+                                                                       InstanceLoadRegistry loads) {
+        String serviceId = environment.getProperty(LoadBalancerClientFactory.PROPERTY_NAME);
+        ObjectProvider<ServiceInstanceListSupplier> suppliers =
+                factory.getLazyProvider(serviceId, ServiceInstanceListSupplier.class);
+        return new RouteAwareLoadBalancer(
+                new PeakEwmaLoadBalancer(suppliers, serviceId, loads),
+                new RoundRobinLoadBalancer(suppliers, serviceId));
+    }
+}
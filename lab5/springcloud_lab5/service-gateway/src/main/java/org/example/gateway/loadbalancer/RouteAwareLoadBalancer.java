@@ -0,0 +1,52 @@
+package org.example.gateway.loadbalancer;
+
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.Request;
+import org.springframework.cloud.client.loadbalancer.RequestData;
+import org.springframework.cloud.client.loadbalancer.RequestDataContext;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.cloud.loadbalancer.core.ReactorServiceInstanceLoadBalancer;
+import reactor.core.publisher.Mono;
+
+/**
+ * 按路由元数据分派的负载均衡器
+ * 同一个服务可能被多条路由引用，负载均衡器按服务创建，因此在选择时从请求上下文中取出当前路由，
+ * 元数据 {@code load-balancer} 为 {@value #PEAK_EWMA} 时使用 {@link PeakEwmaLoadBalancer}，否则使用默认均衡器（轮询）。
+ */
+public class RouteAwareLoadBalancer implements ReactorServiceInstanceLoadBalancer {
+
+    public static final String METADATA_KEY = "load-balancer";
+
+    public static final String PEAK_EWMA = "peak-ewma";
+
+    private final ReactorServiceInstanceLoadBalancer peakEwma;
+
+    private final ReactorServiceInstanceLoadBalancer fallback;
+
+    public RouteAwareLoadBalancer(ReactorServiceInstanceLoadBalancer peakEwma,
+                                  ReactorServiceInstanceLoadBalancer fallback) {
+        this.peakEwma = peakEwma;
+        this.fallback = fallback;
+    }
+
+    @Override
+    @SuppressWarnings("rawtypes")
+    public Mono<Response<ServiceInstance>> choose(Request request) {
+        return usePeakEwma(request) ? peakEwma.choose(request) : fallback.choose(request);
+    }
+
+    @SuppressWarnings("rawtypes")
+    private static boolean usePeakEwma(Request request) {
+        if (request == null || !(request.getContext() instanceof RequestDataContext context)) {
+            return false;
+        }
+        RequestData data = context.getClientRequest();
+        if (data == null || data.getAttributes() == null) {
+            return false;
+        }
+        Object route = data.getAttributes().get(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+        return route instanceof Route r && PEAK_EWMA.equals(r.getMetadata().get(METADATA_KEY));
+    }
+}
@@ -0,0 +1,50 @@
+package org.example.gateway.metrics;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.OrderUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ClassUtils;
+
+import java.util.Set;
+
+/**
+ * 把所有全局过滤器（包括 Spring Cloud Gateway 自带的）包装为 {@link TimedGlobalFilter}，统计各自的耗时
+ * 包装保持原过滤器的顺序，过滤器以类名标识。依赖延迟获取，不会让耗时统计相关的Bean提前创建。
+ * 同时实现了其他接口的过滤器（如监听事件的 AdaptCachedBodyGlobalFilter）不包装，包装后这些接口会失效。
+ */
+@Component
+@Slf4j
+public class FilterLatencyPostProcessor implements BeanPostProcessor {
+
+    private static final Set<Class<?>> WRAPPABLE_INTERFACES = Set.of(GlobalFilter.class, Ordered.class);
+
+    private final ObjectProvider<LatencyProperties> properties;
+
+    private final ObjectProvider<GatewayLatencyRegistry> registry;
+
+    public FilterLatencyPostProcessor(ObjectProvider<LatencyProperties> properties,
+                                      ObjectProvider<GatewayLatencyRegistry> registry) {
+        this.properties = properties;
+        this.registry = registry;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (!(bean instanceof GlobalFilter filter) || bean instanceof TimedGlobalFilter
+                || !properties.getObject().isFiltersEnabled()) {
+            return bean;
+        }
+        Class<?> type = ClassUtils.getUserClass(filter);
+        if (!WRAPPABLE_INTERFACES.containsAll(ClassUtils.getAllInterfacesForClassAsSet(type))) {
+            log.debug("全局过滤器 {} 实现了其他接口，不统计耗时", beanName);
+            return bean;
+        }
+        int order = filter instanceof Ordered ordered
+                ? ordered.getOrder() : OrderUtils.getOrder(type, Ordered.LOWEST_PRECEDENCE);
+        return new TimedGlobalFilter(filter, order, registry.getObject().filter(type.getSimpleName(), order));
+    }
+}
@@ -0,0 +1,26 @@
+package org.example.gateway.metrics;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * 耗时分布监控端点，访问 /actuator/gatewaylatency 查看上一个快照周期内各全局过滤器（按执行顺序）与各路由的耗时分位数
+ */
+@Component
+@Endpoint(id = "gatewaylatency")
+public class GatewayLatencyEndpoint {
+
+    private final GatewayLatencyRegistry registry;
+
+    public GatewayLatencyEndpoint(GatewayLatencyRegistry registry) {
+        this.registry = registry;
+    }
+
+    @ReadOperation
+    public Map<String, Object> latency() {
+        return registry.snapshot();
+    }
+}
@@ -0,0 +1,116 @@
+package org.example.gateway.metrics;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 持有各全局过滤器与各路由的耗时分布，定期生成快照并以分位数指标发布
+ * 过滤器分为两个阶段：pre 为过滤器开始执行到把请求交给下一个过滤器（未交给下一个过滤器时为自身结束），
+ * post 为后续过滤器结束到该过滤器结束。NettyRoutingFilter 的 pre 即转发到上游直到收到响应头的耗时，
+ * NettyWriteResponseFilter 的 post 即写出响应体的耗时。
+ */
+@Component
+public class GatewayLatencyRegistry {
+
+    public static final String PRE = "pre";
+
+    public static final String POST = "post";
+
+    private final LatencyProperties properties;
+
+    private final MeterRegistry meterRegistry;
+
+    private final Map<String, FilterLatency> filters = new ConcurrentHashMap<>();
+
+    private final Map<String, IntervalLatency> routes = new ConcurrentHashMap<>();
+
+    public GatewayLatencyRegistry(LatencyProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * 获取（必要时创建）全局过滤器的耗时统计，在包装过滤器时调用
+     */
+    public FilterLatency filter(String name, int order) {
+        return filters.computeIfAbsent(name, n -> {
+            FilterLatency latency = new FilterLatency(order, new IntervalLatency(), new IntervalLatency());
+            register("gateway.filter.latency", latency.pre(), Tags.of("filter", n, "phase", PRE));
+            register("gateway.filter.latency", latency.post(), Tags.of("filter", n, "phase", POST));
+            return latency;
+        });
+    }
+
+    /**
+     * 记录一次路由请求的总耗时
+     */
+    public void recordRoute(String routeId, long nanos) {
+        IntervalLatency latency = routes.get(routeId);
+        if (latency == null) {
+            latency = routes.computeIfAbsent(routeId, id -> {
+                IntervalLatency created = new IntervalLatency();
+                register("gateway.route.latency", created, Tags.of("route", id));
+                return created;
+            });
+        }
+        latency.record(nanos);
+    }
+
+    private void register(String name, IntervalLatency latency, Tags tags) {
+        for (Double quantile : properties.getPercentiles()) {
+            Gauge.builder(name, latency, l -> l.valueAt(quantile) / 1e9)
+                    .description("上一个快照周期的耗时分位数")
+                    .baseUnit("seconds")
+                    .tags(tags)
+                    .tag("quantile", String.valueOf(quantile))
+                    .register(meterRegistry);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${gateway.latency.snapshot-interval:10000}")
+    public void roll() {
+        for (FilterLatency latency : filters.values()) {
+            latency.pre().roll();
+            latency.post().roll();
+        }
+        for (IntervalLatency latency : routes.values()) {
+            latency.roll();
+        }
+    }
+
+    public Map<String, Object> snapshot() {
+        Map<String, Object> filterSnapshot = new LinkedHashMap<>();
+        filters.entrySet().stream()
+                .sorted(Comparator.comparingInt(entry -> entry.getValue().order()))
+                .forEach(entry -> {
+                    Map<String, Object> phases = new LinkedHashMap<>();
+                    phases.put("order", entry.getValue().order());
+                    phases.put(PRE, entry.getValue().pre().describe());
+                    phases.put(POST, entry.getValue().post().describe());
+                    filterSnapshot.put(entry.getKey(), phases);
+                });
+        Map<String, Object> routeSnapshot = new LinkedHashMap<>();
+        routes.entrySet().stream()
+                .sorted(Map.Entry.comparingByKey())
+                .forEach(entry -> routeSnapshot.put(entry.getKey(), entry.getValue().describe()));
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("unit", "microseconds");
+        snapshot.put("filters", filterSnapshot);
+        snapshot.put("routes", routeSnapshot);
+        return snapshot;
+    }
+
+    /**
+     * 单个全局过滤器两个阶段的耗时
+     */
+    public record FilterLatency(int order, IntervalLatency pre, IntervalLatency post) {
+    }
+}
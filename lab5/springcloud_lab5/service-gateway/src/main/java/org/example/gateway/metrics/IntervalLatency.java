@@ -0,0 +1,72 @@
+package org.example.gateway.metrics;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 按快照周期统计的耗时分布
+ * 请求路径上向 HdrHistogram 的 {@link Recorder} 记录，记录无锁且不阻塞；
+ * 每个周期由 {@link #roll()} 取出该周期的直方图作为只读快照发布，查询只读快照，不影响记录。
+ * 以纳秒记录，保留2位有效数字（相对误差1%），直方图按实际出现的最大值自动扩容。
+ */
+public final class IntervalLatency {
+
+    private static final int SIGNIFICANT_DIGITS = 2;
+
+    private static final Histogram EMPTY = new Histogram(SIGNIFICANT_DIGITS);
+
+    private final Recorder recorder = new Recorder(SIGNIFICANT_DIGITS);
+
+    private volatile Histogram snapshot = EMPTY;
+
+    /**
+     * 记录一次耗时
+     */
+    public void record(long nanos) {
+        recorder.recordValue(Math.max(nanos, 0));
+    }
+
+    /**
+     * 结束当前周期，把该周期的分布发布为快照
+     */
+    public void roll() {
+        snapshot = recorder.getIntervalHistogram();
+    }
+
+    /**
+     * 上一个周期的分位数
+     *
+     * @param quantile 0~1之间的分位
+     * @return 分位数，单位纳秒，没有样本时返回0
+     */
+    public long valueAt(double quantile) {
+        Histogram current = snapshot;
+        return current.getTotalCount() > 0 ? current.getValueAtPercentile(quantile * 100) : 0;
+    }
+
+    /**
+     * 上一个周期的样本数、常用分位数、最大值与平均值，耗时单位微秒
+     */
+    public Map<String, Object> describe() {
+        Histogram current = snapshot;
+        Map<String, Object> result = new LinkedHashMap<>();
+        long count = current.getTotalCount();
+        result.put("count", count);
+        if (count > 0) {
+            result.put("p50", micros(current.getValueAtPercentile(50)));
+            result.put("p90", micros(current.getValueAtPercentile(90)));
+            result.put("p99", micros(current.getValueAtPercentile(99)));
+            result.put("p999", micros(current.getValueAtPercentile(99.9)));
+            result.put("max", micros(current.getMaxValue()));
+            result.put("mean", micros(Math.round(current.getMean())));
+        }
+        return result;
+    }
+
+    private static double micros(long nanos) {
+        return Math.round(nanos / 100.0) / 10.0;
+    }
+}
@@ -0,0 +1,167 @@
+package org.example.gateway.metrics;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 按时间窗口滚动的无锁延迟直方图
+ * 以微秒为单位按对数-线性分桶：每个2的幂区间再等分为8个子桶，相对误差不超过12.5%，覆盖到约19小时。
+ * 保留当前与上一个窗口的计数，查询分位数时合并两个窗口，结果反映最近1~2个窗口的延迟；
+ * 记录只做一次原子自增，合并后的计数缓存一小段时间，任意分位都从同一份缓存计算，适合在请求路径上频繁查询。
+ */
+public final class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 3;
+
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    // 小于 2 × SUB_BUCKETS 微秒的值逐微秒计数
+    private static final int LINEAR_BUCKETS = SUB_BUCKETS * 2;
+
+    private static final int MAX_EXPONENT = 36;
+
+    private static final int BUCKETS = LINEAR_BUCKETS + (MAX_EXPONENT - SUB_BUCKET_BITS - 1) * SUB_BUCKETS;
+
+    private static final long CACHE_NANOS = Duration.ofMillis(100).toNanos();
+
+    private final Duration window;
+
+    private final long windowNanos;
+
+    private final AtomicLongArray[] counts = {new AtomicLongArray(BUCKETS), new AtomicLongArray(BUCKETS)};
+
+    private final AtomicLongArray epochs = new AtomicLongArray(2);
+
+    private volatile Snapshot cached;
+
+    public LatencyHistogram(Duration window) {
+        this.window = window;
+        this.windowNanos = window.toNanos();
+        epochs.set(0, Long.MIN_VALUE);
+        epochs.set(1, Long.MIN_VALUE);
+    }
+
+    public Duration getWindow() {
+        return window;
+    }
+
+    /**
+     * 记录一次耗时
+     */
+    public void record(long nanos) {
+        long epoch = System.nanoTime() / windowNanos;
+        int slot = (int) (epoch & 1);
+        long current = epochs.get(slot);
+        if (current != epoch && epochs.compareAndSet(slot, current, epoch)) {
+            AtomicLongArray stale = counts[slot];
+            for (int i = 0; i < BUCKETS; i++) {
+                stale.set(i, 0);
+            }
+        }
+        counts[slot].incrementAndGet(bucket(Math.max(0, nanos / 1000)));
+    }
+
+    /**
+     * 最近窗口内的样本数
+     */
+    public long count() {
+        return snapshot().count();
+    }
+
+    /**
+     * 最近窗口内的分位数
+     *
+     * @param quantile 0~1之间的分位
+     * @return 分位数，单位纳秒，按所在桶的上界取值；没有样本时返回0
+     */
+    public long percentile(double quantile) {
+        return snapshot().percentile(quantile);
+    }
+
+    /**
+     * 合并两个窗口后的计数，缓存有效期内复用同一份合并结果；需要同时取样本数与分位数时只取一次快照
+     */
+    public Snapshot snapshot() {
+        long now = System.nanoTime();
+        Snapshot last = cached;
+        if (last != null && now - last.computedAt < CACHE_NANOS) {
+            return last;
+        }
+        long epoch = now / windowNanos;
+        long[] merged = new long[BUCKETS];
+        long total = 0;
+        for (int slot = 0; slot < 2; slot++) {
+            if (epochs.get(slot) >= epoch - 1) {
+                AtomicLongArray slotCounts = counts[slot];
+                for (int i = 0; i < BUCKETS; i++) {
+                    long count = slotCounts.get(i);
+                    merged[i] += count;
+                    total += count;
+                }
+            }
+        }
+        Snapshot result = new Snapshot(merged, total, now);
+        cached = result;
+        return result;
+    }
+
+    private static int bucket(long micros) {
+        if (micros < LINEAR_BUCKETS) {
+            return (int) micros;
+        }
+        int exponent = Math.min(63 - Long.numberOfLeadingZeros(micros), MAX_EXPONENT - 1);
+        int sub = (int) (micros >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return LINEAR_BUCKETS + (exponent - SUB_BUCKET_BITS - 1) * SUB_BUCKETS + sub;
+    }
+
+    private static long upperBoundMicros(int bucket) {
+        if (bucket < LINEAR_BUCKETS) {
+            return bucket;
+        }
+        int offset = bucket - LINEAR_BUCKETS;
+        int exponent = offset / SUB_BUCKETS + SUB_BUCKET_BITS + 1;
+        int sub = offset % SUB_BUCKETS;
+        return ((long) (SUB_BUCKETS + sub + 1) << (exponent - SUB_BUCKET_BITS)) - 1;
+    }
+
+    /**
+     * 某一时刻合并后的直方图，不可变，可以回答任意分位
+     */
+    public static final class Snapshot {
+
+        private final long[] counts;
+
+        private final long total;
+
+        private final long computedAt;
+
+        private Snapshot(long[] counts, long total, long computedAt) {
+            this.counts = counts;
+            this.total = total;
+            this.computedAt = computedAt;
+        }
+
+        public long count() {
+            return total;
+        }
+
+        /**
+         * @param quantile 0~1之间的分位
+         * @return 分位数，单位纳秒，按所在桶的上界取值；没有样本时返回0
+         */
+        public long percentile(double quantile) {
+            if (total == 0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(quantile * total);
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += counts[i];
+                if (seen >= rank && counts[i] > 0) {
+                    return upperBoundMicros(i) * 1000;
+                }
+            }
+            return 0;
+        }
+    }
+}
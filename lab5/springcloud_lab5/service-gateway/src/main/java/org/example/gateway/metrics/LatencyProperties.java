@@ -0,0 +1,24 @@
+package org.example.gateway.metrics;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.List;
+
+/**
+ * 全局过滤器与路由耗时统计配置
+ * 快照周期通过 gateway.latency.snapshot-interval（毫秒）配置，每个周期结束时生成该周期的耗时分布。
+ */
+@Data
+@ConfigurationProperties(prefix = "gateway.latency")
+public class LatencyProperties {
+
+    // 是否统计各全局过滤器的耗时，关闭后过滤器不再被包装，修改后需要重启
+    private boolean filtersEnabled = true;
+
+    // 是否统计各路由的请求总耗时
+    private boolean routesEnabled = true;
+
+    // 以指标形式发布的分位
+    private List<Double> percentiles = List.of(0.5, 0.99, 0.999);
+}
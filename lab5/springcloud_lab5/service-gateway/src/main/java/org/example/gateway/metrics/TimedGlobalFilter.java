@@ -0,0 +1,87 @@
+package org.example.gateway.metrics;
+
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.core.Ordered;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+/**
+ * 记录 pre/post 两个阶段耗时的全局过滤器包装
+ * 每次执行创建一个 {@link Timing} 代替原过滤器链传给被包装的过滤器，
+ * 在后续过滤器被订阅与结束时各取一次时间，被取消的请求没有结束信号，不记录。
+ */
+final class TimedGlobalFilter implements GlobalFilter, Ordered {
+
+    private final GlobalFilter delegate;
+
+    private final int order;
+
+    private final GatewayLatencyRegistry.FilterLatency latency;
+
+    TimedGlobalFilter(GlobalFilter delegate, int order, GatewayLatencyRegistry.FilterLatency latency) {
+        this.delegate = delegate;
+        this.order = order;
+        this.latency = latency;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        Timing timing = new Timing(chain, System.nanoTime());
+        // doOnTerminate 在结束信号向外传递之前执行，doFinally 则在外层过滤器处理完结束信号之后，会把外层的耗时计入
+        return delegate.filter(exchange, timing).doOnTerminate(timing::finish);
+    }
+
+    @Override
+    public int getOrder() {
+        return order;
+    }
+
+    @Override
+    public String toString() {
+        return "Timed[" + delegate + "]";
+    }
+
+    /**
+     * 单次执行的计时，同时作为传给被包装过滤器的过滤器链
+     * 对冲等过滤器可能多次调用过滤器链，pre 取第一次，post 从最后一次结束开始计算
+     */
+    private final class Timing implements GatewayFilterChain {
+
+        private final GatewayFilterChain chain;
+
+        private final long start;
+
+        private volatile long downstreamStart;
+
+        private volatile long downstreamEnd;
+
+        private Timing(GatewayFilterChain chain, long start) {
+            this.chain = chain;
+            this.start = start;
+        }
+
+        @Override
+        public Mono<Void> filter(ServerWebExchange exchange) {
+            // 过滤器可能先组装后续链、稍后再订阅，按订阅时刻计算
+            return Mono.defer(() -> {
+                long now = System.nanoTime();
+                if (downstreamStart == 0) {
+                    downstreamStart = now;
+                    latency.pre().record(now - start);
+                }
+                return chain.filter(exchange).doOnTerminate(() -> downstreamEnd = System.nanoTime());
+            });
+        }
+
+        private void finish() {
+            long now = System.nanoTime();
+            if (downstreamStart == 0) {
+                // 没有交给后续过滤器（如拒绝请求），整段都是该过滤器自身的耗时
+                latency.pre().record(now - start);
+            } else if (downstreamEnd != 0) {
+                latency.post().record(now - downstreamEnd);
+            }
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package org.example.gateway.outlier;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * 上游实例健康监控端点，访问 /actuator/gatewayoutliers 查看各服务实例的摘除状态与统计
+ */
+@Component
+@Endpoint(id = "gatewayoutliers")
+public class GatewayOutlierEndpoint {
+
+    private final OutlierDetector detector;
+
+    public GatewayOutlierEndpoint(OutlierDetector detector) {
+        this.detector = detector;
+    }
+
+    @ReadOperation
+    public Map<String, Object> outliers() {
+        return detector.snapshot();
+    }
+}
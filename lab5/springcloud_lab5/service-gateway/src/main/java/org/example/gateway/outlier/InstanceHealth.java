@@ -0,0 +1,82 @@
+package org.example.gateway.outlier;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 单个上游实例的被动健康统计
+ * 请求路径上只做计数器自增；摘除与重新接入由 {@link OutlierDetector} 在持有服务锁时修改。
+ */
+public final class InstanceHealth {
+
+    private final String address;
+
+    final AtomicInteger consecutiveErrors = new AtomicInteger();
+
+    final AtomicInteger consecutiveConnectFailures = new AtomicInteger();
+
+    // 当前统计周期内的请求数与延迟总和
+    final LongAdder requests = new LongAdder();
+
+    final LongAdder latencyNanos = new LongAdder();
+
+    // 摘除截止时间，0表示未摘除
+    volatile long ejectedUntil;
+
+    // 连续摘除次数，决定下一次摘除的时长
+    volatile int ejections;
+
+    volatile String reason;
+
+    volatile long lastSeen = System.nanoTime();
+
+    InstanceHealth(String address) {
+        this.address = address;
+    }
+
+    public String getAddress() {
+        return address;
+    }
+
+    boolean isEjected(long now) {
+        long until = ejectedUntil;
+        return until != 0 && now - until < 0;
+    }
+
+    void recordLatency(long nanos) {
+        requests.increment();
+        latencyNanos.add(nanos);
+        lastSeen = System.nanoTime();
+    }
+
+    /**
+     * 请求成功时清零连续失败计数，计数已为0时不写入，避免热点实例上的缓存行争用
+     */
+    void resetFailures() {
+        if (consecutiveErrors.get() != 0) {
+            consecutiveErrors.set(0);
+        }
+        if (consecutiveConnectFailures.get() != 0) {
+            consecutiveConnectFailures.set(0);
+        }
+    }
+
+    Map<String, Object> snapshot(long now) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        boolean ejected = isEjected(now);
+        result.put("ejected", ejected);
+        if (ejected) {
+            result.put("reason", reason);
+            result.put("readmitInMillis", (ejectedUntil - now) / 1_000_000);
+        }
+        result.put("ejections", ejections);
+        result.put("consecutiveErrors", consecutiveErrors.get());
+        result.put("consecutiveConnectFailures", consecutiveConnectFailures.get());
+        long count = requests.sum();
+        result.put("intervalRequests", count);
+        result.put("intervalMeanLatencyMillis", count == 0 ? 0 : latencyNanos.sum() / count / 1_000_000.0);
+        return result;
+    }
+}
@@ -0,0 +1,44 @@
+package org.example.gateway.outlier;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * 上游实例被动健康检测配置
+ */
+@Data
+@ConfigurationProperties(prefix = "gateway.outlier")
+public class OutlierDetectionProperties {
+
+    // 是否启用异常实例摘除
+    private boolean enabled = true;
+
+    // 连续5xx响应或读超时达到此次数时摘除
+    private int consecutiveErrors = 5;
+
+    // 连续连接失败达到此次数时摘除
+    private int consecutiveConnectFailures = 3;
+
+    // 统计周期内平均延迟超过同服务其他实例中位数的倍数时视为延迟异常
+    private double latencyFactor = 3.0;
+
+    // 平均延迟低于此值时不按延迟摘除，避免 1ms 与 4ms 这类差异触发摘除
+    private Duration minOutlierLatency = Duration.ofMillis(50);
+
+    // 统计周期内请求数达到此值的实例才参与延迟比较
+    private int minRequests = 20;
+
+    // 首次摘除的时长，之后每次连续摘除翻倍
+    private Duration baseEjectionTime = Duration.ofSeconds(30);
+
+    // 单次摘除的最长时长
+    private Duration maxEjectionTime = Duration.ofMinutes(5);
+
+    // 同一服务最多同时摘除的实例比例
+    private int maxEjectionPercent = 50;
+
+    // 实例在此时间内没有请求时清除其统计
+    private Duration idleTimeout = Duration.ofMinutes(10);
+}
@@ -0,0 +1,256 @@
+package org.example.gateway.outlier;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.net.ConnectException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 上游实例被动异常检测
+ * 根据网关转发的实际结果统计每个实例的连续5xx、连续连接失败与平均延迟，异常实例暂时从负载均衡的实例列表中摘除，
+ * 比等待注册中心剔除（数十秒）快得多。摘除时长从 base-ejection-time 开始，连续摘除时按指数增长，
+ * 实例恢复后每个健康的统计周期回退一级。同一服务同时摘除的实例不超过 max-ejection-percent，
+ * 实例列表过滤后为空时不过滤，避免把局部故障放大成整个服务不可用。
+ */
+@Component
+@Slf4j
+public class OutlierDetector {
+
+    // 摘除时长翻倍的次数上限，防止移位溢出
+    private static final int MAX_BACKOFF_SHIFT = 16;
+
+    private final OutlierDetectionProperties properties;
+
+    private final MeterRegistry meterRegistry;
+
+    private final Map<String, ServiceHealth> services = new ConcurrentHashMap<>();
+
+    public OutlierDetector(OutlierDetectionProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        Gauge.builder("gateway.outlier.ejected", services, map -> {
+                    long now = System.nanoTime();
+                    return map.values().stream()
+                            .flatMap(service -> service.instances.values().stream())
+                            .filter(health -> health.isEjected(now))
+                            .count();
+                })
+                .description("当前被摘除的上游实例数")
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    /**
+     * 获取实例的健康统计，首次转发到该实例时创建
+     *
+     * @param serviceId 负载均衡使用的服务名，即 lb:// 路由的主机名
+     */
+    public InstanceHealth health(String serviceId, ServiceInstance instance) {
+        ServiceHealth service = services.get(serviceId);
+        if (service == null) {
+            service = services.computeIfAbsent(serviceId, id -> new ServiceHealth());
+        }
+        String address = instance.getHost() + ":" + instance.getPort();
+        InstanceHealth health = service.instances.get(address);
+        if (health == null) {
+            health = service.instances.computeIfAbsent(address, InstanceHealth::new);
+        }
+        return health;
+    }
+
+    /**
+     * 记录一次收到响应的转发
+     */
+    public void onResponse(String serviceId, InstanceHealth health, HttpStatusCode status, long latencyNanos) {
+        health.recordLatency(latencyNanos);
+        if (status != null && status.is5xxServerError()) {
+            health.consecutiveConnectFailures.set(0);
+            if (health.consecutiveErrors.incrementAndGet() >= properties.getConsecutiveErrors()) {
+                eject(serviceId, health, "consecutive-5xx");
+            }
+        } else {
+            health.resetFailures();
+        }
+    }
+
+    /**
+     * 记录一次失败的转发：连接失败单独计数，其余错误（读超时、连接被提前关闭等）按5xx处理
+     */
+    public void onError(String serviceId, InstanceHealth health, Throwable error) {
+        health.lastSeen = System.nanoTime();
+        if (error instanceof ConnectException) {
+            if (health.consecutiveConnectFailures.incrementAndGet() >= properties.getConsecutiveConnectFailures()) {
+                eject(serviceId, health, "connect-failure");
+            }
+        } else if (health.consecutiveErrors.incrementAndGet() >= properties.getConsecutiveErrors()) {
+            eject(serviceId, health, "consecutive-errors");
+        }
+    }
+
+    /**
+     * 从实例列表中去掉被摘除的实例，没有摘除时原样返回，不分配对象
+     */
+    public List<ServiceInstance> filter(String serviceId, List<ServiceInstance> instances) {
+        ServiceHealth service = services.get(serviceId);
+        if (service == null || service.ejected == 0 || !properties.isEnabled()) {
+            return instances;
+        }
+        long now = System.nanoTime();
+        List<ServiceInstance> result = null;
+        for (int i = 0; i < instances.size(); i++) {
+            ServiceInstance instance = instances.get(i);
+            InstanceHealth health = service.instances.get(instance.getHost() + ":" + instance.getPort());
+            if (health != null && health.isEjected(now)) {
+                if (result == null) {
+                    result = new ArrayList<>(instances.subList(0, i));
+                }
+            } else if (result != null) {
+                result.add(instance);
+            }
+        }
+        return result == null || result.isEmpty() ? instances : result;
+    }
+
+    private void eject(String serviceId, InstanceHealth health, String reason) {
+        ServiceHealth service = services.get(serviceId);
+        if (service == null || !properties.isEnabled()) {
+            return;
+        }
+        synchronized (service) {
+            long now = System.nanoTime();
+            if (health.isEjected(now)) {
+                return;
+            }
+            long ejectedNow = service.instances.values().stream().filter(h -> h.isEjected(now)).count();
+            if ((ejectedNow + 1) * 100 > (long) service.instances.size() * properties.getMaxEjectionPercent()) {
+                log.debug("服务 {} 已摘除 {} 个实例，达到比例上限，不再摘除 {}", serviceId, ejectedNow, health.getAddress());
+                return;
+            }
+            int ejections = health.ejections + 1;
+            long base = properties.getBaseEjectionTime().toNanos();
+            long duration = Math.min(properties.getMaxEjectionTime().toNanos(),
+                    base << Math.min(ejections - 1, MAX_BACKOFF_SHIFT));
+            health.ejections = ejections;
+            health.reason = reason;
+            health.ejectedUntil = now + duration;
+            health.consecutiveErrors.set(0);
+            health.consecutiveConnectFailures.set(0);
+            service.ejected++;
+            Counter.builder("gateway.outlier.ejections")
+                    .description("上游实例被摘除的次数")
+                    .tag("service", serviceId)
+                    .tag("reason", reason)
+                    .register(meterRegistry)
+                    .increment();
+            log.warn("摘除服务 {} 的上游实例 {}，原因: {}，第 {} 次连续摘除，{} 后重新接入",
+                    serviceId, health.getAddress(), reason, ejections, Duration.ofNanos(duration));
+        }
+    }
+
+    /**
+     * 每个统计周期：重新接入到期的实例，按延迟与同服务其他实例比较摘除慢实例，
+     * 健康实例的连续摘除次数回退一级，清除长时间无请求的实例
+     */
+    @Scheduled(fixedDelayString = "${gateway.outlier.interval:10000}")
+    public void evaluate() {
+        long now = System.nanoTime();
+        long idleDeadline = now - properties.getIdleTimeout().toNanos();
+        services.forEach((serviceId, service) -> {
+            synchronized (service) {
+                readmitExpired(serviceId, service, now);
+                ejectLatencyOutliers(serviceId, service, now);
+                service.instances.values().removeIf(health -> {
+                    boolean ejected = health.isEjected(now);
+                    boolean active = health.requests.sumThenReset() > 0;
+                    health.latencyNanos.reset();
+                    if (!ejected && active && health.ejections > 0 && health.consecutiveErrors.get() == 0) {
+                        health.ejections--;
+                    }
+                    return !ejected && health.lastSeen - idleDeadline < 0;
+                });
+            }
+        });
+        services.values().removeIf(service -> service.instances.isEmpty());
+    }
+
+    private void readmitExpired(String serviceId, ServiceHealth service, long now) {
+        for (InstanceHealth health : service.instances.values()) {
+            if (health.ejectedUntil != 0 && !health.isEjected(now)) {
+                health.ejectedUntil = 0;
+                service.ejected--;
+                log.info("服务 {} 的上游实例 {} 重新接入", serviceId, health.getAddress());
+            }
+        }
+    }
+
+    /**
+     * 平均延迟超过其他实例中位数 latency-factor 倍且不低于 min-outlier-latency 的实例视为延迟异常
+     */
+    private void ejectLatencyOutliers(String serviceId, ServiceHealth service, long now) {
+        List<InstanceHealth> candidates = new ArrayList<>();
+        List<Double> means = new ArrayList<>();
+        for (InstanceHealth health : service.instances.values()) {
+            long count = health.requests.sum();
+            if (count >= properties.getMinRequests() && !health.isEjected(now)) {
+                candidates.add(health);
+                means.add((double) health.latencyNanos.sum() / count);
+            }
+        }
+        if (candidates.size() < 2) {
+            return;
+        }
+        double minOutlier = properties.getMinOutlierLatency().toNanos();
+        for (int i = 0; i < candidates.size(); i++) {
+            double mean = means.get(i);
+            if (mean < minOutlier) {
+                continue;
+            }
+            List<Double> peers = new ArrayList<>(means);
+            peers.remove(i);
+            peers.sort(null);
+            double peerMedian = peers.size() % 2 == 1
+                    ? peers.get(peers.size() / 2)
+                    : (peers.get(peers.size() / 2 - 1) + peers.get(peers.size() / 2)) / 2;
+            if (mean > properties.getLatencyFactor() * peerMedian) {
+                eject(serviceId, candidates.get(i), "latency");
+            }
+        }
+    }
+
+    Map<String, Object> snapshot() {
+        long now = System.nanoTime();
+        Map<String, Object> result = new TreeMap<>();
+        services.forEach((serviceId, service) -> {
+            Map<String, Object> instances = new TreeMap<>();
+            service.instances.forEach((address, health) -> instances.put(address, health.snapshot(now)));
+            result.put(serviceId, instances);
+        });
+        return result;
+    }
+
+    /**
+     * 单个服务的实例统计；ejected 为已摘除但尚未在统计周期中重新接入的实例数，
+     * 为0时过滤实例列表可以直接跳过
+     */
+    private static final class ServiceHealth {
+
+        private final Map<String, InstanceHealth> instances = new ConcurrentHashMap<>();
+
+        private volatile int ejected;
+    }
+}
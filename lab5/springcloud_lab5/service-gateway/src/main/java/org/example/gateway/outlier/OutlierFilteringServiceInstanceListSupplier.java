@@ -0,0 +1,33 @@
+package org.example.gateway.outlier;
+
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.Request;
+import org.springframework.cloud.loadbalancer.core.DelegatingServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+
+/**
+ * 过滤被摘除实例的实例列表提供者
+ * 包在带缓存的服务发现提供者外层，每次选择实例时按最新的摘除状态过滤，摘除立即生效而不受实例列表缓存时间影响。
+ */
+public class OutlierFilteringServiceInstanceListSupplier extends DelegatingServiceInstanceListSupplier {
+
+    private final OutlierDetector detector;
+
+    public OutlierFilteringServiceInstanceListSupplier(ServiceInstanceListSupplier delegate, OutlierDetector detector) {
+        super(delegate);
+        this.detector = detector;
+    }
+
+    @Override
+    public Flux<List<ServiceInstance>> get() {
+        return getDelegate().get().map(instances -> detector.filter(getServiceId(), instances));
+    }
+
+    @Override
+    public Flux<List<ServiceInstance>> get(Request request) {
+        return getDelegate().get(request).map(instances -> detector.filter(getServiceId(), instances));
+    }
+}
@@ -0,0 +1,22 @@
+package org.example.gateway.outlier;
+
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+
+/**
+ * 各服务负载均衡子容器的默认配置，由 {@link org.example.gateway.config.LoadBalancerConfig} 注册
+ * 不加 @Configuration，避免被主容器扫描后在主容器中创建这些Bean。
+ */
+public class OutlierLoadBalancerConfiguration {
+
+    @Bean
+    public ServiceInstanceListSupplier outlierFilteringServiceInstanceListSupplier(
+            ConfigurableApplicationContext context, OutlierDetector detector) {
+        ServiceInstanceListSupplier discovery = ServiceInstanceListSupplier.builder()
+                .withDiscoveryClient()
+                .withCaching()
+                .build(context);
+        return new OutlierFilteringServiceInstanceListSupplier(discovery, detector);
+    }
+}
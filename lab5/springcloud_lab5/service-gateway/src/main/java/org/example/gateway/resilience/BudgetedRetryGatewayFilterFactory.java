@@ -0,0 +1,277 @@
+package org.example.gateway.resilience;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.netty.handler.timeout.ReadTimeoutException;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.cloud.gateway.support.HasRouteId;
+import org.example.gateway.upstream.UpstreamPoolExhaustedException;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+import reactor.netty.Connection;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
+
+/**
+ * 带重试预算的路由级重试过滤器
+ * <pre>
+ * filters:
+ *   - name: BudgetedRetry
+ *     args:
+ *       retries: 2                  # 单个请求最多重试次数
+ *       statuses: BAD_GATEWAY, SERVICE_UNAVAILABLE, GATEWAY_TIMEOUT
+ *       methods: GET, HEAD, OPTIONS # 只允许幂等的方法，带请求体的请求不重试
+ *       first-backoff: 50ms
+ *       max-backoff: 1s
+ *       budget-percent: 20          # 最近窗口内重试数不超过请求数的 20%
+ *       min-retries-per-second: 1   # 低流量时的最低重试配额
+ *       budget-window: 10s
+ * </pre>
+ * 重试间隔采用指数退避加去相关抖动：下一次间隔在 [first-backoff, 上一次间隔 × 3] 内随机取值，不超过 max-backoff，
+ * 避免同一时刻失败的请求同时重试。上游整体降级时重试预算很快耗尽，之后的失败直接返回，
+ * 发往上游的请求数最多放大到 1 + budget-percent%，而不是 1 + retries 倍。
+ * 需放在 CircuitBreaker 之后，使断路器与超时覆盖全部重试；每次重试重新经过负载均衡，可能选中其他实例。
+ */
+@Component
+@Slf4j
+public class BudgetedRetryGatewayFilterFactory
+        extends AbstractGatewayFilterFactory<BudgetedRetryGatewayFilterFactory.Config> {
+
+    // 幂等的方法；重试不重放请求体，这些方法带请求体（如带请求体的 DELETE）时不重试
+    private static final Set<HttpMethod> RETRYABLE_METHODS = Set.of(
+            HttpMethod.GET, HttpMethod.HEAD, HttpMethod.OPTIONS, HttpMethod.DELETE);
+
+    private final MeterRegistry meterRegistry;
+
+    // 按路由保存重试预算，路由刷新后参数不变时沿用已有计数
+    private final Map<String, RetryBudget> budgets = new ConcurrentHashMap<>();
+
+    public BudgetedRetryGatewayFilterFactory(MeterRegistry meterRegistry) {
+        super(Config.class);
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        RouteRetry retry = new RouteRetry(config);
+        return retry::filter;
+    }
+
+    @Override
+    public List<String> shortcutFieldOrder() {
+        return List.of("retries", "budgetPercent");
+    }
+
+    @Override
+    public String name() {
+        return "BudgetedRetry";
+    }
+
+    /**
+     * 单条路由的重试逻辑，持有该路由的配置、预算与指标
+     */
+    private final class RouteRetry {
+
+        private final String routeId;
+
+        private final int retries;
+
+        private final Set<Integer> statuses;
+
+        private final Set<HttpMethod> methods;
+
+        private final long firstBackoffNanos;
+
+        private final long maxBackoffNanos;
+
+        private final RetryBudget budget;
+
+        private final Counter requests;
+
+        private final Counter retried;
+
+        private final Counter exhausted;
+
+        private RouteRetry(Config config) {
+            this.routeId = config.getRouteId() != null ? config.getRouteId() : "";
+            this.retries = config.getRetries();
+            this.statuses = config.getStatuses().stream().map(HttpStatus::value).collect(Collectors.toUnmodifiableSet());
+            this.methods = config.getMethods().stream()
+                    .filter(method -> {
+                        if (RETRYABLE_METHODS.contains(method)) {
+                            return true;
+                        }
+                        log.warn("路由 {} 的 BudgetedRetry 忽略非幂等或带请求体的方法 {}", routeId, method);
+                        return false;
+                    })
+                    .collect(Collectors.toUnmodifiableSet());
+            this.firstBackoffNanos = config.getFirstBackoff().toNanos();
+            this.maxBackoffNanos = Math.max(firstBackoffNanos, config.getMaxBackoff().toNanos());
+
+            double ratio = config.getBudgetPercent() / 100.0;
+            this.budget = budgets.compute(routeId, (id, existing) ->
+                    existing != null && existing.sameSettings(ratio, config.getMinRetriesPerSecond(), config.getBudgetWindow())
+                            ? existing
+                            : new RetryBudget(ratio, config.getMinRetriesPerSecond(), config.getBudgetWindow()));
+
+            this.requests = Counter.builder("gateway.retry.requests")
+                    .description("进入重试过滤器的原始请求数")
+                    .tag("route", routeId)
+                    .register(meterRegistry);
+            this.retried = retries("retried");
+            this.exhausted = retries("budget_exhausted");
+            // 通过路由ID间接读取预算，路由刷新替换预算后仪表仍指向当前预算
+            Gauge.builder("gateway.retry.amplification", budgets, map -> {
+                        RetryBudget current = map.get(routeId);
+                        return current != null ? current.amplification() : 1.0;
+                    })
+                    .description("重试预算窗口内发往上游的请求数与原始请求数之比")
+                    .tag("route", routeId)
+                    .register(meterRegistry);
+        }
+
+        private Counter retries(String result) {
+            return Counter.builder("gateway.retry.retries")
+                    .description("需要重试的失败次数，budget_exhausted 为因预算耗尽而放弃的重试")
+                    .tag("route", routeId)
+                    .tag("result", result)
+                    .register(meterRegistry);
+        }
+
+        private Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+            if (!methods.contains(exchange.getRequest().getMethod()) || hasBody(exchange.getRequest().getHeaders())) {
+                return chain.filter(exchange);
+            }
+            requests.increment();
+            budget.onRequest();
+            return attempt(exchange, chain, 0, firstBackoffNanos);
+        }
+
+        /**
+         * 转发一次，失败时按次数上限与预算决定是否重试
+         * 用 materialize 把本次转发的结果转成信号，保证后续重试抛出的异常不会被本次的错误处理再次捕获
+         */
+        private Mono<Void> attempt(ServerWebExchange exchange, GatewayFilterChain chain, int attempt, long backoffNanos) {
+            return chain.filter(exchange).materialize().flatMap(signal -> {
+                Throwable error = signal.getThrowable();
+                Mono<Void> outcome = error != null ? Mono.error(error) : Mono.empty();
+                boolean failed = error != null ? retryable(error) : retryable(exchange.getResponse().getStatusCode());
+                if (!failed || attempt >= retries || exchange.getResponse().isCommitted()) {
+                    return outcome;
+                }
+                if (!budget.tryAcquire()) {
+                    exhausted.increment();
+                    log.debug("路由 {} 重试预算耗尽，放弃重试", routeId);
+                    return outcome;
+                }
+                retried.increment();
+                long delay = nextBackoff(backoffNanos);
+                reset(exchange);
+                return Mono.delay(Duration.ofNanos(delay))
+                        .then(Mono.defer(() -> attempt(exchange, chain, attempt + 1, delay)));
+            });
+        }
+
+        private boolean retryable(HttpStatusCode status) {
+            return status != null && statuses.contains(status.value());
+        }
+
+        /**
+         * 连接失败、读超时可以重试；网关把响应超时转成 504 的 ResponseStatusException，按状态码判断。
+         * 网关本地连接池已满（503）不重试，重试只会在连接池饱和时继续消耗预算并加重负载
+         */
+        private boolean retryable(Throwable error) {
+            if (error instanceof UpstreamPoolExhaustedException) {
+                return false;
+            }
+            if (error instanceof ResponseStatusException statusError) {
+                return retryable(statusError.getStatusCode());
+            }
+            return error instanceof IOException || error instanceof TimeoutException
+                    || error instanceof ReadTimeoutException;
+        }
+
+        private static boolean hasBody(HttpHeaders headers) {
+            return headers.getContentLength() > 0 || headers.containsKey(HttpHeaders.TRANSFER_ENCODING);
+        }
+
+        /**
+         * 去相关抖动：在 [first-backoff, 上一次间隔 × 3] 内均匀取值，不超过 max-backoff
+         */
+        private long nextBackoff(long previousNanos) {
+            long upper = Math.min(maxBackoffNanos, previousNanos * 3);
+            if (upper <= firstBackoffNanos) {
+                return firstBackoffNanos;
+            }
+            return ThreadLocalRandom.current().nextLong(firstBackoffNanos, upper + 1);
+        }
+
+        /**
+         * 丢弃失败的上游响应并清除路由标记，使下一次转发重新经过负载均衡与路由过滤器
+         */
+        private void reset(ServerWebExchange exchange) {
+            Connection connection = exchange.getAttribute(ServerWebExchangeUtils.CLIENT_RESPONSE_CONN_ATTR);
+            if (connection != null) {
+                if (!connection.isDisposed()) {
+                    connection.dispose();
+                }
+                exchange.getAttributes().remove(ServerWebExchangeUtils.CLIENT_RESPONSE_CONN_ATTR);
+            }
+            ServerWebExchangeUtils.reset(exchange);
+        }
+    }
+
+    /**
+     * 过滤器参数
+     */
+    @Data
+    public static class Config implements HasRouteId {
+
+        // 单个请求最多重试次数
+        private int retries = 2;
+
+        // 触发重试的上游响应状态码
+        private List<HttpStatus> statuses = List.of(
+                HttpStatus.BAD_GATEWAY, HttpStatus.SERVICE_UNAVAILABLE, HttpStatus.GATEWAY_TIMEOUT);
+
+        // 允许重试的请求方法，只接受 GET、HEAD、OPTIONS、DELETE
+        private List<HttpMethod> methods = List.of(HttpMethod.GET, HttpMethod.HEAD, HttpMethod.OPTIONS);
+
+        // 首次重试间隔，也是抖动的下限
+        private Duration firstBackoff = Duration.ofMillis(50);
+
+        // 重试间隔上限
+        private Duration maxBackoff = Duration.ofSeconds(1);
+
+        // 预算窗口内重试数占请求数的上限百分比
+        private double budgetPercent = 20;
+
+        // 低流量时也允许的每秒重试次数
+        private int minRetriesPerSecond = 1;
+
+        // 重试预算的统计窗口
+        private Duration budgetWindow = Duration.ofSeconds(10);
+
+        private String routeId;
+    }
+}
@@ -0,0 +1,94 @@
+package org.example.gateway.resilience;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 按路由配置的断路器与超时参数
+ * 路由ID即断路器名称；路由配置中未指定的参数沿用 defaults
+ */
+@Data
+@ConfigurationProperties(prefix = "gateway.circuit-breaker")
+public class CircuitBreakerProfileProperties {
+
+    // 所有路由的默认参数
+    private Profile defaults = Profile.builtIn();
+
+    // 路由ID -> 该路由的参数
+    private Map<String, Profile> routes = new LinkedHashMap<>();
+
+    /**
+     * 取路由的最终参数：路由配置覆盖默认配置
+     */
+    public Profile resolve(String routeId) {
+        Profile profile = routes.get(routeId);
+        return profile != null ? profile.mergeInto(defaults) : defaults.mergeInto(Profile.builtIn());
+    }
+
+    @Data
+    public static class Profile {
+
+        // 滑动窗口大小
+        private Integer slidingWindowSize;
+
+        // 计算失败率之前所需的最小调用数
+        private Integer minimumNumberOfCalls;
+
+        // 失败率阈值（百分比），超过后断路器打开
+        private Float failureRateThreshold;
+
+        // 慢调用比例阈值（百分比），超过后断路器打开
+        private Float slowCallRateThreshold;
+
+        // 超过该耗时的调用记为慢调用
+        private Duration slowCallDurationThreshold;
+
+        // 断路器打开状态的持续时间，之后变为半开
+        private Duration waitDurationInOpenState;
+
+        // 半开状态允许的调用次数
+        private Integer permittedNumberOfCallsInHalfOpenState;
+
+        // 调用超时时间
+        private Duration timeout;
+
+        /**
+         * 与原先全局配置一致的内置默认值
+         */
+        static Profile builtIn() {
+            Profile profile = new Profile();
+            profile.slidingWindowSize = 10;
+            profile.minimumNumberOfCalls = 5;
+            profile.failureRateThreshold = 50.0f;
+            profile.slowCallRateThreshold = 100.0f;
+            profile.slowCallDurationThreshold = Duration.ofSeconds(60);
+            profile.waitDurationInOpenState = Duration.ofSeconds(5);
+            profile.permittedNumberOfCallsInHalfOpenState = 3;
+            profile.timeout = Duration.ofSeconds(3);
+            return profile;
+        }
+
+        /**
+         * 以 base 为底，用本配置中已设置的参数覆盖
+         */
+        Profile mergeInto(Profile base) {
+            Profile merged = new Profile();
+            merged.slidingWindowSize = slidingWindowSize != null ? slidingWindowSize : base.slidingWindowSize;
+            merged.minimumNumberOfCalls = minimumNumberOfCalls != null ? minimumNumberOfCalls : base.minimumNumberOfCalls;
+            merged.failureRateThreshold = failureRateThreshold != null ? failureRateThreshold : base.failureRateThreshold;
+            merged.slowCallRateThreshold = slowCallRateThreshold != null ? slowCallRateThreshold : base.slowCallRateThreshold;
+            merged.slowCallDurationThreshold = slowCallDurationThreshold != null
+                    ? slowCallDurationThreshold : base.slowCallDurationThreshold;
+            merged.waitDurationInOpenState = waitDurationInOpenState != null
+                    ? waitDurationInOpenState : base.waitDurationInOpenState;
+            merged.permittedNumberOfCallsInHalfOpenState = permittedNumberOfCallsInHalfOpenState != null
+                    ? permittedNumberOfCallsInHalfOpenState : base.permittedNumberOfCallsInHalfOpenState;
+            merged.timeout = timeout != null ? timeout : base.timeout;
+            return merged;
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package org.example.gateway.resilience;
+
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.timelimiter.TimeLimiter;
+import io.github.resilience4j.timelimiter.TimeLimiterConfig;
+import io.github.resilience4j.timelimiter.TimeLimiterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.circuitbreaker.resilience4j.ReactiveResilience4JCircuitBreakerFactory;
+import org.springframework.cloud.circuitbreaker.resilience4j.Resilience4JConfigBuilder;
+import org.springframework.cloud.context.scope.refresh.RefreshScopeRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 按路由应用断路器与超时配置，并在配置刷新后原地重建
+ * 刷新时用新配置创建断路器与超时器，通过注册表的 replace 替换同名实例：
+ * 进行中的调用仍由旧实例完成，之后的调用使用新实例；配置未变化的路由保留原实例及其状态。
+ */
+@Component
+@Slf4j
+public class CircuitBreakerProfiles {
+
+    private final CircuitBreakerProfileProperties properties;
+
+    private final ObjectProvider<ReactiveResilience4JCircuitBreakerFactory> factoryProvider;
+
+    // 断路器名称 -> 当前生效的配置，用于判断刷新后是否需要重建
+    private final Map<String, CircuitBreakerProfileProperties.Profile> applied = new ConcurrentHashMap<>();
+
+    public CircuitBreakerProfiles(CircuitBreakerProfileProperties properties,
+                                  ObjectProvider<ReactiveResilience4JCircuitBreakerFactory> factoryProvider) {
+        this.properties = properties;
+        this.factoryProvider = factoryProvider;
+    }
+
+    /**
+     * 把按路由解析配置的规则注册到断路器工厂，工厂按名称创建断路器时使用
+     */
+    public void configure(ReactiveResilience4JCircuitBreakerFactory factory) {
+        factory.configureDefault(id -> {
+            CircuitBreakerProfileProperties.Profile profile = properties.resolve(id);
+            applied.putIfAbsent(id, profile);
+            return new Resilience4JConfigBuilder(id)
+                    .circuitBreakerConfig(circuitBreakerConfig(profile))
+                    .timeLimiterConfig(timeLimiterConfig(profile))
+                    .build();
+        });
+    }
+
+    @EventListener(RefreshScopeRefreshedEvent.class)
+    public synchronized void onRefresh() {
+        ReactiveResilience4JCircuitBreakerFactory factory = factoryProvider.getIfAvailable();
+        if (factory == null) {
+            return;
+        }
+        configure(factory);
+        CircuitBreakerRegistry breakers = factory.getCircuitBreakerRegistry();
+        TimeLimiterRegistry timeLimiters = factory.getTimeLimiterRegistry();
+        for (CircuitBreaker breaker : breakers.getAllCircuitBreakers()) {
+            String name = breaker.getName();
+            CircuitBreakerProfileProperties.Profile profile = properties.resolve(name);
+            if (Objects.equals(applied.get(name), profile)) {
+                continue;
+            }
+            try {
+                breakers.replace(name, CircuitBreaker.of(name, circuitBreakerConfig(profile), breaker.getTags()));
+                TimeLimiter timeLimiter = timeLimiters.find(name).orElse(null);
+                if (timeLimiter != null) {
+                    timeLimiters.replace(name, TimeLimiter.of(name, timeLimiterConfig(profile), timeLimiter.getTags()));
+                }
+                applied.put(name, profile);
+                log.info("路由 {} 的断路器配置已更新: {}", name, profile);
+            } catch (RuntimeException e) {
+                log.error("更新路由 {} 的断路器配置失败，继续使用原配置", name, e);
+            }
+        }
+    }
+
+    /**
+     * 各断路器的当前状态与生效的配置
+     */
+    public Map<String, Object> snapshot() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        ReactiveResilience4JCircuitBreakerFactory factory = factoryProvider.getIfAvailable();
+        if (factory == null) {
+            return result;
+        }
+        TimeLimiterRegistry timeLimiters = factory.getTimeLimiterRegistry();
+        factory.getCircuitBreakerRegistry().getAllCircuitBreakers().stream()
+                .sorted((a, b) -> a.getName().compareTo(b.getName()))
+                .forEach(breaker -> {
+                    CircuitBreaker.Metrics metrics = breaker.getMetrics();
+                    CircuitBreakerConfig config = breaker.getCircuitBreakerConfig();
+                    Map<String, Object> state = new LinkedHashMap<>();
+                    state.put("state", breaker.getState());
+                    state.put("failureRate", metrics.getFailureRate());
+                    state.put("slowCallRate", metrics.getSlowCallRate());
+                    state.put("bufferedCalls", metrics.getNumberOfBufferedCalls());
+                    state.put("failedCalls", metrics.getNumberOfFailedCalls());
+                    state.put("slowCalls", metrics.getNumberOfSlowCalls());
+                    state.put("notPermittedCalls", metrics.getNumberOfNotPermittedCalls());
+                    state.put("slidingWindowSize", config.getSlidingWindowSize());
+                    state.put("failureRateThreshold", config.getFailureRateThreshold());
+                    state.put("slowCallDurationThreshold", config.getSlowCallDurationThreshold().toString());
+                    timeLimiters.find(breaker.getName()).ifPresent(timeLimiter ->
+                            state.put("timeout", timeLimiter.getTimeLimiterConfig().getTimeoutDuration().toString()));
+                    result.put(breaker.getName(), state);
+                });
+        return result;
+    }
+
+    private static CircuitBreakerConfig circuitBreakerConfig(CircuitBreakerProfileProperties.Profile profile) {
+        return CircuitBreakerConfig.custom()
+                .slidingWindowSize(profile.getSlidingWindowSize())
+                .minimumNumberOfCalls(profile.getMinimumNumberOfCalls())
+                .failureRateThreshold(profile.getFailureRateThreshold())
+                .slowCallRateThreshold(profile.getSlowCallRateThreshold())
+                .slowCallDurationThreshold(profile.getSlowCallDurationThreshold())
+                .waitDurationInOpenState(profile.getWaitDurationInOpenState())
+                .permittedNumberOfCallsInHalfOpenState(profile.getPermittedNumberOfCallsInHalfOpenState())
+                // 当调用失败时记录为异常
+                .recordExceptions(Exception.class)
+                .build();
+    }
+
+    private static TimeLimiterConfig timeLimiterConfig(CircuitBreakerProfileProperties.Profile profile) {
+        return TimeLimiterConfig.custom()
+                .timeoutDuration(profile.getTimeout())
+                .build();
+    }
+}
@@ -0,0 +1,26 @@
+package org.example.gateway.resilience;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * 断路器监控端点，访问 /actuator/gatewaycircuitbreakers 查看各路由断路器的状态与生效的配置
+ */
+@Component
+@Endpoint(id = "gatewaycircuitbreakers")
+public class GatewayCircuitBreakerEndpoint {
+
+    private final CircuitBreakerProfiles profiles;
+
+    public GatewayCircuitBreakerEndpoint(CircuitBreakerProfiles profiles) {
+        this.profiles = profiles;
+    }
+
+    @ReadOperation
+    public Map<String, Object> circuitBreakers() {
+        return profiles.snapshot();
+    }
+}
@@ -0,0 +1,431 @@
+package org.example.gateway.resilience;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.Data;
+import org.example.gateway.filter.AdaptiveConcurrencyFilter;
+import org.example.gateway.metrics.LatencyHistogram;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.DefaultRequest;
+import org.springframework.cloud.client.loadbalancer.DefaultResponse;
+import org.springframework.cloud.client.loadbalancer.LoadBalancerUriTools;
+import org.springframework.cloud.client.loadbalancer.Request;
+import org.springframework.cloud.client.loadbalancer.RequestData;
+import org.springframework.cloud.client.loadbalancer.RequestDataContext;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.client.loadbalancer.reactive.ReactiveLoadBalancer;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.OrderedGatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.HasRouteId;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.cloud.loadbalancer.support.LoadBalancerClientFactory;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpRequestDecorator;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.ServerWebExchangeDecorator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+import reactor.core.publisher.Sinks;
+import reactor.netty.Connection;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 路由级对冲请求过滤器，只用于 {@code lb://} 路由上的幂等请求
+ * <pre>
+ * filters:
+ *   - name: Hedging
+ *     args:
+ *       percentile: 95      # 超过该路由最近延迟的此分位仍未收到响应时发出对冲请求
+ *       budget-percent: 5   # 最近窗口内对冲请求数不超过请求数的 5%
+ * </pre>
+ * 负载均衡选定实例后，首个请求在该路由最近的 p95 内没有收到响应头时，向另一个实例发出相同的请求，
+ * 先收到响应头的一方胜出，另一方被取消并关闭连接。对冲次数受 {@link RetryBudget} 约束，
+ * 上游整体变慢时预算很快耗尽，不会把负载翻倍。延迟样本不足 min-samples 时不对冲。
+ * 两次转发各自使用独立的交换属性与响应头，胜出后再合并回原交换，由 NettyWriteResponseFilter 写出响应体。
+ * 对冲请求不经过按实例的并发限制，也不重放请求体，带请求体的请求不对冲。
+ */
+@Component
+public class HedgingGatewayFilterFactory extends AbstractGatewayFilterFactory<HedgingGatewayFilterFactory.Config> {
+
+    // 在负载均衡与并发限制之后、NettyRoutingFilter 之前执行，此时首个请求的实例已经选定
+    public static final int ORDER = AdaptiveConcurrencyFilter.ORDER + 1;
+
+    private static final Set<HttpMethod> HEDGEABLE_METHODS = Set.of(HttpMethod.GET, HttpMethod.HEAD);
+
+    // 为选到与首个请求不同的实例，最多向负载均衡器请求的次数
+    private static final int CHOOSE_ATTEMPTS = 3;
+
+    private final LoadBalancerClientFactory clientFactory;
+
+    private final MeterRegistry meterRegistry;
+
+    // 按路由保存延迟直方图与对冲预算，路由刷新后参数不变时沿用
+    private final Map<String, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+
+    private final Map<String, RetryBudget> budgets = new ConcurrentHashMap<>();
+
+    public HedgingGatewayFilterFactory(LoadBalancerClientFactory clientFactory, MeterRegistry meterRegistry) {
+        super(Config.class);
+        this.clientFactory = clientFactory;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        RouteHedging hedging = new RouteHedging(config);
+        return new OrderedGatewayFilter(hedging::filter, ORDER);
+    }
+
+    @Override
+    public List<String> shortcutFieldOrder() {
+        return List.of("percentile", "budgetPercent");
+    }
+
+    @Override
+    public String name() {
+        return "Hedging";
+    }
+
+    /**
+     * 单条路由的对冲逻辑，持有该路由的配置、延迟分布、预算与指标
+     */
+    private final class RouteHedging {
+
+        private final String routeId;
+
+        private final double quantile;
+
+        private final long minDelayNanos;
+
+        private final long maxDelayNanos;
+
+        private final long minSamples;
+
+        private final LatencyHistogram histogram;
+
+        private final RetryBudget budget;
+
+        private final Counter requests;
+
+        private final Counter sent;
+
+        private final Counter won;
+
+        private final Counter exhausted;
+
+        private final Counter noInstance;
+
+        private RouteHedging(Config config) {
+            this.routeId = config.getRouteId() != null ? config.getRouteId() : "";
+            this.quantile = config.getPercentile() / 100.0;
+            this.minDelayNanos = config.getMinDelay().toNanos();
+            this.maxDelayNanos = Math.max(minDelayNanos, config.getMaxDelay().toNanos());
+            this.minSamples = config.getMinSamples();
+            this.histogram = histograms.compute(routeId, (id, existing) ->
+                    existing != null && existing.getWindow().equals(config.getWindow())
+                            ? existing
+                            : new LatencyHistogram(config.getWindow()));
+            double ratio = config.getBudgetPercent() / 100.0;
+            this.budget = budgets.compute(routeId, (id, existing) ->
+                    existing != null && existing.sameSettings(ratio, config.getMinHedgesPerSecond(), config.getWindow())
+                            ? existing
+                            : new RetryBudget(ratio, config.getMinHedgesPerSecond(), config.getWindow()));
+
+            this.requests = Counter.builder("gateway.hedging.requests")
+                    .description("可对冲的原始请求数")
+                    .tag("route", routeId)
+                    .register(meterRegistry);
+            this.sent = hedges("sent");
+            this.won = hedges("won");
+            this.exhausted = hedges("budget_exhausted");
+            this.noInstance = hedges("no_instance");
+            Gauge.builder("gateway.hedging.delay", histograms, map -> {
+                        LatencyHistogram current = map.get(routeId);
+                        return current != null ? current.percentile(quantile) / 1_000_000.0 : 0;
+                    })
+                    .description("当前的对冲等待时间，即该路由最近延迟的分位数")
+                    .baseUnit("milliseconds")
+                    .tag("route", routeId)
+                    .register(meterRegistry);
+        }
+
+        private Counter hedges(String result) {
+            return Counter.builder("gateway.hedging.hedges")
+                    .description("对冲请求数，won 为先于首个请求返回的对冲请求，budget_exhausted 与 no_instance 为未能发出的对冲")
+                    .tag("route", routeId)
+                    .tag("result", result)
+                    .register(meterRegistry);
+        }
+
+        private Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+            ServerHttpRequest request = exchange.getRequest();
+            Route route = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+            URI url = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_REQUEST_URL_ATTR);
+            Response<ServiceInstance> selected = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_LOADBALANCER_RESPONSE_ATTR);
+            if (!HEDGEABLE_METHODS.contains(request.getMethod()) || hasBody(request) || route == null
+                    || !"lb".equals(route.getUri().getScheme()) || url == null
+                    || selected == null || !selected.hasServer()) {
+                return chain.filter(exchange);
+            }
+            requests.increment();
+            budget.onRequest();
+            long start = System.nanoTime();
+            LatencyHistogram.Snapshot latency = histogram.snapshot();
+            if (latency.count() < minSamples) {
+                return chain.filter(exchange).doFinally(signal -> record(signal, start));
+            }
+            long delay = Math.min(maxDelayNanos, Math.max(minDelayNanos, latency.percentile(quantile)));
+            return race(exchange, chain, route.getUri().getHost(), selected.getServer(), url, start, delay);
+        }
+
+        /**
+         * 首个请求立即发出，等待 delay 后仍未返回时发出对冲请求，取先收到响应头的一方
+         * 首个请求在对冲发出前失败时直接返回其错误，交给外层的重试与断路器处理
+         */
+        private Mono<Void> race(ServerWebExchange exchange, GatewayFilterChain chain, String serviceId,
+                                ServiceInstance primaryInstance, URI url, long start, long delay) {
+            AtomicReference<Attempt> winner = new AtomicReference<>();
+            AtomicReference<Throwable> primaryError = new AtomicReference<>();
+            Sinks.One<Boolean> primaryFailed = Sinks.one();
+
+            Attempt primary = new Attempt(exchange, url, null);
+            Mono<Attempt> first = forward(primary, chain, winner)
+                    .doFinally(signal -> record(signal, start))
+                    .onErrorResume(error -> {
+                        primaryError.set(error);
+                        primaryFailed.tryEmitValue(Boolean.TRUE);
+                        return Mono.empty();
+                    });
+            Mono<Attempt> second = Mono.delay(Duration.ofNanos(delay))
+                    .takeUntilOther(primaryFailed.asMono())
+                    .flatMap(tick -> chooseOther(exchange, serviceId, primaryInstance))
+                    .filter(instance -> {
+                        if (budget.tryAcquire()) {
+                            return true;
+                        }
+                        exhausted.increment();
+                        return false;
+                    })
+                    .flatMap(instance -> {
+                        sent.increment();
+                        Attempt hedge = new Attempt(exchange, LoadBalancerUriTools.reconstructURI(instance, url),
+                                new DefaultResponse(instance));
+                        return forward(hedge, chain, winner).onErrorResume(error -> Mono.empty());
+                    });
+
+            return Mono.firstWithValue(first, second)
+                    .onErrorMap(NoSuchElementException.class, error ->
+                            primaryError.get() != null ? primaryError.get() : error)
+                    .doOnNext(attempt -> {
+                        if (attempt != primary) {
+                            won.increment();
+                        }
+                        attempt.commitTo(exchange);
+                    })
+                    .then();
+        }
+
+        /**
+         * 转发一次，收到响应头后争夺胜出权；落败或被取消的一方关闭自己的上游连接
+         */
+        private Mono<Attempt> forward(Attempt attempt, GatewayFilterChain chain, AtomicReference<Attempt> winner) {
+            return chain.filter(attempt.exchange)
+                    .then(Mono.fromSupplier(() -> attempt))
+                    .filter(self -> winner.compareAndSet(null, self))
+                    .doFinally(signal -> {
+                        if (winner.get() != attempt) {
+                            attempt.release();
+                        }
+                    });
+        }
+
+        /**
+         * 向负载均衡器请求与首个请求不同的实例，只有一个可用实例时返回空
+         */
+        private Mono<ServiceInstance> chooseOther(ServerWebExchange exchange, String serviceId, ServiceInstance primary) {
+            ReactiveLoadBalancer<ServiceInstance> loadBalancer = clientFactory.getInstance(serviceId);
+            if (loadBalancer == null) {
+                noInstance.increment();
+                return Mono.empty();
+            }
+            // 携带请求上下文，按路由选用的负载均衡策略选择对冲实例
+            Request<RequestDataContext> request = new DefaultRequest<>(
+                    new RequestDataContext(new RequestData(exchange.getRequest(), exchange.getAttributes())));
+            return Mono.defer(() -> Mono.from(loadBalancer.choose(request)))
+                    .repeat(CHOOSE_ATTEMPTS - 1)
+                    .filter(response -> response.hasServer() && !sameInstance(response.getServer(), primary))
+                    .next()
+                    .map(Response::getServer)
+                    .switchIfEmpty(Mono.defer(() -> {
+                        noInstance.increment();
+                        return Mono.empty();
+                    }));
+        }
+
+        /**
+         * 记录首个请求的耗时；被对冲请求抢先而取消时记录取消前已等待的时间，使分位数不会因对冲而持续下降
+         */
+        private void record(SignalType signal, long start) {
+            if (signal == SignalType.ON_COMPLETE || signal == SignalType.CANCEL) {
+                histogram.record(System.nanoTime() - start);
+            }
+        }
+    }
+
+    private static boolean hasBody(ServerHttpRequest request) {
+        HttpHeaders headers = request.getHeaders();
+        return headers.getContentLength() > 0 || headers.containsKey(HttpHeaders.TRANSFER_ENCODING);
+    }
+
+    private static boolean sameInstance(ServiceInstance a, ServiceInstance b) {
+        return a.getPort() == b.getPort() && a.getHost().equals(b.getHost());
+    }
+
+    /**
+     * 一次转发：持有独立的交换属性与响应状态、响应头，避免两次并发转发互相覆盖
+     */
+    private static final class Attempt {
+
+        private final Map<String, Object> attributes;
+
+        private final DetachedResponse response;
+
+        private final ServerWebExchange exchange;
+
+        private Attempt(ServerWebExchange original, URI url, Response<ServiceInstance> selected) {
+            this.attributes = new ConcurrentHashMap<>(original.getAttributes());
+            attributes.put(ServerWebExchangeUtils.GATEWAY_REQUEST_URL_ATTR, url);
+            if (selected != null) {
+                attributes.put(ServerWebExchangeUtils.GATEWAY_LOADBALANCER_RESPONSE_ATTR, selected);
+            }
+            this.response = new DetachedResponse(original.getResponse());
+            ServerHttpRequest request = new ServerHttpRequestDecorator(original.getRequest()) {
+                // 请求体只能订阅一次，可对冲的请求本身不带请求体
+                @Override
+                public Flux<DataBuffer> getBody() {
+                    return Flux.empty();
+                }
+            };
+            this.exchange = new ServerWebExchangeDecorator(original) {
+                @Override
+                public ServerHttpRequest getRequest() {
+                    return request;
+                }
+
+                @Override
+                public ServerHttpResponse getResponse() {
+                    return response;
+                }
+
+                @Override
+                public Map<String, Object> getAttributes() {
+                    return attributes;
+                }
+            };
+        }
+
+        /**
+         * 胜出后把上游响应的状态、响应头与连接等属性合并回原交换
+         */
+        private void commitTo(ServerWebExchange original) {
+            original.getAttributes().putAll(attributes);
+            ServerHttpResponse target = original.getResponse();
+            target.setStatusCode(response.getStatusCode());
+            target.getHeaders().clear();
+            target.getHeaders().putAll(response.getHeaders());
+        }
+
+        private void release() {
+            Object connection = attributes.get(ServerWebExchangeUtils.CLIENT_RESPONSE_CONN_ATTR);
+            if (connection instanceof Connection conn && !conn.isDisposed()) {
+                conn.dispose();
+            }
+        }
+    }
+
+    /**
+     * 只记录状态码与响应头的响应，不会提交也不写出响应体
+     */
+    private static final class DetachedResponse extends ServerHttpResponseDecorator {
+
+        private final HttpHeaders headers = new HttpHeaders();
+
+        private volatile HttpStatusCode status;
+
+        private DetachedResponse(ServerHttpResponse delegate) {
+            super(delegate);
+            headers.putAll(delegate.getHeaders());
+            this.status = delegate.getStatusCode();
+        }
+
+        @Override
+        public boolean setStatusCode(HttpStatusCode status) {
+            this.status = status;
+            return true;
+        }
+
+        @Override
+        public HttpStatusCode getStatusCode() {
+            return status;
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return headers;
+        }
+
+        @Override
+        public boolean isCommitted() {
+            return false;
+        }
+    }
+
+    /**
+     * 过滤器参数
+     */
+    @Data
+    public static class Config implements HasRouteId {
+
+        // 触发对冲的延迟分位，0~100
+        private double percentile = 95;
+
+        // 对冲等待时间的下限与上限
+        private Duration minDelay = Duration.ofMillis(10);
+
+        private Duration maxDelay = Duration.ofSeconds(2);
+
+        // 统计窗口内至少有这么多延迟样本才开始对冲
+        private long minSamples = 100;
+
+        // 对冲请求数占请求数的上限百分比
+        private double budgetPercent = 5;
+
+        // 低流量时也允许的每秒对冲次数
+        private int minHedgesPerSecond = 0;
+
+        // 延迟分布与对冲预算的统计窗口
+        private Duration window = Duration.ofSeconds(30);
+
+        private String routeId;
+    }
+}
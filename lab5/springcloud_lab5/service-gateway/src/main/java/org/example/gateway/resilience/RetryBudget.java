@@ -0,0 +1,113 @@
+package org.example.gateway.resilience;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 路由级重试预算：最近一个窗口内的重试次数不超过同期请求数的固定比例，另加每秒最低配额
+ * 对冲请求同样按此预算限制额外发出的请求数。
+ * 窗口按时间切分为若干桶，计数只做原子自增，不加锁；并发判断可能略微超出预算，
+ * 超出量不超过同一时刻并发判断的线程数，作为过载保护已经足够。
+ */
+public final class RetryBudget {
+
+    private static final int BUCKETS = 10;
+
+    private final double ratio;
+
+    private final double minRetries;
+
+    private final long bucketNanos;
+
+    private final long windowNanos;
+
+    private final AtomicLongArray epochs = new AtomicLongArray(BUCKETS);
+
+    private final AtomicLongArray requests = new AtomicLongArray(BUCKETS);
+
+    private final AtomicLongArray retries = new AtomicLongArray(BUCKETS);
+
+    /**
+     * @param ratio               重试次数占请求数的上限比例
+     * @param minRetriesPerSecond 低流量时也允许的每秒重试次数
+     * @param window              统计窗口
+     */
+    public RetryBudget(double ratio, int minRetriesPerSecond, Duration window) {
+        this.ratio = ratio;
+        this.windowNanos = window.toNanos();
+        this.bucketNanos = Math.max(1, windowNanos / BUCKETS);
+        this.minRetries = minRetriesPerSecond * (window.toMillis() / 1000.0);
+        for (int i = 0; i < BUCKETS; i++) {
+            epochs.set(i, Long.MIN_VALUE);
+        }
+    }
+
+    /**
+     * 记录一个原始请求
+     */
+    public void onRequest() {
+        requests.incrementAndGet(bucket(System.nanoTime()));
+    }
+
+    /**
+     * 尝试为一次重试扣减预算
+     *
+     * @return 预算充足时返回 true 并计入本次重试
+     */
+    public boolean tryAcquire() {
+        long now = System.nanoTime();
+        int bucket = bucket(now);
+        long epoch = now / bucketNanos;
+        long requestCount = 0;
+        long retryCount = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            if (epochs.get(i) > epoch - BUCKETS) {
+                requestCount += requests.get(i);
+                retryCount += retries.get(i);
+            }
+        }
+        if (retryCount + 1 > ratio * requestCount + minRetries) {
+            return false;
+        }
+        retries.incrementAndGet(bucket);
+        return true;
+    }
+
+    /**
+     * 最近窗口内的放大倍数：发往上游的请求数（原始请求加重试）与原始请求数之比
+     */
+    public double amplification() {
+        long epoch = System.nanoTime() / bucketNanos;
+        long requestCount = 0;
+        long retryCount = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            if (epochs.get(i) > epoch - BUCKETS) {
+                requestCount += requests.get(i);
+                retryCount += retries.get(i);
+            }
+        }
+        return requestCount == 0 ? 1.0 : (double) (requestCount + retryCount) / requestCount;
+    }
+
+    /**
+     * 配置是否与给定参数一致，路由刷新时一致则沿用已有的计数
+     */
+    public boolean sameSettings(double ratio, int minRetriesPerSecond, Duration window) {
+        return this.ratio == ratio && this.windowNanos == window.toNanos()
+                && this.minRetries == minRetriesPerSecond * (window.toMillis() / 1000.0);
+    }
+
+    /**
+     * 定位当前时间所在的桶，桶已过期时清零后复用
+     */
+    private int bucket(long now) {
+        long epoch = now / bucketNanos;
+        int index = (int) Math.floorMod(epoch, (long) BUCKETS);
+        long current = epochs.get(index);
+        if (current != epoch && epochs.compareAndSet(index, current, epoch)) {
+            requests.set(index, 0);
+            retries.set(index, 0);
+        }
+        return index;
+    }
+}
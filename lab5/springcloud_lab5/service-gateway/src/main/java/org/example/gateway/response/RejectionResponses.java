@@ -0,0 +1,112 @@
+package org.example.gateway.response;
+
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 网关拒绝响应（401/429/503等）
+ * 响应模板按状态码和提示信息编码一次后复用；写出时从响应的缓冲区工厂（Netty下为池化缓冲区）申请一块精确大小的缓冲区，
+ * 拷贝模板并追加时间戳与请求ID，不构造Map、不做JSON序列化，被拒绝的请求几乎不产生堆内存分配。
+ */
+@Component
+public class RejectionResponses {
+
+    // 每个状态码缓存的模板数上限，提示信息一般是有限的常量，超出后不再缓存
+    private static final int MAX_TEMPLATES = 256;
+
+    private static final MediaType JSON_UTF8 = new MediaType(MediaType.APPLICATION_JSON, StandardCharsets.UTF_8);
+
+    private static final byte[] REQUEST_ID = ",\"requestId\":\"".getBytes(StandardCharsets.US_ASCII);
+
+    private static final byte[] SUFFIX = "\"}".getBytes(StandardCharsets.US_ASCII);
+
+    // 按状态码分组的模板，查找时不需要构造组合键
+    private final Map<HttpStatus, Map<String, RejectionTemplate>> templates = new ConcurrentHashMap<>();
+
+    /**
+     * 获取（必要时创建）指定状态码与提示信息的模板，提示信息固定的调用方应在初始化时获取并保存
+     */
+    public RejectionTemplate template(HttpStatus status, String message) {
+        Map<String, RejectionTemplate> byMessage = templates.get(status);
+        if (byMessage == null) {
+            byMessage = templates.computeIfAbsent(status, s -> new ConcurrentHashMap<>());
+        }
+        RejectionTemplate template = byMessage.get(message);
+        if (template != null) {
+            return template;
+        }
+        template = new RejectionTemplate(status, message);
+        if (byMessage.size() < MAX_TEMPLATES) {
+            RejectionTemplate existing = byMessage.putIfAbsent(message, template);
+            if (existing != null) {
+                return existing;
+            }
+        }
+        return template;
+    }
+
+    /**
+     * 写出拒绝响应并结束请求
+     */
+    public Mono<Void> write(ServerWebExchange exchange, RejectionTemplate template) {
+        ServerHttpResponse response = exchange.getResponse();
+        DataBuffer buffer = encode(response.bufferFactory(), template,
+                exchange.getRequest().getId(), System.currentTimeMillis());
+        response.setStatusCode(template.getStatus());
+        response.getHeaders().setContentType(JSON_UTF8);
+        response.getHeaders().setContentLength(buffer.readableByteCount());
+        return response.writeWith(Mono.just(buffer));
+    }
+
+    /**
+     * 按模板编码响应体，缓冲区由调用方负责释放
+     */
+    public DataBuffer encode(DataBufferFactory bufferFactory, RejectionTemplate template, String requestId, long timestamp) {
+        byte[] prefix = template.prefix();
+        int length = prefix.length + digits(timestamp) + REQUEST_ID.length + requestId.length() + SUFFIX.length;
+        DataBuffer buffer = bufferFactory.allocateBuffer(length);
+        buffer.write(prefix, 0, prefix.length);
+        writeNumber(buffer, timestamp);
+        buffer.write(REQUEST_ID, 0, REQUEST_ID.length);
+        for (int i = 0; i < requestId.length(); i++) {
+            char c = requestId.charAt(i);
+            // 请求ID由服务器生成，正常情况下只含字母数字与'-'，其余字符替换以保证JSON合法
+            buffer.write(c > 0x20 && c < 0x7F && c != '"' && c != '\\' ? (byte) c : (byte) '_');
+        }
+        buffer.write(SUFFIX, 0, SUFFIX.length);
+        return buffer;
+    }
+
+    private static int digits(long value) {
+        int digits = 1;
+        while (value >= 10) {
+            value /= 10;
+            digits++;
+        }
+        return digits;
+    }
+
+    private static void writeNumber(DataBuffer buffer, long value) {
+        for (long divisor = pow10(digits(value) - 1); divisor > 0; divisor /= 10) {
+            buffer.write((byte) ('0' + value / divisor % 10));
+        }
+    }
+
+    private static long pow10(int exponent) {
+        long result = 1;
+        for (int i = 0; i < exponent; i++) {
+            result *= 10;
+        }
+        return result;
+    }
+}
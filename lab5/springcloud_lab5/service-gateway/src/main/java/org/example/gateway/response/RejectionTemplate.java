@@ -0,0 +1,61 @@
+package org.example.gateway.response;
+
+import org.springframework.http.HttpStatus;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 预编码的拒绝响应模板
+ * 响应体为 {"code":..,"message":"..","timestamp":..,"requestId":".."}，
+ * 时间戳之前的部分在创建时编码为字节数组并在所有请求间共享，只读不改；每次响应只追加时间戳与请求ID。
+ */
+public final class RejectionTemplate {
+
+    private final HttpStatus status;
+
+    private final String message;
+
+    private final byte[] prefix;
+
+    RejectionTemplate(HttpStatus status, String message) {
+        this.status = status;
+        this.message = message;
+        StringBuilder json = new StringBuilder(64 + message.length());
+        json.append("{\"code\":").append(status.value()).append(",\"message\":\"");
+        escape(message, json);
+        json.append("\",\"timestamp\":");
+        this.prefix = json.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    public HttpStatus getStatus() {
+        return status;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    byte[] prefix() {
+        return prefix;
+    }
+
+    private static void escape(String value, StringBuilder out) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> out.append("\\\"");
+                case '\\' -> out.append("\\\\");
+                case '\n' -> out.append("\\n");
+                case '\r' -> out.append("\\r");
+                case '\t' -> out.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        out.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.append(c);
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package org.example.gateway.route;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * 路由表监控端点，访问 /actuator/gatewayroutetable 查看路由表版本与最近一次刷新新增、修改、删除的路由数
+ */
+@Component
+@Endpoint(id = "gatewayroutetable")
+public class GatewayRouteTableEndpoint {
+
+    private final IncrementalRouteLocator routeLocator;
+
+    public GatewayRouteTableEndpoint(IncrementalRouteLocator routeLocator) {
+        this.routeLocator = routeLocator;
+    }
+
+    @ReadOperation
+    public Map<String, Object> table() {
+        return routeLocator.snapshot();
+    }
+}
@@ -0,0 +1,324 @@
+package org.example.gateway.route;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.cloud.gateway.config.GatewayProperties;
+import org.springframework.cloud.gateway.event.RefreshRoutesEvent;
+import org.springframework.cloud.gateway.event.RefreshRoutesResultEvent;
+import org.springframework.cloud.gateway.filter.FilterDefinition;
+import org.springframework.cloud.gateway.filter.factory.GatewayFilterFactory;
+import org.springframework.cloud.gateway.handler.predicate.RoutePredicateFactory;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.route.RouteDefinition;
+import org.springframework.cloud.gateway.route.RouteDefinitionLocator;
+import org.springframework.cloud.gateway.route.RouteDefinitionRouteLocator;
+import org.springframework.cloud.gateway.route.RouteLocator;
+import org.springframework.cloud.gateway.support.ConfigurationService;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.AnnotationAwareOrderComparator;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 增量刷新的路由表，替换 Spring Cloud Gateway 默认的 CachingRouteLocator
+ * 默认实现在每次 RefreshRoutesEvent（Eureka 每次拉取注册表、配置刷新）时重新编译全部路由。
+ * 这里按路由ID比较新旧路由定义，只重新编译新增或内容变化的路由，其余路由沿用原来的 Route 实例及其过滤器状态；
+ * 编译结果组成不可变的 {@link RouteTable}，通过一次 volatile 写整体替换。请求匹配只读取当前快照，
+ * 不会阻塞，也不会看到编译到一半的路由表。
+ * 单条路由编译失败时保留该路由的旧版本（新增的路由则不生效），获取路由定义失败时保留整张旧表。
+ * 刷新请求合并执行：刷新进行中到达的事件只会在本次结束后再触发一次刷新。
+ */
+@Slf4j
+@Primary
+@Component("cachedCompositeRouteLocator")
+public class IncrementalRouteLocator implements RouteLocator, Ordered,
+        ApplicationListener<RefreshRoutesEvent>, SmartInitializingSingleton {
+
+    private final RouteDefinitionLocator definitionLocator;
+
+    private final GatewayProperties gatewayProperties;
+
+    private final ObjectProvider<RouteLocator> routeLocators;
+
+    private final ApplicationEventPublisher publisher;
+
+    // 每次只向转换器提供一条待编译的定义，编译逻辑完全复用 RouteDefinitionRouteLocator
+    private final StagedDefinition staged = new StagedDefinition();
+
+    private final RouteDefinitionRouteLocator converter;
+
+    // 未处理的刷新请求数，大于0时表示有刷新正在进行
+    private final AtomicInteger pendingRefreshes = new AtomicInteger();
+
+    // 不是由路由定义生成的其他 RouteLocator（如Java代码定义的路由），每次刷新整体获取
+    private List<RouteLocator> otherLocators = List.of();
+
+    private volatile RouteTable table = RouteTable.EMPTY;
+
+    private volatile Flux<Route> routes = Flux.empty();
+
+    private volatile RefreshResult lastRefresh;
+
+    @SuppressWarnings("rawtypes")
+    public IncrementalRouteLocator(RouteDefinitionLocator definitionLocator,
+                                   List<RoutePredicateFactory> predicates,
+                                   List<GatewayFilterFactory> filterFactories,
+                                   GatewayProperties gatewayProperties,
+                                   ConfigurationService configurationService,
+                                   ObjectProvider<RouteLocator> routeLocators,
+                                   ApplicationEventPublisher publisher) {
+        this.definitionLocator = definitionLocator;
+        this.gatewayProperties = gatewayProperties;
+        this.routeLocators = routeLocators;
+        this.publisher = publisher;
+        this.converter = new RouteDefinitionRouteLocator(staged, predicates, filterFactories,
+                gatewayProperties, configurationService);
+    }
+
+    @Override
+    public Flux<Route> getRoutes() {
+        return routes;
+    }
+
+    /**
+     * 在Web服务器开始接收请求之前编译出第一张路由表
+     */
+    @Override
+    public void afterSingletonsInstantiated() {
+        otherLocators = routeLocators.orderedStream()
+                .filter(locator -> locator != this && !(locator instanceof RouteDefinitionRouteLocator))
+                .toList();
+        requestRefresh();
+    }
+
+    @Override
+    public void onApplicationEvent(RefreshRoutesEvent event) {
+        requestRefresh();
+    }
+
+    @Override
+    public int getOrder() {
+        return 0;
+    }
+
+    /**
+     * 路由表的版本与最近一次刷新的结果
+     */
+    public Map<String, Object> snapshot() {
+        RouteTable current = table;
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("version", current.version());
+        result.put("updatedAt", current.updatedAt().toString());
+        result.put("routes", current.routes().size());
+        result.put("definitionRoutes", current.compiled().size());
+        RefreshResult refresh = lastRefresh;
+        if (refresh != null) {
+            Map<String, Object> last = new LinkedHashMap<>();
+            last.put("at", refresh.at().toString());
+            last.put("added", refresh.added());
+            last.put("changed", refresh.changed());
+            last.put("removed", refresh.removed());
+            last.put("unchanged", refresh.unchanged());
+            last.put("failed", refresh.failed());
+            last.put("durationMs", refresh.durationNanos() / 1e6);
+            result.put("lastRefresh", last);
+        }
+        return result;
+    }
+
+    private void requestRefresh() {
+        if (pendingRefreshes.getAndIncrement() == 0) {
+            drain();
+        }
+    }
+
+    private void drain() {
+        int claimed = pendingRefreshes.get();
+        refresh().doFinally(signal -> {
+            if (pendingRefreshes.addAndGet(-claimed) > 0) {
+                drain();
+            }
+        }).subscribe();
+    }
+
+    private Mono<Void> refresh() {
+        long start = System.nanoTime();
+        RouteTable previous = table;
+        List<FilterDefinition> defaultFilters = List.copyOf(gatewayProperties.getDefaultFilters());
+        boolean recompileAll = !defaultFilters.equals(previous.defaultFilters());
+        return definitionLocator.getRouteDefinitions().collectList()
+                .flatMap(definitions -> compile(previous, definitions, recompileAll)
+                        .zipWith(Flux.fromIterable(otherLocators).concatMap(RouteLocator::getRoutes).collectList()))
+                .doOnNext(result -> publish(previous, result.getT1(), result.getT2(), defaultFilters, start))
+                .doOnError(e -> {
+                    log.error("获取路由定义失败，继续使用版本 {} 的路由表", previous.version(), e);
+                    publisher.publishEvent(new RefreshRoutesResultEvent(this, e));
+                })
+                .onErrorResume(e -> Mono.empty())
+                .then();
+    }
+
+    /**
+     * 比较新旧定义，只编译新增与内容变化的路由
+     */
+    private Mono<Compilation> compile(RouteTable previous, List<RouteDefinition> definitions, boolean recompileAll) {
+        Compilation compilation = new Compilation(previous);
+        List<RouteDefinition> changed = new ArrayList<>();
+        for (RouteDefinition definition : definitions) {
+            if (compilation.definitions.putIfAbsent(definition.getId(), definition) != null) {
+                log.warn("路由ID {} 重复，忽略后出现的定义", definition.getId());
+                continue;
+            }
+            RouteTable.CompiledRoute current = previous.compiled().get(definition.getId());
+            if (!recompileAll && current != null && current.definition().equals(definition)) {
+                compilation.entries.put(definition.getId(), current);
+            } else {
+                changed.add(definition);
+            }
+        }
+        return Flux.fromIterable(changed)
+                .concatMap(definition -> compile(definition).doOnNext(route -> compilation.fresh.put(route.getId(), route)))
+                .then(Mono.fromSupplier(compilation::assemble));
+    }
+
+    private Mono<Route> compile(RouteDefinition definition) {
+        return Mono.defer(() -> {
+            staged.definition = definition;
+            return converter.getRoutes().next();
+        }).onErrorResume(e -> {
+            log.error("路由 {} 编译失败", definition.getId(), e);
+            return Mono.empty();
+        });
+    }
+
+    private void publish(RouteTable previous, Compilation compilation, List<Route> others,
+                         List<FilterDefinition> defaultFilters, long start) {
+        boolean modified = previous == RouteTable.EMPTY || compilation.added + compilation.changed + compilation.removed > 0
+                || !others.isEmpty();
+        if (modified) {
+            List<Route> sorted = new ArrayList<>(compilation.entries.size() + others.size());
+            compilation.entries.values().forEach(entry -> sorted.add(entry.route()));
+            sorted.addAll(others);
+            // 与 CachingRouteLocator 相同的排序方式，稳定排序保持同一 order 下定义的先后顺序
+            sorted.sort(AnnotationAwareOrderComparator.INSTANCE);
+            RouteTable next = new RouteTable(previous.version() + 1, List.copyOf(sorted),
+                    Map.copyOf(compilation.entries), defaultFilters, Instant.now());
+            table = next;
+            routes = Flux.fromIterable(next.routes());
+        }
+        long elapsed = System.nanoTime() - start;
+        lastRefresh = new RefreshResult(Instant.now(), compilation.added, compilation.changed, compilation.removed,
+                compilation.unchanged, compilation.failed, elapsed);
+        if (modified || compilation.failed > 0) {
+            log.info("路由表版本 {}：新增 {}，修改 {}，删除 {}，未变 {}，失败 {}，耗时 {}ms", table.version(),
+                    compilation.added, compilation.changed, compilation.removed, compilation.unchanged,
+                    compilation.failed, TimeUnit.NANOSECONDS.toMillis(elapsed));
+        } else {
+            log.debug("路由定义未变化，沿用版本 {} 的路由表，共 {} 条", table.version(), compilation.unchanged);
+        }
+        publisher.publishEvent(new RefreshRoutesResultEvent(this));
+    }
+
+    /**
+     * 一次刷新的中间结果
+     */
+    private static final class Compilation {
+
+        private final RouteTable previous;
+
+        // 本次获取到的定义，按出现顺序
+        private final Map<String, RouteDefinition> definitions = new LinkedHashMap<>();
+
+        // 沿用的路由
+        private final Map<String, RouteTable.CompiledRoute> entries = new LinkedHashMap<>();
+
+        // 本次编译成功的路由
+        private final Map<String, Route> fresh = new HashMap<>();
+
+        private int added;
+
+        private int changed;
+
+        private int removed;
+
+        private int unchanged;
+
+        private int failed;
+
+        private Compilation(RouteTable previous) {
+            this.previous = previous;
+        }
+
+        /**
+         * 按定义的顺序合并沿用与新编译的路由
+         */
+        private Compilation assemble() {
+            Map<String, RouteTable.CompiledRoute> reused = new HashMap<>(entries);
+            entries.clear();
+            Map<String, RouteTable.CompiledRoute> ordered = new LinkedHashMap<>();
+            definitions.forEach((id, definition) -> {
+                RouteTable.CompiledRoute entry = reused.get(id);
+                RouteTable.CompiledRoute old = previous.compiled().get(id);
+                if (entry != null) {
+                    unchanged++;
+                } else if (fresh.containsKey(id)) {
+                    entry = new RouteTable.CompiledRoute(definition, fresh.get(id));
+                    if (old == null) {
+                        added++;
+                    } else {
+                        changed++;
+                    }
+                } else if (old != null) {
+                    // 旧定义仍保留在表中，下次刷新时会再次尝试编译新定义
+                    entry = old;
+                    failed++;
+                    log.warn("路由 {} 的新定义未能生效，继续使用旧版本", id);
+                } else {
+                    failed++;
+                    log.warn("路由 {} 未能编译，暂不生效", id);
+                }
+                if (entry != null) {
+                    ordered.put(id, entry);
+                }
+            });
+            for (String id : previous.compiled().keySet()) {
+                if (!definitions.containsKey(id)) {
+                    removed++;
+                }
+            }
+            entries.putAll(ordered);
+            return this;
+        }
+    }
+
+    /**
+     * 只返回当前待编译的一条定义
+     */
+    private static final class StagedDefinition implements RouteDefinitionLocator {
+
+        private RouteDefinition definition;
+
+        @Override
+        public Flux<RouteDefinition> getRouteDefinitions() {
+            return definition != null ? Flux.just(definition) : Flux.empty();
+        }
+    }
+
+    private record RefreshResult(Instant at, int added, int changed, int removed, int unchanged, int failed,
+                                 long durationNanos) {
+    }
+}
@@ -0,0 +1,30 @@
+package org.example.gateway.route;
+
+import org.springframework.cloud.gateway.filter.FilterDefinition;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.route.RouteDefinition;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 不可变的路由表快照，由 {@link IncrementalRouteLocator} 整体替换发布
+ *
+ * @param version        版本号，每次内容变化后加1
+ * @param routes         按顺序排好的全部路由，请求匹配时按此顺序逐条判断
+ * @param compiled       路由ID -> 编译该路由时的定义与结果，用于下次刷新时比较
+ * @param defaultFilters 编译时生效的默认过滤器，变化后所有路由都需要重新编译
+ * @param updatedAt      发布时间
+ */
+record RouteTable(long version, List<Route> routes, Map<String, CompiledRoute> compiled,
+                  List<FilterDefinition> defaultFilters, Instant updatedAt) {
+
+    static final RouteTable EMPTY = new RouteTable(0, List.of(), Map.of(), List.of(), Instant.EPOCH);
+
+    /**
+     * 一条由路由定义编译得到的路由
+     */
+    record CompiledRoute(RouteDefinition definition, Route route) {
+    }
+}
@@ -0,0 +1,115 @@
+package org.example.gateway.shedding;
+
+import io.netty.channel.EventLoopGroup;
+import io.netty.util.concurrent.EventExecutor;
+import lombok.extern.slf4j.Slf4j;
+import org.example.gateway.transport.TransportLoopResources;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 事件循环延迟探测
+ * 在每个事件循环线程上按固定间隔调度一个空任务，任务实际执行时间晚于预定时间的部分即该线程的排队延迟：
+ * 线程忙于处理请求或被阻塞时延迟随之增大。某个线程完全卡住时任务一直不执行，
+ * 读取时把已超过预定时间的部分也计为延迟，不会因为没有新样本而显示为正常。
+ */
+@Component
+@Slf4j
+public class EventLoopLagProbe implements DisposableBean {
+
+    private final LoadSheddingProperties properties;
+
+    private final TransportLoopResources loopResources;
+
+    private final List<Loop> loops = new ArrayList<>();
+
+    private volatile boolean running;
+
+    public EventLoopLagProbe(LoadSheddingProperties properties, TransportLoopResources loopResources) {
+        this.properties = properties;
+        this.loopResources = loopResources;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void start() {
+        if (!properties.isEnabled() || running) {
+            return;
+        }
+        running = true;
+        EventLoopGroup group = loopResources.onServer(loopResources.isNative());
+        long interval = properties.getProbeInterval().toNanos();
+        for (EventExecutor executor : group) {
+            Loop loop = new Loop(executor, interval);
+            loops.add(loop);
+            loop.schedule();
+        }
+        log.info("事件循环延迟探测已启动，{} 个线程，间隔 {}ms", loops.size(), properties.getProbeInterval().toMillis());
+    }
+
+    /**
+     * 自上次读取以来各线程的平均延迟，与仍未执行的探测已超时部分取较大值
+     *
+     * @return 延迟，单位纳秒
+     */
+    public long drainLag() {
+        long now = System.nanoTime();
+        long sum = 0;
+        long count = 0;
+        long overdue = 0;
+        for (Loop loop : loops) {
+            sum += loop.lagSum.getAndSet(0);
+            count += loop.samples.getAndSet(0);
+            overdue = Math.max(overdue, now - loop.dueAt);
+        }
+        long mean = count > 0 ? sum / count : 0;
+        return Math.max(mean, overdue);
+    }
+
+    @Override
+    public void destroy() {
+        running = false;
+    }
+
+    /**
+     * 单个事件循环线程上的探测任务
+     */
+    private final class Loop implements Runnable {
+
+        private final EventExecutor executor;
+
+        private final long interval;
+
+        private final AtomicLong lagSum = new AtomicLong();
+
+        private final AtomicLong samples = new AtomicLong();
+
+        // 下一次探测的预定执行时间
+        private volatile long dueAt;
+
+        private Loop(EventExecutor executor, long interval) {
+            this.executor = executor;
+            this.interval = interval;
+        }
+
+        private void schedule() {
+            dueAt = System.nanoTime() + interval;
+            executor.schedule(this, interval, TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public void run() {
+            lagSum.addAndGet(Math.max(0, System.nanoTime() - dueAt));
+            samples.incrementAndGet();
+            if (running && !executor.isShuttingDown()) {
+                schedule();
+            }
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package org.example.gateway.shedding;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * 过载保护监控端点，访问 /actuator/gatewayshedding 查看当前拒绝级别、过载指标与各优先级的放行和拒绝数
+ */
+@Component
+@Endpoint(id = "gatewayshedding")
+public class GatewaySheddingEndpoint {
+
+    private final LoadShedder shedder;
+
+    public GatewaySheddingEndpoint(LoadShedder shedder) {
+        this.shedder = shedder;
+    }
+
+    @ReadOperation
+    public Map<String, Object> shedding() {
+        return shedder.snapshot();
+    }
+}
@@ -0,0 +1,239 @@
+package org.example.gateway.shedding;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.example.gateway.metrics.LatencyHistogram;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 按优先级拒绝请求的过载控制器
+ * 定期读取事件循环延迟与上游响应耗时分位数，任一连续 overload-periods 个周期超过阈值时把拒绝级别提高一级，
+ * 上游耗时按路由分别统计，每条路由与自己的阈值（路由元数据 upstream-latency-threshold，未配置时为全局阈值）比较，
+ * 本来就慢的路由不会让其他路由的请求被拒绝；
+ * 全部低于阈值乘以 recovery-ratio 时降低一级：单次GC停顿或启动时的JIT编译不会触发拒绝。
+ * 级别1拒绝 LOW，级别2再拒绝 NORMAL，级别3再拒绝 HIGH，CRITICAL 始终放行。
+ * 每个周期最多调整一级，过载持续时才逐级扩大拒绝范围。
+ * 请求路径上只读取一个 volatile 字段判断是否拒绝。
+ */
+@Component
+@Slf4j
+public class LoadShedder {
+
+    // 路由元数据中该路由的上游耗时阈值，如 5s
+    public static final String LATENCY_THRESHOLD_METADATA = "upstream-latency-threshold";
+
+    private static final Priority[] PRIORITIES = Priority.values();
+
+    // 最高级别时仍放行 CRITICAL
+    private static final int MAX_LEVEL = PRIORITIES.length - 1;
+
+    private final LoadSheddingProperties properties;
+
+    private final EventLoopLagProbe probe;
+
+    // 路由ID到该路由的上游耗时统计
+    private final Map<String, RouteLatency> upstreamLatency = new ConcurrentHashMap<>();
+
+    // 按优先级与结果（放行/拒绝）预先注册的计数器
+    private final Counter[] admitted = new Counter[PRIORITIES.length];
+
+    private final Counter[] shed = new Counter[PRIORITIES.length];
+
+    // 拒绝级别，0 表示不拒绝
+    private volatile int level;
+
+    private volatile long lastLag;
+
+    private volatile long lastUpstreamLatency;
+
+    // 上一个周期上游耗时压力最大的路由
+    private volatile String lastUpstreamRoute;
+
+    // 上一个周期各路由的耗时分位数与阈值，只用于监控端点
+    private volatile Map<String, Object> lastRoutes = Map.of();
+
+    // 连续过载的周期数，只在调度线程上读写
+    private int overloadedPeriods;
+
+    public LoadShedder(LoadSheddingProperties properties, EventLoopLagProbe probe, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.probe = probe;
+        for (Priority priority : PRIORITIES) {
+            admitted[priority.ordinal()] = counter(meterRegistry, priority, "admitted");
+            shed[priority.ordinal()] = counter(meterRegistry, priority, "shed");
+        }
+        Gauge.builder("gateway.shedding.level", this, shedder -> shedder.level)
+                .description("过载拒绝级别，0 不拒绝，1~3 依次拒绝 LOW、NORMAL、HIGH 优先级")
+                .register(meterRegistry);
+        Gauge.builder("gateway.shedding.event.loop.lag", this, shedder -> shedder.lastLag / 1e9)
+                .description("最近一个调整周期的事件循环延迟")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+        Gauge.builder("gateway.shedding.upstream.latency", this, shedder -> shedder.lastUpstreamLatency / 1e9)
+                .description("上游耗时压力最大的路由的响应耗时分位数")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+    }
+
+    private static Counter counter(MeterRegistry meterRegistry, Priority priority, String result) {
+        return Counter.builder("gateway.shedding.requests")
+                .description("按优先级统计的过载保护放行与拒绝请求数")
+                .tag("priority", priority.name().toLowerCase(Locale.ROOT))
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    /**
+     * 判断是否放行该优先级的请求并计数
+     */
+    public boolean tryAdmit(Priority priority) {
+        int ordinal = priority.ordinal();
+        if (ordinal > MAX_LEVEL - level) {
+            shed[ordinal].increment();
+            return false;
+        }
+        admitted[ordinal].increment();
+        return true;
+    }
+
+    /**
+     * 记录一次转发到上游的耗时（收到响应头为止）
+     */
+    public void recordUpstreamLatency(Route route, long nanos) {
+        RouteLatency latency = upstreamLatency.get(route.getId());
+        if (latency == null) {
+            latency = upstreamLatency.computeIfAbsent(route.getId(),
+                    id -> new RouteLatency(new LatencyHistogram(properties.getUpstreamLatencyWindow())));
+        }
+        // 路由刷新后按新的元数据取阈值
+        latency.route = route;
+        latency.histogram.record(nanos);
+    }
+
+    @Scheduled(fixedDelayString = "${gateway.shedding.adjust-interval:1000}")
+    public void adjust() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        long lag = probe.drainLag();
+        lastLag = lag;
+
+        // 各路由的耗时分位数除以各自的阈值，取最大者
+        double latencyPressure = 0;
+        long latency = 0;
+        String worstRoute = null;
+        Map<String, Object> routes = new LinkedHashMap<>();
+        for (Map.Entry<String, RouteLatency> entry : upstreamLatency.entrySet()) {
+            LatencyHistogram.Snapshot upstream = entry.getValue().histogram.snapshot();
+            if (upstream.count() == 0) {
+                // 统计窗口内没有转发的路由（包括已删除的路由）移除，有新请求时重新创建
+                upstreamLatency.remove(entry.getKey(), entry.getValue());
+                continue;
+            }
+            Duration threshold = threshold(entry.getValue().route);
+            long percentile = upstream.percentile(properties.getUpstreamLatencyPercentile() / 100);
+            Map<String, Object> route = new LinkedHashMap<>();
+            route.put("latencyMillis", TimeUnit.NANOSECONDS.toMillis(percentile));
+            route.put("thresholdMillis", threshold != null ? threshold.toMillis() : null);
+            route.put("samples", upstream.count());
+            routes.put(entry.getKey(), route);
+            if (threshold == null || upstream.count() < properties.getMinUpstreamSamples()) {
+                continue;
+            }
+            double routePressure = (double) percentile / threshold.toNanos();
+            if (routePressure > latencyPressure) {
+                latencyPressure = routePressure;
+                latency = percentile;
+                worstRoute = entry.getKey();
+            }
+        }
+        lastUpstreamLatency = latency;
+        lastUpstreamRoute = worstRoute;
+        lastRoutes = routes;
+
+        double lagPressure = (double) lag / properties.getLagThreshold().toNanos();
+        double pressure = Math.max(lagPressure, latencyPressure);
+
+        overloadedPeriods = pressure > 1 ? overloadedPeriods + 1 : 0;
+        int current = level;
+        int next = current;
+        if (overloadedPeriods >= properties.getOverloadPeriods() && current < MAX_LEVEL) {
+            next = current + 1;
+            overloadedPeriods = 0;
+        } else if (pressure < properties.getRecoveryRatio() && current > 0) {
+            next = current - 1;
+        }
+        if (next != current) {
+            level = next;
+            log.info("过载拒绝级别 {} -> {}，拒绝 {}，事件循环延迟 {}ms，上游耗时分位数 {}ms（路由 {}）", current, next,
+                    describe(next), TimeUnit.NANOSECONDS.toMillis(lag), TimeUnit.NANOSECONDS.toMillis(latency),
+                    worstRoute);
+        }
+    }
+
+    /**
+     * 路由的上游耗时阈值：路由元数据优先，未配置时为全局阈值，都没有时返回 null，不按上游耗时判断
+     */
+    private Duration threshold(Route route) {
+        Object configured = route != null ? route.getMetadata().get(LATENCY_THRESHOLD_METADATA) : null;
+        if (configured != null) {
+            try {
+                return DurationStyle.detectAndParse(configured.toString().trim());
+            } catch (IllegalArgumentException e) {
+                log.warn("路由 {} 的 {} 不合法: {}", route.getId(), LATENCY_THRESHOLD_METADATA, configured);
+            }
+        }
+        return properties.getUpstreamLatencyThreshold();
+    }
+
+    private static String describe(int level) {
+        return level > 0 ? PRIORITIES[MAX_LEVEL - level + 1] + " 及以下" : "无";
+    }
+
+    public Map<String, Object> snapshot() {
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        int current = level;
+        snapshot.put("enabled", properties.isEnabled());
+        snapshot.put("level", current);
+        snapshot.put("shedding", describe(current));
+        snapshot.put("eventLoopLagMillis", TimeUnit.NANOSECONDS.toMillis(lastLag));
+        snapshot.put("upstreamLatencyMillis", TimeUnit.NANOSECONDS.toMillis(lastUpstreamLatency));
+        snapshot.put("upstreamLatencyRoute", lastUpstreamRoute);
+        snapshot.put("routes", lastRoutes);
+        Map<String, Object> requests = new LinkedHashMap<>();
+        for (Priority priority : PRIORITIES) {
+            Map<String, Object> counts = new LinkedHashMap<>();
+            counts.put("admitted", (long) admitted[priority.ordinal()].count());
+            counts.put("shed", (long) shed[priority.ordinal()].count());
+            requests.put(priority.name().toLowerCase(Locale.ROOT), counts);
+        }
+        snapshot.put("requests", requests);
+        return snapshot;
+    }
+
+    /**
+     * 单条路由的上游耗时统计，记录最近一次转发时的路由对象以读取其元数据
+     */
+    private static final class RouteLatency {
+
+        private final LatencyHistogram histogram;
+
+        private volatile Route route;
+
+        private RouteLatency(LatencyHistogram histogram) {
+            this.histogram = histogram;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package org.example.gateway.shedding;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * 按优先级的过载保护配置
+ * 请求优先级取路由元数据 {@code priority}（critical/high/normal/low），未配置时为 default-priority；
+ * 未认证的请求（公开路径）最高为 anonymous-priority，客户端可以通过 priority-header 降低、但不能提高自己的优先级。
+ */
+@Data
+@ConfigurationProperties(prefix = "gateway.shedding")
+public class LoadSheddingProperties {
+
+    private boolean enabled = true;
+
+    // 事件循环延迟的探测间隔
+    private Duration probeInterval = Duration.ofMillis(100);
+
+    // 事件循环延迟超过该值视为过载
+    private Duration lagThreshold = Duration.ofMillis(50);
+
+    // 上游响应耗时分位数超过该值视为过载，按路由分别统计，路由元数据 upstream-latency-threshold 可覆盖；
+    // 不配置且路由也未配置时不按上游耗时判断
+    private Duration upstreamLatencyThreshold = Duration.ofSeconds(2);
+
+    // 判断上游耗时使用的分位数
+    private double upstreamLatencyPercentile = 95;
+
+    // 上游耗时的统计窗口
+    private Duration upstreamLatencyWindow = Duration.ofSeconds(5);
+
+    // 单条路由在统计窗口内至少有这么多次转发才按其上游耗时判断
+    private int minUpstreamSamples = 20;
+
+    // 连续多少个调整周期过载才提高一级拒绝级别
+    private int overloadPeriods = 2;
+
+    // 各项指标都低于阈值乘以该比例时才降低拒绝级别，避免在阈值附近来回切换
+    private double recoveryRatio = 0.5;
+
+    private Priority defaultPriority = Priority.NORMAL;
+
+    // 未认证请求的最高优先级
+    private Priority anonymousPriority = Priority.LOW;
+
+    // 客户端声明优先级的请求头，只能降低优先级
+    private String priorityHeader = "X-Request-Priority";
+}
@@ -0,0 +1,47 @@
+package org.example.gateway.shedding;
+
+/**
+ * 请求优先级，过载时从最低级开始拒绝
+ * 声明顺序即优先级从高到低，CRITICAL 始终放行。
+ */
+public enum Priority {
+
+    // 健康检查等必须放行的请求
+    CRITICAL,
+
+    // 付费接口等重要业务
+    HIGH,
+
+    NORMAL,
+
+    // 匿名访问、公开路径与后台任务
+    LOW;
+
+    private static final Priority[] VALUES = values();
+
+    /**
+     * 按名称解析，不区分大小写，无法识别时返回 null
+     */
+    public static Priority parse(Object value) {
+        if (value instanceof Priority priority) {
+            return priority;
+        }
+        if (value == null) {
+            return null;
+        }
+        String name = value.toString().trim();
+        for (Priority priority : VALUES) {
+            if (priority.name().equalsIgnoreCase(name)) {
+                return priority;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 两者中优先级较低的一个
+     */
+    public Priority atMost(Priority other) {
+        return other.ordinal() > ordinal() ? other : this;
+    }
+}
@@ -0,0 +1,68 @@
+package org.example.gateway.transport;
+
+import io.netty.channel.EventLoopGroup;
+import reactor.core.publisher.Mono;
+import reactor.netty.resources.LoopResources;
+
+import java.time.Duration;
+
+/**
+ * 固定传输实现的事件循环线程组
+ * Spring Boot 的 Web 服务器等使用方调用 runOn(LoopResources) 时总是优先原生传输，
+ * 这里忽略调用方传入的 useNative，统一按 gateway.transport.mode 决定使用epoll还是NIO。
+ */
+public final class TransportLoopResources implements LoopResources {
+
+    private final LoopResources delegate;
+
+    private final boolean useNative;
+
+    public TransportLoopResources(LoopResources delegate, boolean useNative) {
+        this.delegate = delegate;
+        this.useNative = useNative;
+    }
+
+    public boolean isNative() {
+        return useNative;
+    }
+
+    @Override
+    public EventLoopGroup onServer(boolean useNative) {
+        return delegate.onServer(this.useNative);
+    }
+
+    @Override
+    public EventLoopGroup onServerSelect(boolean useNative) {
+        return delegate.onServerSelect(this.useNative);
+    }
+
+    @Override
+    public EventLoopGroup onClient(boolean useNative) {
+        return delegate.onClient(this.useNative);
+    }
+
+    @Override
+    public boolean daemon() {
+        return delegate.daemon();
+    }
+
+    @Override
+    public boolean isDisposed() {
+        return delegate.isDisposed();
+    }
+
+    @Override
+    public void dispose() {
+        delegate.dispose();
+    }
+
+    @Override
+    public Mono<Void> disposeLater() {
+        return delegate.disposeLater();
+    }
+
+    @Override
+    public Mono<Void> disposeLater(Duration quietPeriod, Duration timeout) {
+        return delegate.disposeLater(quietPeriod, timeout);
+    }
+}
@@ -0,0 +1,27 @@
+package org.example.gateway.transport;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * 网关网络传输配置
+ * 服务端接收请求与转发到上游使用同一组事件循环线程，转发连接建立在接收该请求的线程上，
+ * 一个请求从进入到转发完成不需要跨线程切换。
+ */
+@Data
+@ConfigurationProperties(prefix = "gateway.transport")
+public class TransportProperties {
+
+    // 传输实现：auto 在原生epoll可用时使用epoll，否则使用NIO；epoll 在不可用时启动失败；nio 始终使用NIO
+    private Mode mode = Mode.AUTO;
+
+    // 事件循环（IO工作）线程数，不配置时为CPU核数，至少4个
+    private Integer workerThreads;
+
+    // 服务端专用的接收连接线程数，不配置时由工作线程兼任
+    private Integer selectorThreads;
+
+    public enum Mode {
+        AUTO, EPOLL, NIO
+    }
+}
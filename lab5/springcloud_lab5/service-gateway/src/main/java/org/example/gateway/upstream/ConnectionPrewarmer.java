@@ -0,0 +1,108 @@
+package org.example.gateway.upstream;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.cloud.client.discovery.event.HeartbeatEvent;
+import org.springframework.cloud.loadbalancer.support.LoadBalancerClientFactory;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.netty.http.client.HttpClient;
+
+import java.net.InetSocketAddress;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 同步注册中心的实例列表到 {@link UpstreamConnectionPools}，并为新出现的实例预先建立连接
+ * 注册中心客户端每次刷新本地实例缓存后发布 {@link HeartbeatEvent}，启动完成时也同步一次。
+ * 预热通过网关转发所用的同一个 HttpClient 并发发送若干个轻量请求，请求结束后连接留在该实例的连接池中，
+ * 新实例接到的第一批转发请求不必再等待建立TCP连接。
+ * 新出现的服务还会提前创建其负载均衡子容器：子容器默认在该服务的第一个请求上创建，
+ * 创建时扫描类路径、读取jar文件，会阻塞处理该请求的事件循环线程。
+ */
+@Component
+@Slf4j
+public class ConnectionPrewarmer {
+
+    private final UpstreamPoolProperties properties;
+
+    private final UpstreamConnectionPools pools;
+
+    private final DiscoveryClient discoveryClient;
+
+    private final ObjectProvider<HttpClient> httpClient;
+
+    private final LoadBalancerClientFactory clientFactory;
+
+    private final Set<String> services = ConcurrentHashMap.newKeySet();
+
+    private final String applicationName;
+
+    public ConnectionPrewarmer(UpstreamPoolProperties properties, UpstreamConnectionPools pools,
+                               DiscoveryClient discoveryClient, ObjectProvider<HttpClient> httpClient,
+                               LoadBalancerClientFactory clientFactory,
+                               @Value("${spring.application.name}") String applicationName) {
+        this.properties = properties;
+        this.pools = pools;
+        this.discoveryClient = discoveryClient;
+        this.httpClient = httpClient;
+        this.clientFactory = clientFactory;
+        this.applicationName = applicationName;
+    }
+
+    @EventListener({ApplicationReadyEvent.class, HeartbeatEvent.class})
+    public void refresh() {
+        Map<InetSocketAddress, String> addresses = new HashMap<>();
+        Map<InetSocketAddress, ServiceInstance> byAddress = new HashMap<>();
+        for (String serviceId : discoveryClient.getServices()) {
+            // 网关自身也注册在注册中心中，不需要为它建立连接池
+            if (serviceId.equalsIgnoreCase(applicationName)) {
+                continue;
+            }
+            if (services.add(serviceId)) {
+                clientFactory.getInstance(serviceId);
+            }
+            for (ServiceInstance instance : discoveryClient.getInstances(serviceId)) {
+                InetSocketAddress address = InetSocketAddress.createUnresolved(instance.getHost(), instance.getPort());
+                addresses.put(address, serviceId);
+                byAddress.put(address, instance);
+            }
+        }
+        if (!properties.isEnabled()) {
+            return;
+        }
+        Set<InetSocketAddress> added = pools.updateInstances(addresses);
+        if (properties.getPrewarm().isEnabled()) {
+            added.forEach(address -> prewarm(addresses.get(address), byAddress.get(address)));
+        }
+    }
+
+    private void prewarm(String serviceId, ServiceInstance instance) {
+        HttpClient client = httpClient.getIfAvailable();
+        if (client == null) {
+            return;
+        }
+        UpstreamPoolProperties.Prewarm prewarm = properties.getPrewarm();
+        String uri = instance.getUri() + prewarm.getPath();
+        long start = System.nanoTime();
+        Flux.range(0, prewarm.getConnections())
+                .flatMap(i -> client.get().uri(uri)
+                        .responseSingle((response, body) -> body.then().thenReturn(response.status().code())),
+                        prewarm.getConnections())
+                .timeout(prewarm.getTimeout())
+                .collectList()
+                .subscribe(
+                        statuses -> log.info("服务 {} 的新实例 {}:{} 已预热 {} 个连接，耗时 {}ms，状态码 {}",
+                                serviceId, instance.getHost(), instance.getPort(), statuses.size(),
+                                (System.nanoTime() - start) / 1_000_000, statuses),
+                        error -> log.warn("服务 {} 的新实例 {}:{} 预热失败: {}",
+                                serviceId, instance.getHost(), instance.getPort(), error.toString()));
+    }
+}
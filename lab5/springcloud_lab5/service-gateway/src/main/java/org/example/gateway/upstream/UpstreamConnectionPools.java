@@ -0,0 +1,217 @@
+package org.example.gateway.upstream;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.netty.resolver.AddressResolverGroup;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.Connection;
+import reactor.netty.ConnectionObserver;
+import reactor.netty.internal.shaded.reactor.pool.PoolAcquirePendingLimitException;
+import reactor.netty.internal.shaded.reactor.pool.PoolAcquireTimeoutException;
+import reactor.netty.resources.ConnectionProvider;
+import reactor.netty.transport.TransportConfig;
+
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * 按上游服务划分的连接池
+ * 网关转发使用的 HttpClient 只能持有一个 ConnectionProvider，这里提供一个按远端地址分派的实现：
+ * 地址属于注册中心中已知的服务实例时使用该服务自己的连接池（参数见 {@link UpstreamPoolProperties}），
+ * 否则（静态地址的路由、尚未同步到的新实例）使用 spring.cloud.gateway.httpclient.pool 配置的默认连接池。
+ * 实例地址由 {@link ConnectionPrewarmer} 在注册中心实例列表变化时更新。
+ */
+@Component
+@Slf4j
+public class UpstreamConnectionPools {
+
+    private final UpstreamPoolProperties properties;
+
+    private final MeterRegistry meterRegistry;
+
+    private final Map<String, ServicePool> pools = new ConcurrentHashMap<>();
+
+    // 实例地址（未解析的 host:port）-> 服务ID，整体替换
+    private volatile Map<InetSocketAddress, String> instances = Map.of();
+
+    public UpstreamConnectionPools(UpstreamPoolProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * 以 fallback 作为默认连接池，返回按服务分派的连接池
+     */
+    public ConnectionProvider routing(ConnectionProvider fallback) {
+        return properties.isEnabled() ? new Routing(fallback) : fallback;
+    }
+
+    /**
+     * 替换实例地址表，关闭已下线实例的连接，返回本次新出现的实例地址
+     */
+    Set<InetSocketAddress> updateInstances(Map<InetSocketAddress, String> latest) {
+        Set<InetSocketAddress> added = new HashSet<>();
+        Map<InetSocketAddress, String> previous = instances;
+        latest.keySet().forEach(address -> {
+            if (!previous.containsKey(address)) {
+                added.add(address);
+            }
+        });
+        instances = Map.copyOf(latest);
+        previous.forEach((address, serviceId) -> {
+            ServicePool pool = pools.get(serviceId);
+            if (pool != null && !latest.containsKey(address)) {
+                log.info("服务 {} 的实例 {} 已下线，关闭其连接", serviceId, address);
+                pool.provider.disposeWhen(address);
+            }
+        });
+        return added;
+    }
+
+    private String serviceId(SocketAddress remote) {
+        if (!(remote instanceof InetSocketAddress address)) {
+            return null;
+        }
+        Map<InetSocketAddress, String> current = instances;
+        // 转发时的远端地址通常是未解析的，可以直接查表；已解析的地址按主机名重新构造
+        String serviceId = current.get(address);
+        if (serviceId == null && !address.isUnresolved()) {
+            serviceId = current.get(InetSocketAddress.createUnresolved(address.getHostString(), address.getPort()));
+        }
+        return serviceId;
+    }
+
+    private ServicePool pool(String serviceId) {
+        ServicePool pool = pools.get(serviceId);
+        if (pool == null) {
+            pool = pools.computeIfAbsent(serviceId, this::create);
+        }
+        return pool;
+    }
+
+    private ServicePool create(String serviceId) {
+        UpstreamPoolProperties.Pool settings = properties.resolve(serviceId);
+        ConnectionProvider provider = ConnectionProvider.builder("gateway-" + serviceId)
+                .maxConnections(settings.getMaxConnections())
+                .pendingAcquireMaxCount(settings.getPendingAcquireMaxCount())
+                .pendingAcquireTimeout(settings.getPendingAcquireTimeout())
+                .maxIdleTime(settings.getMaxIdleTime())
+                .maxLifeTime(settings.getMaxLifeTime())
+                .evictInBackground(settings.getEvictionInterval())
+                .metrics(properties.isMetrics())
+                .build();
+        log.info("为服务 {} 创建连接池: {}", serviceId, settings);
+        return new ServicePool(serviceId, provider, meterRegistry);
+    }
+
+    /**
+     * 单个服务的连接池，统计获取连接的耗时、排队数与失败数
+     */
+    private static final class ServicePool {
+
+        private final String serviceId;
+
+        private final ConnectionProvider provider;
+
+        private final AtomicInteger pending = new AtomicInteger();
+
+        private final Timer acquireTime;
+
+        private final Counter acquireFailures;
+
+        ServicePool(String serviceId, ConnectionProvider provider, MeterRegistry meterRegistry) {
+            this.serviceId = serviceId;
+            this.provider = provider;
+            this.acquireTime = Timer.builder("gateway.upstream.pool.acquire")
+                    .description("从连接池获取连接的耗时，包括排队与新建连接")
+                    .tag("service", serviceId)
+                    .register(meterRegistry);
+            this.acquireFailures = Counter.builder("gateway.upstream.pool.acquire.failures")
+                    .description("获取连接失败次数，包括排队已满、排队超时与连接失败")
+                    .tag("service", serviceId)
+                    .register(meterRegistry);
+            Gauge.builder("gateway.upstream.pool.pending", pending, AtomicInteger::get)
+                    .description("正在等待获取连接的请求数")
+                    .tag("service", serviceId)
+                    .register(meterRegistry);
+        }
+
+        Mono<? extends Connection> acquire(TransportConfig config, ConnectionObserver observer,
+                                           Supplier<? extends SocketAddress> remote,
+                                           AddressResolverGroup<?> resolver) {
+            return Mono.defer(() -> {
+                long start = System.nanoTime();
+                pending.incrementAndGet();
+                return provider.acquire(config, observer, remote, resolver)
+                        .doOnSuccess(connection -> acquireTime.record(System.nanoTime() - start, TimeUnit.NANOSECONDS))
+                        .doOnError(error -> acquireFailures.increment())
+                        .doFinally(signal -> pending.decrementAndGet())
+                        // 排队已满、排队超时属于本地饱和，连接失败等其他错误原样传递
+                        .onErrorMap(error -> error instanceof PoolAcquireTimeoutException
+                                        || error instanceof PoolAcquirePendingLimitException,
+                                error -> new UpstreamPoolExhaustedException(serviceId, error));
+            });
+        }
+    }
+
+    private final class Routing implements ConnectionProvider {
+
+        private final ConnectionProvider fallback;
+
+        Routing(ConnectionProvider fallback) {
+            this.fallback = fallback;
+        }
+
+        @Override
+        public Mono<? extends Connection> acquire(TransportConfig config, ConnectionObserver observer,
+                                                  Supplier<? extends SocketAddress> remote,
+                                                  AddressResolverGroup<?> resolver) {
+            String serviceId = remote != null ? serviceId(remote.get()) : null;
+            if (serviceId == null) {
+                return fallback.acquire(config, observer, remote, resolver);
+            }
+            return pool(serviceId).acquire(config, observer, remote, resolver);
+        }
+
+        @Override
+        public void disposeWhen(SocketAddress address) {
+            String serviceId = serviceId(address);
+            ServicePool pool = serviceId != null ? pools.get(serviceId) : null;
+            (pool != null ? pool.provider : fallback).disposeWhen(address);
+        }
+
+        @Override
+        public Mono<Void> disposeLater() {
+            return Flux.fromIterable(pools.values())
+                    .flatMap(pool -> pool.provider.disposeLater())
+                    .then(fallback.disposeLater());
+        }
+
+        @Override
+        public boolean isDisposed() {
+            return fallback.isDisposed();
+        }
+
+        @Override
+        public int maxConnections() {
+            return fallback.maxConnections();
+        }
+
+        @Override
+        public String name() {
+            return "gateway-upstream";
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package org.example.gateway.upstream;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * 上游服务的连接池已满：排队获取连接的请求数达到上限或等待超时
+ * 这是网关本地的资源饱和，不是上游实例的故障，以503返回，也不计入实例异常统计
+ */
+public class UpstreamPoolExhaustedException extends ResponseStatusException {
+
+    public UpstreamPoolExhaustedException(String serviceId, Throwable cause) {
+        super(HttpStatus.SERVICE_UNAVAILABLE, "上游服务 " + serviceId + " 的连接池已满", cause);
+    }
+}
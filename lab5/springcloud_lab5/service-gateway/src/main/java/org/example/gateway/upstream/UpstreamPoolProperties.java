@@ -0,0 +1,103 @@
+package org.example.gateway.upstream;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 按上游服务配置的连接池参数
+ * 服务ID为注册中心中的服务名；服务配置中未指定的参数沿用 defaults。
+ * 连接数、排队数等上限都按单个实例（远端地址）计算。
+ */
+@Data
+@ConfigurationProperties(prefix = "gateway.upstream-pool")
+public class UpstreamPoolProperties {
+
+    private boolean enabled = true;
+
+    // 是否为每个连接池注册 Reactor Netty 自带的连接池指标（活跃、空闲、总连接数）
+    private boolean metrics = true;
+
+    // 所有服务的默认参数
+    private Pool defaults = Pool.builtIn();
+
+    // 服务ID -> 该服务的参数
+    private Map<String, Pool> services = new LinkedHashMap<>();
+
+    // 新实例连接预热
+    private Prewarm prewarm = new Prewarm();
+
+    /**
+     * 取服务的最终参数：服务配置覆盖默认配置
+     */
+    public Pool resolve(String serviceId) {
+        Pool pool = services.get(serviceId);
+        return pool != null ? pool.mergeInto(defaults) : defaults.mergeInto(Pool.builtIn());
+    }
+
+    @Data
+    public static class Pool {
+
+        // 每个实例的最大连接数
+        private Integer maxConnections;
+
+        // 连接用尽时每个实例最多排队等待的获取请求数，超出后立即失败
+        private Integer pendingAcquireMaxCount;
+
+        // 排队等待连接的最长时间
+        private Duration pendingAcquireTimeout;
+
+        // 连接空闲超过该时间后关闭
+        private Duration maxIdleTime;
+
+        // 连接存活超过该时间后关闭，使实例扩容后连接能够重新分布
+        private Duration maxLifeTime;
+
+        // 后台清理空闲与过期连接的周期
+        private Duration evictionInterval;
+
+        static Pool builtIn() {
+            Pool pool = new Pool();
+            pool.maxConnections = 200;
+            pool.pendingAcquireMaxCount = 400;
+            pool.pendingAcquireTimeout = Duration.ofSeconds(5);
+            pool.maxIdleTime = Duration.ofSeconds(30);
+            pool.maxLifeTime = Duration.ofMinutes(5);
+            pool.evictionInterval = Duration.ofSeconds(30);
+            return pool;
+        }
+
+        /**
+         * 以 base 为底，用本配置中已设置的参数覆盖
+         */
+        Pool mergeInto(Pool base) {
+            Pool merged = new Pool();
+            merged.maxConnections = maxConnections != null ? maxConnections : base.maxConnections;
+            merged.pendingAcquireMaxCount = pendingAcquireMaxCount != null
+                    ? pendingAcquireMaxCount : base.pendingAcquireMaxCount;
+            merged.pendingAcquireTimeout = pendingAcquireTimeout != null
+                    ? pendingAcquireTimeout : base.pendingAcquireTimeout;
+            merged.maxIdleTime = maxIdleTime != null ? maxIdleTime : base.maxIdleTime;
+            merged.maxLifeTime = maxLifeTime != null ? maxLifeTime : base.maxLifeTime;
+            merged.evictionInterval = evictionInterval != null ? evictionInterval : base.evictionInterval;
+            return merged;
+        }
+    }
+
+    @Data
+    public static class Prewarm {
+
+        private boolean enabled = true;
+
+        // 每个新实例预先建立的连接数
+        private int connections = 2;
+
+        // 预热请求的路径，应当是轻量且无副作用的接口
+        private String path = "/actuator/health";
+
+        private Duration timeout = Duration.ofSeconds(2);
+    }
+}
@@ -0,0 +1,39 @@
+package org.example.gateway.aggregate;
+
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AggregateGatewayFilterFactoryTest {
+
+    private static final String TEMPLATE = "http://service-provider-1/api/users/{id}";
+
+    @Test
+    void encodesSlashesInDecodedVariables() {
+        // 客户端请求 /bff/users/..%2F..%2Fadmin，路径谓词解码后的变量值
+        URI uri = AggregateGatewayFilterFactory.expand(TEMPLATE, Map.of("id", "../../admin"));
+
+        assertThat(uri.getRawPath()).isEqualTo("/api/users/..%2F..%2Fadmin");
+        assertThat(uri.normalize().getRawPath()).isEqualTo("/api/users/..%2F..%2Fadmin");
+        assertThat(uri.getHost()).isEqualTo("service-provider-1");
+    }
+
+    @Test
+    void encodesQueryAndFragmentDelimiters() {
+        URI uri = AggregateGatewayFilterFactory.expand(TEMPLATE, Map.of("id", "7?admin=true#x"));
+
+        assertThat(uri.getRawPath()).isEqualTo("/api/users/7%3Fadmin%3Dtrue%23x");
+        assertThat(uri.getRawQuery()).isNull();
+    }
+
+    @Test
+    void rejectsDotSegmentVariables() {
+        assertThat(AggregateGatewayFilterFactory.safeVariables(Map.of("id", "7"))).isTrue();
+        assertThat(AggregateGatewayFilterFactory.safeVariables(Map.of("id", "..."))).isTrue();
+        assertThat(AggregateGatewayFilterFactory.safeVariables(Map.of("id", ".."))).isFalse();
+        assertThat(AggregateGatewayFilterFactory.safeVariables(Map.of("id", "."))).isFalse();
+    }
+}
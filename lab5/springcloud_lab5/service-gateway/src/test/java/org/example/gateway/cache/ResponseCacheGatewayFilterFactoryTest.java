@@ -0,0 +1,77 @@
+package org.example.gateway.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ResponseCacheGatewayFilterFactoryTest {
+
+    private static final String PATH = "/provider1/api/users";
+
+    private final AtomicInteger upstreamCalls = new AtomicInteger();
+
+    // 与 CorsWebFilter 一样总是带 Vary: Origin 等请求头
+    private final GatewayFilterChain upstream = exchange -> {
+        int call = upstreamCalls.incrementAndGet();
+        ServerHttpResponse response = exchange.getResponse();
+        response.setStatusCode(HttpStatus.OK);
+        response.getHeaders().add(HttpHeaders.VARY, HttpHeaders.ORIGIN);
+        response.getHeaders().add(HttpHeaders.VARY, HttpHeaders.ACCESS_CONTROL_REQUEST_METHOD);
+        response.getHeaders().add(HttpHeaders.VARY, HttpHeaders.ACCESS_CONTROL_REQUEST_HEADERS);
+        byte[] body = ("{\"version\":" + call + "}").getBytes(StandardCharsets.UTF_8);
+        response.getHeaders().setContentLength(body.length);
+        DataBuffer buffer = response.bufferFactory().wrap(body);
+        return response.writeWith(Mono.just(buffer));
+    };
+
+    @Test
+    void unsafeRequestInvalidatesEveryVariant() {
+        GatewayFilter filter = filter();
+
+        assertThat(get(filter, "https://a.example")).isEqualTo("MISS");
+        assertThat(get(filter, "https://b.example")).isEqualTo("MISS");
+        assertThat(get(filter, "https://a.example")).isEqualTo("HIT");
+        assertThat(upstreamCalls).hasValue(2);
+
+        filter.filter(MockServerWebExchange.from(MockServerHttpRequest.post(PATH)
+                .header(HttpHeaders.ORIGIN, "https://a.example")), upstream).block(Duration.ofSeconds(5));
+        assertThat(upstreamCalls).hasValue(3);
+
+        assertThat(get(filter, "https://a.example")).isEqualTo("MISS");
+        assertThat(get(filter, "https://b.example")).isEqualTo("MISS");
+        assertThat(get(filter, "https://b.example")).isEqualTo("HIT");
+        assertThat(upstreamCalls).hasValue(5);
+    }
+
+    private String get(GatewayFilter filter, String origin) {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get(PATH)
+                .header(HttpHeaders.ORIGIN, origin));
+        filter.filter(exchange, upstream).block(Duration.ofSeconds(5));
+        return exchange.getResponse().getHeaders().getFirst(ResponseCacheGatewayFilterFactory.CACHE_STATUS_HEADER);
+    }
+
+    private static GatewayFilter filter() {
+        ResponseCacheProperties properties = new ResponseCacheProperties();
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        ResponseCacheGatewayFilterFactory factory = new ResponseCacheGatewayFilterFactory(
+                new ResponseCacheStore(properties, meterRegistry), properties, meterRegistry);
+        ResponseCacheGatewayFilterFactory.Config config = new ResponseCacheGatewayFilterFactory.Config();
+        config.setRouteId("test");
+        config.setShared(true);
+        return factory.apply(config);
+    }
+}
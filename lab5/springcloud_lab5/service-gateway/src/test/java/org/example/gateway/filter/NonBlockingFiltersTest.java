@@ -0,0 +1,186 @@
+package org.example.gateway.filter;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.gateway.auth.AuthProperties;
+import org.example.gateway.auth.JwksKeyStore;
+import org.example.gateway.auth.JwtVerifier;
+import org.example.gateway.auth.PublicPathMatcher;
+import org.example.gateway.auth.VerifiedTokenCache;
+import org.example.gateway.heavyhitter.HeavyHitterProperties;
+import org.example.gateway.heavyhitter.HeavyHitterRegistry;
+import org.example.gateway.limiter.GcraRateLimiter;
+import org.example.gateway.limiter.RateLimiterProperties;
+import org.example.gateway.limiter.RequestCostEstimator;
+import org.example.gateway.limiter.RouteLimitRegistry;
+import org.example.gateway.response.RejectionResponses;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.blockhound.BlockHound;
+import reactor.blockhound.BlockingOperationError;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.Signature;
+import java.security.interfaces.RSAPublicKey;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * 请求路径上的过滤器不能在事件循环线程上阻塞
+ * 安装 BlockHound 后在 Reactor 的 parallel 线程（与事件循环线程一样被标记为非阻塞线程）上执行过滤器，
+ * 覆盖令牌首次验签与命中缓存、公开路径、拒绝响应，以及限流放行与拒绝
+ */
+class NonBlockingFiltersTest {
+
+    private static final Base64.Encoder BASE64 = Base64.getUrlEncoder().withoutPadding();
+
+    private static final String KEY_ID = "non-blocking-test";
+
+    private static final Route ROUTE = Route.async()
+            .id("test")
+            .uri(URI.create("http://localhost:8080"))
+            .predicate(exchange -> true)
+            .metadata(Map.of(PublicPathMatcher.METADATA_KEY, "/test/public/**"))
+            .build();
+
+    private static final GatewayFilterChain TERMINAL = exchange -> Mono.empty();
+
+    private static KeyPair keyPair;
+
+    private static Path jwks;
+
+    @BeforeAll
+    static void installBlockHound() throws Exception {
+        BlockHound.install();
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        keyPair = generator.generateKeyPair();
+        RSAPublicKey publicKey = (RSAPublicKey) keyPair.getPublic();
+        jwks = Files.createTempFile("gateway-test-jwks", ".json");
+        jwks.toFile().deleteOnExit();
+        Files.writeString(jwks, "{\"keys\":[{\"kty\":\"RSA\",\"kid\":\"" + KEY_ID + "\",\"alg\":\"RS256\",\"use\":\"sig\","
+                + "\"n\":\"" + unsigned(publicKey.getModulus()) + "\","
+                + "\"e\":\"" + unsigned(publicKey.getPublicExponent()) + "\"}]}");
+    }
+
+    @Test
+    void blockHoundDetectsBlockingOnNonBlockingThreads() {
+        Mono<Void> sleep = Mono.<Void>fromRunnable(() -> {
+            try {
+                Thread.sleep(1);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }).subscribeOn(Schedulers.parallel());
+
+        assertThatThrownBy(sleep::block).hasCauseInstanceOf(BlockingOperationError.class);
+    }
+
+    @Test
+    void authenticationFilterDoesNotBlock() throws IOException {
+        AuthProperties properties = new AuthProperties();
+        properties.setJwksLocation(jwks.toUri().toString());
+        VerifiedTokenCache tokenCache = new VerifiedTokenCache(properties);
+        ObjectMapper objectMapper = new ObjectMapper();
+        JwksKeyStore keyStore = new JwksKeyStore(properties, new DefaultResourceLoader(), objectMapper, tokenCache);
+        AuthenticationFilter filter = new AuthenticationFilter(new JwtVerifier(keyStore, tokenCache, properties,
+                objectMapper), new PublicPathMatcher(), new RejectionResponses());
+        String token = sign("test-user");
+
+        // 第一次完整验签，第二次命中校验缓存
+        for (int i = 0; i < 2; i++) {
+            MockServerWebExchange authenticated = exchange(MockServerHttpRequest.get("/test/api/users/1")
+                    .header(HttpHeaders.AUTHORIZATION, "Bearer " + token));
+            runOnNonBlockingThread(filter, authenticated);
+            assertThat(authenticated.getAttributes()).containsKey(AuthenticationFilter.AUTH_CLAIMS_ATTR);
+        }
+        runOnNonBlockingThread(filter, exchange(MockServerHttpRequest.get("/test/public/status")));
+        MockServerWebExchange anonymous = exchange(MockServerHttpRequest.get("/test/api/users/1"));
+        runOnNonBlockingThread(filter, anonymous);
+        assertThat(anonymous.getResponse().getStatusCode()).isEqualTo(HttpStatus.UNAUTHORIZED);
+    }
+
+    @Test
+    void rateLimiterFilterDoesNotBlock() {
+        RateLimiterProperties properties = new RateLimiterProperties();
+        RateLimiterProperties.Rule rule = new RateLimiterProperties.Rule();
+        rule.setPattern("/test/api/**");
+        rule.setLimit(1);
+        rule.setPeriod(Duration.ofHours(1));
+        properties.setRules(List.of(rule));
+        RateLimiterFilter filter = new RateLimiterFilter(new GcraRateLimiter(properties),
+                new RouteLimitRegistry(properties), new RequestCostEstimator(properties),
+                new HeavyHitterRegistry(new HeavyHitterProperties(), new SimpleMeterRegistry()),
+                new RejectionResponses());
+
+        MockServerWebExchange admitted = exchange(MockServerHttpRequest.get("/test/api/users/1"));
+        runOnNonBlockingThread(filter, admitted);
+        assertThat(admitted.getResponse().getStatusCode()).isNotEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+        MockServerWebExchange rejected = exchange(MockServerHttpRequest.get("/test/api/users/1"));
+        runOnNonBlockingThread(filter, rejected);
+        assertThat(rejected.getResponse().getStatusCode()).isEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+    }
+
+    private static void runOnNonBlockingThread(GlobalFilter filter, MockServerWebExchange exchange) {
+        Mono.defer(() -> filter.filter(exchange, TERMINAL))
+                .subscribeOn(Schedulers.parallel())
+                .block(Duration.ofSeconds(10));
+    }
+
+    private static MockServerWebExchange exchange(MockServerHttpRequest.BaseBuilder<?> request) {
+        MockServerWebExchange exchange = MockServerWebExchange.from(
+                request.remoteAddress(new InetSocketAddress("10.0.0.8", 52814)));
+        exchange.getAttributes().put(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR, ROUTE);
+        return exchange;
+    }
+
+    private static String sign(String subject) {
+        long exp = System.currentTimeMillis() / 1000 + 3600;
+        String signingInput = encode("{\"alg\":\"RS256\",\"kid\":\"" + KEY_ID + "\",\"typ\":\"JWT\"}") + "."
+                + encode("{\"sub\":\"" + subject + "\",\"exp\":" + exp + "}");
+        try {
+            Signature signature = Signature.getInstance("SHA256withRSA");
+            signature.initSign(keyPair.getPrivate());
+            signature.update(signingInput.getBytes(StandardCharsets.US_ASCII));
+            return signingInput + "." + BASE64.encodeToString(signature.sign());
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String encode(String json) {
+        return BASE64.encodeToString(json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String unsigned(BigInteger value) {
+        byte[] bytes = value.toByteArray();
+        int offset = bytes[0] == 0 && bytes.length > 1 ? 1 : 0;
+        return BASE64.encodeToString(Arrays.copyOfRange(bytes, offset, bytes.length));
+    }
+}
@@ -0,0 +1,75 @@
+package org.example.gateway.heavyhitter;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+
+import java.net.InetSocketAddress;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ClientAddressResolverTest {
+
+    @Test
+    void ignoresForwardedForWithoutTrustedProxies() {
+        ClientAddressResolver resolver = resolver();
+
+        assertThat(resolver.resolve(request("10.0.0.8", "203.0.113.7"))).isEqualTo("10.0.0.8");
+    }
+
+    @Test
+    void ignoresForwardedForFromUntrustedConnection() {
+        ClientAddressResolver resolver = resolver("10.0.0.0/8");
+
+        assertThat(resolver.resolve(request("198.51.100.4", "203.0.113.7"))).isEqualTo("198.51.100.4");
+    }
+
+    @Test
+    void takesRightmostUntrustedHop() {
+        ClientAddressResolver resolver = resolver("10.0.0.0/8", "192.168.1.1");
+
+        // 最左侧的地址由客户端伪造，代理追加的是实际连接地址
+        assertThat(resolver.resolve(request("10.0.0.8", "1.1.1.1, 203.0.113.7, 192.168.1.1")))
+                .isEqualTo("203.0.113.7");
+        assertThat(resolver.resolve(request("10.0.0.8", "1.1.1.1", "203.0.113.7, 10.2.3.4")))
+                .isEqualTo("203.0.113.7");
+        assertThat(resolver.resolve(request("10.0.0.8", "10.9.9.9, 192.168.1.1"))).isEqualTo("10.9.9.9");
+        assertThat(resolver.resolve(request("10.0.0.8"))).isEqualTo("10.0.0.8");
+    }
+
+    @Test
+    void stopsAtMalformedHop() {
+        ClientAddressResolver resolver = resolver("10.0.0.0/8");
+
+        assertThat(resolver.resolve(request("10.0.0.8", "203.0.113.7, evil.example, 10.1.1.1"))).isEqualTo("10.1.1.1");
+    }
+
+    @Test
+    void matchesIpv6Prefixes() {
+        ClientAddressResolver resolver = resolver("fd00::/8");
+
+        assertThat(resolver.resolve(request("fd12::1", "2001:db8::7"))).isEqualTo("2001:db8::7");
+    }
+
+    @Test
+    void rejectsInvalidTrustedProxies() {
+        assertThatThrownBy(() -> resolver("proxy.internal")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> resolver("10.0.0.0/33")).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static ClientAddressResolver resolver(String... trustedProxies) {
+        HeavyHitterProperties properties = new HeavyHitterProperties();
+        properties.setTrustedProxies(List.of(trustedProxies));
+        return new ClientAddressResolver(properties);
+    }
+
+    private static MockServerHttpRequest request(String remote, String... forwardedFor) {
+        MockServerHttpRequest.BaseBuilder<?> builder = MockServerHttpRequest.get("/provider1/api/users")
+                .remoteAddress(new InetSocketAddress(remote, 52814));
+        if (forwardedFor.length > 0) {
+            builder.header("X-Forwarded-For", forwardedFor);
+        }
+        return builder.build();
+    }
+}
@@ -0,0 +1,89 @@
+package org.example.gateway.limiter;
+
+import org.assertj.core.data.Percentage;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 多个网关实例在同一进程内共享全局配额：各实例的用量直接交给其他实例的协调器，代替经HTTP拉取
+ * 所有实例共用一个模拟时钟，每毫秒推进一次，结果与机器负载无关
+ */
+class ClusterQuotaCoordinatorTest {
+
+    private static final String KEY = "/provider1/api/**";
+
+    private static final int LIMIT = 600;
+
+    private static final long PERIOD_NANOS = Duration.ofSeconds(1).toNanos();
+
+    @Test
+    void globalLimitHoldsAcrossSkewedGateways() {
+        // 三个网关实例分到的流量为 60% / 30% / 10%，总请求速率为阈值的3倍
+        double[] weights = {0.6, 0.3, 0.1};
+        int nodes = weights.length;
+        AtomicLong clock = new AtomicLong();
+        GcraRateLimiter[] limiters = new GcraRateLimiter[nodes];
+        ClusterQuotaCoordinator[] coordinators = new ClusterQuotaCoordinator[nodes];
+        for (int i = 0; i < nodes; i++) {
+            RateLimiterProperties properties = new RateLimiterProperties();
+            limiters[i] = new GcraRateLimiter(properties, clock::get);
+            coordinators[i] = new ClusterQuotaCoordinator(limiters[i], properties, null, null, WebClient.builder());
+        }
+
+        long offeredPerSecond = LIMIT * 3L;
+        long tickNanos = Duration.ofMillis(1).toNanos();
+        long syncNanos = Duration.ofMillis(100).toNanos();
+        long warmupNanos = Duration.ofSeconds(2).toNanos();
+        long measureNanos = Duration.ofSeconds(3).toNanos();
+
+        double[] credit = new double[nodes];
+        long admitted = 0;
+        for (long elapsed = 0; elapsed < warmupNanos + measureNanos; elapsed += tickNanos) {
+            clock.set(elapsed);
+            if (elapsed % syncNanos == 0) {
+                exchangeUsage(limiters, coordinators);
+            }
+            for (int i = 0; i < nodes; i++) {
+                credit[i] += offeredPerSecond * weights[i] * tickNanos / 1e9;
+                while (credit[i] >= 1) {
+                    credit[i] -= 1;
+                    if (limiters[i].tryAcquire(KEY, LIMIT, PERIOD_NANOS) && elapsed >= warmupNanos) {
+                        admitted++;
+                    }
+                }
+            }
+        }
+
+        long expected = LIMIT * measureNanos / PERIOD_NANOS;
+        assertThat((double) admitted).isCloseTo(expected, Percentage.withPercentage(1));
+    }
+
+    /**
+     * 每个协调器收到本节点与其他节点的累计用量，与经 /internal/ratelimit/usage 拉取到的结果相同
+     */
+    private static void exchangeUsage(GcraRateLimiter[] limiters, ClusterQuotaCoordinator[] coordinators) {
+        Map<String, Map<String, Long>> snapshots = new HashMap<>();
+        for (int i = 0; i < limiters.length; i++) {
+            snapshots.put("gateway-" + i, limiters[i].usageSnapshot());
+        }
+        for (int i = 0; i < coordinators.length; i++) {
+            Map<String, Map<String, Long>> counts = new HashMap<>();
+            Set<String> members = new HashSet<>();
+            for (int j = 0; j < limiters.length; j++) {
+                String node = i == j ? "local" : "gateway-" + j;
+                counts.put(node, snapshots.get("gateway-" + j));
+                members.add(node);
+            }
+            coordinators[i].rebalance(counts, members);
+        }
+    }
+}
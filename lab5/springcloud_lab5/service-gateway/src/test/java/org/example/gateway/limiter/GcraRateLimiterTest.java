@@ -0,0 +1,65 @@
+package org.example.gateway.limiter;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class GcraRateLimiterTest {
+
+    private static final String KEY = "/provider1/api/**";
+
+    private static final long PERIOD_NANOS = Duration.ofSeconds(1).toNanos();
+
+    private final AtomicLong clock = new AtomicLong(1_000_000_000L);
+
+    @Test
+    void singleNodeAllowsOnePeriodOfBurst() {
+        GcraRateLimiter limiter = new GcraRateLimiter(new RateLimiterProperties(), clock::get);
+
+        assertThat(admitted(limiter, 10, Duration.ZERO, 20)).isEqualTo(10);
+        assertThat(admitted(limiter, 10, Duration.ofMillis(100), 100)).isBetween(99, 100);
+    }
+
+    @Test
+    void fractionalShareKeepsClusterLimitBelowNodeCount() {
+        // 阈值2、4个实例，每个实例每周期只分得半个请求
+        int nodes = 4;
+        int limit = 2;
+        long admitted = 0;
+        for (int i = 0; i < nodes; i++) {
+            GcraRateLimiter limiter = new GcraRateLimiter(new RateLimiterProperties(), clock::get);
+            limiter.applyShares(Map.of(), 1.0 / nodes);
+            clock.set(1_000_000_000L);
+            admitted += admitted(limiter, limit, Duration.ofMillis(10), 10_000);
+        }
+
+        // 100秒内集群合计约 2 * 100 个请求，而不是每个实例每秒1个
+        assertThat(admitted).isBetween(196L, 204L);
+    }
+
+    @Test
+    void tinyShareIsCappedInsteadOfOverflowing() {
+        GcraRateLimiter limiter = new GcraRateLimiter(new RateLimiterProperties(), clock::get);
+        limiter.applyShares(Map.of(), 1e-12);
+
+        assertThat(limiter.tryAcquire(KEY, 1, PERIOD_NANOS)).isTrue();
+        assertThat(limiter.tryAcquire(KEY, 1, PERIOD_NANOS)).isFalse();
+        clock.addAndGet(64 * PERIOD_NANOS);
+        assertThat(limiter.tryAcquire(KEY, 1, PERIOD_NANOS)).isTrue();
+    }
+
+    private int admitted(GcraRateLimiter limiter, int limit, Duration step, int requests) {
+        int admitted = 0;
+        for (int i = 0; i < requests; i++) {
+            if (limiter.tryAcquire(KEY, limit, PERIOD_NANOS)) {
+                admitted++;
+            }
+            clock.addAndGet(step.toNanos());
+        }
+        return admitted;
+    }
+}
@@ -0,0 +1,78 @@
+package org.example.gateway.limiter;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RouteLimitIndexTest {
+
+    private static final Duration PERIOD = Duration.ofSeconds(1);
+
+    @Test
+    void backtracksToWildcardWhenLiteralBranchDeadEnds() {
+        RouteLimitIndex index = compile("/provider1/api/{id}/**", "/provider1/api/users");
+
+        assertThat(index.match("/provider1/api/users/7").getKey()).isEqualTo("/provider1/api/{id}/**");
+        assertThat(index.match("/provider1/api/users").getKey()).isEqualTo("/provider1/api/users");
+        assertThat(index.match("/provider1/api/orders/7").getKey()).isEqualTo("/provider1/api/{id}/**");
+        assertThat(index.match("/provider2/api").getKey()).isNull();
+    }
+
+    @Test
+    void prefersMostSpecificMatch() {
+        RouteLimitIndex index = compile("/provider1/**", "/provider1/api/*", "/provider1/api/users", "/provider1/api/**");
+
+        assertThat(index.match("/provider1/api/users").getKey()).isEqualTo("/provider1/api/users");
+        assertThat(index.match("/provider1/api/orders").getKey()).isEqualTo("/provider1/api/*");
+        assertThat(index.match("/provider1/api/orders/7").getKey()).isEqualTo("/provider1/api/**");
+        assertThat(index.match("/provider1/other").getKey()).isEqualTo("/provider1/**");
+    }
+
+    @Test
+    void mixedLiteralAndWildcardRulesStayCorrectAtDepth() {
+        // 每层都有字面量与通配符两个分支，只有全部走通配符的路径上有规则
+        List<String> patterns = new ArrayList<>();
+        StringBuilder literal = new StringBuilder();
+        StringBuilder wildcard = new StringBuilder();
+        for (int depth = 0; depth < 24; depth++) {
+            literal.append("/a");
+            patterns.add(wildcard + "/a/x");
+            wildcard.append("/*");
+        }
+        patterns.add(wildcard.toString());
+        RouteLimitIndex index = compile(patterns.toArray(new String[0]));
+
+        assertThat(index.match(literal.toString()).getKey()).isEqualTo(wildcard.toString());
+        assertThat(index.match(literal + "/b").isDefault()).isTrue();
+    }
+
+    @Test
+    void rejectsDuplicatePatterns() {
+        assertThatThrownBy(() -> compile("/provider1/api/{id}", "/provider1/api/*"))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> compile("/provider1/**", "/provider1/**/"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void rejectsNonTrailingDoubleWildcard() {
+        assertThatThrownBy(() -> compile("/provider1/**/users"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static RouteLimitIndex compile(String... patterns) {
+        List<RateLimiterProperties.Rule> rules = new ArrayList<>();
+        for (String pattern : patterns) {
+            RateLimiterProperties.Rule rule = new RateLimiterProperties.Rule();
+            rule.setPattern(pattern);
+            rule.setLimit(10);
+            rules.add(rule);
+        }
+        return RouteLimitIndex.compile(rules, 100, PERIOD);
+    }
+}
@@ -0,0 +1,97 @@
+package org.example.gateway.loadbalancer;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 三个实例中一个变慢3倍时，峰值EWMA的两次随机选择应避开慢实例，p99 明显低于轮询
+ * 离散事件模拟：每个实例固定数量的工作线程，泊松到达，指数分布服务时间，按模拟时钟调用实际的选择代码
+ */
+class PeakEwmaLoadBalancerTest {
+
+    private static final int INSTANCES = 3;
+
+    private static final int WORKERS = 4;
+
+    private static final double MEAN_SERVICE_NANOS = 10e6;
+
+    private static final double[] SLOWDOWN = {1, 1, 3};
+
+    private static final int REQUESTS = 50_000;
+
+    @Test
+    void peakEwmaBeatsRoundRobinTailWithDegradedInstance() {
+        long roundRobin = p99(simulate(0.7, false));
+        long peakEwma = p99(simulate(0.7, true));
+
+        // 轮询时慢实例的排队决定尾延迟，P2C 应至少降低四分之一
+        assertThat(peakEwma).isLessThan(roundRobin * 3 / 4);
+    }
+
+    private static long p99(long[] latencies) {
+        Arrays.sort(latencies);
+        return latencies[(int) (latencies.length * 0.99)];
+    }
+
+    /**
+     * @param utilization 轮询时慢实例的利用率
+     * @return 各请求的响应时间，单位纳秒
+     */
+    private static long[] simulate(double utilization, boolean p2c) {
+        Random random = new Random(42);
+        InstanceLoadRegistry registry = new InstanceLoadRegistry(new LoadBalancingProperties());
+        PeakEwmaLoadBalancer balancer = new PeakEwmaLoadBalancer(null, "simulation", registry);
+        List<ServiceInstance> instances = new ArrayList<>();
+        for (int i = 0; i < INSTANCES; i++) {
+            instances.add(new DefaultServiceInstance("instance-" + i, "simulation", "10.0.0." + i, 8080, false));
+        }
+        InstanceLoad[] loads = instances.stream().map(registry::get).toArray(InstanceLoad[]::new);
+        double arrivalsPerNano = utilization * INSTANCES * WORKERS / (MEAN_SERVICE_NANOS * SLOWDOWN[INSTANCES - 1]);
+
+        // 负载统计按 System.nanoTime() 衰减，模拟时钟从当前时刻开始
+        long now = System.nanoTime();
+        long[][] workerFreeAt = new long[INSTANCES][WORKERS];
+        for (long[] workers : workerFreeAt) {
+            Arrays.fill(workers, now);
+        }
+        // 进行中的请求按完成时刻排序：{完成时刻, 实例下标, 响应时间}
+        PriorityQueue<long[]> inFlight = new PriorityQueue<>((a, b) -> Long.compare(a[0], b[0]));
+        long[] latencies = new long[REQUESTS];
+        for (int request = 0; request < REQUESTS; request++) {
+            now += (long) (-Math.log(1 - random.nextDouble()) / arrivalsPerNano);
+            while (!inFlight.isEmpty() && inFlight.peek()[0] <= now) {
+                long[] done = inFlight.poll();
+                InstanceLoad load = loads[(int) done[1]];
+                load.observe(done[2], done[0]);
+                load.finish();
+            }
+            int index = p2c
+                    ? instances.indexOf(balancer.select(instances, now).getServer())
+                    : request % INSTANCES;
+
+            long[] workers = workerFreeAt[index];
+            int worker = 0;
+            for (int i = 1; i < WORKERS; i++) {
+                if (workers[i] < workers[worker]) {
+                    worker = i;
+                }
+            }
+            long service = (long) (-Math.log(1 - random.nextDouble()) * MEAN_SERVICE_NANOS * SLOWDOWN[index]);
+            workers[worker] = Math.max(now, workers[worker]) + service;
+            long latency = workers[worker] - now;
+            latencies[request] = latency;
+            loads[index].start(now);
+            inFlight.add(new long[]{workers[worker], index, latency});
+        }
+        return latencies;
+    }
+}